@@ -0,0 +1,45 @@
+package org.example.agenta.benchmark;
+
+import org.example.agenta.model.AgentResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AgentResult 创建开销基准，包括Agent中常见的 HashMap 结果构建
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AgentResultBenchmark {
+
+    private final String agentId = "data-processor-agent";
+    private final String payload = "已处理的数据: [输入] -> 清洗后的结构化数据";
+
+    @Benchmark
+    public AgentResult success() {
+        return AgentResult.success(agentId, payload);
+    }
+
+    @Benchmark
+    public AgentResult failure() {
+        return AgentResult.failure(agentId, "执行失败");
+    }
+
+    /**
+     * 与DataProcessorAgent相同的结果构建方式
+     */
+    @Benchmark
+    public AgentResult successWithMapResult() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("originalData", "输入");
+        result.put("processedData", payload);
+        result.put("dataSize", payload.length());
+        return AgentResult.success(agentId, result);
+    }
+}
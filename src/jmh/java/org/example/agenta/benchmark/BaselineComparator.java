@@ -0,0 +1,87 @@
+package org.example.agenta.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基准回归检查：对比本次JMH JSON结果与已记录的基线
+ * 用法: BaselineComparator <baseline.json> <result.json> [允许退化百分比，默认20]
+ * 同时检查主指标（耗时/吞吐）和 -prof gc 的 gc.alloc.rate.norm（每次操作分配字节数）
+ */
+public final class BaselineComparator {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: BaselineComparator <baseline.json> <result.json> [tolerancePercent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100.0 : 0.20;
+
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.println("[新增] " + entry.getKey());
+                continue;
+            }
+            JsonNode run = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(run.path("mode").asText());
+
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double runScore = run.path("primaryMetric").path("score").asDouble();
+            if (isRegression(baseScore, runScore, higherIsBetter, tolerance)) {
+                regressions++;
+                System.out.printf("[退化] %s: %.3f -> %.3f %s%n", entry.getKey(), baseScore, runScore,
+                        run.path("primaryMetric").path("scoreUnit").asText());
+            }
+
+            JsonNode baseAlloc = base.path("secondaryMetrics").path(ALLOC_METRIC);
+            JsonNode runAlloc = run.path("secondaryMetrics").path(ALLOC_METRIC);
+            if (!baseAlloc.isMissingNode() && !runAlloc.isMissingNode()) {
+                double baseBytes = baseAlloc.path("score").asDouble();
+                double runBytes = runAlloc.path("score").asDouble();
+                // 分配量很小时忽略抖动
+                if (runBytes > 16 && isRegression(baseBytes, runBytes, false, tolerance)) {
+                    regressions++;
+                    System.out.printf("[分配退化] %s: %.1f -> %.1f B/op%n", entry.getKey(), baseBytes, runBytes);
+                }
+            }
+        }
+
+        System.out.println("对比完成，退化项: " + regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean isRegression(double base, double run, boolean higherIsBetter, double tolerance) {
+        if (base <= 0) {
+            return false;
+        }
+        return higherIsBetter ? run < base * (1 - tolerance) : run > base * (1 + tolerance);
+    }
+
+    /**
+     * 以 "benchmark + 参数" 为键加载结果
+     */
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(node.path("benchmark").asText());
+            node.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.toString(), node);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.agenta.benchmark;
+
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+
+/**
+ * 基准测试公共夹具：空操作Agent与常用DAG形状
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 空操作Agent，只返回成功结果，用于测量调度本身的开销
+     */
+    public static class NoopAgent implements Agent {
+
+        private final String agentId;
+
+        public NoopAgent(String agentId) {
+            this.agentId = agentId;
+        }
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "基准测试空操作Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(agentId, null);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+
+    public static String agentId(int index) {
+        return "noop-agent-" + index;
+    }
+
+    /**
+     * 宽扇出形状：nodeCount-1 个无依赖节点，最后一个节点AND依赖全部
+     */
+    public static WorkflowDAG wideWorkflow(int nodeCount) {
+        WorkflowDAG workflow = new WorkflowDAG("bench-wide-" + nodeCount);
+        WorkflowNode sink = new WorkflowNode("sink", new NoopAgent("noop-sink"))
+                .setOperator(LogicalOperator.AND);
+        for (int i = 0; i < nodeCount - 1; i++) {
+            workflow.addNode(new WorkflowNode("node-" + i, new NoopAgent(agentId(i))));
+            sink.addDependency(agentId(i));
+        }
+        return workflow.addNode(sink);
+    }
+
+    /**
+     * 分层形状：每层width个节点，每个节点依赖上一层同位置的节点，层数为nodeCount/width
+     */
+    public static WorkflowDAG layeredWorkflow(int nodeCount, int width) {
+        WorkflowDAG workflow = new WorkflowDAG("bench-layered-" + nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            WorkflowNode node = new WorkflowNode("node-" + i, new NoopAgent(agentId(i)));
+            if (i >= width) {
+                node.addDependency(agentId(i - width));
+            }
+            workflow.addNode(node);
+        }
+        return workflow;
+    }
+}
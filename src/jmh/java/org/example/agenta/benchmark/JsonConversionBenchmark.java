@@ -0,0 +1,54 @@
+package org.example.agenta.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.agent.ApiCallAgent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API服务中请求体JSON转换的基准
+ * ObjectMapper 使用与Spring Boot注入相同的 Jackson2ObjectMapperBuilder 默认配置
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonConversionBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> postBody;
+    private Object llmBody;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // 与ApiCallAgent默认POST请求相同的请求体
+        postBody = Map.of(
+                "title", "来自AgentA的请求",
+                "body", "已处理的数据: [输入] -> 清洗后的结构化数据",
+                "userId", 1
+        );
+        llmBody = ApiCallAgent.createLLMApiConfig("请总结以下数据").get("body");
+    }
+
+    @Benchmark
+    public String postBodyToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(postBody);
+    }
+
+    @Benchmark
+    public String llmBodyToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(llmBody);
+    }
+
+    @Benchmark
+    public byte[] postBodyToBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(postBody);
+    }
+}
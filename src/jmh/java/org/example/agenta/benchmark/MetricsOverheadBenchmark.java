@@ -0,0 +1,67 @@
+package org.example.agenta.benchmark;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.metrics.WorkflowMetrics;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.WorkflowContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标埋点开销基准：缓存命中后每次回调的耗时与分配（期望 gc.alloc.rate.norm ≈ 0）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsOverheadBenchmark {
+
+    private WorkflowMetrics metrics;
+    private WorkflowDAG workflow;
+    private WorkflowNode node;
+    private WorkflowContext context;
+    private AgentResult result;
+    private ApiRequest request;
+    private ApiResponse response;
+
+    @Setup
+    public void setUp() {
+        metrics = new WorkflowMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        workflow = new WorkflowDAG("bench-metrics", "bench");
+        node = new WorkflowNode("node-1", new BenchmarkFixtures.NoopAgent("noop-agent"));
+        context = new WorkflowContext("bench");
+        result = AgentResult.success("noop-agent", null);
+        context.addAgentResult("noop-agent", result);
+        request = ApiRequest.get("http://127.0.0.1:8080/posts/1");
+        response = ApiResponse.success(200, "{}");
+    }
+
+    /**
+     * 一个节点完整生命周期的三次回调
+     */
+    @Benchmark
+    public void nodeLifecycle() {
+        metrics.onNodeQueued(workflow, node, context);
+        metrics.onNodeStarted(workflow, node, context, 0L);
+        metrics.onNodeFinished(workflow, node, context, result, 1_000L);
+    }
+
+    @Benchmark
+    public void workflowLifecycle() {
+        metrics.onWorkflowStarted(workflow, context);
+        metrics.onWorkflowFinished(workflow, context, 1_000_000L, null);
+    }
+
+    @Benchmark
+    public void apiCallAttempt() {
+        metrics.onApiCallAttempt(request, 1, 0L, 5_000_000L, response, null);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.agenta.benchmark;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkflowContext 并发读写基准：多个读线程与一个写线程共享同一上下文
+ * 键集合固定并预先写入，写线程只覆盖已有键，模拟节点并行写结果、下游节点读取的场景
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class WorkflowContextBenchmark {
+
+    private static final int KEY_COUNT = 16;
+
+    private final String[] dataKeys = new String[KEY_COUNT];
+    private final String[] agentIds = new String[KEY_COUNT];
+    private final AgentResult[] results = new AgentResult[KEY_COUNT];
+
+    private WorkflowContext context;
+
+    @Setup
+    public void setUp() {
+        context = new WorkflowContext("bench");
+        for (int i = 0; i < KEY_COUNT; i++) {
+            dataKeys[i] = "key-" + i;
+            agentIds[i] = BenchmarkFixtures.agentId(i);
+            results[i] = AgentResult.success(agentIds[i], i);
+            context.addData(dataKeys[i], i);
+            context.addAgentResult(agentIds[i], results[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Object readData() {
+        return context.getData(dataKeys[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public WorkflowContext writeResult() {
+        int i = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        return context.addAgentResult(agentIds[i], results[i]);
+    }
+
+    @Benchmark
+    @Group("completionCheck")
+    @GroupThreads(3)
+    public boolean isAgentCompleted() {
+        return context.isAgentCompleted(agentIds[ThreadLocalRandom.current().nextInt(KEY_COUNT)]);
+    }
+
+    @Benchmark
+    @Group("completionCheck")
+    @GroupThreads(1)
+    public WorkflowContext writeData() {
+        int i = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        return context.addData(dataKeys[i], i);
+    }
+}
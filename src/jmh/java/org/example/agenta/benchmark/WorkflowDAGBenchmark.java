@@ -0,0 +1,44 @@
+package org.example.agenta.benchmark;
+
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.model.WorkflowContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkflowDAG调度开销基准：使用空操作Agent，只测量调度与依赖判断本身
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkflowDAGBenchmark {
+
+    @Param({"4", "64", "1024", "10000"})
+    private int nodeCount;
+
+    @Param({"wide", "layered"})
+    private String shape;
+
+    private WorkflowDAG workflow;
+
+    @Setup(Level.Invocation)
+    public void buildWorkflow() {
+        workflow = "wide".equals(shape)
+                ? BenchmarkFixtures.wideWorkflow(nodeCount)
+                : BenchmarkFixtures.layeredWorkflow(nodeCount, 16);
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownWorkflow() {
+        workflow.shutdown();
+    }
+
+    @Benchmark
+    public WorkflowContext execute() {
+        return workflow.execute(new WorkflowContext("bench")).join();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.agenta.benchmark;
+
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorkflowNode.checkCanExecute 依赖表达式评估基准
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkflowNodeBenchmark {
+
+    @Param({"1", "8", "64"})
+    private int dependencyCount;
+
+    @Param({"AND", "OR", "NOT"})
+    private LogicalOperator operator;
+
+    /**
+     * 上下文中已完成的依赖比例：all 为全部完成，none 为全部未完成
+     */
+    @Param({"all", "none"})
+    private String completed;
+
+    private WorkflowNode node;
+    private WorkflowContext context;
+
+    @Setup
+    public void setUp() {
+        node = new WorkflowNode("bench-node", new BenchmarkFixtures.NoopAgent("bench-agent"))
+                .setOperator(operator);
+        context = new WorkflowContext("bench");
+        for (int i = 0; i < dependencyCount; i++) {
+            String agentId = BenchmarkFixtures.agentId(i);
+            node.addDependency(agentId);
+            if ("all".equals(completed)) {
+                context.addAgentResult(agentId, AgentResult.success(agentId, null));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean checkCanExecute() {
+        return node.checkCanExecute(context);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.agenta.admission;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * 工作流准入被拒绝
+ * 等待队列已满时为 429，排队超过时限被丢弃时为 503；retryAfterSeconds 用于 Retry-After 响应头
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String workflowType;
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String workflowType, HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.workflowType = workflowType;
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
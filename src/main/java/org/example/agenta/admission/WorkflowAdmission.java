@@ -0,0 +1,223 @@
+package org.example.agenta.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 工作流准入控制
+ * 每种工作流类型有独立的在途上限和有界等待队列：
+ * - 有空闲名额时立即执行
+ * - 名额已满时进入等待队列，排队超过 queue-timeout 仍未执行则丢弃（503）
+ * - 等待队列也满时立即拒绝（429）
+ * 拒绝均附带 Retry-After 估算值，使节点在过载时快速失败而不是无限堆积线程。
+ *
+ * 配置（type 为工作流类型，如 sample / api / parallel-api）：
+ * agenta.admission.enabled
+ * agenta.admission.default.max-in-flight / max-queue / queue-timeout-ms
+ * agenta.admission.types.{type}.max-in-flight / max-queue / queue-timeout-ms
+ */
+@Component
+@Slf4j
+public class WorkflowAdmission {
+
+    private static final String PREFIX = "agenta.admission.";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    public WorkflowAdmission(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, true);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-admission-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在准入控制下执行工作流
+     * @param workflowType 工作流类型
+     * @param task         获得名额后才调用，返回工作流执行的future
+     * @return 工作流结果；被拒绝时以 {@link AdmissionRejectedException} 异常完成
+     */
+    public <T> CompletableFuture<T> submit(String workflowType, Supplier<CompletableFuture<T>> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        return lanes.computeIfAbsent(workflowType, this::createLane).submit(task);
+    }
+
+    private Lane createLane(String workflowType) {
+        int maxInFlight = property(workflowType, "max-in-flight", 16);
+        int maxQueue = property(workflowType, "max-queue", 64);
+        long queueTimeoutMs = property(workflowType, "queue-timeout-ms", 2000);
+        log.info("创建准入通道: {}, 在途上限: {}, 队列上限: {}, 排队时限: {}ms",
+                workflowType, maxInFlight, maxQueue, queueTimeoutMs);
+        return new Lane(workflowType, maxInFlight, maxQueue, queueTimeoutMs);
+    }
+
+    private int property(String workflowType, String key, int defaultValue) {
+        Integer fallback = environment.getProperty(PREFIX + "default." + key, Integer.class, defaultValue);
+        return environment.getProperty(PREFIX + "types." + workflowType + "." + key, Integer.class, fallback);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 单个工作流类型的准入通道
+     */
+    private final class Lane {
+
+        private final String workflowType;
+        private final int maxInFlight;
+        private final int maxQueue;
+        private final long queueTimeoutNanos;
+        private final ArrayDeque<Waiter<?>> queue = new ArrayDeque<>();
+        private final Counter rejectedQueueFull;
+        private final Counter shedQueueTimeout;
+        private int inFlight;
+        /** 工作流执行耗时的指数移动平均（纳秒），用于估算 Retry-After */
+        private double avgServiceNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private Lane(String workflowType, int maxInFlight, int maxQueue, long queueTimeoutMs) {
+            this.workflowType = workflowType;
+            this.maxInFlight = maxInFlight;
+            this.maxQueue = maxQueue;
+            this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+
+            Gauge.builder("agenta.admission.inflight", this, Lane::snapshotInFlight)
+                    .tag("type", workflowType).register(meterRegistry);
+            Gauge.builder("agenta.admission.queue", this, Lane::snapshotQueued)
+                    .tag("type", workflowType).register(meterRegistry);
+            this.rejectedQueueFull = Counter.builder("agenta.admission.rejected")
+                    .tag("type", workflowType).tag("reason", "queue_full").register(meterRegistry);
+            this.shedQueueTimeout = Counter.builder("agenta.admission.rejected")
+                    .tag("type", workflowType).tag("reason", "queue_timeout").register(meterRegistry);
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+            Waiter<T> waiter = new Waiter<>(task);
+            synchronized (this) {
+                if (inFlight < maxInFlight) {
+                    inFlight++;
+                } else if (queue.size() < maxQueue) {
+                    queue.addLast(waiter);
+                    waiter.timeout = timer.schedule(() -> expire(waiter), queueTimeoutNanos, TimeUnit.NANOSECONDS);
+                    return waiter.result;
+                } else {
+                    rejectedQueueFull.increment();
+                    long retryAfter = estimateRetryAfterSeconds(queue.size());
+                    waiter.result.completeExceptionally(new AdmissionRejectedException(workflowType,
+                            HttpStatus.TOO_MANY_REQUESTS, retryAfter, "工作流 " + workflowType + " 等待队列已满"));
+                    return waiter.result;
+                }
+            }
+            start(waiter);
+            return waiter.result;
+        }
+
+        /**
+         * 排队超时：仍在队列中则移出并以503失败
+         */
+        private void expire(Waiter<?> waiter) {
+            long retryAfter;
+            synchronized (this) {
+                if (!queue.remove(waiter)) {
+                    return;
+                }
+                retryAfter = estimateRetryAfterSeconds(queue.size());
+            }
+            shedQueueTimeout.increment();
+            waiter.result.completeExceptionally(new AdmissionRejectedException(workflowType,
+                    HttpStatus.SERVICE_UNAVAILABLE, retryAfter, "工作流 " + workflowType + " 排队超时"));
+        }
+
+        private <T> void start(Waiter<T> waiter) {
+            long startNanos = System.nanoTime();
+            CompletableFuture<T> execution;
+            try {
+                execution = waiter.task.get();
+            } catch (Exception e) {
+                execution = CompletableFuture.failedFuture(e);
+            }
+            execution.whenComplete((value, throwable) -> {
+                release(System.nanoTime() - startNanos);
+                if (throwable != null) {
+                    waiter.result.completeExceptionally(throwable);
+                } else {
+                    waiter.result.complete(value);
+                }
+            });
+        }
+
+        /**
+         * 释放名额，并把名额直接交给队首的等待者
+         */
+        private void release(long serviceNanos) {
+            Waiter<?> next;
+            synchronized (this) {
+                avgServiceNanos = avgServiceNanos * 0.8 + serviceNanos * 0.2;
+                next = queue.pollFirst();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            next.timeout.cancel(false);
+            start(next);
+        }
+
+        /**
+         * 估算何时可能有空闲名额：排在前面的请求数 / 并发上限 × 平均执行时间
+         */
+        private long estimateRetryAfterSeconds(int queued) {
+            double waves = (queued + 1) / (double) maxInFlight;
+            return Math.max(1, (long) Math.ceil(waves * avgServiceNanos / 1e9));
+        }
+
+        private synchronized int snapshotInFlight() {
+            return inFlight;
+        }
+
+        private synchronized int snapshotQueued() {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 等待执行的工作流请求
+     */
+    private static final class Waiter<T> {
+
+        private final Supplier<CompletableFuture<T>> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private ScheduledFuture<?> timeout;
+
+        private Waiter(Supplier<CompletableFuture<T>> task) {
+            this.task = task;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package org.example.agenta.agent;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.blob.BlobHandle;
+import org.example.agenta.blob.Spillable;
 import org.example.agenta.core.Agent;
 import org.example.agenta.model.AgentResult;
 import org.example.agenta.model.ApiRequest;
 import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
 import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.ApiCallCoalescer;
 import org.example.agenta.service.ApiCallService;
 import org.example.agenta.service.SimpleApiCallService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +21,12 @@ import org.springframework.stereotype.Component;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * API调用Agent - 具备调用外部API的能力
@@ -33,6 +44,9 @@ public class ApiCallAgent implements Agent {
     @Autowired
     private SimpleApiCallService simpleApiCallService;
     
+    @Autowired(required = false)
+    private ApiCallCoalescer apiCallCoalescer;
+    
     @Override
     public String getAgentId() {
         return AGENT_ID;
@@ -45,57 +59,73 @@ public class ApiCallAgent implements Agent {
     
     @Override
     public AgentResult execute(WorkflowContext context) {
+        return executeAsync(context, Runnable::run).toCompletableFuture().join();
+    }
+    
+    /**
+     * 发起API调用后立即返回，响应到达时在回调中构建结果，等待期间不占用工作流线程
+     */
+    @Override
+    public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
         try {
             log.info("ApiCallAgent 开始执行");
             
             // 从上下文获取API配置
-            ApiRequest apiRequest = buildApiRequest(context);
+            ApiRequest apiRequest = buildApiRequest(context)
+                    .setWorkflowId(context.getWorkflowId());
             
             // 调用API - 优先使用WebFlux实现，如果不可用则使用简单实现
-            CompletableFuture<ApiResponse> apiCallFuture;
+            Function<ApiRequest, CompletableFuture<ApiResponse>> transport;
             if (apiCallService != null) {
                 log.debug("使用WebFlux HTTP客户端");
-                apiCallFuture = apiCallService.callApiAsync(apiRequest);
+                transport = apiCallService::callApiAsync;
             } else {
                 log.debug("使用标准Java HTTP客户端");
-                apiCallFuture = simpleApiCallService.callApiAsync(apiRequest);
-            }
-            ApiResponse apiResponse = apiCallFuture.get(); // 等待API调用完成
-            
-            // 构建结果
-            Map<String, Object> result = new HashMap<>();
-            result.put("apiRequest", Map.of(
-                    "url", apiRequest.getUrl(),
-                    "method", apiRequest.getMethod(),
-                    "headers", apiRequest.getHeaders()
-            ));
-            result.put("apiResponse", Map.of(
-                    "statusCode", apiResponse.getStatusCode(),
-                    "success", apiResponse.isSuccess(),
-                    "body", apiResponse.getBody(),
-                    "executionTimeMs", apiResponse.getExecutionTimeMs()
-            ));
-            result.put("callSuccess", apiResponse.isSuccess());
-            
-            if (!apiResponse.isSuccess()) {
-                result.put("errorMessage", apiResponse.getErrorMessage());
-                log.warn("API调用失败: {}", apiResponse.getErrorMessage());
+                transport = simpleApiCallService::callApiAsync;
             }
+            // 相同的在途GET共享响应，批量端点的调用合并发出
+            CompletableFuture<ApiResponse> apiCallFuture = apiCallCoalescer != null
+                    ? apiCallCoalescer.callAsync(apiRequest, transport)
+                    : transport.apply(apiRequest);
             
-            log.info("ApiCallAgent 执行完成，API调用成功: {}", apiResponse.isSuccess());
-            return AgentResult.success(AGENT_ID, result);
+            return apiCallFuture
+                    .thenApply(apiResponse -> buildResult(apiRequest, apiResponse))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("ApiCallAgent 执行失败", cause);
+                        return AgentResult.failure(AGENT_ID, "API调用异常: " + cause.getMessage());
+                    });
             
         } catch (Exception e) {
             log.error("ApiCallAgent 执行失败", e);
-            return AgentResult.failure(AGENT_ID, "API调用异常: " + e.getMessage());
+            return CompletableFuture.completedFuture(AgentResult.failure(AGENT_ID, "API调用异常: " + e.getMessage()));
         }
     }
     
+    /**
+     * 根据API响应构建Agent结果
+     */
+    private AgentResult buildResult(ApiRequest apiRequest, ApiResponse apiResponse) {
+        ApiCallResult result = new ApiCallResult(
+                new RequestSummary(apiRequest.getUrl(), apiRequest.getMethod(), apiRequest.getHeaders()),
+                new ResponseSummary(apiResponse.getStatusCode(), apiResponse.isSuccess(), apiResponse.getBody(),
+                        apiResponse.getExecutionTimeMs()),
+                apiResponse.isSuccess(),
+                apiResponse.isSuccess() ? null : apiResponse.getErrorMessage());
+        
+        if (!apiResponse.isSuccess()) {
+            log.warn("API调用失败: {}", apiResponse.getErrorMessage());
+        }
+        
+        log.info("ApiCallAgent 执行完成，API调用成功: {}", apiResponse.isSuccess());
+        return AgentResult.success(AGENT_ID, result)
+                .setCost(new NodeCost().setBytesSent(apiRequest.getBytesSent()).setBytesReceived(apiRequest.getBytesReceived()));
+    }
+    
     @Override
     public boolean canExecute(WorkflowContext context) {
         // 检查是否有API配置
-        Object apiConfig = context.getData("apiConfig");
-        return apiConfig != null;
+        return context.get(WorkflowContext.API_CONFIG) != null;
     }
     
     /**
@@ -103,7 +133,7 @@ public class ApiCallAgent implements Agent {
      */
     private ApiRequest buildApiRequest(WorkflowContext context) {
         // 从上下文获取API配置
-        Object apiConfigObj = context.getData("apiConfig");
+        Object apiConfigObj = context.get(WorkflowContext.API_CONFIG);
         
         if (apiConfigObj instanceof Map) {
             @SuppressWarnings("unchecked")
@@ -151,7 +181,7 @@ public class ApiCallAgent implements Agent {
         String url = "https://jsonplaceholder.typicode.com/posts/1";
         
         // 如果上下文中有输入数据，可以作为查询参数或请求体
-        Object inputData = context.getData("input");
+        Object inputData = context.get(WorkflowContext.INPUT);
         if (inputData != null) {
             // 对于POST请求，可以将输入数据作为请求体
             url = "https://jsonplaceholder.typicode.com/posts";
@@ -213,4 +243,39 @@ public class ApiCallAgent implements Agent {
         
         return config;
     }
+    
+    /**
+     * API调用结果，响应体可能很大，可溢出到磁盘
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ApiCallResult(RequestSummary apiRequest, ResponseSummary apiResponse,
+                                boolean callSuccess, String errorMessage) implements Spillable {
+        
+        @Override
+        public Object spill(UnaryOperator<Object> spiller) {
+            Object body = spiller.apply(apiResponse.body);
+            return body == apiResponse.body ? this : new ApiCallResult(apiRequest,
+                    new ResponseSummary(apiResponse.statusCode, apiResponse.success, body, apiResponse.executionTimeMs),
+                    callSuccess, errorMessage);
+        }
+        
+        @Override
+        public void forEachSpilled(Consumer<Object> consumer) {
+            consumer.accept(apiResponse.body);
+        }
+    }
+    
+    public record RequestSummary(String url, String method, Map<String, String> headers) {
+    }
+    
+    public record ResponseSummary(int statusCode, boolean success, Object body, long executionTimeMs) {
+        
+        /**
+         * 响应体，溢出到磁盘时在此读回
+         */
+        @Override
+        public Object body() {
+            return BlobHandle.resolve(body);
+        }
+    }
 }
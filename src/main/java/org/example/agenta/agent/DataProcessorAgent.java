@@ -6,9 +6,6 @@ import org.example.agenta.model.AgentResult;
 import org.example.agenta.model.WorkflowContext;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Agent1 - 数据处理Agent
  * 负责处理输入数据，进行基础的数据清洗和转换
@@ -35,7 +32,7 @@ public class DataProcessorAgent implements Agent {
             log.info("DataProcessorAgent 开始执行");
             
             // 模拟数据处理逻辑
-            Object inputData = context.getData("input");
+            Object inputData = context.get(WorkflowContext.INPUT);
             if (inputData == null) {
                 inputData = "默认输入数据";
             }
@@ -44,10 +41,7 @@ public class DataProcessorAgent implements Agent {
             String processedData = processDataWithLLM(inputData.toString());
             
             // 构建结果
-            Map<String, Object> result = new HashMap<>();
-            result.put("originalData", inputData);
-            result.put("processedData", processedData);
-            result.put("dataSize", processedData.length());
+            ProcessedData result = new ProcessedData(inputData, processedData, processedData.length());
             
             // 模拟执行时间
             Thread.sleep(1000);
@@ -74,4 +68,10 @@ public class DataProcessorAgent implements Agent {
         // 这里模拟LLM调用，实际应用中可以集成LangChain4j
         return String.format("已处理的数据: [%s] -> 清洗后的结构化数据", input);
     }
+    
+    /**
+     * 数据处理结果
+     */
+    public record ProcessedData(Object originalData, String processedData, int dataSize) {
+    }
 }
@@ -0,0 +1,380 @@
+package org.example.agenta.agent;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.StreamingAgent;
+import org.example.agenta.llm.LlmBatcher;
+import org.example.agenta.llm.LlmScheduler;
+import org.example.agenta.llm.PromptCache;
+import org.example.agenta.llm.SemanticCache;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ContextKey;
+import org.example.agenta.model.WorkflowContext;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * LLM Agent - 基于LangChain4j流式对话模型
+ * 作为工作流节点时，以 prompt 模板中的 {input} 替换上下文输入后发起请求，
+ * 每个token到达时回调上下文中的 {@link #TOKEN_LISTENER}，完成后返回全文与首token耗时；等待期间不占用线程。
+ * 作为流水线阶段时，每条上游记录作为一次提示，产出的token逐个作为记录交给下游阶段。
+ * 启用 {@link PromptCache} 后相同的提示直接返回缓存结果，启用 {@link SemanticCache} 后足够相似的提示也直接返回，
+ * 命中时全文作为一个token转发。
+ * 启用 {@link LlmScheduler} 后未命中缓存的请求先按上下文中的 {@link WorkflowContext#DEADLINE} 排队申请配额。
+ * 启用 {@link LlmBatcher} 后同一工作流执行中并发的提示合并为一次请求，结果整体作为一个token转发；
+ * 上下文中的 {@link #BATCH_KEY} 可显式指定允许互相合并的范围。
+ */
+@Slf4j
+public class LlmAgent implements Agent, StreamingAgent {
+
+    public static final String AGENT_ID = "llm-agent";
+
+    /**
+     * token监听器，放入上下文后可在生成过程中逐个收到token（如转发给SSE客户端）
+     */
+    public static final ContextKey<TokenListener> TOKEN_LISTENER = ContextKey.of("llmTokenListener", TokenListener.class);
+
+    /**
+     * 微批处理的批次键，相同键的提示才会合并到同一次请求；未设置时为所在工作流执行（含其扇出子工作流）
+     */
+    public static final ContextKey<String> BATCH_KEY = ContextKey.of("llmBatchKey", String.class);
+
+    @FunctionalInterface
+    public interface TokenListener {
+        /**
+         * 在模型客户端的回调线程上调用，实现必须快速返回
+         */
+        void onToken(String agentId, String token);
+    }
+
+    private final String agentId;
+    private final StreamingChatLanguageModel model;
+    private final String promptTemplate;
+    private final Duration timeout;
+    private final Timer firstTokenTimer;
+    private final Timer durationTimer;
+    private PromptCache cache;
+    private SemanticCache semanticCache;
+    private LlmScheduler scheduler;
+    private int expectedOutputTokens;
+    private LlmBatcher batcher;
+    private String modelName;
+    private Map<String, ?> parameters;
+
+    public LlmAgent(StreamingChatLanguageModel model, String promptTemplate, Duration timeout, MeterRegistry registry) {
+        this(AGENT_ID, model, promptTemplate, timeout, registry);
+    }
+
+    /**
+     * @param timeout 单次生成的总超时；模型客户端在部分连接失败时不回调 onError，以此兜底
+     */
+    public LlmAgent(String agentId, StreamingChatLanguageModel model, String promptTemplate, Duration timeout,
+                    MeterRegistry registry) {
+        this.agentId = agentId;
+        this.model = model;
+        this.promptTemplate = promptTemplate;
+        this.timeout = timeout;
+        this.firstTokenTimer = registry == null ? null : Timer.builder("agenta.llm.first-token")
+                .description("LLM首个token到达耗时").tag("agent", agentId).register(registry);
+        this.durationTimer = registry == null ? null : Timer.builder("agenta.llm.duration")
+                .description("LLM生成完成耗时").tag("agent", agentId).register(registry);
+    }
+
+    /**
+     * 启用提示缓存，模型名与生成参数参与缓存键
+     */
+    public LlmAgent withCache(PromptCache cache, String modelName, Map<String, ?> parameters) {
+        this.cache = cache;
+        this.modelName = modelName;
+        this.parameters = Map.copyOf(parameters);
+        return this;
+    }
+
+    /**
+     * 启用语义缓存，在精确匹配未命中后按提示的相似度查找，只匹配同一模型与参数下的结果
+     */
+    public LlmAgent withSemanticCache(SemanticCache semanticCache, String modelName, Map<String, ?> parameters) {
+        this.semanticCache = semanticCache;
+        this.modelName = modelName;
+        this.parameters = Map.copyOf(parameters);
+        return this;
+    }
+
+    /**
+     * 启用配额调度，expectedOutputTokens 为估算请求token数时计入的预期输出
+     */
+    public LlmAgent withScheduler(LlmScheduler scheduler, int expectedOutputTokens) {
+        this.scheduler = scheduler;
+        this.expectedOutputTokens = expectedOutputTokens;
+        return this;
+    }
+
+    /**
+     * 启用微批处理：并发的提示在 maxLinger 内最多 maxBatchSize 条合并为一次请求（仍经过配额调度）
+     */
+    public LlmAgent withBatching(int maxBatchSize, Duration maxLinger, MeterRegistry registry) {
+        this.batcher = new LlmBatcher(maxBatchSize, maxLinger, (prompt, deadline) -> schedule(prompt, deadline, token -> {
+        }));
+        if (registry != null) {
+            batcher.bindTo(registry);
+        }
+        return this;
+    }
+
+    @Override
+    public String getAgentId() {
+        return agentId;
+    }
+
+    @Override
+    public String getDescription() {
+        return "LLM Agent - 调用流式对话模型，逐个转发生成的token";
+    }
+
+    @Override
+    public AgentResult execute(WorkflowContext context) {
+        return executeAsync(context, Runnable::run).toCompletableFuture().join();
+    }
+
+    @Override
+    public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+        String prompt = prompt(context.get(WorkflowContext.INPUT));
+        TokenListener listener = context.get(TOKEN_LISTENER);
+        StringBuilder text = new StringBuilder();
+        int[] tokenCount = new int[1];
+        long startNanos = System.nanoTime();
+        long[] firstTokenNanos = {-1};
+        log.info("LlmAgent {} 开始执行，提示长度: {}", agentId, prompt.length());
+
+        return generate(prompt, context.get(WorkflowContext.DEADLINE), batchKey(context), token -> {
+            if (firstTokenNanos[0] < 0) {
+                firstTokenNanos[0] = System.nanoTime() - startNanos;
+            }
+            tokenCount[0]++;
+            text.append(token);
+            if (listener != null) {
+                listener.onToken(agentId, token);
+            }
+        }).handle((generation, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    log.error("LlmAgent {} 调用超时: {}", agentId, timeout);
+                    return AgentResult.failure(agentId, "LLM调用超时: " + timeout.toSeconds() + "s");
+                }
+                log.error("LlmAgent {} 执行失败", agentId, cause);
+                return AgentResult.failure(agentId, "LLM调用失败: " + cause.getMessage());
+            }
+            long totalNanos = System.nanoTime() - startNanos;
+            PromptCache.Completion completion = generation.completion();
+            LlmResult result = new LlmResult(text.toString(), tokenCount[0],
+                    firstTokenNanos[0] < 0 ? null : TimeUnit.NANOSECONDS.toMillis(firstTokenNanos[0]),
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                    completion.inputTokens(), completion.outputTokens(), completion.finishReason(), generation.cached());
+            log.info("LlmAgent {} 执行完成，token数: {}, 首token: {}ms, 总耗时: {}ms, 缓存命中: {}",
+                    agentId, result.tokenCount(), result.firstTokenMs(), result.totalMs(), result.cached());
+            return AgentResult.success(agentId, result);
+        });
+    }
+
+    @Override
+    public boolean canExecute(WorkflowContext context) {
+        return true;
+    }
+
+    @Override
+    public Flux<Object> process(Flux<Object> records, WorkflowContext context) {
+        Long deadline = context.get(WorkflowContext.DEADLINE);
+        return records.concatMap(record -> stream(prompt(record), deadline));
+    }
+
+    /**
+     * 以token流的形式生成，订阅时才发起请求
+     */
+    public Flux<String> stream(String prompt) {
+        return stream(prompt, null);
+    }
+
+    /**
+     * @param deadline 截止时间（epoch毫秒），用于配额调度排序，可为null
+     */
+    public Flux<String> stream(String prompt, Long deadline) {
+        return Flux.create(sink -> generate(prompt, deadline, null, sink::next).whenComplete((response, error) -> {
+            if (error != null) {
+                sink.error(error);
+            } else {
+                sink.complete();
+            }
+        }));
+    }
+
+    private String prompt(Object input) {
+        return promptTemplate.replace("{input}", String.valueOf(input != null ? input : ""));
+    }
+
+    /**
+     * 批次键：显式指定的键，否则为根工作流执行ID（扇出子工作流的ID以 "父ID#" 开头）
+     */
+    private static String batchKey(WorkflowContext context) {
+        String explicit = context.get(BATCH_KEY);
+        if (explicit != null || context.getWorkflowId() == null) {
+            return explicit;
+        }
+        String workflowId = context.getWorkflowId();
+        int child = workflowId.indexOf('#');
+        return child >= 0 ? workflowId.substring(0, child) : workflowId;
+    }
+
+    /**
+     * 生成一次完成结果：缓存命中时把全文作为一个token交给 onToken，否则发起请求并在正常结束后写入缓存
+     * @param batchKey 微批处理的批次键，为null时不参与合并
+     */
+    private CompletableFuture<Generation> generate(String prompt, Long deadline, String batchKey, Consumer<String> onToken) {
+        String key = cache != null ? PromptCache.key(modelName, parameters, prompt) : null;
+        if (key != null) {
+            PromptCache.Completion hit = cache.get(key);
+            if (hit != null) {
+                onToken.accept(hit.text());
+                return CompletableFuture.completedFuture(new Generation(hit, true));
+            }
+        }
+        String namespace = semanticCache != null ? SemanticCache.namespace(modelName, parameters) : null;
+        if (namespace != null) {
+            SemanticCache.Hit hit = semanticCache.get(namespace, prompt);
+            if (hit != null) {
+                log.debug("LlmAgent {} 语义缓存命中，相似度: {}", agentId, hit.similarity());
+                onToken.accept(hit.completion().text());
+                return CompletableFuture.completedFuture(new Generation(hit.completion(), true));
+            }
+        }
+        if (batcher != null && batchKey != null) {
+            return batcher.submit(batchKey, prompt, deadline).thenApply(answer -> {
+                onToken.accept(answer.completion().text());
+                // 合并请求的回答与同批其他提示共享模型上下文，不作为这条提示的结果缓存
+                if (!answer.merged()) {
+                    remember(key, namespace, prompt, answer.completion());
+                }
+                return new Generation(answer.completion(), false);
+            });
+        }
+        return schedule(prompt, deadline, onToken).thenApply(response -> {
+            TokenUsage usage = response.tokenUsage();
+            FinishReason finishReason = response.finishReason();
+            PromptCache.Completion completion = new PromptCache.Completion(response.content().text(),
+                    usage != null ? usage.inputTokenCount() : null,
+                    usage != null ? usage.outputTokenCount() : null,
+                    finishReason != null ? finishReason.name() : null);
+            remember(key, namespace, prompt, completion);
+            return new Generation(completion, false);
+        });
+    }
+
+    /**
+     * 正常结束的结果写入缓存，被截断或过滤的结果不缓存
+     */
+    private void remember(String key, String namespace, String prompt, PromptCache.Completion completion) {
+        String finishReason = completion.finishReason();
+        if (finishReason == null || FinishReason.STOP.name().equals(finishReason)) {
+            if (key != null) {
+                cache.put(key, completion);
+            }
+            if (namespace != null) {
+                semanticCache.put(namespace, prompt, completion);
+            }
+        }
+    }
+
+    /**
+     * 启用调度时先申请配额再发起请求，结束后按实际用量归还；未启用时直接发起请求
+     */
+    private CompletableFuture<Response<AiMessage>> schedule(String prompt, Long deadline, Consumer<String> onToken) {
+        if (scheduler == null) {
+            return request(prompt, onToken);
+        }
+        int estimatedTokens = LlmScheduler.estimateTokens(prompt, expectedOutputTokens);
+        return scheduler.acquire(estimatedTokens, deadline != null ? deadline : Long.MAX_VALUE)
+                .thenCompose(permit -> request(prompt, onToken).whenComplete((response, error) -> {
+                    TokenUsage usage = response != null ? response.tokenUsage() : null;
+                    Integer actualTokens = usage != null ? usage.totalTokenCount() : null;
+                    permit.release(actualTokens != null ? actualTokens : -1, isThrottled(error));
+                }));
+    }
+
+    private static boolean isThrottled(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof OpenAiHttpException http && http.code() == 429;
+    }
+
+    /**
+     * 发起流式请求，token在模型客户端的回调线程上依次交给 onToken
+     */
+    private CompletableFuture<Response<AiMessage>> request(String prompt, Consumer<String> onToken) {
+        CompletableFuture<Response<AiMessage>> future = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+        try {
+            model.generate(prompt, new StreamingResponseHandler<>() {
+                private boolean first = true;
+
+                @Override
+                public void onNext(String token) {
+                    if (future.isDone()) {
+                        return;  // 已超时
+                    }
+                    if (first) {
+                        first = false;
+                        if (firstTokenTimer != null) {
+                            firstTokenTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    onToken.accept(token);
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    if (durationTimer != null) {
+                        durationTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    }
+                    future.complete(response);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    future.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * LLM生成结果，firstTokenMs 为首token到达耗时
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record LlmResult(String text, int tokenCount, Long firstTokenMs, long totalMs,
+                            Integer inputTokens, Integer outputTokens, String finishReason, boolean cached) {
+    }
+
+    private record Generation(PromptCache.Completion completion, boolean cached) {
+    }
+}
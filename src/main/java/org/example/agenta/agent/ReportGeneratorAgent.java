@@ -1,5 +1,6 @@
 package org.example.agenta.agent;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.extern.slf4j.Slf4j;
 import org.example.agenta.core.Agent;
 import org.example.agenta.model.AgentResult;
@@ -8,8 +9,6 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Agent3 - 报告生成Agent
@@ -58,18 +57,11 @@ public class ReportGeneratorAgent implements Agent {
             String report = generateReportWithLLM(dataProcessorResult, validationResult, apiCallResult, context);
             
             // 构建结果
-            Map<String, Object> result = new HashMap<>();
-            result.put("finalReport", report);
-            result.put("generatedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            result.put("dataProcessorSummary", summarizeAgentResult(dataProcessorResult));
-            
-            if (validationResult != null) {
-                result.put("validationSummary", summarizeAgentResult(validationResult));
-            }
-            
-            if (apiCallResult != null) {
-                result.put("apiCallSummary", summarizeAgentResult(apiCallResult));
-            }
+            Report result = new Report(report,
+                    LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                    summarizeAgentResult(dataProcessorResult),
+                    summarizeAgentResult(validationResult),
+                    summarizeAgentResult(apiCallResult));
             
             // 模拟执行时间
             Thread.sleep(1200);
@@ -108,59 +100,49 @@ public class ReportGeneratorAgent implements Agent {
         
         // 数据处理结果摘要
         report.append("## 数据处理结果\n");
-        if (dataResult.getResult() instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> dataMap = (Map<String, Object>) dataResult.getResult();
-            report.append("- 原始数据: ").append(dataMap.get("originalData")).append("\n");
-            report.append("- 处理后数据: ").append(dataMap.get("processedData")).append("\n");
-            report.append("- 数据大小: ").append(dataMap.get("dataSize")).append(" 字符\n\n");
+        DataProcessorAgent.ProcessedData data = context.getResult("data-processor-agent", DataProcessorAgent.ProcessedData.class);
+        if (data != null) {
+            report.append("- 原始数据: ").append(data.originalData()).append("\n");
+            report.append("- 处理后数据: ").append(data.processedData()).append("\n");
+            report.append("- 数据大小: ").append(data.dataSize()).append(" 字符\n\n");
         }
         
         // 验证结果摘要（如果存在）
-        if (validationResult != null && validationResult.isSuccess()) {
+        ValidationAgent.ValidationResult validation = context.getResult("validation-agent", ValidationAgent.ValidationResult.class);
+        if (validation != null) {
             report.append("## 验证结果\n");
-            if (validationResult.getResult() instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> validationMap = (Map<String, Object>) validationResult.getResult();
-                report.append("- 验证状态: ").append(validationMap.get("isValid")).append("\n");
-                report.append("- 验证评分: ").append(validationMap.get("validationScore")).append("\n");
-                report.append("- 验证报告: ").append(validationMap.get("validationReport")).append("\n\n");
-            }
+            report.append("- 验证状态: ").append(validation.isValid()).append("\n");
+            report.append("- 验证评分: ").append(validation.validationScore()).append("\n");
+            report.append("- 验证报告: ").append(validation.validationReport()).append("\n\n");
         }
         
         // API调用结果摘要（如果存在）
-        if (apiCallResult != null && apiCallResult.isSuccess()) {
+        ApiCallAgent.ApiCallResult apiCall = context.getResult("api-call-agent", ApiCallAgent.ApiCallResult.class);
+        if (apiCall != null) {
             report.append("## API调用结果\n");
-            if (apiCallResult.getResult() instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> apiMap = (Map<String, Object>) apiCallResult.getResult();
-                
-                @SuppressWarnings("unchecked")
-                Map<String, Object> apiRequest = (Map<String, Object>) apiMap.get("apiRequest");
-                @SuppressWarnings("unchecked")
-                Map<String, Object> apiResponse = (Map<String, Object>) apiMap.get("apiResponse");
-                
-                if (apiRequest != null) {
-                    report.append("- 请求URL: ").append(apiRequest.get("url")).append("\n");
-                    report.append("- 请求方法: ").append(apiRequest.get("method")).append("\n");
-                }
+            ApiCallAgent.RequestSummary apiRequest = apiCall.apiRequest();
+            ApiCallAgent.ResponseSummary apiResponse = apiCall.apiResponse();
+            
+            if (apiRequest != null) {
+                report.append("- 请求URL: ").append(apiRequest.url()).append("\n");
+                report.append("- 请求方法: ").append(apiRequest.method()).append("\n");
+            }
+            
+            if (apiResponse != null) {
+                report.append("- 响应状态码: ").append(apiResponse.statusCode()).append("\n");
+                report.append("- 调用成功: ").append(apiResponse.success()).append("\n");
+                report.append("- 执行时间: ").append(apiResponse.executionTimeMs()).append("ms\n");
                 
-                if (apiResponse != null) {
-                    report.append("- 响应状态码: ").append(apiResponse.get("statusCode")).append("\n");
-                    report.append("- 调用成功: ").append(apiResponse.get("success")).append("\n");
-                    report.append("- 执行时间: ").append(apiResponse.get("executionTimeMs")).append("ms\n");
-                    
-                    Object body = apiResponse.get("body");
-                    if (body != null) {
-                        String bodyStr = body.toString();
-                        if (bodyStr.length() > 100) {
-                            bodyStr = bodyStr.substring(0, 100) + "...";
-                        }
-                        report.append("- 响应内容: ").append(bodyStr).append("\n");
+                Object body = apiResponse.body();
+                if (body != null) {
+                    String bodyStr = body.toString();
+                    if (bodyStr.length() > 100) {
+                        bodyStr = bodyStr.substring(0, 100) + "...";
                     }
+                    report.append("- 响应内容: ").append(bodyStr).append("\n");
                 }
-                report.append("\n");
             }
+            report.append("\n");
         }
         
         // 使用LLM生成智能总结
@@ -175,18 +157,28 @@ public class ReportGeneratorAgent implements Agent {
     }
     
     /**
-     * 汇总Agent执行结果
+     * 汇总Agent执行结果，Agent未执行时返回null
      */
-    private Map<String, Object> summarizeAgentResult(AgentResult result) {
-        Map<String, Object> summary = new HashMap<>();
-        summary.put("agentId", result.getAgentId());
-        summary.put("success", result.isSuccess());
-        summary.put("executionTime", result.getExecutionTime());
-        
-        if (!result.isSuccess()) {
-            summary.put("errorMessage", result.getErrorMessage());
+    private AgentSummary summarizeAgentResult(AgentResult result) {
+        if (result == null) {
+            return null;
         }
-        
-        return summary;
+        return new AgentSummary(result.getAgentId(), result.isSuccess(), result.getExecutionTime(),
+                result.isSuccess() ? null : result.getErrorMessage());
+    }
+    
+    /**
+     * 综合报告
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Report(String finalReport, String generatedAt, AgentSummary dataProcessorSummary,
+                         AgentSummary validationSummary, AgentSummary apiCallSummary) {
+    }
+    
+    /**
+     * 前置Agent执行摘要
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record AgentSummary(String agentId, boolean success, LocalDateTime executionTime, String errorMessage) {
     }
 }
@@ -0,0 +1,56 @@
+package org.example.agenta.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.StreamingAgent;
+import org.example.agenta.model.WorkflowContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 流式数据处理Agent - DataProcessorAgent 的逐条版本
+ * 每条记录单独处理（模拟一次LLM调用），最多同时处理 concurrency 条，输出保持输入顺序
+ */
+@Component
+@Slf4j
+public class StreamingDataProcessorAgent implements StreamingAgent {
+
+    private static final String AGENT_ID = "streaming-data-processor-agent";
+
+    private final Duration recordLatency;
+    private final int concurrency;
+
+    public StreamingDataProcessorAgent(@Value("${agenta.streaming.record-latency-ms:50}") long recordLatencyMs,
+                                       @Value("${agenta.streaming.concurrency:4}") int concurrency) {
+        this.recordLatency = Duration.ofMillis(recordLatencyMs);
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public String getAgentId() {
+        return AGENT_ID;
+    }
+
+    @Override
+    public Flux<Object> process(Flux<Object> records, WorkflowContext context) {
+        return records.flatMapSequential(record -> Mono.delay(recordLatency).map(tick -> processRecord(record)),
+                concurrency, concurrency);
+    }
+
+    /**
+     * 模拟使用LLM处理单条记录
+     */
+    private Object processRecord(Object record) {
+        String processedData = String.format("已处理的数据: [%s] -> 清洗后的结构化数据", record);
+        Map<String, Object> result = new HashMap<>();
+        result.put("originalData", record);
+        result.put("processedData", processedData);
+        result.put("dataSize", processedData.length());
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.agenta.agent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.StreamingAgent;
+import org.example.agenta.model.WorkflowContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式报告生成Agent - 边接收上游记录边累计统计，上游结束时输出一份报告
+ * 只保留计数和少量样例，内存占用与记录数无关
+ */
+@Component
+@Slf4j
+public class StreamingReportGeneratorAgent implements StreamingAgent {
+
+    private static final String AGENT_ID = "streaming-report-generator-agent";
+    private static final int MAX_SAMPLES = 5;
+
+    @Override
+    public String getAgentId() {
+        return AGENT_ID;
+    }
+
+    @Override
+    public Flux<Object> process(Flux<Object> records, WorkflowContext context) {
+        return records.reduceWith(ReportAccumulator::new, ReportAccumulator::add)
+                .map(accumulator -> (Object) accumulator.toReport(context))
+                .flux();
+    }
+
+    /**
+     * 报告累计状态
+     */
+    private static final class ReportAccumulator {
+
+        private long recordCount;
+        private long totalDataSize;
+        private final List<Object> samples = new ArrayList<>();
+
+        private ReportAccumulator add(Object record) {
+            recordCount++;
+            if (record instanceof Map<?, ?> map && map.get("dataSize") instanceof Number size) {
+                totalDataSize += size.longValue();
+            }
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(record instanceof Map<?, ?> map ? map.get("processedData") : record);
+            }
+            return this;
+        }
+
+        private Map<String, Object> toReport(WorkflowContext context) {
+            StringBuilder report = new StringBuilder();
+            report.append("=== 流式处理报告 ===\n");
+            report.append("工作流ID: ").append(context.getWorkflowId()).append("\n");
+            report.append("生成时间: ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\n\n");
+            report.append("## 数据处理结果\n");
+            report.append("- 记录数: ").append(recordCount).append("\n");
+            report.append("- 处理后数据总大小: ").append(totalDataSize).append(" 字符\n");
+            samples.forEach(sample -> report.append("- 样例: ").append(sample).append("\n"));
+            report.append("\n=== 报告结束 ===");
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("finalReport", report.toString());
+            result.put("recordCount", recordCount);
+            result.put("totalDataSize", totalDataSize);
+            result.put("samples", samples);
+            log.info("StreamingReportGeneratorAgent 生成报告，记录数: {}", recordCount);
+            return result;
+        }
+    }
+}
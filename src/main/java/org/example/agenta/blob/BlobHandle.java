@@ -0,0 +1,98 @@
+package org.example.agenta.blob;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 溢出到磁盘的大值句柄，堆上只保留文件路径和只读映射
+ * 引用计数归零时删除文件，之后再读取会抛出 IllegalStateException。
+ */
+public final class BlobHandle {
+
+    private final BlobStore store;
+    private final Path path;
+    private final int length;
+    private final boolean text;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile MappedByteBuffer buffer;
+
+    BlobHandle(BlobStore store, Path path, MappedByteBuffer buffer, boolean text) {
+        this.store = store;
+        this.path = path;
+        this.buffer = buffer;
+        this.length = buffer.capacity();
+        this.text = text;
+    }
+
+    /**
+     * 若值为句柄则读回原始值，否则原样返回
+     */
+    public static Object resolve(Object value) {
+        return value instanceof BlobHandle handle ? handle.materialize() : value;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isText() {
+        return text;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * 零拷贝读取：返回映射区的只读视图，各调用方的读位置互不影响
+     */
+    public ByteBuffer asByteBuffer() {
+        MappedByteBuffer mapped = buffer;
+        if (mapped == null) {
+            throw new IllegalStateException("blob已释放: " + path.getFileName());
+        }
+        return mapped.asReadOnlyBuffer();
+    }
+
+    /**
+     * 读回为堆上的值（文本为String，二进制为byte[]），只在调用时临时占用堆
+     */
+    @JsonValue
+    public Object materialize() {
+        ByteBuffer view = asByteBuffer();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return text ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+    }
+
+    public BlobHandle retain() {
+        if (references.getAndUpdate(count -> count > 0 ? count + 1 : count) <= 0) {
+            throw new IllegalStateException("blob已释放: " + path.getFileName());
+        }
+        return this;
+    }
+
+    /**
+     * 释放一次引用，最后一次释放时删除文件
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            buffer = null;  // 映射在GC时解除，文件先删除
+            store.delete(this);
+        }
+    }
+
+    public boolean isReleased() {
+        return buffer == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BlobHandle{" + path.getFileName() + ", " + length + " bytes}";
+    }
+}
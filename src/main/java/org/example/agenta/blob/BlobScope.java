@@ -0,0 +1,220 @@
+package org.example.agenta.blob;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.NodeCost;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个工作流上下文持有的溢出值
+ * 超过阈值的String/byte[]（包括嵌套在Map、List和 {@link Spillable} 结果中的）写入BlobStore，原位置换成句柄；
+ * 嵌套结构替换为按需读回的只读视图，调用方读到的仍是原始类型。
+ * 上下文使用完毕时调用 close() 释放全部句柄，上下文被回收时也会兜底释放。
+ */
+@Slf4j
+public final class BlobScope implements AutoCloseable {
+
+    private static final int MAX_DEPTH = 8;
+
+    private final BlobStore store;
+    private final Set<BlobHandle> handles = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    BlobScope(BlobStore store) {
+        this.store = store;
+    }
+
+    /**
+     * 按阈值溢出值，没有需要溢出的部分时返回原对象
+     */
+    public Object spill(Object value) {
+        return closed.get() ? value : spill(value, 0);
+    }
+
+    private Object spill(Object value, int depth) {
+        if (value instanceof String text) {
+            // 阈值按UTF-8字节数比较；字符数已达阈值时字节数必然达到，无需再计算
+            long threshold = store.getThresholdBytes();
+            boolean large = text.length() >= threshold
+                    || (text.length() * 3L >= threshold && NodeCost.utf8Length(text) >= threshold);
+            return large ? write(text.getBytes(StandardCharsets.UTF_8), true, value) : value;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length >= store.getThresholdBytes() ? write(bytes, false, value) : value;
+        }
+        if (depth >= MAX_DEPTH || value instanceof SpilledMap || value instanceof SpilledList) {
+            return value;
+        }
+        if (value instanceof Spillable spillable) {
+            return spillable.spill(field -> spill(field, depth + 1));
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = null;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object spilled = spill(entry.getValue(), depth + 1);
+                if (spilled != entry.getValue() && copy == null) {
+                    copy = new LinkedHashMap<>(map);
+                }
+                if (copy != null) {
+                    copy.put(entry.getKey(), spilled);
+                }
+            }
+            return copy != null ? new SpilledMap(copy) : value;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = null;
+            for (int i = 0; i < list.size(); i++) {
+                Object element = list.get(i);
+                Object spilled = spill(element, depth + 1);
+                if (spilled != element && copy == null) {
+                    copy = new ArrayList<>(list);
+                }
+                if (copy != null) {
+                    copy.set(i, spilled);
+                }
+            }
+            return copy != null ? new SpilledList(copy) : value;
+        }
+        return value;
+    }
+
+    private Object write(byte[] bytes, boolean text, Object original) {
+        try {
+            BlobHandle handle = store.write(bytes, text);
+            handles.add(handle);
+            if (closed.get() && handles.remove(handle)) {
+                handle.release();
+                return original;
+            }
+            return handle;
+        } catch (IOException | RuntimeException e) {
+            log.warn("大值溢出失败，保留在堆上: {}", e.getMessage());
+            return original;
+        }
+    }
+
+    /**
+     * 值被覆盖时释放其中由本作用域创建的句柄
+     */
+    public void discard(Object value) {
+        discard(value, 0);
+    }
+
+    private void discard(Object value, int depth) {
+        if (value instanceof BlobHandle handle) {
+            if (handles.remove(handle)) {
+                handle.release();
+            }
+        } else if (depth < MAX_DEPTH && value instanceof SpilledMap map) {
+            map.backing.values().forEach(element -> discard(element, depth + 1));
+        } else if (depth < MAX_DEPTH && value instanceof SpilledList list) {
+            list.backing.forEach(element -> discard(element, depth + 1));
+        } else if (depth < MAX_DEPTH && value instanceof Spillable spillable) {
+            spillable.forEachSpilled(field -> discard(field, depth + 1));
+        }
+    }
+
+    public int getHandleCount() {
+        return handles.size();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (Iterator<BlobHandle> iterator = handles.iterator(); iterator.hasNext(); ) {
+            BlobHandle handle = iterator.next();
+            iterator.remove();
+            handle.release();
+        }
+    }
+
+    /**
+     * 含溢出值的Map只读视图，读取时按需读回
+     */
+    static final class SpilledMap extends AbstractMap<Object, Object> {
+
+        private final Map<Object, Object> backing;
+
+        SpilledMap(Map<Object, Object> backing) {
+            this.backing = backing;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return BlobHandle.resolve(backing.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return backing.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Object, Object>> iterator() {
+                    Iterator<Entry<Object, Object>> entries = backing.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            Entry<Object, Object> entry = entries.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), BlobHandle.resolve(entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return backing.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * 含溢出值的List只读视图，读取时按需读回
+     */
+    static final class SpilledList extends AbstractList<Object> {
+
+        private final List<Object> backing;
+
+        SpilledList(List<Object> backing) {
+            this.backing = backing;
+        }
+
+        @Override
+        public Object get(int index) {
+            return BlobHandle.resolve(backing.get(index));
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.agenta.blob;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.model.WorkflowContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 大值溢出存储
+ * 工作流开始时为上下文挂上 BlobScope，此后写入上下文数据和Agent结果的超过阈值的值
+ * 以临时文件保存并只读映射（mmap），堆上只保留句柄，读取时按需从映射区读回。
+ * 上下文的使用方（响应序列化、作业结果转换）用完后释放句柄并删除文件；
+ * 未显式释放的上下文在被GC回收时兜底释放。启动时清理上次遗留的文件。
+ *
+ * 配置：agenta.blob.enabled / dir / threshold-bytes
+ */
+@Component
+@Slf4j
+public class BlobStore implements WorkflowExecutionListener {
+
+    private static final String SUFFIX = ".blob";
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long thresholdBytes;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong liveBlobs = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    public BlobStore(@Value("${agenta.blob.enabled:true}") boolean enabled,
+                     @Value("${agenta.blob.dir:blobs}") String directory,
+                     @Value("${agenta.blob.threshold-bytes:1048576}") long thresholdBytes) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.thresholdBytes = Math.max(1, thresholdBytes);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        int stale = deleteAll();
+        if (stale > 0) {
+            log.info("清理遗留的溢出文件: {} 个", stale);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            deleteAll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /**
+     * 为上下文创建溢出作用域，上下文被回收时自动释放其中的句柄
+     */
+    public BlobScope openScope(WorkflowContext context) {
+        BlobScope scope = new BlobScope(this);
+        CLEANER.register(context, scope::close);
+        return scope;
+    }
+
+    /**
+     * 工作流开始时挂上作用域，并溢出开始前已放入上下文的输入数据
+     */
+    @Override
+    public void onWorkflowStarted(WorkflowDAG workflow, WorkflowContext context) {
+        if (enabled && context.getBlobScope() == null) {
+            context.setBlobScope(openScope(context));
+            context.getData().replaceAll((key, value) -> context.getBlobScope().spill(value));
+        }
+    }
+
+    /**
+     * 写入文件并只读映射
+     */
+    BlobHandle write(byte[] bytes, boolean text) throws IOException {
+        Path path = directory.resolve(sequence.incrementAndGet() + SUFFIX);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer source = ByteBuffer.wrap(bytes);
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes.length);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        liveBlobs.incrementAndGet();
+        liveBytes.addAndGet(bytes.length);
+        spilledBytes.addAndGet(bytes.length);
+        log.debug("大值溢出到磁盘: {}, {} bytes", path.getFileName(), bytes.length);
+        return new BlobHandle(this, path, buffer, text);
+    }
+
+    void delete(BlobHandle handle) {
+        liveBlobs.decrementAndGet();
+        liveBytes.addAndGet(-handle.getLength());
+        try {
+            Files.deleteIfExists(handle.getPath());
+        } catch (IOException e) {
+            log.warn("删除溢出文件失败: {}", handle.getPath(), e);
+        }
+    }
+
+    private int deleteAll() {
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.filter(file -> file.toString().endsWith(SUFFIX))::iterator) {
+                Files.deleteIfExists(path);
+                deleted++;
+            }
+        } catch (IOException e) {
+            log.warn("清理溢出目录失败: {}", directory, e);
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("thresholdBytes", thresholdBytes);
+        status.put("liveBlobs", liveBlobs.get());
+        status.put("liveBytes", liveBytes.get());
+        status.put("spilledBytes", spilledBytes.get());
+        return status;
+    }
+}
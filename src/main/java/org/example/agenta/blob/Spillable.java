@@ -0,0 +1,21 @@
+package org.example.agenta.blob;
+
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * 可溢出部分字段的结果类型
+ * 类型化结果（record）不是Map/List，由其自身指明哪些字段可能很大
+ */
+public interface Spillable {
+
+    /**
+     * 对可能很大的字段调用 spiller，返回替换后的副本；没有字段被替换时返回自身
+     */
+    Object spill(UnaryOperator<Object> spiller);
+
+    /**
+     * 遍历可能持有句柄的字段，值被覆盖时用于释放
+     */
+    void forEachSpilled(Consumer<Object> consumer);
+}
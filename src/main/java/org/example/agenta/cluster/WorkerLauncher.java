@@ -0,0 +1,133 @@
+package org.example.agenta.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机工作进程启动器
+ * 用与协调进程相同的JVM和类路径启动 WorkerMain 子进程，工作进程意外退出时1秒后自动重启。
+ * 以 Spring Boot 可执行jar运行时通过 PropertiesLauncher 加载jar内的类。
+ * 共享密钥与允许实例化的Agent类名通过环境变量传给工作进程，不出现在进程参数中。
+ */
+@Slf4j
+public class WorkerLauncher implements AutoCloseable {
+
+    private final String host;
+    private final int port;
+    private final String secret;
+    private final Set<String> agentClasses;
+    private final int count;
+    private final int capacity;
+    private final long heartbeatIntervalMs;
+    private final List<String> jvmArgs;
+    private final Map<String, Process> processes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param secret       共享密钥，与协调进程 {@link WorkerPoolBackend} 使用同一个，见 {@link #newSecret()}
+     * @param agentClasses 工作进程允许实例化的Agent类名
+     */
+    public WorkerLauncher(String host, int port, String secret, Set<String> agentClasses, int count, int capacity,
+                          long heartbeatIntervalMs, List<String> jvmArgs) {
+        this.host = host;
+        this.port = port;
+        this.secret = secret;
+        this.agentClasses = Set.copyOf(agentClasses);
+        this.count = count;
+        this.capacity = capacity;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.jvmArgs = jvmArgs;
+    }
+
+    /**
+     * 为一次启动生成共享密钥
+     */
+    public static String newSecret() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public void start() throws IOException {
+        for (int i = 1; i <= count; i++) {
+            launch("worker-" + i);
+        }
+    }
+
+    /**
+     * 当前存活的工作进程
+     */
+    public List<Process> getProcesses() {
+        return processes.values().stream().filter(Process::isAlive).toList();
+    }
+
+    private void launch(String workerId) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        if (isBootJar()) {
+            command.add("-Dloader.main=" + WorkerMain.class.getName());
+            command.add("org.springframework.boot.loader.launch.PropertiesLauncher");
+        } else {
+            command.add(WorkerMain.class.getName());
+        }
+        command.add(host);
+        command.add(String.valueOf(port));
+        command.add(workerId);
+        command.add(String.valueOf(capacity));
+        command.add(String.valueOf(heartbeatIntervalMs));
+
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        builder.environment().put(WorkerMain.SECRET_ENV, secret);
+        builder.environment().put(WorkerMain.AGENTS_ENV, String.join(",", agentClasses));
+        Process process = builder.start();
+        processes.put(workerId, process);
+        log.info("启动工作进程: {} (pid={})", workerId, process.pid());
+        process.onExit().thenAccept(exited -> restart(workerId, exited));
+    }
+
+    private void restart(String workerId, Process exited) {
+        if (closed) {
+            return;
+        }
+        log.warn("工作进程退出: {} (pid={}, exitCode={})，1秒后重启", workerId, exited.pid(), exited.exitValue());
+        CompletableFuture.runAsync(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                launch(workerId);
+            } catch (IOException e) {
+                log.error("重启工作进程失败: {}", workerId, e);
+            }
+        }, CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 类文件位于 BOOT-INF 内说明以 Spring Boot 可执行jar运行，类路径只有外层jar
+     */
+    private static boolean isBootJar() {
+        String location = String.valueOf(WorkerMain.class.getProtectionDomain().getCodeSource().getLocation());
+        return location.contains("BOOT-INF");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        processes.values().forEach(Process::destroy);
+        processes.clear();
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.agenta.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.ThreadResources;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.NodeCost;
+import org.example.agenta.model.WorkflowContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作进程入口
+ * 连接协调进程后循环接收任务：按类名实例化Agent（需公开无参构造，且在启动器给出的允许列表中），在本进程的线程池中执行，
+ * 并把结果和Agent写入的上下文数据发回。每个工作流的上下文在工作进程内缓存，
+ * 协调进程只发送增量，工作流结束时收到 RELEASE 后释放。协调进程断开后本进程退出。
+ *
+ * 参数：host port workerId capacity heartbeatIntervalMs
+ * 环境变量：AGENTA_WORKER_SECRET 握手用的共享密钥，AGENTA_WORKER_AGENTS 允许实例化的Agent类名（逗号分隔）
+ */
+@Slf4j
+public final class WorkerMain {
+
+    static final String SECRET_ENV = "AGENTA_WORKER_SECRET";
+    static final String AGENTS_ENV = "AGENTA_WORKER_AGENTS";
+
+    private final String workerId;
+    private final int capacity;
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final ExecutorService executor;
+    private final Set<String> agentClasses;
+    private final Map<String, WorkflowContext> contexts = new ConcurrentHashMap<>();
+    private final Map<String, Agent> agents = new ConcurrentHashMap<>();
+
+    private WorkerMain(String workerId, int capacity, Set<String> agentClasses, Socket socket) throws IOException {
+        this.workerId = workerId;
+        this.capacity = capacity;
+        this.agentClasses = agentClasses;
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.executor = Executors.newFixedThreadPool(capacity, runnable -> {
+            Thread thread = new Thread(runnable, workerId + "-exec");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String workerId = args[2];
+        int capacity = Integer.parseInt(args[3]);
+        long heartbeatIntervalMs = Long.parseLong(args[4]);
+        String secret = System.getenv(SECRET_ENV);
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalStateException("缺少环境变量 " + SECRET_ENV + "，工作进程只能由 WorkerLauncher 启动");
+        }
+        String agents = System.getenv(AGENTS_ENV);
+        Set<String> agentClasses = agents == null || agents.isEmpty() ? Set.of() : Set.of(agents.split(","));
+
+        Socket socket = connect(host, port);
+        socket.setTcpNoDelay(true);
+        WorkerMain worker = new WorkerMain(workerId, capacity, agentClasses, socket);
+        worker.send(WorkerProtocol.HELLO, WorkerProtocol.encodeHello(
+                new WorkerProtocol.Hello(workerId, capacity, ProcessHandle.current().pid(), secret)));
+        worker.startHeartbeat(heartbeatIntervalMs);
+        log.info("工作进程已连接: {}, 协调进程: {}:{}, 并发: {}", workerId, host, port, capacity);
+
+        worker.receiveLoop();
+        log.info("协调进程已断开，工作进程退出: {}", workerId);
+        System.exit(0);
+    }
+
+    /**
+     * 协调进程可能尚未就绪，10秒内重试连接
+     */
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    private void startHeartbeat(long intervalMs) {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, workerId + "-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                send(WorkerProtocol.HEARTBEAT, new byte[0]);
+            } catch (IOException e) {
+                log.debug("心跳发送失败: {}", e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void receiveLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                WorkerProtocol.Frame frame = WorkerProtocol.readFrame(in);
+                switch (frame.type()) {
+                    case WorkerProtocol.TASK -> {
+                        WorkerProtocol.Task task = WorkerProtocol.decodeTask(frame.body());
+                        executor.execute(() -> runTask(task));
+                    }
+                    case WorkerProtocol.RELEASE -> contexts.remove(WorkerProtocol.decodeRelease(frame.body()));
+                    default -> log.warn("未知帧类型: {}", frame.type());
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            log.debug("连接关闭: {}", e.getMessage());
+        } catch (IOException e) {
+            log.error("接收任务失败", e);
+        }
+    }
+
+    private void runTask(WorkerProtocol.Task task) {
+        WorkflowContext context = contexts.computeIfAbsent(task.workflowId(), WorkflowContext::new);
+        task.data().forEach(context::addData);
+        task.results().forEach(context::addAgentResult);
+        Map<String, Long> before = context.dataVersions();
+
+        AgentResult result;
+        try {
+            Agent agent = agents.computeIfAbsent(task.agentClass(), className -> instantiate(className, agentClasses));
+            long cpuStart = ThreadResources.cpuNanos();
+            long allocatedStart = ThreadResources.allocatedBytes();
+            result = agent.executeAsync(context, executor).toCompletableFuture().join();
+            // 本进程中的消耗随结果回传，协调进程合并到节点消耗中
+            result.setCost(new NodeCost()
+                    .setCpuNanos(ThreadResources.delta(cpuStart, ThreadResources.cpuNanos()))
+                    .setAllocatedBytes(ThreadResources.delta(allocatedStart, ThreadResources.allocatedBytes()))
+                    .add(result.getCost()));
+            // 与协调进程保持一致，后续任务无需再接收本结果
+            context.addAgentResult(agent.getAgentId(), result);
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error("任务执行失败: {}", task.agentClass(), cause);
+            result = AgentResult.failure(task.agentClass(), "工作进程执行异常: " + cause.getMessage());
+        }
+
+        // 只回传Agent新写入、重新写入或删除（以null回传）的数据
+        Map<String, Object> written = new HashMap<>();
+        context.dataVersions().forEach((key, version) -> {
+            if (!version.equals(before.get(key))) {
+                written.put(key, context.getData().get(key));
+            }
+        });
+
+        try {
+            send(WorkerProtocol.RESULT, WorkerProtocol.encodeResult(new WorkerProtocol.Result(task.taskId(), result, written)));
+        } catch (IOException e) {
+            log.error("结果发送失败: {}", task.taskId(), e);
+        }
+    }
+
+    /**
+     * 按类名实例化Agent：只接受允许列表中的类，加载时不初始化，确认是Agent实现后才调用公开无参构造
+     */
+    static Agent instantiate(String className, Set<String> agentClasses) {
+        if (!agentClasses.contains(className)) {
+            throw new IllegalStateException("Agent类不在允许列表中: " + className);
+        }
+        try {
+            Class<?> type = Class.forName(className, false, WorkerMain.class.getClassLoader());
+            if (!Agent.class.isAssignableFrom(type)) {
+                throw new IllegalStateException("不是Agent实现: " + className);
+            }
+            return (Agent) type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法实例化Agent: " + className, e);
+        }
+    }
+
+    private void send(byte type, byte[] body) throws IOException {
+        synchronized (out) {
+            WorkerProtocol.writeFrame(out, type, body);
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package org.example.agenta.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.NodeExecutionBackend;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 工作进程池执行后端（协调进程侧）
+ * 在本机回环地址监听工作进程连接，握手时校验启动器分配的共享密钥，把就绪节点分发给负载最低的工作进程：
+ * 每个工作进程有按并发度限制的执行槽和一个待发送队列，槽位空闲且自身队列为空时从最长队列尾部窃取任务。
+ * 只向工作进程发送它尚未收到的上下文数据和Agent结果（增量），结果返回时合并回协调进程的上下文。
+ * 工作进程断开或心跳超时视为失效，其执行中和排队的任务重新分发；没有可用工作进程、
+ * Agent不适合远程执行或上下文无法编码时回退到本进程执行。
+ */
+@Slf4j
+public class WorkerPoolBackend implements NodeExecutionBackend, WorkflowExecutionListener, AutoCloseable {
+
+    /** 同一任务最多分发次数，超过后判定失败，避免导致进程崩溃的任务拖垮整个池 */
+    private static final int MAX_ATTEMPTS = 3;
+    /** 工作进程连接后发送HELLO的时限，JVM冷启动加载协议类可能较慢 */
+    private static final long HANDSHAKE_TIMEOUT_MS = 15_000;
+
+    private final ServerSocket serverSocket;
+    private final Predicate<Agent> remoteEligible;
+    private final long heartbeatTimeoutMs;
+    private final byte[] secret;
+    private final List<WorkerConnection> workers = new ArrayList<>();   // 由 this 保护
+    private final Map<Long, PendingTask> tasks = new ConcurrentHashMap<>();
+    private final AtomicLong taskIds = new AtomicLong();
+    private final ScheduledExecutorService monitor;
+    private volatile boolean closed;
+
+    /**
+     * @param port               监听端口，0表示随机端口
+     * @param remoteEligible     判断Agent是否分发到工作进程执行
+     * @param heartbeatTimeoutMs 超过该时间未收到心跳视为工作进程失效
+     * @param secret             共享密钥，只接受HELLO中带有该密钥的工作进程，见 {@link WorkerLauncher#newSecret()}
+     */
+    public WorkerPoolBackend(int port, Predicate<Agent> remoteEligible, long heartbeatTimeoutMs, String secret) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.remoteEligible = remoteEligible;
+        this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-pool-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkInterval = Math.max(100, heartbeatTimeoutMs / 2);
+        monitor.scheduleAtFixedRate(this::checkHeartbeats, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+
+        Thread acceptor = new Thread(this::acceptLoop, "worker-pool-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("工作进程池监听: {}:{}", serverSocket.getInetAddress().getHostAddress(), getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public synchronized int getLiveWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * 各工作进程（按pid）正在执行的任务数
+     */
+    public synchronized Map<Long, Integer> getInFlightByWorker() {
+        Map<Long, Integer> inFlight = new HashMap<>();
+        workers.forEach(worker -> inFlight.put(worker.pid, worker.inFlight));
+        return inFlight;
+    }
+
+    /**
+     * 等待至少 count 个工作进程连接
+     */
+    public synchronized void awaitWorkers(int count, long timeoutMs) throws InterruptedException, TimeoutException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (workers.size() < count) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("等待工作进程超时，已连接: " + workers.size() + "/" + count);
+            }
+            wait(remaining);
+        }
+    }
+
+    @Override
+    public CompletionStage<AgentResult> execute(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, Executor executor) {
+        Agent agent = node.getAgent();
+        if (closed || !remoteEligible.test(agent)) {
+            return LOCAL.execute(workflow, node, context, executor);
+        }
+        PendingTask task = new PendingTask(taskIds.incrementAndGet(), workflow, node, context, executor);
+        tasks.put(task.taskId, task);
+        dispatch(task);
+        return task.future;
+    }
+
+    /**
+     * 工作流结束后通知持有其上下文的工作进程释放缓存
+     */
+    @Override
+    public void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context, long durationNanos, Throwable error) {
+        List<WorkerConnection> holders = new ArrayList<>();
+        synchronized (this) {
+            for (WorkerConnection worker : workers) {
+                if (worker.shipped.remove(context.getWorkflowId()) != null) {
+                    holders.add(worker);
+                }
+            }
+        }
+        for (WorkerConnection worker : holders) {
+            try {
+                worker.send(WorkerProtocol.RELEASE, WorkerProtocol.encodeRelease(context.getWorkflowId()));
+            } catch (IOException e) {
+                workerDied(worker, "发送RELEASE失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 把任务排到负载最低的工作进程队列上，没有可用工作进程时在本进程执行
+     */
+    private void dispatch(PendingTask task) {
+        WorkerConnection target;
+        synchronized (this) {
+            target = workers.stream()
+                    .min((a, b) -> Double.compare(a.load(), b.load()))
+                    .orElse(null);
+            if (target != null) {
+                task.worker = target;
+                target.queue.addLast(task);
+            }
+        }
+        if (target == null) {
+            runLocally(task, "没有可用的工作进程");
+            return;
+        }
+        pump(target);
+    }
+
+    /**
+     * 为工作进程的空闲执行槽取任务并发送，自身队列为空时从其他工作进程窃取
+     */
+    private void pump(WorkerConnection worker) {
+        List<PendingTask> toSend = new ArrayList<>();
+        synchronized (this) {
+            while (worker.alive && worker.inFlight < worker.capacity) {
+                PendingTask task = worker.queue.pollFirst();
+                if (task == null) {
+                    task = steal(worker);
+                }
+                if (task == null) {
+                    break;
+                }
+                task.worker = worker;
+                task.attempts++;
+                worker.inFlight++;
+                toSend.add(task);
+            }
+        }
+        for (PendingTask task : toSend) {
+            send(worker, task);
+        }
+    }
+
+    private PendingTask steal(WorkerConnection thief) {
+        WorkerConnection victim = null;
+        for (WorkerConnection worker : workers) {
+            if (worker != thief && !worker.queue.isEmpty()
+                    && (victim == null || worker.queue.size() > victim.queue.size())) {
+                victim = worker;
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        log.debug("工作进程 {} 从 {} 窃取任务", thief.workerId, victim.workerId);
+        return victim.queue.pollLast();
+    }
+
+    private void send(WorkerConnection worker, PendingTask task) {
+        WorkflowContext context = task.context;
+        byte[] body;
+        Map<String, Object> dataDelta = new HashMap<>();
+        Map<String, AgentResult> resultDelta = new HashMap<>();
+        synchronized (worker) {
+            Map<String, Object> shipped = worker.shipped.getOrDefault(context.getWorkflowId(), Map.of());
+            Map<String, Long> dataVersions = new HashMap<>();
+            // 按写入版本比较，重新写入的值与删除（以null发送）都会同步到工作进程
+            context.dataVersions().forEach((key, version) -> {
+                Object shippedVersion = shipped.get("d:" + key);
+                Object value = context.getData().get(key);
+                if (version.equals(shippedVersion) || (shippedVersion == null && value == null)) {
+                    return;
+                }
+                dataDelta.put(key, value);
+                dataVersions.put(key, version);
+            });
+            context.getAgentResults().forEach((agentId, result) -> {
+                if (shipped.get("r:" + agentId) != result) {
+                    resultDelta.put(agentId, result);
+                }
+            });
+            try {
+                body = WorkerProtocol.encodeTask(new WorkerProtocol.Task(task.taskId, context.getWorkflowId(),
+                        task.node.getAgent().getClass().getName(), dataDelta, resultDelta));
+            } catch (IOException | RuntimeException e) {
+                log.debug("节点 {} 上下文编码失败: {}", task.node.getNodeId(), e.getMessage());
+                body = null;
+            }
+            if (body != null) {
+                Map<String, Object> updated = worker.shipped.computeIfAbsent(context.getWorkflowId(), id -> new ConcurrentHashMap<>());
+                dataVersions.forEach((key, version) -> updated.put("d:" + key, version));
+                resultDelta.forEach((agentId, result) -> updated.put("r:" + agentId, result));
+            }
+        }
+
+        if (body == null) {
+            synchronized (this) {
+                worker.inFlight--;
+            }
+            runLocally(task, "上下文无法编码");
+            pump(worker);
+            return;
+        }
+        try {
+            worker.send(WorkerProtocol.TASK, body);
+        } catch (IOException e) {
+            workerDied(worker, "发送任务失败: " + e.getMessage());
+        }
+    }
+
+    private void onResult(WorkerConnection worker, WorkerProtocol.Result message) {
+        PendingTask task = tasks.get(message.taskId());
+        synchronized (this) {
+            if (task == null || task.worker != worker) {
+                // 任务已重新分发给其他工作进程，忽略迟到的结果
+                return;
+            }
+            tasks.remove(message.taskId());
+            worker.inFlight--;
+        }
+        synchronized (worker) {
+            Map<String, Object> shipped = worker.shipped.computeIfAbsent(task.context.getWorkflowId(), id -> new ConcurrentHashMap<>());
+            message.data().forEach((key, value) -> {
+                // 记录写入后的版本而非值：上下文中可能存放的是溢出后的句柄
+                task.context.addData(key, value);
+                shipped.put("d:" + key, task.context.dataVersion(key));
+            });
+            shipped.put("r:" + task.node.getAgent().getAgentId(), message.result());
+        }
+        task.future.complete(message.result());
+        pump(worker);
+    }
+
+    private void runLocally(PendingTask task, String reason) {
+        tasks.remove(task.taskId);
+        log.debug("节点 {} 在本进程执行: {}", task.node.getNodeId(), reason);
+        try {
+            LOCAL.execute(task.workflow, task.node, task.context, task.executor)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            task.future.completeExceptionally(error);
+                        } else {
+                            task.future.complete(result);
+                        }
+                    });
+        } catch (Exception e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 工作进程失效：移出池并重新分发其执行中和排队的任务
+     */
+    private void workerDied(WorkerConnection worker, String reason) {
+        List<PendingTask> orphans = new ArrayList<>();
+        synchronized (this) {
+            if (!worker.alive) {
+                return;
+            }
+            worker.alive = false;
+            workers.remove(worker);
+            for (PendingTask task : tasks.values()) {
+                if (task.worker == worker && !worker.queue.contains(task)) {
+                    orphans.add(task);
+                }
+            }
+            orphans.addAll(worker.queue);
+            worker.queue.clear();
+            orphans.forEach(task -> task.worker = null);
+        }
+        worker.closeQuietly();
+        if (!closed) {
+            log.warn("工作进程失效: {} (pid={}), 原因: {}, 重新分发任务数: {}", worker.workerId, worker.pid, reason, orphans.size());
+        }
+
+        for (PendingTask task : orphans) {
+            if (closed) {
+                tasks.remove(task.taskId);
+                task.future.complete(AgentResult.failure(task.node.getAgent().getAgentId(), "工作进程池已关闭"));
+            } else if (task.attempts >= MAX_ATTEMPTS) {
+                tasks.remove(task.taskId);
+                task.future.complete(AgentResult.failure(task.node.getAgent().getAgentId(),
+                        "任务在 " + task.attempts + " 个工作进程上执行时进程失效"));
+            } else {
+                dispatch(task);
+            }
+        }
+    }
+
+    private void checkHeartbeats() {
+        long now = System.currentTimeMillis();
+        List<WorkerConnection> expired = new ArrayList<>();
+        synchronized (this) {
+            for (WorkerConnection worker : workers) {
+                if (now - worker.lastSeen > heartbeatTimeoutMs) {
+                    expired.add(worker);
+                }
+            }
+        }
+        expired.forEach(worker -> workerDied(worker, "心跳超时"));
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.error("接受工作进程连接失败", e);
+                }
+                return;
+            }
+            // 握手在连接自己的线程上进行，启动较慢的工作进程不会阻塞其他连接
+            Thread reader = new Thread(() -> serve(socket), "worker-pool-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        WorkerConnection worker;
+        try {
+            worker = handshake(socket);
+        } catch (IOException e) {
+            if (!closed) {
+                log.warn("工作进程握手失败: {}", e.getMessage());
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 忽略
+            }
+            return;
+        }
+        Thread.currentThread().setName("worker-pool-reader-" + worker.workerId);
+        synchronized (this) {
+            workers.add(worker);
+            notifyAll();
+        }
+        log.info("工作进程已加入: {} (pid={}), 并发: {}", worker.workerId, worker.pid, worker.capacity);
+        pump(worker);
+        readLoop(worker);
+    }
+
+    private WorkerConnection handshake(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout((int) Math.max(heartbeatTimeoutMs, HANDSHAKE_TIMEOUT_MS));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        WorkerProtocol.Frame frame = WorkerProtocol.readFrame(in);
+        if (frame.type() != WorkerProtocol.HELLO) {
+            throw new IOException("期望HELLO帧，实际: " + frame.type());
+        }
+        WorkerProtocol.Hello hello = WorkerProtocol.decodeHello(frame.body());
+        if (!MessageDigest.isEqual(secret, hello.secret().getBytes(StandardCharsets.UTF_8))) {
+            throw new IOException("工作进程密钥不匹配: " + hello.workerId() + " (pid=" + hello.pid() + ")");
+        }
+        socket.setSoTimeout(0);
+        return new WorkerConnection(hello, socket, in);
+    }
+
+    private void readLoop(WorkerConnection worker) {
+        try {
+            while (worker.alive) {
+                WorkerProtocol.Frame frame = WorkerProtocol.readFrame(worker.in);
+                worker.lastSeen = System.currentTimeMillis();
+                switch (frame.type()) {
+                    case WorkerProtocol.HEARTBEAT -> {
+                    }
+                    case WorkerProtocol.RESULT -> onResult(worker, WorkerProtocol.decodeResult(frame.body()));
+                    default -> log.warn("未知帧类型: {}", frame.type());
+                }
+            }
+        } catch (IOException e) {
+            workerDied(worker, "连接断开: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        monitor.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // 忽略
+        }
+        List<WorkerConnection> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(workers);
+        }
+        remaining.forEach(worker -> workerDied(worker, "工作进程池关闭"));
+    }
+
+    /**
+     * 分发中的任务
+     */
+    private static class PendingTask {
+        final long taskId;
+        final WorkflowDAG workflow;
+        final WorkflowNode node;
+        final WorkflowContext context;
+        final Executor executor;
+        final CompletableFuture<AgentResult> future = new CompletableFuture<>();
+        WorkerConnection worker;   // 由 WorkerPoolBackend.this 保护
+        int attempts;
+
+        PendingTask(long taskId, WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, Executor executor) {
+            this.taskId = taskId;
+            this.workflow = workflow;
+            this.node = node;
+            this.context = context;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * 工作进程连接
+     */
+    private static class WorkerConnection {
+        final String workerId;
+        final long pid;
+        final int capacity;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        final ArrayDeque<PendingTask> queue = new ArrayDeque<>();   // 由 WorkerPoolBackend.this 保护
+        int inFlight;                                               // 由 WorkerPoolBackend.this 保护
+        volatile boolean alive = true;
+        volatile long lastSeen = System.currentTimeMillis();
+        /** 已发送到该工作进程的上下文：workflowId -> ("d:"数据键 -> 发送时的写入版本 / "r:"AgentId -> 发送时的对象) */
+        final Map<String, Map<String, Object>> shipped = new ConcurrentHashMap<>();
+
+        WorkerConnection(WorkerProtocol.Hello hello, Socket socket, DataInputStream in) throws IOException {
+            this.workerId = hello.workerId();
+            this.pid = hello.pid();
+            this.capacity = Math.max(1, hello.capacity());
+            this.socket = socket;
+            this.in = in;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        double load() {
+            return (double) (inFlight + queue.size()) / capacity;
+        }
+
+        void send(byte type, byte[] body) throws IOException {
+            synchronized (out) {
+                WorkerProtocol.writeFrame(out, type, body);
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 忽略
+            }
+        }
+    }
+}
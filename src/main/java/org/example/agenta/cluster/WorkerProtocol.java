@@ -0,0 +1,169 @@
+package org.example.agenta.cluster;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.example.agenta.model.AgentResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 协调进程与工作进程之间的二进制协议
+ * 帧格式：[int 帧长度][byte 帧类型][帧体]，帧长度不含自身的4字节。
+ * 帧体中的定长字段用 DataOutput 编码，上下文数据与执行结果用 Smile（二进制JSON）编码。
+ *
+ * HELLO     工作进程 -> 协调进程：workerId, capacity, pid, 启动时分配的共享密钥
+ * HEARTBEAT 工作进程 -> 协调进程：无帧体
+ * TASK      协调进程 -> 工作进程：taskId, workflowId, agentClass, 上下文增量
+ * RESULT    工作进程 -> 协调进程：taskId, 执行结果, 工作进程写入的数据增量
+ * RELEASE   协调进程 -> 工作进程：workflowId，工作流结束后释放缓存的上下文
+ */
+public final class WorkerProtocol {
+
+    public static final byte HELLO = 1;
+    public static final byte HEARTBEAT = 2;
+    public static final byte TASK = 3;
+    public static final byte RESULT = 4;
+    public static final byte RELEASE = 5;
+
+    /** 单帧上限，防止损坏的长度字段导致超大内存分配 */
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private static final ObjectMapper SMILE = SmileMapper.builder().findAndAddModules().build();
+    private static final TypeReference<Map<String, Object>> DATA_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<Map<String, AgentResult>> RESULTS_TYPE = new TypeReference<>() {
+    };
+
+    private WorkerProtocol() {
+    }
+
+    /**
+     * 协议帧
+     */
+    public record Frame(byte type, byte[] body) {
+    }
+
+    /**
+     * 握手，secret 为启动器分配的共享密钥，协调进程据此拒绝非本池启动的进程
+     */
+    public record Hello(String workerId, int capacity, long pid, String secret) {
+    }
+
+    /**
+     * 执行任务，data / results 为该工作进程尚未收到的上下文增量
+     */
+    public record Task(long taskId, String workflowId, String agentClass,
+                       Map<String, Object> data, Map<String, AgentResult> results) {
+    }
+
+    /**
+     * 任务结果，data 为Agent执行期间新写入或修改的上下文数据
+     */
+    public record Result(long taskId, AgentResult result, Map<String, Object> data) {
+    }
+
+    public static void writeFrame(DataOutputStream out, byte type, byte[] body) throws IOException {
+        out.writeInt(body.length + 1);
+        out.writeByte(type);
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * 读取一帧，连接关闭时抛出 EOFException
+     */
+    public static Frame readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("非法帧长度: " + length);
+        }
+        byte type = in.readByte();
+        byte[] body = new byte[length - 1];
+        in.readFully(body);
+        return new Frame(type, body);
+    }
+
+    public static byte[] encodeHello(Hello hello) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeUTF(hello.workerId());
+        out.writeInt(hello.capacity());
+        out.writeLong(hello.pid());
+        out.writeUTF(hello.secret());
+        return buffer.toByteArray();
+    }
+
+    public static Hello decodeHello(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        return new Hello(in.readUTF(), in.readInt(), in.readLong(), in.readUTF());
+    }
+
+    public static byte[] encodeTask(Task task) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(task.taskId());
+        out.writeUTF(task.workflowId());
+        out.writeUTF(task.agentClass());
+        writeBlob(out, SMILE.writeValueAsBytes(task.data()));
+        writeBlob(out, SMILE.writeValueAsBytes(task.results()));
+        return buffer.toByteArray();
+    }
+
+    public static Task decodeTask(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long taskId = in.readLong();
+        String workflowId = in.readUTF();
+        String agentClass = in.readUTF();
+        Map<String, Object> data = SMILE.readValue(readBlob(in), DATA_TYPE);
+        Map<String, AgentResult> results = SMILE.readValue(readBlob(in), RESULTS_TYPE);
+        return new Task(taskId, workflowId, agentClass, data, results);
+    }
+
+    public static byte[] encodeResult(Result result) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(result.taskId());
+        writeBlob(out, SMILE.writeValueAsBytes(result.result()));
+        writeBlob(out, SMILE.writeValueAsBytes(result.data()));
+        return buffer.toByteArray();
+    }
+
+    public static Result decodeResult(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long taskId = in.readLong();
+        AgentResult result = SMILE.readValue(readBlob(in), AgentResult.class);
+        Map<String, Object> data = SMILE.readValue(readBlob(in), DATA_TYPE);
+        return new Result(taskId, result, data);
+    }
+
+    public static byte[] encodeRelease(String workflowId) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new DataOutputStream(buffer).writeUTF(workflowId);
+        return buffer.toByteArray();
+    }
+
+    public static String decodeRelease(byte[] body) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(body)).readUTF();
+    }
+
+    private static void writeBlob(DataOutputStream out, byte[] blob) throws IOException {
+        out.writeInt(blob.length);
+        out.write(blob);
+    }
+
+    private static byte[] readBlob(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("非法数据块长度: " + length);
+        }
+        byte[] blob = new byte[length];
+        in.readFully(blob);
+        return blob;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.agenta.config;
+
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.agent.LlmAgent;
+import org.example.agenta.llm.Embedder;
+import org.example.agenta.llm.HashingEmbedder;
+import org.example.agenta.llm.LlmScheduler;
+import org.example.agenta.llm.PromptCache;
+import org.example.agenta.llm.SemanticCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * LLM配置，agenta.llm.enabled=true 时启用
+ * 使用OpenAI兼容的流式接口，base-url 可指向本地模型服务或测试桩。
+ */
+@Configuration
+@ConditionalOnProperty(name = "agenta.llm.enabled", havingValue = "true")
+@Slf4j
+public class LlmConfig {
+
+    @Bean
+    public StreamingChatLanguageModel streamingChatModel(@Value("${agenta.llm.base-url:https://api.openai.com/v1}") String baseUrl,
+                                                         @Value("${agenta.llm.api-key:}") String apiKey,
+                                                         @Value("${agenta.llm.model:gpt-4o-mini}") String modelName,
+                                                         @Value("${agenta.llm.temperature:0.2}") double temperature,
+                                                         @Value("${agenta.llm.timeout-seconds:60}") int timeoutSeconds) {
+        log.info("LLM模型: {} @ {}", modelName, baseUrl);
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl(baseUrl)
+                .apiKey(apiKey.isEmpty() ? "none" : apiKey)
+                .modelName(modelName)
+                .temperature(temperature)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .build();
+    }
+
+    /**
+     * 提示缓存，agenta.llm.cache.enabled=false 时不创建
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "agenta.llm.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public PromptCache promptCache(@Value("${agenta.llm.cache.dir:llm-cache}") String directory,
+                                   @Value("${agenta.llm.cache.ttl-hours:168}") long ttlHours,
+                                   @Value("${agenta.llm.cache.max-memory-entries:10000}") int maxMemoryEntries,
+                                   @Value("${agenta.llm.cache.max-memory-bytes:67108864}") long maxMemoryBytes,
+                                   @Value("${agenta.llm.cache.max-disk-bytes:1073741824}") long maxDiskBytes,
+                                   @Value("${agenta.llm.cache.warm-entries:1000}") int warmEntries,
+                                   ObjectProvider<MeterRegistry> registry) {
+        PromptCache cache = new PromptCache(Path.of(directory), Duration.ofHours(ttlHours),
+                maxMemoryEntries, maxMemoryBytes, maxDiskBytes, warmEntries);
+        registry.ifAvailable(cache::bindTo);
+        return cache;
+    }
+
+    /**
+     * 语义缓存使用的向量化实现，可注册自己的 Embedder Bean 替换（如 Embedder.of(向量模型)）
+     */
+    @Bean
+    @ConditionalOnMissingBean(Embedder.class)
+    @ConditionalOnProperty(name = "agenta.llm.semantic-cache.enabled", havingValue = "true")
+    public Embedder hashingEmbedder(@Value("${agenta.llm.semantic-cache.dimensions:256}") int dimensions) {
+        return new HashingEmbedder(dimensions);
+    }
+
+    /**
+     * 语义缓存，agenta.llm.semantic-cache.enabled=true 时创建
+     */
+    @Bean
+    @ConditionalOnProperty(name = "agenta.llm.semantic-cache.enabled", havingValue = "true")
+    public SemanticCache semanticCache(Embedder embedder,
+                                       @Value("${agenta.llm.semantic-cache.threshold:0.92}") double threshold,
+                                       @Value("${agenta.llm.semantic-cache.ttl-hours:24}") long ttlHours,
+                                       @Value("${agenta.llm.semantic-cache.memory-budget-bytes:67108864}") long memoryBudgetBytes,
+                                       @Value("${agenta.llm.semantic-cache.m:16}") int m,
+                                       @Value("${agenta.llm.semantic-cache.ef-construction:100}") int efConstruction,
+                                       @Value("${agenta.llm.semantic-cache.ef-search:64}") int efSearch,
+                                       ObjectProvider<MeterRegistry> registry) {
+        SemanticCache cache = new SemanticCache(embedder, threshold, Duration.ofHours(ttlHours), memoryBudgetBytes,
+                m, efConstruction, efSearch);
+        registry.ifAvailable(cache::bindTo);
+        return cache;
+    }
+
+    /**
+     * 按TPM/RPM配额放行请求的调度器，agenta.llm.scheduler.enabled=false 时不创建
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "agenta.llm.scheduler.enabled", havingValue = "true", matchIfMissing = true)
+    public LlmScheduler llmScheduler(@Value("${agenta.llm.scheduler.tokens-per-minute:200000}") long tokensPerMinute,
+                                     @Value("${agenta.llm.scheduler.requests-per-minute:500}") long requestsPerMinute,
+                                     @Value("${agenta.llm.scheduler.burst-seconds:10}") double burstSeconds,
+                                     @Value("${agenta.llm.scheduler.max-queued:1000}") int maxQueued,
+                                     @Value("${agenta.llm.scheduler.throttle-backoff-ms:2000}") long throttleBackoffMillis,
+                                     ObjectProvider<MeterRegistry> registry) {
+        LlmScheduler scheduler = new LlmScheduler(tokensPerMinute, requestsPerMinute, burstSeconds, maxQueued,
+                throttleBackoffMillis);
+        registry.ifAvailable(scheduler::bindTo);
+        return scheduler;
+    }
+
+    @Bean
+    public LlmAgent llmAgent(StreamingChatLanguageModel streamingChatModel,
+                             @Value("${agenta.llm.prompt-template:{input}}") String promptTemplate,
+                             @Value("${agenta.llm.model:gpt-4o-mini}") String modelName,
+                             @Value("${agenta.llm.temperature:0.2}") double temperature,
+                             @Value("${agenta.llm.timeout-seconds:60}") int timeoutSeconds,
+                             ObjectProvider<PromptCache> promptCache,
+                             ObjectProvider<SemanticCache> semanticCache,
+                             ObjectProvider<LlmScheduler> scheduler,
+                             @Value("${agenta.llm.scheduler.expected-output-tokens:256}") int expectedOutputTokens,
+                             @Value("${agenta.llm.batch.enabled:false}") boolean batchEnabled,
+                             @Value("${agenta.llm.batch.max-size:8}") int batchMaxSize,
+                             @Value("${agenta.llm.batch.linger-ms:20}") long batchLingerMillis,
+                             ObjectProvider<MeterRegistry> registry) {
+        LlmAgent agent = new LlmAgent(streamingChatModel, promptTemplate, Duration.ofSeconds(timeoutSeconds),
+                registry.getIfAvailable());
+        Map<String, Object> parameters = Map.of("temperature", temperature);
+        promptCache.ifAvailable(cache -> agent.withCache(cache, modelName, parameters));
+        semanticCache.ifAvailable(cache -> agent.withSemanticCache(cache, modelName, parameters));
+        scheduler.ifAvailable(llmScheduler -> agent.withScheduler(llmScheduler, expectedOutputTokens));
+        if (batchEnabled) {
+            agent.withBatching(batchMaxSize, Duration.ofMillis(batchLingerMillis), registry.getIfAvailable());
+        }
+        return agent;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.agenta.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.cluster.WorkerLauncher;
+import org.example.agenta.cluster.WorkerPoolBackend;
+import org.example.agenta.core.Agent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 多进程工作池配置，agenta.workers.enabled=true 时启用
+ * 只有 agenta.workers.agents 中列出、且有公开无参构造的Agent分发到工作进程，其余节点仍在本进程执行。
+ * 这些Agent的类名作为允许列表交给工作进程，工作进程不实例化其他类；协调进程与工作进程共用每次启动生成的密钥。
+ */
+@Configuration
+@ConditionalOnProperty(name = "agenta.workers.enabled", havingValue = "true")
+@Slf4j
+public class WorkerPoolConfig {
+
+    private final String secret = WorkerLauncher.newSecret();
+
+    @Bean(destroyMethod = "close")
+    public WorkerPoolBackend workerPoolBackend(@Value("${agenta.workers.port:0}") int port,
+                                               @Value("${agenta.workers.agents:}") Set<String> agentIds,
+                                               @Value("${agenta.workers.heartbeat-timeout-ms:3000}") long heartbeatTimeoutMs,
+                                               List<Agent> agents) throws IOException {
+        Set<String> agentClasses = remoteAgentClasses(agents, agentIds);
+        return new WorkerPoolBackend(port, agent -> agentIds.contains(agent.getAgentId())
+                && agentClasses.contains(agent.getClass().getName()), heartbeatTimeoutMs, secret);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public WorkerLauncher workerLauncher(WorkerPoolBackend backend,
+                                         @Value("${agenta.workers.agents:}") Set<String> agentIds,
+                                         @Value("${agenta.workers.count:2}") int count,
+                                         @Value("${agenta.workers.capacity:4}") int capacity,
+                                         @Value("${agenta.workers.heartbeat-interval-ms:1000}") long heartbeatIntervalMs,
+                                         @Value("${agenta.workers.jvm-args:-Xmx256m}") List<String> jvmArgs,
+                                         List<Agent> agents) {
+        return new WorkerLauncher("127.0.0.1", backend.getPort(), secret, remoteAgentClasses(agents, agentIds),
+                count, capacity, heartbeatIntervalMs, jvmArgs);
+    }
+
+    /**
+     * agenta.workers.agents 中列出、且有公开无参构造的Agent类名
+     */
+    private static Set<String> remoteAgentClasses(List<Agent> agents, Set<String> agentIds) {
+        return agents.stream()
+                .filter(agent -> agentIds.contains(agent.getAgentId()) && hasPublicNoArgConstructor(agent))
+                .map(agent -> agent.getClass().getName())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static boolean hasPublicNoArgConstructor(Agent agent) {
+        try {
+            agent.getClass().getConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            log.warn("Agent {} 没有公开无参构造，无法在工作进程执行", agent.getAgentId());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.agenta.controller;
+
+import org.example.agenta.history.ExecutionRecord;
+import org.example.agenta.history.HistoryStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 执行历史查询
+ * 时间参数为epoch毫秒，缺省查询最近一小时
+ */
+@RestController
+@RequestMapping("/api/workflow/history")
+public class HistoryController {
+
+    private static final long DEFAULT_WINDOW_MS = 60 * 60 * 1000;
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    private HistoryStore historyStore;
+
+    /**
+     * 按时间范围和工作流类型查询执行记录，最新的在前
+     */
+    @GetMapping
+    public ResponseEntity<List<ExecutionRecord>> query(@RequestParam(required = false) String type,
+                                                       @RequestParam(required = false) Long from,
+                                                       @RequestParam(required = false) Long to,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_WINDOW_MS;
+        return ResponseEntity.ok(historyStore.query(type, start, end, Math.min(Math.max(limit, 1), MAX_LIMIT)));
+    }
+
+    /**
+     * 时间范围内的执行次数、失败率和耗时分位数
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats(@RequestParam(required = false) String type,
+                                                     @RequestParam(required = false) Long from,
+                                                     @RequestParam(required = false) Long to) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - DEFAULT_WINDOW_MS;
+        Map<String, Object> body = new LinkedHashMap<>(historyStore.stats(type, start, end));
+        body.put("store", historyStore.getStatus());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * 按执行ID查询
+     */
+    @GetMapping("/{workflowId}")
+    public ResponseEntity<ExecutionRecord> get(@PathVariable String workflowId) {
+        ExecutionRecord record = historyStore.get(workflowId);
+        return record != null ? ResponseEntity.ok(record) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.agenta.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.admission.AdmissionRejectedException;
+import org.example.agenta.definition.WorkflowRegistry;
+import org.example.agenta.job.Job;
+import org.example.agenta.job.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步作业REST控制器
+ * 提交后立即返回作业ID（202），调用方按ID查询状态与结果，可带 waitMs 长轮询等待作业结束
+ */
+@RestController
+@RequestMapping("/api/workflow/jobs")
+@Slf4j
+public class JobController {
+
+    /** 长轮询最长等待时间 */
+    private static final long MAX_WAIT_MS = 30_000;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private WorkflowRegistry workflowRegistry;
+
+    /**
+     * 提交作业：请求体中 workflow 为已注册的工作流名称，input 与 apiConfig 执行时放入上下文
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestBody Map<String, Object> request) {
+        Map<String, Object> data = new HashMap<>(request);
+        Object workflow = data.remove("workflow");
+        if (workflow == null || workflowRegistry.getWorkflow(workflow.toString()) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "未找到工作流: " + workflow,
+                            "available", workflowRegistry.getWorkflowNames()));
+        }
+
+        Job job;
+        try {
+            job = jobService.submit(workflow.toString(), data);
+        } catch (AdmissionRejectedException rejected) {
+            log.warn("作业提交被拒绝: {}", rejected.getMessage());
+            return ResponseEntity.status(rejected.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfterSeconds()))
+                    .body(Map.of("error", rejected.getMessage(),
+                            "retryAfterSeconds", rejected.getRetryAfterSeconds()));
+        }
+
+        String location = "/api/workflow/jobs/" + job.getJobId();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getJobId());
+        body.put("status", job.getStatus());
+        body.put("location", location);
+        return ResponseEntity.accepted().header(HttpHeaders.LOCATION, location).body(body);
+    }
+
+    /**
+     * 查询作业状态与结果，waitMs > 0 时等待作业结束（最长30秒），超时返回当前状态
+     */
+    @GetMapping("/{jobId}")
+    public CompletableFuture<ResponseEntity<Job>> getJob(@PathVariable String jobId,
+                                                         @RequestParam(defaultValue = "0") long waitMs) {
+        return jobService.awaitJob(jobId, Math.min(waitMs, MAX_WAIT_MS))
+                .thenApply(job -> job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job));
+    }
+}
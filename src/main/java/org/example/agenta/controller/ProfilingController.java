@@ -0,0 +1,91 @@
+package org.example.agenta.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.jfr.ProfilingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在线采样管理接口（仅限内网/运维访问）
+ */
+@RestController
+@RequestMapping("/api/admin/profiling")
+@Slf4j
+public class ProfilingController {
+
+    @Autowired
+    private ProfilingService profilingService;
+
+    /**
+     * 开始限时JFR录制，结束后返回 .jfr 文件（可用JMC或 jfr print 打开）
+     * 例：curl -X POST -o agenta.jfr "localhost:8080/api/admin/profiling/jfr?durationSeconds=30&profile=profile"
+     */
+    @PostMapping("/jfr")
+    public DeferredResult<ResponseEntity<Resource>> recordJfr(
+            @RequestParam(defaultValue = "30") int durationSeconds,
+            @RequestParam(defaultValue = "default") String profile) {
+        // 等待时间超过默认的异步请求超时，单独设置
+        DeferredResult<ResponseEntity<Resource>> deferred =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(durationSeconds + 60L));
+        profilingService.record(durationSeconds, profile).whenComplete((file, throwable) -> {
+            if (throwable != null) {
+                log.error("JFR录制失败", throwable);
+                deferred.setResult(ResponseEntity.internalServerError().build());
+                return;
+            }
+            try {
+                // 文件在响应写出、流关闭后删除；请求已超时则直接关闭
+                long size = Files.size(file);
+                InputStream in = Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+                boolean delivered = deferred.setResult(ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .contentLength(size)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                        .body(new InputStreamResource(in)));
+                if (!delivered) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                log.error("读取录制文件失败: {}", file, e);
+                deferred.setResult(ResponseEntity.internalServerError().build());
+            }
+        });
+        return deferred;
+    }
+
+    /**
+     * 查询是否有录制在进行
+     */
+    @GetMapping("/jfr")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(Map.of("recording", profilingService.isRecording()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * 未启用或已有录制在进行时返回409
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, Object>> conflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+}
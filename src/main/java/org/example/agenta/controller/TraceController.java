@@ -0,0 +1,41 @@
+package org.example.agenta.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.trace.ChromeTraceExporter;
+import org.example.agenta.trace.ExecutionTracer;
+import org.example.agenta.trace.TraceSpan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 执行追踪REST控制器
+ */
+@RestController
+@RequestMapping("/api/workflow/trace")
+@Slf4j
+public class TraceController {
+
+    @Autowired
+    private ExecutionTracer executionTracer;
+
+    /**
+     * 下载工作流的执行追踪（Chrome Trace Event格式，可在 ui.perfetto.dev 打开）
+     */
+    @GetMapping("/{workflowId}")
+    public ResponseEntity<Map<String, Object>> getTrace(@PathVariable String workflowId) {
+        List<TraceSpan> spans = executionTracer.getSpans(workflowId);
+        if (spans.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        log.info("导出工作流追踪: {}, 区间数: {}", workflowId, spans.size());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trace-" + workflowId + ".json\"")
+                .body(ChromeTraceExporter.export(spans));
+    }
+}
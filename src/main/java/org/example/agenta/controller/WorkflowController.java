@@ -1,15 +1,26 @@
 package org.example.agenta.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.admission.AdmissionRejectedException;
+import org.example.agenta.admission.WorkflowAdmission;
 import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.definition.WorkflowDefinition;
+import org.example.agenta.definition.WorkflowRegistry;
+import org.example.agenta.model.InvalidFieldsException;
 import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.model.WorkflowResponse;
 import org.example.agenta.service.WorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Workflow REST控制器
@@ -22,65 +33,64 @@ public class WorkflowController {
     @Autowired
     private WorkflowService workflowService;
     
+    @Autowired
+    private WorkflowAdmission workflowAdmission;
+    
+    @Autowired
+    private WorkflowRegistry workflowRegistry;
+    
     /**
      * 执行示例工作流 (AND逻辑)
      */
     @PostMapping("/execute/sample")
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeSampleWorkflow(
-            @RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Object>> executeSampleWorkflow(
+            @RequestBody Map<String, Object> request,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean verbose) {
         
+        Set<WorkflowResponse.Field> view = WorkflowResponse.parseFields(fields, verbose);
         log.info("收到示例工作流执行请求: {}", request);
         
         Object inputData = request.getOrDefault("input", "默认输入数据");
         
         WorkflowDAG workflow = workflowService.createSampleWorkflow();
         
-        return workflowService.executeWorkflow(workflow, inputData)
-                .thenApply(result -> {
-                    workflow.shutdown(); // 清理资源
-                    return ResponseEntity.ok(result);
-                })
-                .exceptionally(throwable -> {
-                    workflow.shutdown(); // 清理资源
-                    log.error("示例工作流执行失败", throwable);
-                    return ResponseEntity.internalServerError()
-                            .body(Map.of("error", throwable.getMessage()));
-                });
+        return workflowAdmission.submit(workflow.getWorkflowType(), () -> workflowService.executeWorkflow(workflow, inputData))
+                .thenApply(result -> ResponseEntity.<Object>ok(shape(result, workflow, view)))
+                .exceptionally(throwable -> failureResponse("示例工作流执行失败", throwable));
     }
     
     /**
      * 执行复杂工作流 (OR逻辑)
      */
     @PostMapping("/execute/complex")
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeComplexWorkflow(
-            @RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Object>> executeComplexWorkflow(
+            @RequestBody Map<String, Object> request,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean verbose) {
         
+        Set<WorkflowResponse.Field> view = WorkflowResponse.parseFields(fields, verbose);
         log.info("收到复杂工作流执行请求: {}", request);
         
         Object inputData = request.getOrDefault("input", "默认输入数据");
         
         WorkflowDAG workflow = workflowService.createComplexWorkflow();
         
-        return workflowService.executeWorkflow(workflow, inputData)
-                .thenApply(result -> {
-                    workflow.shutdown(); // 清理资源
-                    return ResponseEntity.ok(result);
-                })
-                .exceptionally(throwable -> {
-                    workflow.shutdown(); // 清理资源
-                    log.error("复杂工作流执行失败", throwable);
-                    return ResponseEntity.internalServerError()
-                            .body(Map.of("error", throwable.getMessage()));
-                });
+        return workflowAdmission.submit(workflow.getWorkflowType(), () -> workflowService.executeWorkflow(workflow, inputData))
+                .thenApply(result -> ResponseEntity.<Object>ok(shape(result, workflow, view)))
+                .exceptionally(throwable -> failureResponse("复杂工作流执行失败", throwable));
     }
     
     /**
      * 执行包含API调用的工作流
      */
     @PostMapping("/execute/api")
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeApiWorkflow(
-            @RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Object>> executeApiWorkflow(
+            @RequestBody Map<String, Object> request,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean verbose) {
         
+        Set<WorkflowResponse.Field> view = WorkflowResponse.parseFields(fields, verbose);
         log.info("收到API工作流执行请求: {}", request);
         
         Object inputData = request.getOrDefault("input", "默认输入数据");
@@ -89,33 +99,28 @@ public class WorkflowController {
         WorkflowDAG workflow = workflowService.createApiWorkflow();
         
         // 创建包含API配置的上下文
-        WorkflowContext context = new WorkflowContext()
+        WorkflowContext context = new WorkflowContext(workflowService.nextExecutionId(workflow))
                 .addData("input", inputData);
         
         if (apiConfig != null) {
             context.addData("apiConfig", apiConfig);
         }
         
-        return workflowService.executeWorkflow(workflow, context)
-                .thenApply(result -> {
-                    workflow.shutdown(); // 清理资源
-                    return ResponseEntity.ok(result);
-                })
-                .exceptionally(throwable -> {
-                    workflow.shutdown(); // 清理资源
-                    log.error("API工作流执行失败", throwable);
-                    return ResponseEntity.internalServerError()
-                            .body(Map.of("error", throwable.getMessage()));
-                });
+        return workflowAdmission.submit(workflow.getWorkflowType(), () -> workflowService.executeWorkflow(workflow, context))
+                .thenApply(result -> ResponseEntity.<Object>ok(shape(result, workflow, view)))
+                .exceptionally(throwable -> failureResponse("API工作流执行失败", throwable));
     }
     
     /**
      * 执行并行API调用工作流
      */
     @PostMapping("/execute/parallel-api")
-    public CompletableFuture<ResponseEntity<Map<String, Object>>> executeParallelApiWorkflow(
-            @RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<Object>> executeParallelApiWorkflow(
+            @RequestBody Map<String, Object> request,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean verbose) {
         
+        Set<WorkflowResponse.Field> view = WorkflowResponse.parseFields(fields, verbose);
         log.info("收到并行API工作流执行请求: {}", request);
         
         Object inputData = request.getOrDefault("input", "默认输入数据");
@@ -124,24 +129,94 @@ public class WorkflowController {
         WorkflowDAG workflow = workflowService.createParallelApiWorkflow();
         
         // 创建包含API配置的上下文
-        WorkflowContext context = new WorkflowContext()
+        WorkflowContext context = new WorkflowContext(workflowService.nextExecutionId(workflow))
                 .addData("input", inputData);
         
         if (apiConfig != null) {
             context.addData("apiConfig", apiConfig);
         }
         
-        return workflowService.executeWorkflow(workflow, context)
-                .thenApply(result -> {
-                    workflow.shutdown(); // 清理资源
-                    return ResponseEntity.ok(result);
-                })
-                .exceptionally(throwable -> {
-                    workflow.shutdown(); // 清理资源
-                    log.error("并行API工作流执行失败", throwable);
-                    return ResponseEntity.internalServerError()
-                            .body(Map.of("error", throwable.getMessage()));
-                });
+        return workflowAdmission.submit(workflow.getWorkflowType(), () -> workflowService.executeWorkflow(workflow, context))
+                .thenApply(result -> ResponseEntity.<Object>ok(shape(result, workflow, view)))
+                .exceptionally(throwable -> failureResponse("并行API工作流执行失败", throwable));
+    }
+    
+    /**
+     * 执行已注册的声明式工作流（workflows 目录下的 JSON / YAML 定义）
+     * 复用启动时编译好的工作流，只把请求中的 input 与 apiConfig 放入上下文，
+     * 引擎自用的键（截止时间等）不接受客户端传入
+     */
+    @PostMapping("/execute/{name}")
+    public CompletableFuture<ResponseEntity<Object>> executeDefinedWorkflow(
+            @PathVariable String name, @RequestBody Map<String, Object> request,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean verbose) {
+        
+        Set<WorkflowResponse.Field> view = WorkflowResponse.parseFields(fields, verbose);
+        log.info("收到声明式工作流执行请求: {}, {}", name, request);
+        
+        WorkflowDAG workflow = workflowRegistry.getWorkflow(name);
+        if (workflow == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body((Object) Map.of("error", "未找到工作流: " + name,
+                            "available", workflowRegistry.getWorkflowNames())));
+        }
+        
+        WorkflowContext context = new WorkflowContext(workflowRegistry.nextExecutionId(name))
+                .addData("input", request.getOrDefault("input", "默认输入数据"));
+        Object apiConfig = request.get("apiConfig");
+        if (apiConfig != null) {
+            context.addData("apiConfig", apiConfig);
+        }
+        
+        return workflowAdmission.submit(workflow.getWorkflowType(), () -> workflowService.executeWorkflow(workflow, context))
+                .thenApply(result -> ResponseEntity.<Object>ok(shape(result, workflow, view)))
+                .exceptionally(throwable -> failureResponse("工作流 " + name + " 执行失败", throwable));
+    }
+    
+    /**
+     * 获取已注册的声明式工作流定义
+     */
+    @GetMapping("/definitions")
+    public ResponseEntity<Map<String, WorkflowDefinition>> getDefinitions() {
+        Map<String, WorkflowDefinition> definitions = new LinkedHashMap<>();
+        workflowRegistry.getWorkflowNames().forEach(name -> definitions.put(name, workflowRegistry.getDefinition(name)));
+        return ResponseEntity.ok(definitions);
+    }
+    
+    /**
+     * 按请求选择的字段构建响应视图，序列化时才从上下文读取所选字段
+     */
+    private WorkflowResponse shape(Map<String, Object> summary, WorkflowDAG workflow, Set<WorkflowResponse.Field> view) {
+        return new WorkflowResponse(summary, workflow.getTerminalAgentIds(), view);
+    }
+    
+    /**
+     * 字段选择参数无法识别时返回400
+     */
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(InvalidFieldsException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+    
+    /**
+     * 构建失败响应：准入被拒绝时返回429/503并带Retry-After，其余返回500
+     */
+    private ResponseEntity<Object> failureResponse(String message, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        
+        if (cause instanceof AdmissionRejectedException rejected) {
+            log.warn("{}: {}", message, rejected.getMessage());
+            return ResponseEntity.status(rejected.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejected.getRetryAfterSeconds()))
+                    .body(Map.of("error", rejected.getMessage(),
+                            "retryAfterSeconds", rejected.getRetryAfterSeconds()));
+        }
+        
+        log.error(message, throwable);
+        return ResponseEntity.internalServerError()
+                .body(Map.of("error", throwable.getMessage()));
     }
     
     /**
@@ -163,7 +238,13 @@ public class WorkflowController {
                         "sampleWorkflow", "/api/workflow/execute/sample",
                         "complexWorkflow", "/api/workflow/execute/complex", 
                         "apiWorkflow", "/api/workflow/execute/api",
-                        "parallelApiWorkflow", "/api/workflow/execute/parallel-api"
+                        "parallelApiWorkflow", "/api/workflow/execute/parallel-api",
+                        "definedWorkflow", "/api/workflow/execute/{name}",
+                        "definitions", "/api/workflow/definitions",
+                        "jobs", "/api/workflow/jobs",
+                        "job", "/api/workflow/jobs/{jobId}?waitMs=",
+                        "history", "/api/workflow/history?type=&from=&to=",
+                        "trace", "/api/workflow/trace/{workflowId}"
                 )
         );
         
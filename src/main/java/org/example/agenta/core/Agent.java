@@ -3,6 +3,10 @@ package org.example.agenta.core;
 import org.example.agenta.model.AgentResult;
 import org.example.agenta.model.WorkflowContext;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 /**
  * Agent接口，定义Agent的基本行为
  */
@@ -25,6 +29,22 @@ public interface Agent {
      */
     AgentResult execute(WorkflowContext context);
     
+    /**
+     * 异步执行Agent任务
+     * 由工作流在其执行器线程上调用。默认实现直接在调用线程上执行 {@link #execute}；
+     * 以I/O为主的Agent应覆盖此方法，发起请求后立即返回，等待期间不占用线程。
+     * @param context  工作流上下文
+     * @param executor 工作流执行器，可用于在回调中执行阻塞或计算型任务
+     * @return Agent执行结果
+     */
+    default CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+        try {
+            return CompletableFuture.completedFuture(execute(context));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
     /**
      * 检查Agent是否可以执行（前置条件检查）
      */
@@ -0,0 +1,250 @@
+package org.example.agenta.core;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 扇出（map）Agent：对上下文中的集合逐元素执行子Agent或子工作流，并汇总结果
+ * 每个元素在独立的子上下文中执行，子上下文复制父上下文的数据，并把元素放在 input / item 键下，
+ * 因此现有Agent无需修改即可逐元素运行。
+ * 元素按 batchSize 分批，同时执行的批次不超过 concurrency；批次完成时在回调中启动下一批，
+ * 不占用等待线程。
+ *
+ * 结果：results 为各元素的结果（ORDERED 按输入顺序，UNORDERED 按完成顺序），
+ * failed / errors 记录失败的元素；全部元素失败时本Agent失败。
+ */
+@Data
+@Accessors(chain = true)
+@Slf4j
+public class MapAgent implements Agent {
+
+    /**
+     * 结果汇总方式
+     */
+    public enum Reducer {
+        ORDERED,    // 按输入顺序
+        UNORDERED   // 按完成顺序
+    }
+
+    private final String agentId;
+    private String itemsKey = "input";          // 上下文中集合所在的键
+    private Agent elementAgent;                 // 逐元素执行的Agent，与 subWorkflow 二选一
+    private Supplier<WorkflowDAG> subWorkflow;  // 逐元素执行的子工作流，执行时解析，支持热加载后的新版本
+    private int concurrency = 8;
+    private int batchSize = 1;
+    private Reducer reducer = Reducer.ORDERED;
+
+    @Override
+    public String getDescription() {
+        return "扇出Agent - 对 " + itemsKey + " 中的每个元素执行"
+                + (elementAgent != null ? elementAgent.getAgentId() : "子工作流");
+    }
+
+    @Override
+    public AgentResult execute(WorkflowContext context) {
+        return executeAsync(context, ForkJoinPool.commonPool()).toCompletableFuture().join();
+    }
+
+    @Override
+    public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+        List<?> items = toList(context.getData(itemsKey));
+        if (items == null) {
+            return CompletableFuture.completedFuture(
+                    AgentResult.failure(agentId, "上下文中 " + itemsKey + " 不是集合"));
+        }
+        log.info("MapAgent {} 开始执行，元素数: {}, 并发: {}, 批大小: {}", agentId, items.size(), concurrency, batchSize);
+        return new FanOut(context, items, executor).start();
+    }
+
+    @Override
+    public boolean canExecute(WorkflowContext context) {
+        return toList(context.getData(itemsKey)) != null;
+    }
+
+    private static List<?> toList(Object source) {
+        if (source instanceof List<?> list) {
+            return list;
+        }
+        if (source instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+        if (source instanceof Object[] array) {
+            return Arrays.asList(array);
+        }
+        return null;
+    }
+
+    /**
+     * 单次扇出执行的状态
+     */
+    private final class FanOut {
+
+        private final WorkflowContext parent;
+        private final List<?> items;
+        private final Executor executor;
+        private final int batches;
+        private final Object[] orderedResults;
+        private final ConcurrentLinkedQueue<Object> completionOrder = new ConcurrentLinkedQueue<>();
+        private final List<Map<String, Object>> errors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger nextBatch = new AtomicInteger();
+        private final AtomicInteger remainingBatches;
+        private final CompletableFuture<AgentResult> result = new CompletableFuture<>();
+
+        private FanOut(WorkflowContext parent, List<?> items, Executor executor) {
+            this.parent = parent;
+            this.items = items;
+            this.executor = executor;
+            int size = Math.max(1, batchSize);
+            this.batches = (items.size() + size - 1) / size;
+            this.orderedResults = new Object[items.size()];
+            this.remainingBatches = new AtomicInteger(batches);
+        }
+
+        private CompletableFuture<AgentResult> start() {
+            if (batches == 0) {
+                complete();
+                return result;
+            }
+            for (int i = 0; i < Math.min(Math.max(1, concurrency), batches); i++) {
+                launchNextBatch();
+            }
+            return result;
+        }
+
+        /**
+         * 启动下一批；一批完成后在回调中补位，保持同时执行的批次数不超过 concurrency
+         */
+        private void launchNextBatch() {
+            int batch = nextBatch.getAndIncrement();
+            if (batch >= batches) {
+                return;
+            }
+            int from = batch * Math.max(1, batchSize);
+            int to = Math.min(items.size(), from + Math.max(1, batchSize));
+
+            // 每批只切换一次线程，批内元素依次执行
+            CompletableFuture<Void> chain;
+            try {
+                chain = CompletableFuture.runAsync(() -> { }, executor);
+            } catch (RejectedExecutionException e) {
+                // 补位时在上一批的回调中抛出的异常会被回调吞掉，剩余批次无法完成，直接结束本次扇出
+                log.warn("MapAgent {} 第 {} 批被执行器拒绝: {}", agentId, batch, e.getMessage());
+                result.completeExceptionally(e);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int index = i;
+                chain = chain.thenCompose(ignored -> runElement(index));
+            }
+            chain.whenComplete((ignored, error) -> {
+                if (remainingBatches.decrementAndGet() == 0) {
+                    complete();
+                } else {
+                    launchNextBatch();
+                }
+            });
+        }
+
+        private CompletableFuture<Void> runElement(int index) {
+            Object item = items.get(index);
+            WorkflowContext child = new WorkflowContext(parent.getWorkflowId() + "#" + agentId + "[" + index + "]");
+            child.getData().putAll(parent.getData());
+            child.addData("input", item)
+                    .addData("item", item)
+                    .addData("itemIndex", index);
+
+            CompletableFuture<Object> element;
+            try {
+                element = elementAgent != null ? runAgent(child) : runWorkflow(child);
+            } catch (Exception e) {
+                element = CompletableFuture.failedFuture(e);
+            }
+            return element.handle((value, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    Map<String, Object> failure = new LinkedHashMap<>();
+                    failure.put("index", index);
+                    failure.put("error", String.valueOf(cause.getMessage()));
+                    errors.add(failure);
+                    value = null;
+                }
+                if (reducer == Reducer.ORDERED) {
+                    orderedResults[index] = value;
+                } else if (error == null) {
+                    completionOrder.add(value);
+                }
+                return null;
+            });
+        }
+
+        private CompletableFuture<Object> runAgent(WorkflowContext child) {
+            return elementAgent.executeAsync(child, executor).toCompletableFuture().thenApply(agentResult -> {
+                if (agentResult == null || !agentResult.isSuccess()) {
+                    throw new IllegalStateException(agentResult != null ? agentResult.getErrorMessage() : "Agent未返回结果");
+                }
+                return agentResult.getResult();
+            });
+        }
+
+        private CompletableFuture<Object> runWorkflow(WorkflowContext child) {
+            WorkflowDAG workflow = subWorkflow != null ? subWorkflow.get() : null;
+            if (workflow == null) {
+                throw new IllegalStateException("MapAgent " + agentId + " 未配置可用的子Agent或子工作流");
+            }
+            return workflow.execute(child).thenApply(completed -> {
+                Map<String, Object> outputs = new HashMap<>();
+                for (Map.Entry<String, AgentResult> entry : completed.getAgentResults().entrySet()) {
+                    if (!entry.getValue().isSuccess()) {
+                        throw new IllegalStateException(entry.getKey() + ": " + entry.getValue().getErrorMessage());
+                    }
+                    outputs.put(entry.getKey(), entry.getValue().getResult());
+                }
+                return outputs;
+            });
+        }
+
+        private void complete() {
+            int failed = errors.size();
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("results", reducer == Reducer.ORDERED
+                    ? Arrays.asList(orderedResults) : new ArrayList<>(completionOrder));
+            summary.put("total", items.size());
+            summary.put("succeeded", items.size() - failed);
+            summary.put("failed", failed);
+            if (failed > 0) {
+                summary.put("errors", new ArrayList<>(errors));
+            }
+
+            log.info("MapAgent {} 执行完成，成功: {}, 失败: {}", agentId, items.size() - failed, failed);
+            if (failed > 0 && failed == items.size()) {
+                AgentResult failure = AgentResult.failure(agentId, "全部 " + failed + " 个元素执行失败");
+                failure.setResult(summary);
+                result.complete(failure);
+            } else {
+                result.complete(AgentResult.success(agentId, summary));
+            }
+        }
+    }
+}
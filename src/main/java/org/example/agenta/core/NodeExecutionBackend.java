@@ -0,0 +1,29 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * 节点执行后端，决定就绪节点的Agent在哪里运行
+ * 默认在本进程内执行；工作进程池等后端可把节点分发到其他进程。
+ */
+public interface NodeExecutionBackend {
+
+    /**
+     * 本进程执行
+     */
+    NodeExecutionBackend LOCAL = (workflow, node, context, executor) -> node.getAgent().executeAsync(context, executor);
+
+    /**
+     * 执行节点
+     * @param workflow 所属工作流
+     * @param node     就绪的节点
+     * @param context  本次执行的上下文
+     * @param executor 工作流执行器
+     * @return 节点的Agent执行结果
+     */
+    CompletionStage<AgentResult> execute(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, Executor executor);
+}
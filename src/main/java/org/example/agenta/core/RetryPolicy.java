@@ -0,0 +1,78 @@
+package org.example.agenta.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.example.agenta.model.AgentResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 节点级重试策略：最大尝试次数、带抖动的指数退避与可重试失败的判定
+ * 节点失败后按退避时长在共享定时器上重新派发，等待期间不占用执行器线程
+ */
+@Data
+@Accessors(chain = true)
+public class RetryPolicy {
+
+    private int maxAttempts = 3;               // 含首次执行在内的最大尝试次数
+    private long initialBackoffMillis = 200;   // 首次重试前的退避时长
+    private double multiplier = 2.0;           // 每次重试退避时长的增长倍数
+    private long maxBackoffMillis = 10_000;    // 退避时长上限
+    private double jitter = 0.5;               // 退避时长随机缩减的最大比例，0~1，避免同时失败的节点同时重试
+    private List<String> retryOn = new ArrayList<>();  // 错误信息匹配任一正则才重试，为空时所有失败都重试
+
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private List<Pattern> retryPatterns = List.of();   // retryOn 编译后的正则，设置时编译一次
+
+    @JsonIgnore
+    private Predicate<AgentResult> retryable;  // 代码中指定的判定条件，优先于 retryOn
+
+    /**
+     * 设置可重试的错误信息正则，设置时即编译
+     * @throws java.util.regex.PatternSyntaxException 正则不合法
+     */
+    public RetryPolicy setRetryOn(List<String> retryOn) {
+        List<String> patterns = retryOn != null ? new ArrayList<>(retryOn) : new ArrayList<>();
+        this.retryPatterns = patterns.stream().map(Pattern::compile).toList();
+        this.retryOn = patterns;
+        return this;
+    }
+
+    /**
+     * 失败结果是否可重试
+     */
+    public boolean isRetryable(AgentResult result) {
+        if (result == null || result.isSuccess()) {
+            return false;
+        }
+        if (retryable != null) {
+            return retryable.test(result);
+        }
+        if (retryPatterns.isEmpty()) {
+            return true;
+        }
+        String message = result.getErrorMessage() != null ? result.getErrorMessage() : "";
+        for (Pattern pattern : retryPatterns) {
+            if (pattern.matcher(message).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 第 attempt 次尝试失败后的退避时长（毫秒）
+     */
+    public long backoffMillis(int attempt) {
+        double base = Math.min(maxBackoffMillis, initialBackoffMillis * Math.pow(multiplier, attempt - 1));
+        return Math.round(base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.WorkflowContext;
+import reactor.core.publisher.Flux;
+
+/**
+ * 流式Agent接口，逐条消费上游记录并逐条产出记录
+ * 实现应保持背压语义：只在下游请求时拉取上游，不在内部无界缓存整个输入。
+ */
+public interface StreamingAgent {
+
+    /**
+     * 获取Agent ID
+     */
+    String getAgentId();
+
+    /**
+     * 将输入记录流转换为输出记录流
+     * @param records 上游记录
+     * @param context 工作流上下文
+     * @return 输出记录
+     */
+    Flux<Object> process(Flux<Object> records, WorkflowContext context);
+}
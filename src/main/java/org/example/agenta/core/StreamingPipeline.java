@@ -0,0 +1,60 @@
+package org.example.agenta.core;
+
+import lombok.Getter;
+import org.example.agenta.model.WorkflowContext;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式流水线，由若干 StreamingAgent 首尾相连组成
+ * 相邻阶段之间以容量为 bufferSize 的有界缓冲区隔开并切换线程，
+ * 上游产出一条记录后下游即可开始处理，各阶段在时间上重叠；
+ * 下游处理不过来时通过背压让上游暂停，峰值内存由各阶段缓冲区大小决定。
+ */
+public class StreamingPipeline {
+
+    /**
+     * 流水线阶段
+     */
+    public record Stage(StreamingAgent agent, int bufferSize) {
+    }
+
+    @Getter
+    private final String pipelineId;
+    @Getter
+    private final List<Stage> stages = new ArrayList<>();
+    private final Scheduler scheduler;
+
+    public StreamingPipeline(String pipelineId) {
+        this(pipelineId, Schedulers.boundedElastic());
+    }
+
+    public StreamingPipeline(String pipelineId, Scheduler scheduler) {
+        this.pipelineId = pipelineId;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 追加阶段
+     */
+    public StreamingPipeline addStage(StreamingAgent agent, int bufferSize) {
+        this.stages.add(new Stage(agent, bufferSize));
+        return this;
+    }
+
+    /**
+     * 组装流水线，订阅返回的流时才开始拉取数据
+     */
+    public Flux<Object> run(Publisher<?> source, WorkflowContext context) {
+        Flux<Object> records = Flux.from(source).cast(Object.class);
+        for (Stage stage : stages) {
+            records = stage.agent().process(records.publishOn(scheduler, stage.bufferSize()), context);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.agenta.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * 将流式流水线作为工作流中的一个节点执行
+ * 从上下文 itemsKey 读取记录来源（Publisher、集合或数组），流水线的输出收集后作为节点结果：
+ * records 为最后一个阶段产出的记录，count 为记录数。
+ */
+@Slf4j
+public class StreamingPipelineAgent implements Agent {
+
+    private final String agentId;
+    private final StreamingPipeline pipeline;
+    private final String itemsKey;
+
+    public StreamingPipelineAgent(String agentId, StreamingPipeline pipeline, String itemsKey) {
+        this.agentId = agentId;
+        this.pipeline = pipeline;
+        this.itemsKey = itemsKey;
+    }
+
+    @Override
+    public String getAgentId() {
+        return agentId;
+    }
+
+    @Override
+    public String getDescription() {
+        return "流式流水线Agent - " + pipeline.getStages().size() + " 个阶段";
+    }
+
+    @Override
+    public AgentResult execute(WorkflowContext context) {
+        return executeAsync(context, Runnable::run).toCompletableFuture().join();
+    }
+
+    @Override
+    public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+        Publisher<?> source = toPublisher(context.getData(itemsKey));
+        log.info("StreamingPipelineAgent {} 开始执行，阶段数: {}", agentId, pipeline.getStages().size());
+
+        return pipeline.run(source, context)
+                .collectList()
+                .map(records -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("records", records);
+                    result.put("count", records.size());
+                    log.info("StreamingPipelineAgent {} 执行完成，输出记录数: {}", agentId, records.size());
+                    return AgentResult.success(agentId, result);
+                })
+                .onErrorResume(e -> {
+                    log.error("StreamingPipelineAgent {} 执行失败", agentId, e);
+                    return Mono.just(AgentResult.failure(agentId, e.getMessage()));
+                })
+                .toFuture();
+    }
+
+    @Override
+    public boolean canExecute(WorkflowContext context) {
+        return context.getData(itemsKey) != null;
+    }
+
+    private static Publisher<?> toPublisher(Object source) {
+        if (source instanceof Publisher<?> publisher) {
+            return publisher;
+        }
+        if (source instanceof Iterable<?> iterable) {
+            return Flux.fromIterable(iterable);
+        }
+        if (source instanceof Object[] array) {
+            return Flux.fromIterable(Arrays.asList(array));
+        }
+        return source == null ? Flux.empty() : Flux.fromIterable(List.of(source));
+    }
+}
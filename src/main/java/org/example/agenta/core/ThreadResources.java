@@ -0,0 +1,63 @@
+package org.example.agenta.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 当前线程的CPU时间和累计分配字节，用于按节点统计资源消耗
+ * JVM不支持或未开启时返回 -1
+ */
+public final class ThreadResources {
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean EXTENDED =
+            THREADS instanceof com.sun.management.ThreadMXBean extended ? extended : null;
+    private static final boolean CPU_SUPPORTED = enableCpuTime();
+    private static final boolean ALLOCATION_SUPPORTED = enableAllocation();
+    
+    private ThreadResources() {
+    }
+    
+    public static long cpuNanos() {
+        return CPU_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+    
+    public static long allocatedBytes() {
+        return ALLOCATION_SUPPORTED ? EXTENDED.getCurrentThreadAllocatedBytes() : -1;
+    }
+    
+    /**
+     * 计算增量，任一端不可用时为 -1
+     */
+    public static long delta(long start, long end) {
+        return start < 0 || end < 0 ? -1 : Math.max(0, end - start);
+    }
+    
+    private static boolean enableCpuTime() {
+        try {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!THREADS.isThreadCpuTimeEnabled()) {
+                THREADS.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+    
+    private static boolean enableAllocation() {
+        try {
+            if (EXTENDED == null || !EXTENDED.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            if (!EXTENDED.isThreadAllocatedMemoryEnabled()) {
+                EXTENDED.setThreadAllocatedMemoryEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+}
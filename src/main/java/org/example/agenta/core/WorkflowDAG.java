@@ -1,14 +1,23 @@
 package org.example.agenta.core;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.NodeCost;
 import org.example.agenta.model.WorkflowContext;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Workflow DAG管理器，负责管理和执行工作流
@@ -17,14 +26,44 @@ import java.util.concurrent.Executors;
 @Slf4j
 public class WorkflowDAG {
     
+    /**
+     * 所有工作流共享的重试定时器，只负责到期后把节点重新提交到执行器
+     */
+    private static final ScheduledExecutorService RETRY_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "workflow-retry-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     private String workflowId;
+    private String workflowType;  // 工作流类型，用于指标聚合，默认与workflowId相同
     private Map<String, WorkflowNode> nodes;
     private ExecutorService executorService;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean ownsExecutor;  // 执行器由本工作流创建时才在 shutdown 中关闭，外部传入的共享执行器由其所有者关闭
+    private List<WorkflowExecutionListener> listeners;
+    private NodeExecutionBackend backend;  // 节点执行后端，默认在本进程执行
     
     public WorkflowDAG(String workflowId) {
+        this(workflowId, workflowId);
+    }
+    
+    public WorkflowDAG(String workflowId, String workflowType) {
+        this(workflowId, workflowType, Executors.newCachedThreadPool());
+        this.ownsExecutor = true;
+    }
+    
+    /**
+     * 使用外部执行器创建工作流，可被多次并发执行（执行状态按次隔离）
+     */
+    public WorkflowDAG(String workflowId, String workflowType, ExecutorService executorService) {
         this.workflowId = workflowId;
+        this.workflowType = workflowType;
         this.nodes = new LinkedHashMap<>();
-        this.executorService = Executors.newCachedThreadPool();
+        this.executorService = executorService;
+        this.listeners = new ArrayList<>();
+        this.backend = NodeExecutionBackend.LOCAL;
     }
     
     /**
@@ -35,6 +74,14 @@ public class WorkflowDAG {
         return this;
     }
     
+    /**
+     * 添加执行监听器
+     */
+    public WorkflowDAG addListener(WorkflowExecutionListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+    
     /**
      * 获取节点
      */
@@ -44,77 +91,255 @@ public class WorkflowDAG {
     
     /**
      * 执行工作流
+     * 节点完成时在其回调中派发新就绪的节点，不再按批次等待整批完成；
+     * 异步Agent等待I/O期间不占用执行器线程
      */
     public CompletableFuture<WorkflowContext> execute(WorkflowContext context) {
         log.info("开始执行工作流: {}", workflowId);
         
-        return CompletableFuture.supplyAsync(() -> {
+        Execution execution = new Execution(context);
+        fireWorkflowStarted(context);
+        execution.schedule(null);
+        return execution.result;
+    }
+    
+    /**
+     * 单次工作流执行的调度状态
+     * 维护按依赖（AgentId）索引的下游节点与AND节点未满足的依赖数，节点完成时只检查其下游节点，
+     * 宽DAG的调度开销随边数线性增长，锁内只做与该节点出度成正比的工作
+     */
+    private final class Execution {
+        
+        private final WorkflowContext context;
+        private final long startNanos = System.nanoTime();
+        private final Set<String> dispatched = new HashSet<>();
+        private final Map<String, List<WorkflowNode>> dependents = new HashMap<>();
+        private final Map<String, Integer> unmet = new HashMap<>();  // AND节点尚未成功完成的依赖数
+        private final Map<String, WorkflowNode> deferred = new LinkedHashMap<>();  // 按节点ID，WorkflowNode的equals随状态变化
+        private final CompletableFuture<WorkflowContext> result = new CompletableFuture<>();
+        private int inFlight;
+        private boolean finished;
+        
+        private Execution(WorkflowContext context) {
+            this.context = context;
+            for (WorkflowNode node : nodes.values()) {
+                int pending = 0;
+                for (String dependency : new LinkedHashSet<>(node.getDependencies())) {
+                    dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(node);
+                    if (!context.isAgentCompleted(dependency)) {
+                        pending++;
+                    }
+                }
+                unmet.put(node.getNodeId(), pending);
+            }
+        }
+        
+        /**
+         * 派发所有新就绪的节点，没有在途节点且没有可派发的节点时结束工作流
+         * OR节点在部分依赖完成时即可就绪，若此时Agent自身前置条件（canExecute）尚未满足，
+         * 则推迟到下一次节点完成后再判断；没有在途节点时按依赖条件直接执行
+         * @param completed 刚完成的节点，首次调度时为空（检查全部节点）
+         */
+        private void schedule(WorkflowNode completed) {
+            List<WorkflowNode> ready = new ArrayList<>();
+            boolean done;
             try {
-                while (hasExecutableNodes(context)) {
-                    List<WorkflowNode> executableNodes = getExecutableNodes(context);
-                    
-                    if (executableNodes.isEmpty()) {
-                        log.warn("没有可执行的节点，可能存在循环依赖");
-                        break;
+                synchronized (this) {
+                    if (finished) {
+                        return;
+                    }
+                    Map<String, WorkflowNode> candidates = new LinkedHashMap<>();
+                    if (completed == null) {
+                        candidates.putAll(nodes);
+                    } else {
+                        inFlight--;
+                        collectDependents(completed, candidates);
+                    }
+                    candidates.putAll(deferred);
+                    deferred.clear();
+                    for (WorkflowNode node : candidates.values()) {
+                        if (dispatched.contains(node.getNodeId()) || !dependenciesMet(node)) {
+                            continue;
+                        }
+                        if (node.getOperator() != LogicalOperator.OR || node.getAgent().canExecute(context)) {
+                            ready.add(node);
+                        } else {
+                            deferred.put(node.getNodeId(), node);
+                        }
                     }
-                    
-                    // 并行执行可执行的节点
-                    List<CompletableFuture<Void>> futures = executableNodes.stream()
-                            .map(node -> executeNode(node, context))
-                            .toList();
-                    
-                    // 等待所有节点执行完成
-                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                    if (ready.isEmpty() && inFlight == 0) {
+                        ready.addAll(deferred.values());
+                        deferred.clear();
+                    }
+                    for (WorkflowNode node : ready) {
+                        dispatched.add(node.getNodeId());
+                    }
+                    inFlight += ready.size();
+                    done = inFlight == 0;
+                    finished = done;
                 }
-                
-                log.info("工作流执行完成: {}", workflowId);
-                return context;
-                
             } catch (Exception e) {
-                log.error("工作流执行失败: {}", workflowId, e);
-                throw new RuntimeException("工作流执行失败", e);
+                fail(e);
+                return;
             }
-        }, executorService);
-    }
-    
-    /**
-     * 执行单个节点
-     */
-    private CompletableFuture<Void> executeNode(WorkflowNode node, WorkflowContext context) {
-        return CompletableFuture.runAsync(() -> {
+            
+            if (done) {
+                log.info("工作流执行完成: {}", workflowId);
+                fireWorkflowFinished(context, System.nanoTime() - startNanos, null);
+                result.complete(context);
+                return;
+            }
+            for (WorkflowNode node : ready) {
+                dispatch(node);
+            }
+        }
+        
+        /**
+         * 节点成功完成后可能新就绪的下游节点；失败不会使任何节点就绪，NOT节点只会因依赖完成而失去就绪
+         */
+        private void collectDependents(WorkflowNode completed, Map<String, WorkflowNode> candidates) {
+            String agentId = completed.getAgent().getAgentId();
+            if (!context.isAgentCompleted(agentId)) {
+                return;
+            }
+            for (WorkflowNode node : dependents.getOrDefault(agentId, List.of())) {
+                if (node.getOperator() == LogicalOperator.AND) {
+                    if (unmet.merge(node.getNodeId(), -1, Integer::sum) == 0) {
+                        candidates.put(node.getNodeId(), node);
+                    }
+                } else if (node.getOperator() == LogicalOperator.OR) {
+                    candidates.put(node.getNodeId(), node);
+                }
+            }
+        }
+        
+        private boolean dependenciesMet(WorkflowNode node) {
+            return node.getOperator() == LogicalOperator.AND ? unmet.get(node.getNodeId()) <= 0
+                    : node.checkCanExecute(context);
+        }
+        
+        /**
+         * 将节点提交到执行器
+         */
+        private void dispatch(WorkflowNode node) {
+            long queuedNanos = System.nanoTime();
+            fireNodeQueued(node, context);
+            submit(node, queuedNanos, null);
+        }
+        
+        /**
+         * @param retry 重试时的尝试信息，首次执行为空
+         */
+        private void submit(WorkflowNode node, long queuedNanos, Attempt retry) {
             try {
+                executorService.execute(() -> run(node, queuedNanos, retry));
+            } catch (RejectedExecutionException e) {
+                if (retry == null) {
+                    // 补发开始事件，监听器看到的排队/开始/结束事件保持成对（就绪队列等指标不会漂移）
+                    fireNodeStarted(node, context, queuedNanos);
+                }
+                onNodeCompleted(node, null, e, retry != null ? retry : new Attempt(1, queuedNanos, new NodeCost()));
+            }
+        }
+        
+        /**
+         * 在执行器线程上启动节点，Agent返回的结果在完成回调中处理
+         * 重试不再触发排队与开始事件，监听器看到的仍是一次完整的节点执行
+         */
+        private void run(WorkflowNode node, long queuedNanos, Attempt retry) {
+            if (retry == null) {
+                fireNodeStarted(node, context, queuedNanos);
                 log.info("开始执行节点: {}", node.getNodeId());
-                
-                AgentResult result = node.getAgent().execute(context);
-                context.addAgentResult(node.getAgent().getAgentId(), result);
-                node.setExecuted(true);
-                
-                log.info("节点执行完成: {}, 结果: {}", node.getNodeId(), result.isSuccess());
-                
+            } else {
+                log.info("重试节点: {}, 第{}次尝试", node.getNodeId(), retry.number());
+            }
+            long nodeStartNanos = System.nanoTime();
+            
+            // 同步部分（同步Agent的全部执行、异步Agent发起请求前的准备）在当前线程上统计CPU和分配字节
+            long cpuStart = ThreadResources.cpuNanos();
+            long allocatedStart = ThreadResources.allocatedBytes();
+            CompletionStage<AgentResult> stage;
+            try {
+                stage = backend.execute(WorkflowDAG.this, node, context, executorService);
             } catch (Exception e) {
-                log.error("节点执行失败: {}", node.getNodeId(), e);
-                AgentResult failureResult = AgentResult.failure(node.getAgent().getAgentId(), e.getMessage());
-                context.addAgentResult(node.getAgent().getAgentId(), failureResult);
-                node.setExecuted(true);
+                stage = CompletableFuture.failedFuture(e);
             }
-        }, executorService);
-    }
-    
-    /**
-     * 检查是否还有可执行的节点
-     */
-    private boolean hasExecutableNodes(WorkflowContext context) {
-        return nodes.values().stream()
-                .anyMatch(node -> !node.isExecuted() && node.checkCanExecute(context));
+            NodeCost cost = new NodeCost()
+                    .setCpuNanos(ThreadResources.delta(cpuStart, ThreadResources.cpuNanos()))
+                    .setAllocatedBytes(ThreadResources.delta(allocatedStart, ThreadResources.allocatedBytes()));
+            Attempt attempt = retry != null ? new Attempt(retry.number(), retry.startNanos(), cost.add(retry.cost()))
+                    : new Attempt(1, nodeStartNanos, cost);
+            stage.whenComplete((agentResult, error) -> onNodeCompleted(node, agentResult, error, attempt));
+        }
+        
+        /**
+         * 失败且策略允许时按退避时长在定时器上重新派发，等待期间节点仍计为在途，其他就绪节点照常执行
+         * @param attempt 本次尝试；其中的消耗为引擎在执行线程上统计的消耗（含此前各次尝试），
+         *                与Agent上报的消耗（网络字节、工作进程中的CPU等）合并后记入结果
+         */
+        private void onNodeCompleted(WorkflowNode node, AgentResult agentResult, Throwable error, Attempt attempt) {
+            String agentId = node.getAgent().getAgentId();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("节点执行失败: {}", node.getNodeId(), cause);
+                agentResult = AgentResult.failure(agentId, cause.getMessage());
+            } else if (agentResult == null) {
+                log.error("节点执行失败: {}, Agent未返回结果", node.getNodeId());
+                agentResult = AgentResult.failure(agentId, "Agent未返回结果");
+            } else {
+                log.info("节点执行完成: {}, 结果: {}", node.getNodeId(), agentResult.isSuccess());
+            }
+            NodeCost cost = attempt.cost().add(agentResult.getCost());
+            
+            RetryPolicy policy = node.getRetryPolicy();
+            if (policy != null && attempt.number() < policy.getMaxAttempts() && policy.isRetryable(agentResult)) {
+                long backoffMillis = policy.backoffMillis(attempt.number());
+                log.warn("节点 {} 第{}次尝试失败，{}ms后重试: {}", node.getNodeId(), attempt.number(), backoffMillis,
+                        agentResult.getErrorMessage());
+                Attempt next = new Attempt(attempt.number() + 1, attempt.startNanos(), cost);
+                try {
+                    RETRY_TIMER.schedule(() -> submit(node, System.nanoTime(), next), backoffMillis, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    log.error("节点 {} 重试调度失败", node.getNodeId(), e);
+                }
+            }
+            
+            long durationNanos = System.nanoTime() - attempt.startNanos();
+            agentResult.setCost(cost.setWallNanos(durationNanos));
+            if (attempt.number() > 1) {
+                Map<String, Object> metadata = agentResult.getMetadata() != null
+                        ? new HashMap<>(agentResult.getMetadata()) : new HashMap<>();
+                metadata.put("attempts", attempt.number());
+                agentResult.setMetadata(metadata);
+            }
+            context.addAgentResult(agentId, agentResult);
+            node.setExecuted(true);
+            fireNodeFinished(node, context, agentResult, durationNanos);
+            schedule(node);
+        }
+        
+        private void fail(Exception e) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            log.error("工作流执行失败: {}", workflowId, e);
+            fireWorkflowFinished(context, System.nanoTime() - startNanos, e);
+            result.completeExceptionally(new RuntimeException("工作流执行失败", e));
+        }
     }
     
     /**
-     * 获取当前可执行的节点列表
+     * 节点的一次尝试
+     * @param number 第几次尝试，从1开始
+     * @param startNanos 首次尝试的开始时间，节点耗时包含各次重试及其间的退避
+     * @param cost 已累计的消耗
      */
-    private List<WorkflowNode> getExecutableNodes(WorkflowContext context) {
-        return nodes.values().stream()
-                .filter(node -> !node.isExecuted() && node.checkCanExecute(context))
-                .toList();
+    private record Attempt(int number, long startNanos, NodeCost cost) {
     }
     
     /**
@@ -122,11 +347,12 @@ public class WorkflowDAG {
      */
     public Map<String, Object> getExecutionSummary(WorkflowContext context) {
         Map<String, Object> summary = new HashMap<>();
-        summary.put("workflowId", workflowId);
+        summary.put("workflowId", context.getWorkflowId());
         summary.put("totalNodes", nodes.size());
         
+        // 按本次上下文中的结果统计，同一工作流被并发执行时互不影响
         long completedNodes = nodes.values().stream()
-                .mapToLong(node -> node.isExecuted() ? 1 : 0)
+                .mapToLong(node -> context.getAgentResult(node.getAgent().getAgentId()) != null ? 1 : 0)
                 .sum();
         
         long successfulNodes = context.getAgentResults().values().stream()
@@ -136,12 +362,113 @@ public class WorkflowDAG {
         summary.put("completedNodes", completedNodes);
         summary.put("successfulNodes", successfulNodes);
         summary.put("failedNodes", completedNodes - successfulNodes);
+        summary.put("cost", getCostBreakdown(context));
         
         return summary;
     }
     
+    /**
+     * 按节点的资源消耗明细及合计，用于找出工作流中开销最大的Agent
+     */
+    public Map<String, Object> getCostBreakdown(WorkflowContext context) {
+        NodeCost total = new NodeCost();
+        Map<String, NodeCost> byAgent = new LinkedHashMap<>();
+        for (WorkflowNode node : nodes.values()) {
+            String agentId = node.getAgent().getAgentId();
+            AgentResult result = context.getAgentResult(agentId);
+            if (result != null && result.getCost() != null) {
+                byAgent.put(agentId, result.getCost());
+                total.add(result.getCost());
+            }
+        }
+        Map<String, Object> breakdown = new LinkedHashMap<>();
+        breakdown.put("total", total);
+        breakdown.put("nodes", byAgent);
+        return breakdown;
+    }
+    
+    /**
+     * 终端节点（没有其他节点依赖）的AgentId，通常即工作流的最终产出
+     */
+    public Set<String> getTerminalAgentIds() {
+        Set<String> dependedOn = new HashSet<>();
+        nodes.values().forEach(node -> dependedOn.addAll(node.getDependencies()));
+        Set<String> terminal = new LinkedHashSet<>();
+        for (WorkflowNode node : nodes.values()) {
+            String agentId = node.getAgent().getAgentId();
+            if (!dependedOn.contains(agentId)) {
+                terminal.add(agentId);
+            }
+        }
+        return terminal;
+    }
+    
+    private void fireWorkflowStarted(WorkflowContext context) {
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onWorkflowStarted(this, context);
+            } catch (Exception e) {
+                log.warn("监听器回调失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void fireNodeQueued(WorkflowNode node, WorkflowContext context) {
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onNodeQueued(this, node, context);
+            } catch (Exception e) {
+                log.warn("监听器回调失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void fireNodeStarted(WorkflowNode node, WorkflowContext context, long queuedNanos) {
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onNodeStarted(this, node, context, queuedNanos);
+            } catch (Exception e) {
+                log.warn("监听器回调失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void fireNodeFinished(WorkflowNode node, WorkflowContext context, AgentResult result, long durationNanos) {
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onNodeFinished(this, node, context, result, durationNanos);
+            } catch (Exception e) {
+                log.warn("监听器回调失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void fireWorkflowFinished(WorkflowContext context, long durationNanos, Throwable error) {
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onWorkflowFinished(this, context, durationNanos, error);
+            } catch (Exception e) {
+                log.warn("监听器回调失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 替换执行器，传入的执行器由调用方负责关闭
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        if (ownsExecutor && this.executorService != null) {
+            this.executorService.shutdown();
+        }
+        this.executorService = executorService;
+        this.ownsExecutor = false;
+    }
+    
+    /**
+     * 关闭本工作流自行创建的执行器；使用外部执行器时不做任何事
+     */
     public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
+        if (ownsExecutor && executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
     }
@@ -0,0 +1,47 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+
+/**
+ * 工作流执行监听器，用于指标、追踪等观测功能
+ * 回调在执行线程上同步调用，实现必须快速返回且不应抛出异常
+ * 时间均为 System.nanoTime() 的单调时间
+ */
+public interface WorkflowExecutionListener {
+
+    /**
+     * 工作流开始执行
+     */
+    default void onWorkflowStarted(WorkflowDAG workflow, WorkflowContext context) {
+    }
+
+    /**
+     * 节点已满足依赖，提交到执行器等待执行
+     */
+    default void onNodeQueued(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context) {
+    }
+
+    /**
+     * 节点开始在执行线程上运行
+     * @param queuedNanos 节点提交到执行器时的时间
+     */
+    default void onNodeStarted(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+    }
+
+    /**
+     * 节点执行结束
+     * @param durationNanos 从开始运行到结束的耗时
+     */
+    default void onNodeFinished(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context,
+                                AgentResult result, long durationNanos) {
+    }
+
+    /**
+     * 工作流执行结束
+     * @param error 执行异常，正常结束时为null
+     */
+    default void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context,
+                                    long durationNanos, Throwable error) {
+    }
+}
@@ -20,6 +20,7 @@ public class WorkflowNode {
     private LogicalOperator operator;   // 依赖关系的逻辑操作符
     private boolean executed;           // 是否已执行
     private boolean canExecute;         // 是否可以执行
+    private RetryPolicy retryPolicy;    // 失败后的重试策略，为空时不重试
     
     public WorkflowNode(String nodeId, Agent agent) {
         this.nodeId = nodeId;
@@ -0,0 +1,76 @@
+package org.example.agenta.definition;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.MapAgent;
+import org.example.agenta.core.RetryPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 工作流定义中的节点
+ * type 为 map 时，节点对上下文中 items 指定的集合逐元素执行 agent 或子工作流 workflow：
+ * <pre>
+ * - id: process-records
+ *   type: map
+ *   items: input
+ *   agent: dataProcessorAgent
+ *   concurrency: 8
+ *   batchSize: 10
+ *   reducer: ordered
+ * </pre>
+ * type 为 stream 时，节点把 items 中的记录依次流过 stages 中的流式Agent，相邻阶段在时间上重叠：
+ * <pre>
+ * - id: stream-report
+ *   type: stream
+ *   items: input
+ *   stages:
+ *     - agent: streamingDataProcessorAgent
+ *       bufferSize: 64
+ *     - agent: streamingReportGeneratorAgent
+ * </pre>
+ * 任意类型的节点都可以声明 retry，失败后按带抖动的指数退避重试，retryOn 为空时所有失败都重试：
+ * <pre>
+ * - id: fetch-data
+ *   agent: apiCallAgent
+ *   retry:
+ *     maxAttempts: 3
+ *     initialBackoffMillis: 200
+ *     multiplier: 2
+ *     maxBackoffMillis: 5000
+ *     jitter: 0.5
+ *     retryOn: ["超时", "Connection refused"]
+ * </pre>
+ */
+@Data
+@Accessors(chain = true)
+public class NodeDefinition {
+
+    /**
+     * 节点类型
+     */
+    public enum Type {
+        AGENT,  // 直接执行Agent
+        MAP,    // 对集合逐元素扇出执行
+        STREAM  // 流式流水线
+    }
+
+    private String id;                                   // 节点ID，在同一工作流内唯一
+    private Type type = Type.AGENT;
+    private String agent;                                // Agent的Spring Bean名称，如 dataProcessorAgent
+    private List<String> dependsOn = new ArrayList<>();  // 依赖的节点ID列表
+    private LogicalOperator operator = LogicalOperator.AND;
+    private RetryPolicy retry;                           // 失败后的重试策略，不声明时不重试
+
+    // 以下仅用于 map / stream 节点
+    private String items = "input";                     // 上下文中集合所在的键
+    private String workflow;                             // 逐元素执行的子工作流名称，与 agent 二选一
+    private int concurrency = 8;
+    private int batchSize = 1;
+    private MapAgent.Reducer reducer = MapAgent.Reducer.ORDERED;
+
+    // 以下仅用于 stream 节点
+    private List<StageDefinition> stages = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package org.example.agenta.definition;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 流式节点中的一个阶段
+ */
+@Data
+@Accessors(chain = true)
+public class StageDefinition {
+
+    private String agent;         // StreamingAgent的Spring Bean名称
+    private int bufferSize = 32;  // 与上一阶段之间的缓冲区容量
+}
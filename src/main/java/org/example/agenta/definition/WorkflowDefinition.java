@@ -0,0 +1,33 @@
+package org.example.agenta.definition;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 声明式工作流定义，对应 workflows 目录下的一个 JSON / YAML 文件
+ * <pre>
+ * name: report-pipeline
+ * description: 数据处理后验证，再生成报告
+ * nodes:
+ *   - id: process
+ *     agent: dataProcessorAgent
+ *   - id: validate
+ *     agent: validationAgent
+ *     dependsOn: [process]
+ *   - id: report
+ *     agent: reportGeneratorAgent
+ *     dependsOn: [process, validate]
+ *     operator: AND
+ * </pre>
+ */
+@Data
+@Accessors(chain = true)
+public class WorkflowDefinition {
+
+    private String name;            // 工作流名称，即 /api/workflow/execute/{name} 中的 name，缺省时取文件名
+    private String description;
+    private List<NodeDefinition> nodes = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package org.example.agenta.definition;
+
+/**
+ * 工作流定义无法解析或校验失败
+ */
+public class WorkflowDefinitionException extends RuntimeException {
+
+    public WorkflowDefinitionException(String message) {
+        super(message);
+    }
+
+    public WorkflowDefinitionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
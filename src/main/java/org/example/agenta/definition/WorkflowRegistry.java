@@ -0,0 +1,519 @@
+package org.example.agenta.definition;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.MapAgent;
+import org.example.agenta.core.NodeExecutionBackend;
+import org.example.agenta.core.RetryPolicy;
+import org.example.agenta.core.StreamingAgent;
+import org.example.agenta.core.StreamingPipeline;
+import org.example.agenta.core.StreamingPipelineAgent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 声明式工作流注册表
+ * 启动时加载 classpath:workflows/ 与 agenta.workflows.dir 目录下的 JSON / YAML 定义，
+ * 校验后编译为 WorkflowDAG 并缓存，所有执行共享同一个编译结果和执行器，不再按请求构建图。
+ * 目录中的文件变更时重新加载对应定义，新定义校验失败则保留旧版本。
+ */
+@Component
+@Slf4j
+public class WorkflowRegistry {
+
+    private static final String CLASSPATH_PATTERN = "classpath*:workflows/*";
+
+    private final Map<String, Agent> agents;
+    private final List<WorkflowExecutionListener> executionListeners;
+    private final String directory;
+    private final boolean watch;
+    private final ObjectMapper jsonMapper = JsonMapper.builder()
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS).build();
+    private final ObjectMapper yamlMapper = YAMLMapper.builder()
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS).build();
+    private ExecutorService executorService;
+    private final AtomicLong executionSequence = new AtomicLong();
+
+    private final Map<String, WorkflowDAG> workflows = new ConcurrentHashMap<>();
+    private final Map<String, WorkflowDefinition> definitions = new ConcurrentHashMap<>();
+    private final Map<String, String> sources = new ConcurrentHashMap<>();   // 工作流名称 -> 来源
+    private WatchService watchService;
+
+    @Autowired(required = false)
+    private Map<String, StreamingAgent> streamingAgents = Map.of();
+
+    @Autowired(required = false)
+    private NodeExecutionBackend executionBackend;  // 启用工作进程池时存在
+
+    public WorkflowRegistry(Map<String, Agent> agents,
+                            List<WorkflowExecutionListener> executionListeners,
+                            @Value("${agenta.workflows.dir:workflows}") String directory,
+                            @Value("${agenta.workflows.watch:true}") boolean watch) {
+        this.agents = agents;
+        this.executionListeners = executionListeners;
+        this.directory = directory;
+        this.watch = watch;
+        AtomicLong threadCount = new AtomicLong();
+        this.executorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-exec-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 为共享的节点执行线程池注册执行器指标，在编译任何工作流之前完成
+     */
+    @Autowired(required = false)
+    public void bindTo(MeterRegistry registry) {
+        executorService = ExecutorServiceMetrics.monitor(registry, executorService, "workflowRegistry");
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN);
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            if (filename == null || !isDefinitionFile(filename)) {
+                continue;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                register(parse(filename, in), "classpath:workflows/" + filename);
+            } catch (Exception e) {
+                log.error("加载工作流定义失败: {}, {}", filename, e.getMessage());
+            }
+        }
+
+        if (directory == null || directory.isBlank()) {
+            return;
+        }
+        Path dir = Paths.get(directory).toAbsolutePath();
+        if (!Files.isDirectory(dir)) {
+            log.info("工作流定义目录不存在，跳过: {}", dir);
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> isDefinitionFile(file.getFileName().toString())).sorted().forEach(this::loadFile);
+        }
+        if (watch) {
+            startWatcher(dir);
+        }
+    }
+
+    /**
+     * 获取已编译的工作流，不存在时返回null
+     */
+    public WorkflowDAG getWorkflow(String name) {
+        return workflows.get(name);
+    }
+
+    public WorkflowDefinition getDefinition(String name) {
+        return definitions.get(name);
+    }
+
+    public Collection<String> getWorkflowNames() {
+        return new TreeSet<>(workflows.keySet());
+    }
+
+    /**
+     * 为一次执行生成工作流实例ID，用作上下文ID以关联追踪与指标
+     */
+    public String nextExecutionId(String name) {
+        return name + "-workflow-" + System.currentTimeMillis() + "-" + executionSequence.incrementAndGet();
+    }
+
+    /**
+     * 校验并编译工作流定义，替换同名的旧版本
+     * 同步执行，使子工作流引用的循环检查与替换原子地完成
+     * @param source 定义来源，同名定义只能被同一来源覆盖
+     */
+    public synchronized WorkflowDAG register(WorkflowDefinition definition, String source) {
+        String name = definition.getName();
+        String existingSource = sources.get(name);
+        if (existingSource != null && !existingSource.equals(source)) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 已由 " + existingSource + " 定义");
+        }
+
+        WorkflowDAG workflow = compile(definition);
+        checkSubWorkflowCycles(definition, source);
+        // 文件中的名称被修改时，移除该来源之前注册的旧名称
+        sources.entrySet().removeIf(entry -> {
+            if (!entry.getValue().equals(source) || entry.getKey().equals(name)) {
+                return false;
+            }
+            workflows.remove(entry.getKey());
+            definitions.remove(entry.getKey());
+            return true;
+        });
+        sources.put(name, source);
+        definitions.put(name, definition);
+        workflows.put(name, workflow);
+        log.info("注册工作流: {}, 节点数: {}, 来源: {}", name, definition.getNodes().size(), source);
+        return workflow;
+    }
+
+    /**
+     * 移除某个来源定义的工作流
+     * 与注册使用同一把锁，避免与并发的注册交错而留下不一致的名称、定义和实例
+     */
+    public synchronized void unregister(String source) {
+        sources.entrySet().removeIf(entry -> {
+            if (!entry.getValue().equals(source)) {
+                return false;
+            }
+            workflows.remove(entry.getKey());
+            definitions.remove(entry.getKey());
+            log.info("移除工作流: {}, 来源: {}", entry.getKey(), source);
+            return true;
+        });
+    }
+
+    /**
+     * 按扩展名解析定义文件，未指定名称时取文件名
+     */
+    WorkflowDefinition parse(String filename, InputStream in) throws IOException {
+        ObjectMapper mapper = filename.endsWith(".json") ? jsonMapper : yamlMapper;
+        WorkflowDefinition definition = mapper.readValue(in, WorkflowDefinition.class);
+        if (definition == null) {
+            throw new WorkflowDefinitionException("工作流定义为空: " + filename);
+        }
+        if (definition.getName() == null || definition.getName().isBlank()) {
+            definition.setName(filename.substring(0, filename.lastIndexOf('.')));
+        }
+        return definition;
+    }
+
+    /**
+     * 校验定义并编译为工作流
+     * 定义中的依赖引用节点ID，编译时转换为运行时使用的Agent ID
+     */
+    WorkflowDAG compile(WorkflowDefinition definition) {
+        String name = definition.getName();
+        if (name == null || name.isBlank()) {
+            throw new WorkflowDefinitionException("工作流名称不能为空");
+        }
+        if (definition.getNodes() == null || definition.getNodes().isEmpty()) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 没有节点");
+        }
+
+        Map<String, NodeDefinition> nodesById = new LinkedHashMap<>();
+        Map<String, Agent> agentsByNode = new HashMap<>();
+        Set<String> agentIds = new HashSet<>();
+        for (NodeDefinition node : definition.getNodes()) {
+            if (node.getDependsOn() == null) {
+                node.setDependsOn(new ArrayList<>());
+            }
+            if (node.getOperator() == null) {
+                node.setOperator(LogicalOperator.AND);
+            }
+            if (node.getType() == null) {
+                node.setType(NodeDefinition.Type.AGENT);
+            }
+            if (node.getId() == null || node.getId().isBlank()) {
+                throw new WorkflowDefinitionException("工作流 " + name + " 存在未指定ID的节点");
+            }
+            if (nodesById.put(node.getId(), node) != null) {
+                throw new WorkflowDefinitionException("工作流 " + name + " 节点ID重复: " + node.getId());
+            }
+            if (node.getRetry() != null) {
+                checkRetryPolicy(name, node);
+            }
+            Agent agent = switch (node.getType()) {
+                case MAP -> compileMapNode(name, node);
+                case STREAM -> compileStreamNode(name, node);
+                default -> resolveAgent(name, node);
+            };
+            // 执行结果按Agent ID存放在上下文中，同一Agent在一个工作流中只能出现一次
+            if (!agentIds.add(agent.getAgentId())) {
+                throw new WorkflowDefinitionException("工作流 " + name + " 重复使用Agent: " + node.getAgent());
+            }
+            agentsByNode.put(node.getId(), agent);
+        }
+        for (NodeDefinition node : nodesById.values()) {
+            for (String dependency : node.getDependsOn()) {
+                if (!nodesById.containsKey(dependency)) {
+                    throw new WorkflowDefinitionException("工作流 " + name + " 节点 " + node.getId()
+                            + " 依赖了不存在的节点: " + dependency);
+                }
+            }
+        }
+        checkAcyclic(name, nodesById);
+
+        WorkflowDAG workflow = new WorkflowDAG(name, name, executorService);
+        for (NodeDefinition node : nodesById.values()) {
+            WorkflowNode workflowNode = new WorkflowNode(node.getId(), agentsByNode.get(node.getId()))
+                    .setOperator(node.getOperator())
+                    .setRetryPolicy(node.getRetry());
+            for (String dependency : node.getDependsOn()) {
+                workflowNode.addDependency(agentsByNode.get(dependency).getAgentId());
+            }
+            workflow.addNode(workflowNode);
+        }
+        executionListeners.forEach(workflow::addListener);
+        if (executionBackend != null) {
+            workflow.setBackend(executionBackend);
+        }
+        return workflow;
+    }
+
+    /**
+     * 检查扇出节点引用的子工作流之间是否存在经过新定义的循环（A 扇出到 B，B 又扇出到 A），
+     * 否则执行时会无限递归。引用尚未注册的工作流不算循环，注册对方时再检查
+     */
+    private void checkSubWorkflowCycles(WorkflowDefinition definition, String source) {
+        String name = definition.getName();
+        Map<String, WorkflowDefinition> graph = new HashMap<>(definitions);
+        sources.forEach((registered, registeredSource) -> {
+            if (registeredSource.equals(source)) {
+                graph.remove(registered);
+            }
+        });
+        graph.put(name, definition);
+        Deque<String> path = new ArrayDeque<>();
+        path.addLast(name);
+        findSubWorkflowCycle(name, name, graph, path, new HashSet<>());
+    }
+
+    private void findSubWorkflowCycle(String root, String current, Map<String, WorkflowDefinition> graph,
+                                      Deque<String> path, Set<String> visited) {
+        WorkflowDefinition definition = graph.get(current);
+        if (definition == null || !visited.add(current)) {
+            return;
+        }
+        for (NodeDefinition node : definition.getNodes()) {
+            String subWorkflow = node.getWorkflow();
+            if (node.getType() != NodeDefinition.Type.MAP || subWorkflow == null) {
+                continue;
+            }
+            path.addLast(subWorkflow);
+            if (subWorkflow.equals(root)) {
+                throw new WorkflowDefinitionException("工作流 " + root + " 的子工作流存在循环引用: "
+                        + String.join(" -> ", path));
+            }
+            findSubWorkflowCycle(root, subWorkflow, graph, path, visited);
+            path.removeLast();
+        }
+    }
+
+    private Agent resolveAgent(String name, NodeDefinition node) {
+        Agent agent = agents.get(node.getAgent());
+        if (agent == null) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 节点 " + node.getId()
+                    + " 引用了不存在的Agent: " + node.getAgent() + "，可用: " + new TreeSet<>(agents.keySet()));
+        }
+        return agent;
+    }
+
+    /**
+     * 编译扇出节点，节点ID即扇出Agent的ID
+     * 子工作流在执行时按名称解析，因此可以引用稍后加载或热加载后的定义
+     */
+    private Agent compileMapNode(String name, NodeDefinition node) {
+        if ((node.getAgent() == null) == (node.getWorkflow() == null)) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 扇出节点 " + node.getId()
+                    + " 需要且只能指定 agent 或 workflow 之一");
+        }
+        if (node.getConcurrency() < 1 || node.getBatchSize() < 1) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 扇出节点 " + node.getId()
+                    + " 的 concurrency 与 batchSize 必须大于0");
+        }
+        if (name.equals(node.getWorkflow())) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 扇出节点 " + node.getId() + " 不能引用自身");
+        }
+
+        MapAgent mapAgent = new MapAgent(node.getId())
+                .setItemsKey(node.getItems())
+                .setConcurrency(node.getConcurrency())
+                .setBatchSize(node.getBatchSize())
+                .setReducer(node.getReducer());
+        if (node.getAgent() != null) {
+            mapAgent.setElementAgent(resolveAgent(name, node));
+        } else {
+            String subWorkflow = node.getWorkflow();
+            mapAgent.setSubWorkflow(() -> workflows.get(subWorkflow));
+        }
+        return mapAgent;
+    }
+
+    /**
+     * 编译流式节点，节点ID即流水线Agent的ID
+     */
+    private Agent compileStreamNode(String name, NodeDefinition node) {
+        if (node.getStages() == null || node.getStages().isEmpty()) {
+            throw new WorkflowDefinitionException("工作流 " + name + " 流式节点 " + node.getId() + " 没有阶段");
+        }
+        StreamingPipeline pipeline = new StreamingPipeline(node.getId());
+        for (StageDefinition stage : node.getStages()) {
+            StreamingAgent streamingAgent = streamingAgents.get(stage.getAgent());
+            if (streamingAgent == null) {
+                throw new WorkflowDefinitionException("工作流 " + name + " 流式节点 " + node.getId()
+                        + " 引用了不存在的流式Agent: " + stage.getAgent() + "，可用: " + new TreeSet<>(streamingAgents.keySet()));
+            }
+            if (stage.getBufferSize() < 1) {
+                throw new WorkflowDefinitionException("工作流 " + name + " 流式节点 " + node.getId()
+                        + " 的 bufferSize 必须大于0");
+            }
+            pipeline.addStage(streamingAgent, stage.getBufferSize());
+        }
+        return new StreamingPipelineAgent(node.getId(), pipeline, node.getItems());
+    }
+
+    private void checkRetryPolicy(String name, NodeDefinition node) {
+        RetryPolicy retry = node.getRetry();
+        String prefix = "工作流 " + name + " 节点 " + node.getId() + " 的重试策略";
+        if (retry.getMaxAttempts() < 1) {
+            throw new WorkflowDefinitionException(prefix + " maxAttempts 必须大于0");
+        }
+        if (retry.getInitialBackoffMillis() < 0 || retry.getMaxBackoffMillis() < 0 || retry.getMultiplier() < 1) {
+            throw new WorkflowDefinitionException(prefix + " 退避时长不能为负，multiplier 不能小于1");
+        }
+        if (retry.getJitter() < 0 || retry.getJitter() > 1) {
+            throw new WorkflowDefinitionException(prefix + " jitter 必须在0到1之间");
+        }
+        // retryOn 在设置时即编译，不合法的正则在解析定义时已被拒绝
+    }
+
+    /**
+     * 拓扑排序检查循环依赖
+     */
+    private void checkAcyclic(String name, Map<String, NodeDefinition> nodesById) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (NodeDefinition node : nodesById.values()) {
+            inDegree.put(node.getId(), node.getDependsOn().size());
+            for (String dependency : node.getDependsOn()) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(node.getId());
+            }
+        }
+
+        ArrayDeque<String> ready = new ArrayDeque<>();
+        inDegree.forEach((id, degree) -> {
+            if (degree == 0) {
+                ready.add(id);
+            }
+        });
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            String id = ready.poll();
+            visited++;
+            for (String dependent : dependents.getOrDefault(id, List.of())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (visited < nodesById.size()) {
+            Set<String> cyclic = new TreeSet<>();
+            inDegree.forEach((id, degree) -> {
+                if (degree > 0) {
+                    cyclic.add(id);
+                }
+            });
+            throw new WorkflowDefinitionException("工作流 " + name + " 存在循环依赖: " + cyclic);
+        }
+    }
+
+    private void loadFile(Path file) {
+        String filename = file.getFileName().toString();
+        try (InputStream in = Files.newInputStream(file)) {
+            register(parse(filename, in), file.toString());
+        } catch (Exception e) {
+            log.error("加载工作流定义失败，保留已有版本: {}, {}", file, e.getMessage());
+        }
+    }
+
+    private static boolean isDefinitionFile(String filename) {
+        return filename.endsWith(".json") || filename.endsWith(".yaml") || filename.endsWith(".yml");
+    }
+
+    /**
+     * 监听定义目录，文件新增或修改时重新加载，删除时移除
+     */
+    private void startWatcher(Path dir) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            continue;
+                        }
+                        Path file = dir.resolve((Path) event.context());
+                        if (!isDefinitionFile(file.getFileName().toString())) {
+                            continue;
+                        }
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            unregister(file.toString());
+                        } else {
+                            loadFile(file);
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                log.debug("工作流定义目录监听已停止");
+            }
+        }, "workflow-definition-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("监听工作流定义目录: {}", dir);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        executorService.shutdown();
+    }
+}
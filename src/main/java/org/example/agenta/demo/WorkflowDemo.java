@@ -9,14 +9,17 @@ import org.example.agenta.core.WorkflowDAG;
 import org.example.agenta.core.WorkflowNode;
 import org.example.agenta.model.WorkflowContext;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
 /**
  * Workflow演示类，在应用启动时运行示例
+ * 可通过 agenta.demo.enabled=false 关闭（例如压测时）
  */
 @Component
+@ConditionalOnProperty(name = "agenta.demo.enabled", havingValue = "true", matchIfMissing = true)
 @Slf4j
 public class WorkflowDemo implements CommandLineRunner {
     
@@ -126,16 +129,13 @@ public class WorkflowDemo implements CommandLineRunner {
             log.info("Agent[{}] - 成功: {}, 执行时间: {}", 
                     agentId, agentResult.isSuccess(), agentResult.getExecutionTime());
             
-            if (agentResult.isSuccess() && agentResult.getResult() instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> resultData = (Map<String, Object>) agentResult.getResult();
-                
-                if ("report-generator-agent".equals(agentId)) {
-                    log.info("最终报告:\n{}", resultData.get("finalReport"));
-                }
-            }
         });
         
+        ReportGeneratorAgent.Report report = result.getResult("report-generator-agent", ReportGeneratorAgent.Report.class);
+        if (report != null) {
+            log.info("最终报告:\n{}", report.finalReport());
+        }
+        
         log.info("--- {} 演示结束 ---\n", workflowType);
     }
 }
@@ -0,0 +1,25 @@
+package org.example.agenta.history;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次工作流执行的历史记录
+ */
+@Data
+@Accessors(chain = true)
+public class ExecutionRecord {
+
+    private String workflowId;      // 执行ID，即上下文的workflowId
+    private String workflowType;
+    private long startedAt;         // 开始时间（epoch毫秒）
+    private long durationMs;
+    private boolean success;        // 工作流正常结束且没有失败节点
+    private String error;
+    private int completedNodes;
+    private int failedNodes;
+    private List<NodeRecord> nodes = new ArrayList<>();
+}
@@ -0,0 +1,703 @@
+package org.example.agenta.history;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.blob.BlobHandle;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 工作流执行历史存储
+ * 作为执行监听器收集工作流摘要和节点结果元数据，工作流结束时只把记录放入有界队列，
+ * 由单个后台线程批量写入分段文件（每行一条JSON记录），不增加请求延迟；队列满时丢弃并计数。
+ *
+ * 存储结构：
+ * - 追加写当前分段，超过 segment-bytes 后封存并新建分段
+ * - 内存索引：执行ID、时间、工作流类型+时间 -> (分段, 偏移, 长度)，查询按索引定位后读取单条记录
+ * - 后台维护：整段过期的分段直接删除；含过期记录或过小的封存分段合并重写为新分段
+ * - 启动时扫描分段重建索引，截断崩溃时写了一半的末行
+ *
+ * 配置：agenta.history.enabled / dir / segment-bytes / retention-hours / queue-capacity /
+ * batch-size / flush-interval-ms / maintenance-interval-ms
+ */
+@Component
+@Slf4j
+public class HistoryStore implements WorkflowExecutionListener {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    /** 时间索引键 = 开始时间(毫秒) << 20 | 序号低20位，同一毫秒内的记录互不覆盖 */
+    private static final int SEQUENCE_BITS = 20;
+    private static final String BLOB_BYTES = "blobBytes";
+    /** 估算结果大小用：溢出句柄按文件长度计入，不读回内容 */
+    private static final ObjectMapper SIZE_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .addModule(new SimpleModule().addSerializer(BlobHandle.class, new StdSerializer<>(BlobHandle.class) {
+                @Override
+                public void serialize(BlobHandle handle, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                    ((long[]) provider.getAttribute(BLOB_BYTES))[1] += handle.getLength();
+                    generator.writeString("");
+                }
+            }))
+            .build();
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retentionMs;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long maintenanceIntervalMs;
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final Map<String, PendingExecution> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingExecution> queue;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // 以下由 lock 保护；分段文件只由写线程修改
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, IndexEntry> byWorkflowId = new HashMap<>();
+    private final NavigableMap<Long, IndexEntry> byTime = new TreeMap<>();
+    private final Map<String, NavigableMap<Long, IndexEntry>> byType = new HashMap<>();
+    private Segment active;
+    private long nextSegmentId;
+    private long sequence;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public HistoryStore(@Value("${agenta.history.enabled:true}") boolean enabled,
+                        @Value("${agenta.history.dir:history}") String directory,
+                        @Value("${agenta.history.segment-bytes:8388608}") long segmentBytes,
+                        @Value("${agenta.history.retention-hours:168}") long retentionHours,
+                        @Value("${agenta.history.queue-capacity:10000}") int queueCapacity,
+                        @Value("${agenta.history.batch-size:256}") int batchSize,
+                        @Value("${agenta.history.flush-interval-ms:200}") long flushIntervalMs,
+                        @Value("${agenta.history.maintenance-interval-ms:60000}") long maintenanceIntervalMs) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.retentionMs = TimeUnit.HOURS.toMillis(retentionHours);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maintenanceIntervalMs = maintenanceIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        load();
+        running = true;
+        writer = new Thread(this::writeLoop, "history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // ---------------------------------------------------------------- 收集
+
+    @Override
+    public void onWorkflowStarted(WorkflowDAG workflow, WorkflowContext context) {
+        if (enabled) {
+            pending.put(context.getWorkflowId(), new PendingExecution(context.getWorkflowId(), workflow.getWorkflowType(),
+                    System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    public void onNodeStarted(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+        PendingExecution execution = enabled ? pending.get(context.getWorkflowId()) : null;
+        if (execution != null) {
+            execution.queuedNanos.put(node.getNodeId(), System.nanoTime() - queuedNanos);
+        }
+    }
+
+    @Override
+    public void onNodeFinished(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context,
+                               AgentResult result, long durationNanos) {
+        PendingExecution execution = enabled ? pending.get(context.getWorkflowId()) : null;
+        if (execution != null) {
+            // 结果大小在节点结束时计算：写入历史时上下文可能已释放溢出的值
+            execution.nodes.add(new PendingNode(node.getNodeId(), node.getAgent().getAgentId(), result,
+                    result != null ? sizeOf(result.getRawResult()) : 0, durationNanos));
+        }
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context, long durationNanos, Throwable error) {
+        PendingExecution execution = enabled ? pending.remove(context.getWorkflowId()) : null;
+        if (execution == null) {
+            return;
+        }
+        execution.durationNanos = durationNanos;
+        execution.error = error != null ? String.valueOf(error.getMessage()) : null;
+        enqueued.incrementAndGet();
+        if (!queue.offer(execution)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    /**
+     * 按执行ID查询
+     */
+    public ExecutionRecord get(String workflowId) {
+        lock.readLock().lock();
+        try {
+            IndexEntry entry = byWorkflowId.get(workflowId);
+            return entry != null ? read(entry) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按时间范围（含两端，epoch毫秒）和可选的工作流类型查询，最新的在前
+     */
+    public List<ExecutionRecord> query(String workflowType, long fromMs, long toMs, int limit) {
+        List<ExecutionRecord> records = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (IndexEntry entry : range(workflowType, fromMs, toMs).descendingMap().values()) {
+                if (records.size() >= limit) {
+                    break;
+                }
+                ExecutionRecord record = read(entry);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return records;
+    }
+
+    /**
+     * 时间范围内的执行次数、失败率与耗时分位数，只用索引计算，不读取分段文件
+     */
+    public Map<String, Object> stats(String workflowType, long fromMs, long toMs) {
+        long[] durations;
+        long failed = 0;
+        lock.readLock().lock();
+        try {
+            NavigableMap<Long, IndexEntry> range = range(workflowType, fromMs, toMs);
+            durations = new long[range.size()];
+            int i = 0;
+            for (IndexEntry entry : range.values()) {
+                durations[i++] = entry.durationMs();
+                if (!entry.success()) {
+                    failed++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(durations);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", durations.length);
+        stats.put("failed", failed);
+        stats.put("failureRate", durations.length == 0 ? 0.0 : (double) failed / durations.length);
+        stats.put("p50Ms", percentile(durations, 0.50));
+        stats.put("p95Ms", percentile(durations, 0.95));
+        stats.put("p99Ms", percentile(durations, 0.99));
+        stats.put("maxMs", durations.length == 0 ? 0 : durations[durations.length - 1]);
+        return stats;
+    }
+
+    /**
+     * 存储状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            status.put("segments", segments.size());
+            status.put("bytes", segments.values().stream().mapToLong(segment -> segment.size).sum());
+            status.put("records", byWorkflowId.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        status.put("queued", queue.size());
+        status.put("dropped", dropped.get());
+        return status;
+    }
+
+    /**
+     * 等待已结束的执行全部写入（测试与关闭时使用）
+     */
+    public void flush(long timeoutMs) throws InterruptedException {
+        long target = enqueued.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (persisted.get() + dropped.get() < target && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private NavigableMap<Long, IndexEntry> range(String workflowType, long fromMs, long toMs) {
+        NavigableMap<Long, IndexEntry> index = workflowType == null ? byTime : byType.getOrDefault(workflowType, new TreeMap<>());
+        return index.subMap(fromMs << SEQUENCE_BITS, true, (toMs + 1) << SEQUENCE_BITS, false);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private ExecutionRecord read(IndexEntry entry) {
+        try {
+            return mapper.readValue(readBytes(entry), ExecutionRecord.class);
+        } catch (IOException e) {
+            log.warn("读取历史记录失败: {}, {}", entry.workflowId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] readBytes(IndexEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        long position = entry.offset();
+        while (buffer.hasRemaining()) {
+            int read = entry.segment().channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("分段文件被截断: " + entry.segment().path);
+            }
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    // ---------------------------------------------------------------- 写入
+
+    private void writeLoop() {
+        long nextMaintenance = System.currentTimeMillis() + maintenanceIntervalMs;
+        List<PendingExecution> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingExecution first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    writeBatch(batch);
+                    persisted.addAndGet(batch.size());
+                    batch.clear();
+                }
+                if (System.currentTimeMillis() >= nextMaintenance) {
+                    maintain();
+                    nextMaintenance = System.currentTimeMillis() + maintenanceIntervalMs;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("写入执行历史失败，丢弃本批记录: {}", batch.size(), e);
+                dropped.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingExecution> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        List<IndexEntry> entries = new ArrayList<>(batch.size());
+        for (PendingExecution execution : batch) {
+            ExecutionRecord record = toRecord(execution);
+            byte[] line = mapper.writeValueAsBytes(record);
+
+            if (active == null || (active.size + buffer.size() + line.length + 1 > segmentBytes && active.size + buffer.size() > 0)) {
+                appendToActive(buffer, entries);
+                rollSegment();
+            }
+            long offset = active.size + buffer.size();
+            buffer.write(line);
+            buffer.write('\n');
+            entries.add(new IndexEntry(record.getWorkflowId(), record.getWorkflowType(), timeKey(record.getStartedAt()),
+                    record.getDurationMs(), record.isSuccess(), active, offset, line.length));
+        }
+        appendToActive(buffer, entries);
+    }
+
+    /**
+     * 把缓冲的记录追加到当前分段，写入完成后再加入索引
+     */
+    private void appendToActive(ByteArrayOutputStream buffer, List<IndexEntry> entries) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            active.channel.write(bytes, active.size + bytes.position());
+        }
+        lock.writeLock().lock();
+        try {
+            active.size += buffer.size();
+            entries.forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buffer.reset();
+        entries.clear();
+    }
+
+    private void rollSegment() throws IOException {
+        Segment segment = openSegment(nextSegmentId++);
+        lock.writeLock().lock();
+        try {
+            segments.put(segment.id, segment);
+            active = segment;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ExecutionRecord toRecord(PendingExecution execution) {
+        ExecutionRecord record = new ExecutionRecord()
+                .setWorkflowId(execution.workflowId)
+                .setWorkflowType(execution.workflowType)
+                .setStartedAt(execution.startedAt)
+                .setDurationMs(TimeUnit.NANOSECONDS.toMillis(execution.durationNanos))
+                .setError(execution.error);
+        for (PendingNode node : execution.nodes) {
+            AgentResult result = node.result;
+            boolean success = result != null && result.isSuccess();
+            Long queued = execution.queuedNanos.get(node.nodeId);
+            record.getNodes().add(new NodeRecord()
+                    .setNodeId(node.nodeId)
+                    .setAgentId(node.agentId)
+                    .setSuccess(success)
+                    .setQueuedMs(queued != null ? TimeUnit.NANOSECONDS.toMillis(queued) : 0)
+                    .setDurationMs(TimeUnit.NANOSECONDS.toMillis(node.durationNanos))
+                    .setResultBytes(node.resultBytes)
+                    .setErrorMessage(result != null ? result.getErrorMessage() : null)
+                    .setMetadata(result != null ? result.getMetadata() : null));
+            if (success) {
+                record.setCompletedNodes(record.getCompletedNodes() + 1);
+            } else {
+                record.setFailedNodes(record.getFailedNodes() + 1);
+            }
+        }
+        record.setSuccess(execution.error == null && record.getFailedNodes() == 0);
+        return record;
+    }
+
+    /**
+     * 结果的JSON字节数，只计数不保留序列化结果；溢出的值按句柄长度计
+     */
+    static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof BlobHandle handle) {
+            return handle.getLength();
+        }
+        long[] counts = new long[2];  // 序列化字节数、句柄长度
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                counts[0]++;
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                counts[0] += length;
+            }
+        };
+        try {
+            SIZE_MAPPER.writer().withAttribute(BLOB_BYTES, counts).writeValue(counter, value);
+            return counts[0] + counts[1];
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // ---------------------------------------------------------------- 维护
+
+    /**
+     * 删除整段过期的分段，合并含过期记录或过小的封存分段
+     */
+    void maintain() throws IOException {
+        long cutoffKey = timeKey(System.currentTimeMillis() - retentionMs);
+        List<Segment> sealed;
+        lock.readLock().lock();
+        try {
+            sealed = segments.values().stream().filter(segment -> segment != active).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : sealed) {
+            if (segment.entries.stream().allMatch(entry -> entry.timeKey() < cutoffKey)) {
+                deleteSegment(segment);
+            } else if (segment.size < segmentBytes / 4
+                    || segment.entries.stream().anyMatch(entry -> entry.timeKey() < cutoffKey)) {
+                candidates.add(segment);
+            }
+        }
+        if (candidates.size() > 1 || candidates.stream().anyMatch(segment ->
+                segment.entries.stream().anyMatch(entry -> entry.timeKey() < cutoffKey))) {
+            compact(candidates, cutoffKey);
+        }
+    }
+
+    /**
+     * 把候选分段中未过期的记录依次写入新分段（每个新分段不超过 segment-bytes），再替换索引并删除旧分段
+     */
+    private void compact(List<Segment> candidates, long cutoffKey) throws IOException {
+        List<Segment> outputs = new ArrayList<>();
+        List<IndexEntry> moved = new ArrayList<>();
+        Segment output = null;
+        for (Segment segment : candidates) {
+            for (IndexEntry entry : segment.entries) {
+                if (entry.timeKey() < cutoffKey) {
+                    continue;
+                }
+                byte[] line = readBytes(entry);
+                if (output == null || (output.size + line.length + 1 > segmentBytes && output.size > 0)) {
+                    output = openSegment(nextSegmentId++);
+                    outputs.add(output);
+                }
+                ByteBuffer bytes = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+                long offset = output.size;
+                while (bytes.hasRemaining()) {
+                    output.channel.write(bytes, output.size + bytes.position());
+                }
+                output.size += line.length + 1;
+                moved.add(new IndexEntry(entry.workflowId(), entry.workflowType(), entry.timeKey(),
+                        entry.durationMs(), entry.success(), output, offset, line.length));
+            }
+        }
+        for (Segment segment : outputs) {
+            segment.channel.force(false);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : candidates) {
+                segment.entries.forEach(this::unindex);
+                segments.remove(segment.id);
+            }
+            outputs.forEach(segment -> segments.put(segment.id, segment));
+            moved.forEach(this::index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Segment segment : candidates) {
+            closeAndDelete(segment);
+        }
+        log.info("执行历史压缩完成: {} 个分段 -> {} 个分段, 保留记录: {}", candidates.size(), outputs.size(), moved.size());
+    }
+
+    private void deleteSegment(Segment segment) {
+        lock.writeLock().lock();
+        try {
+            segment.entries.forEach(this::unindex);
+            segments.remove(segment.id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        closeAndDelete(segment);
+        log.info("删除过期的执行历史分段: {}", segment.path.getFileName());
+    }
+
+    // ---------------------------------------------------------------- 索引与分段
+
+    private void index(IndexEntry entry) {
+        // 同一ID再次写入时旧记录从所有索引与所在分段中移除，避免分段删除或重写后留下指向已关闭文件的索引
+        IndexEntry previous = byWorkflowId.get(entry.workflowId());
+        if (previous != null) {
+            unindex(previous);
+            previous.segment().entries.remove(previous);
+        }
+        byWorkflowId.put(entry.workflowId(), entry);
+        byTime.put(entry.timeKey(), entry);
+        byType.computeIfAbsent(entry.workflowType(), type -> new TreeMap<>()).put(entry.timeKey(), entry);
+        entry.segment().entries.add(entry);
+    }
+
+    private void unindex(IndexEntry entry) {
+        byWorkflowId.remove(entry.workflowId(), entry);
+        byTime.remove(entry.timeKey(), entry);
+        NavigableMap<Long, IndexEntry> typeIndex = byType.get(entry.workflowType());
+        if (typeIndex != null) {
+            typeIndex.remove(entry.timeKey(), entry);
+            if (typeIndex.isEmpty()) {
+                byType.remove(entry.workflowType());
+            }
+        }
+    }
+
+    private long timeKey(long startedAt) {
+        return (startedAt << SEQUENCE_BITS) | (sequence++ & ((1L << SEQUENCE_BITS) - 1));
+    }
+
+    /**
+     * 启动时按分段顺序重建索引，最后一个未写满的分段继续追加
+     */
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = openSegment(id);
+            byte[] bytes = Files.readAllBytes(file);
+            int start = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                try {
+                    ExecutionRecord record = mapper.readValue(bytes, start, i - start, ExecutionRecord.class);
+                    index(new IndexEntry(record.getWorkflowId(), record.getWorkflowType(), timeKey(record.getStartedAt()),
+                            record.getDurationMs(), record.isSuccess(), segment, start, i - start));
+                } catch (IOException e) {
+                    log.warn("跳过无法解析的执行历史: {}@{}", name, start);
+                }
+                start = i + 1;
+            }
+            if (start < bytes.length) {
+                log.warn("截断执行历史分段末尾未写完的记录: {}, {} 字节", name, bytes.length - start);
+                segment.channel.truncate(start);
+            }
+            segment.size = start;
+            segments.put(id, segment);
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+        if (!segments.isEmpty() && segments.lastEntry().getValue().size < segmentBytes) {
+            active = segments.lastEntry().getValue();
+        }
+        log.info("执行历史加载完成: {}, 分段: {}, 记录: {}", directory, segments.size(), byWorkflowId.size());
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    private static void closeAndDelete(Segment segment) {
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("删除执行历史分段失败: {}, {}", segment.path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    log.warn("关闭执行历史分段失败: {}", segment.path);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引项：记录所在分段位置，以及统计用的耗时和成功标记
+     */
+    private record IndexEntry(String workflowId, String workflowType, long timeKey, long durationMs, boolean success,
+                              Segment segment, long offset, int length) {
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        final List<IndexEntry> entries = new ArrayList<>();
+        long size;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private static final class PendingExecution {
+        final String workflowId;
+        final String workflowType;
+        final long startedAt;
+        final Queue<PendingNode> nodes = new ConcurrentLinkedQueue<>();
+        final Map<String, Long> queuedNanos = new ConcurrentHashMap<>();
+        long durationNanos;
+        String error;
+
+        PendingExecution(String workflowId, String workflowType, long startedAt) {
+            this.workflowId = workflowId;
+            this.workflowType = workflowType;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private record PendingNode(String nodeId, String agentId, AgentResult result, long resultBytes, long durationNanos) {
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.agenta.history;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+/**
+ * 节点执行记录，来自节点的 AgentResult
+ */
+@Data
+@Accessors(chain = true)
+public class NodeRecord {
+
+    private String nodeId;
+    private String agentId;
+    private boolean success;
+    private long queuedMs;          // 从提交到开始运行的等待时间
+    private long durationMs;
+    private long resultBytes;       // 结果序列化为JSON后的字节数，无法序列化时为-1
+    private String errorMessage;
+    private Map<String, Object> metadata;
+}
@@ -0,0 +1,178 @@
+package org.example.agenta.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 自定义JFR事件
+ * 事件均在对应回调发生时提交，耗时以 {@link Timespan} 字段给出；
+ * 不采集调用栈，未录制时 isEnabled() 为false，监听器直接返回。
+ */
+public final class AgentaEvents {
+
+    static final String PREFIX = "org.example.agenta.";
+
+    private AgentaEvents() {
+    }
+
+    @Name(PREFIX + "WorkflowStarted")
+    @Label("Workflow Started")
+    @Category({"AgentA", "Workflow"})
+    @StackTrace(false)
+    public static class WorkflowStarted extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Workflow Type")
+        String workflowType;
+
+        @Label("Node Count")
+        int nodeCount;
+    }
+
+    @Name(PREFIX + "WorkflowFinished")
+    @Label("Workflow Finished")
+    @Category({"AgentA", "Workflow"})
+    @StackTrace(false)
+    public static class WorkflowFinished extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Workflow Type")
+        String workflowType;
+
+        @Label("Execution Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long executionTime;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name(PREFIX + "NodeQueued")
+    @Label("Node Queued")
+    @Category({"AgentA", "Node"})
+    @StackTrace(false)
+    public static class NodeQueued extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Node ID")
+        String nodeId;
+
+        @Label("Agent ID")
+        String agentId;
+    }
+
+    @Name(PREFIX + "NodeStarted")
+    @Label("Node Started")
+    @Category({"AgentA", "Node"})
+    @StackTrace(false)
+    public static class NodeStarted extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Node ID")
+        String nodeId;
+
+        @Label("Agent ID")
+        String agentId;
+
+        @Label("Queue Time")
+        @Description("从满足依赖到开始运行的等待时间")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueTime;
+    }
+
+    @Name(PREFIX + "NodeFinished")
+    @Label("Node Finished")
+    @Category({"AgentA", "Node"})
+    @StackTrace(false)
+    public static class NodeFinished extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Node ID")
+        String nodeId;
+
+        @Label("Agent ID")
+        String agentId;
+
+        @Label("Execution Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long executionTime;
+
+        @Label("Success")
+        boolean success;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Bytes Sent")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Bytes Received")
+        @DataAmount
+        long bytesReceived;
+    }
+
+    @Name(PREFIX + "HttpAttempt")
+    @Label("HTTP Attempt")
+    @Category({"AgentA", "HTTP"})
+    @StackTrace(false)
+    public static class HttpAttempt extends Event {
+
+        @Label("Workflow ID")
+        String workflowId;
+
+        @Label("Method")
+        String method;
+
+        @Label("URL")
+        String url;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Status Code")
+        @Description("0 表示连接/执行异常")
+        int statusCode;
+
+        @Label("Attempt Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long attemptTime;
+
+        @Label("Bytes Sent")
+        @Description("本请求截至此次尝试累计发送的请求体字节数")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Bytes Received")
+        @Description("本请求截至此次尝试累计接收的响应体字节数")
+        @DataAmount
+        long bytesReceived;
+
+        @Label("Error")
+        String error;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.agenta.jfr;
+
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.ApiCallListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 将工作流、节点与HTTP尝试转为自定义JFR事件
+ * 没有录制进行时每个回调只多一次事件对象分配和 isEnabled() 判断；
+ * 开启录制（启动参数 -XX:StartFlightRecording 或 {@link ProfilingService}）后即可在JMC中按工作流/Agent查看。
+ */
+@Component
+public class JfrEventListener implements WorkflowExecutionListener, ApiCallListener {
+
+    @Override
+    public void onWorkflowStarted(WorkflowDAG workflow, WorkflowContext context) {
+        AgentaEvents.WorkflowStarted event = new AgentaEvents.WorkflowStarted();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = context.getWorkflowId();
+        event.workflowType = workflow.getWorkflowType();
+        event.nodeCount = workflow.getNodes().size();
+        event.commit();
+    }
+
+    @Override
+    public void onNodeQueued(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context) {
+        AgentaEvents.NodeQueued event = new AgentaEvents.NodeQueued();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = context.getWorkflowId();
+        event.nodeId = node.getNodeId();
+        event.agentId = node.getAgent().getAgentId();
+        event.commit();
+    }
+
+    @Override
+    public void onNodeStarted(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+        AgentaEvents.NodeStarted event = new AgentaEvents.NodeStarted();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = context.getWorkflowId();
+        event.nodeId = node.getNodeId();
+        event.agentId = node.getAgent().getAgentId();
+        event.queueTime = System.nanoTime() - queuedNanos;
+        event.commit();
+    }
+
+    @Override
+    public void onNodeFinished(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context,
+                               AgentResult result, long durationNanos) {
+        AgentaEvents.NodeFinished event = new AgentaEvents.NodeFinished();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = context.getWorkflowId();
+        event.nodeId = node.getNodeId();
+        event.agentId = node.getAgent().getAgentId();
+        event.executionTime = durationNanos;
+        event.success = result != null && result.isSuccess();
+        NodeCost cost = result != null ? result.getCost() : null;
+        if (cost != null) {
+            event.cpuTime = cost.getCpuNanos();
+            event.allocatedBytes = cost.getAllocatedBytes();
+            event.bytesSent = cost.getBytesSent();
+            event.bytesReceived = cost.getBytesReceived();
+        }
+        event.commit();
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context,
+                                   long durationNanos, Throwable error) {
+        AgentaEvents.WorkflowFinished event = new AgentaEvents.WorkflowFinished();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = context.getWorkflowId();
+        event.workflowType = workflow.getWorkflowType();
+        event.executionTime = durationNanos;
+        event.success = error == null
+                && context.getAgentResults().values().stream().allMatch(AgentResult::isSuccess);
+        event.error = error != null ? error.toString() : null;
+        event.commit();
+    }
+
+    @Override
+    public void onApiCallAttempt(ApiRequest request, int attempt, long startNanos, long durationNanos,
+                                 ApiResponse response, Throwable error) {
+        AgentaEvents.HttpAttempt event = new AgentaEvents.HttpAttempt();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.workflowId = request.getWorkflowId();
+        event.method = request.getMethod();
+        event.url = request.getUrl();
+        event.attempt = attempt;
+        event.statusCode = response != null ? response.getStatusCode() : 0;
+        event.attemptTime = durationNanos;
+        event.bytesSent = request.getBytesSent();
+        event.bytesReceived = request.getBytesReceived();
+        if (error != null) {
+            event.error = error.toString();
+        } else if (response != null && !response.isSuccess()) {
+            event.error = response.getErrorMessage();
+        }
+        event.commit();
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.agenta.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 在线JFR采样
+ * 按需开启限时录制，到时停止并写入临时文件，无需重启即可在生产流量上采样。
+ * 同一时间只允许一个录制；时长与文件大小有上限，等待期间不占用线程。
+ *
+ * 录制内容包含系统属性、环境变量与命令行，默认关闭。
+ *
+ * 配置：agenta.profiling.enabled / max-duration-seconds / max-size-bytes
+ */
+@Service
+@Slf4j
+public class ProfilingService {
+
+    private final boolean enabled;
+    private final int maxDurationSeconds;
+    private final long maxSizeBytes;
+    private final AtomicReference<Recording> active = new AtomicReference<>();
+
+    public ProfilingService(@Value("${agenta.profiling.enabled:false}") boolean enabled,
+                            @Value("${agenta.profiling.max-duration-seconds:300}") int maxDurationSeconds,
+                            @Value("${agenta.profiling.max-size-bytes:268435456}") long maxSizeBytes) {
+        this.enabled = enabled;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * 开始限时录制，完成后返回 .jfr 临时文件，由调用方负责删除
+     * @param profile JDK自带的配置名：default（开销约1%）或 profile（更详细，开销约2%）
+     * @throws IllegalArgumentException 时长超出范围或配置不存在
+     * @throws IllegalStateException    功能未启用或已有录制在进行
+     */
+    public CompletableFuture<Path> record(int durationSeconds, String profile) {
+        if (!enabled) {
+            throw new IllegalStateException("在线采样未启用");
+        }
+        if (durationSeconds < 1 || durationSeconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("录制时长必须在 1-" + maxDurationSeconds + " 秒之间");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("未知的JFR配置: " + profile);
+        }
+
+        Recording recording = new Recording(configuration);
+        if (!active.compareAndSet(null, recording)) {
+            recording.close();
+            throw new IllegalStateException("已有录制在进行");
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile("agenta-", ".jfr");
+            recording.setName("agenta-" + profile);
+            recording.setToDisk(true);
+            recording.setMaxSize(maxSizeBytes);
+            recording.setDestination(file);
+            recording.start();
+        } catch (IOException | RuntimeException e) {
+            finish(recording);
+            deleteQuietly(file);
+            throw new IllegalStateException("无法开始录制: " + e.getMessage(), e);
+        }
+        log.info("开始JFR录制: 配置={}, 时长={}s, 文件={}", profile, durationSeconds, file);
+
+        Path destination = file;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // 停止时写入目标文件；应用关闭时录制已被放弃，stop 会抛出 IllegalStateException
+                recording.stop();
+                log.info("JFR录制完成: {}, 大小={} 字节", destination, Files.size(destination));
+                return destination;
+            } catch (IOException | RuntimeException e) {
+                deleteQuietly(destination);
+                throw new IllegalStateException("JFR录制失败: " + e.getMessage(), e);
+            } finally {
+                finish(recording);
+            }
+        }, CompletableFuture.delayedExecutor(durationSeconds, TimeUnit.SECONDS));
+    }
+
+    public boolean isRecording() {
+        return active.get() != null;
+    }
+
+    /**
+     * 关闭时放弃进行中的录制
+     */
+    @PreDestroy
+    public void shutdown() {
+        Recording recording = active.get();
+        if (recording != null) {
+            finish(recording);
+        }
+    }
+
+    private void finish(Recording recording) {
+        recording.close();
+        active.compareAndSet(recording, null);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除录制文件失败: {}", file);
+        }
+    }
+}
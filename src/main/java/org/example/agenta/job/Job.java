@@ -0,0 +1,25 @@
+package org.example.agenta.job;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+/**
+ * 异步作业
+ * 状态变化时整体追加到作业日志；执行线程先写结果再写状态，读到终态即可读到结果。
+ */
+@Data
+@Accessors(chain = true)
+public class Job {
+
+    private String jobId;
+    private String workflow;
+    private Map<String, Object> request;
+    private volatile JobStatus status;
+    private long submittedAt;
+    private long startedAt;
+    private long finishedAt;
+    private Object result;
+    private String error;
+}
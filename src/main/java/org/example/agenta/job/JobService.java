@@ -0,0 +1,266 @@
+package org.example.agenta.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.admission.AdmissionRejectedException;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.definition.WorkflowRegistry;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.model.WorkflowResponse;
+import org.example.agenta.service.WorkflowService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步作业服务
+ * 提交时只写入作业日志并入队，立即返回作业ID；固定数量的作业线程按配置的速率从队列取作业，
+ * 逐个执行已注册的声明式工作流，请求突发只会加长队列而不会突破执行容量。
+ * 作业状态与结果持久化在 {@link JobStore}，重启后未完成的作业重新入队。
+ *
+ * 配置：
+ * agenta.jobs.dir / retention-hours / fsync
+ * agenta.jobs.workers           作业线程数，即同时执行的作业数
+ * agenta.jobs.rate-per-second   出队速率上限，0为不限
+ * agenta.jobs.max-queued        排队作业上限，超过后拒绝提交（503）
+ */
+@Service
+@Slf4j
+public class JobService {
+
+    private static final String JOURNAL_FILE = "jobs.jsonl";
+
+    private final WorkflowRegistry workflowRegistry;
+    private final WorkflowService workflowService;
+    private final JobStore store;
+    private final long retentionMs;
+    private final int workerCount;
+    private final double ratePerSecond;
+    private final int maxQueued;
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<Job>> waiters = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService housekeeper;
+    private long nextPermitNanos = System.nanoTime();   // 由 this 保护
+    private volatile boolean running;
+
+    public JobService(WorkflowRegistry workflowRegistry,
+                      WorkflowService workflowService,
+                      @Value("${agenta.jobs.dir:jobs}") String directory,
+                      @Value("${agenta.jobs.retention-hours:24}") long retentionHours,
+                      @Value("${agenta.jobs.fsync:false}") boolean fsync,
+                      @Value("${agenta.jobs.workers:2}") int workerCount,
+                      @Value("${agenta.jobs.rate-per-second:10}") double ratePerSecond,
+                      @Value("${agenta.jobs.max-queued:10000}") int maxQueued) {
+        this.workflowRegistry = workflowRegistry;
+        this.workflowService = workflowService;
+        this.retentionMs = TimeUnit.HOURS.toMillis(retentionHours);
+        this.store = new JobStore(Path.of(directory, JOURNAL_FILE), retentionMs, fsync);
+        this.workerCount = workerCount;
+        this.ratePerSecond = ratePerSecond;
+        this.maxQueued = maxQueued;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        jobs.putAll(store.load());
+        jobs.values().stream()
+                .filter(job -> job.getStatus() == JobStatus.QUEUED)
+                .forEach(job -> queue.add(job.getJobId()));
+        if (!queue.isEmpty()) {
+            log.info("恢复未完成的作业: {}", queue.size());
+        }
+
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "job-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        housekeeper.scheduleWithFixedDelay(this::evictExpired, 1, 1, TimeUnit.MINUTES);
+        log.info("作业服务启动, 作业线程: {}, 速率上限: {}/s, 排队上限: {}", workerCount, ratePerSecond, maxQueued);
+    }
+
+    /**
+     * 提交作业，写入作业日志后立即返回
+     * @param workflow 已注册的工作流名称
+     * @param request  请求体，执行时放入上下文
+     */
+    public Job submit(String workflow, Map<String, Object> request) {
+        if (queue.size() >= maxQueued) {
+            throw new AdmissionRejectedException("jobs", HttpStatus.SERVICE_UNAVAILABLE, 1,
+                    "作业队列已满: " + queue.size());
+        }
+        Job job = new Job()
+                .setJobId(UUID.randomUUID().toString())
+                .setWorkflow(workflow)
+                .setRequest(new LinkedHashMap<>(request))
+                .setStatus(JobStatus.QUEUED)
+                .setSubmittedAt(System.currentTimeMillis());
+        store.append(job);
+        jobs.put(job.getJobId(), job);
+        queue.add(job.getJobId());
+        log.info("作业已提交: {}, 工作流: {}", job.getJobId(), workflow);
+        return job;
+    }
+
+    public Job getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 等待作业结束，超时后返回当前状态（长轮询）
+     * @return 作业不存在时为null
+     */
+    public CompletableFuture<Job> awaitJob(String jobId, long timeoutMs) {
+        Job job = jobs.get(jobId);
+        if (job == null || job.getStatus().isFinished() || timeoutMs <= 0) {
+            return CompletableFuture.completedFuture(job);
+        }
+        CompletableFuture<Job> waiter = waiters.computeIfAbsent(jobId, id -> new CompletableFuture<>());
+        // 注册后再检查一次，避免与作业结束竞争而错过通知
+        if (job.getStatus().isFinished()) {
+            waiters.remove(jobId, waiter);
+            waiter.complete(job);
+        }
+        return waiter.copy().completeOnTimeout(job, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void workLoop() {
+        while (running) {
+            String jobId;
+            try {
+                jobId = queue.take();
+                acquirePermit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Job job = jobs.get(jobId);
+            if (job != null && job.getStatus() == JobStatus.QUEUED) {
+                execute(job);
+            }
+        }
+    }
+
+    /**
+     * 按速率上限为每个作业分配出队时间点，未到时间则等待
+     */
+    private void acquirePermit() throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(nextPermitNanos, now);
+            nextPermitNanos = slot + (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void execute(Job job) {
+        job.setStartedAt(System.currentTimeMillis()).setStatus(JobStatus.RUNNING);
+        store.append(job);
+
+        WorkflowDAG workflow = workflowRegistry.getWorkflow(job.getWorkflow());
+        if (workflow == null) {
+            finish(job, null, "工作流已不存在: " + job.getWorkflow());
+            return;
+        }
+        // 与同步接口一致，只接受 input 与 apiConfig，引擎自用的键不由请求写入
+        WorkflowContext context = new WorkflowContext(workflowRegistry.nextExecutionId(job.getWorkflow()))
+                .addData("input", job.getRequest().getOrDefault("input", "默认输入数据"));
+        Object apiConfig = job.getRequest().get("apiConfig");
+        if (apiConfig != null) {
+            context.addData("apiConfig", apiConfig);
+        }
+
+        try {
+            Map<String, Object> summary = workflowService.executeWorkflow(workflow, context).get();
+            // 只保存缺省响应视图（摘要与最终报告），完整上下文不进入作业日志和内存；
+            // 转为纯JSON结构，内存中的结果与重启后回放的结果一致
+            WorkflowResponse response = new WorkflowResponse(summary, workflow.getTerminalAgentIds(),
+                    WorkflowResponse.DEFAULT_FIELDS);
+            finish(job, mapper.convertValue(response, Map.class), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("作业执行被中断，重启后重新执行: {}", job.getJobId());
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.error("作业执行失败: {}", job.getJobId(), cause);
+            finish(job, null, String.valueOf(cause.getMessage()));
+        } finally {
+            context.releaseBlobs();  // 结果已转换，溢出文件不再需要
+        }
+    }
+
+    private void finish(Job job, Object result, String error) {
+        job.setResult(result)
+                .setError(error)
+                .setFinishedAt(System.currentTimeMillis())
+                .setStatus(error == null ? JobStatus.SUCCEEDED : JobStatus.FAILED);
+        store.append(job);
+        CompletableFuture<Job> waiter = waiters.remove(job.getJobId());
+        if (waiter != null) {
+            waiter.complete(job);
+        }
+        log.info("作业结束: {}, 状态: {}, 耗时: {}ms", job.getJobId(), job.getStatus(), job.getFinishedAt() - job.getStartedAt());
+    }
+
+    /**
+     * 移除超过保留期的已结束作业，必要时压缩作业日志
+     */
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt() < cutoff);
+        store.compactIfNeeded(jobs.values());
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        running = false;
+        housekeeper.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        store.close();
+    }
+}
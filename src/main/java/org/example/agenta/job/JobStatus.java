@@ -0,0 +1,15 @@
+package org.example.agenta.job;
+
+/**
+ * 异步作业状态
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.agenta.job;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 文件作业存储
+ * 每次状态变化把作业快照作为一行JSON追加到作业日志，启动时按顺序回放，同一作业以最后一行为准：
+ * - 执行中的作业视为被重启中断，恢复为排队状态重新执行
+ * - 超过保留期的已结束作业丢弃
+ * 回放后把存活的作业重写为新日志（先写临时文件再原子替换），运行中日志行数远超作业数时同样重写。
+ * 崩溃时写了一半的末行解析失败后跳过。
+ */
+@Slf4j
+public class JobStore implements Closeable {
+
+    /** 日志行数超过存活作业数的该倍数（且超过最小行数）时压缩 */
+    private static final int COMPACT_RATIO = 4;
+    private static final int COMPACT_MIN_LINES = 10_000;
+
+    private final Path file;
+    private final long retentionMs;
+    private final boolean fsync;
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private FileOutputStream stream;
+    private BufferedWriter writer;
+    private long lines;
+
+    /**
+     * @param file        作业日志文件
+     * @param retentionMs 已结束作业的保留时长
+     * @param fsync       每次追加后是否强制刷盘
+     */
+    public JobStore(Path file, long retentionMs, boolean fsync) {
+        this.file = file;
+        this.retentionMs = retentionMs;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 回放作业日志并压缩，返回存活的作业（按提交时间排序）
+     */
+    public synchronized Map<String, Job> load() throws IOException {
+        Map<String, Job> jobs = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        Job job = mapper.readValue(line, Job.class);
+                        jobs.put(job.getJobId(), job);
+                    } catch (IOException e) {
+                        log.warn("跳过无法解析的作业日志行: {}:{}, {}", file, lineNumber, e.getMessage());
+                    }
+                }
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt() < cutoff);
+        for (Job job : jobs.values()) {
+            if (job.getStatus() == JobStatus.RUNNING) {
+                job.setStatus(JobStatus.QUEUED).setStartedAt(0);
+            }
+        }
+
+        Map<String, Job> sorted = new LinkedHashMap<>();
+        jobs.values().stream()
+                .sorted(Comparator.comparingLong(Job::getSubmittedAt))
+                .forEach(job -> sorted.put(job.getJobId(), job));
+        rewrite(sorted.values());
+        log.info("作业日志回放完成: {}, 存活作业: {}", file, sorted.size());
+        return sorted;
+    }
+
+    /**
+     * 追加作业快照
+     */
+    public synchronized void append(Job job) {
+        if (writer == null) {
+            throw new IllegalStateException("作业日志已关闭");
+        }
+        try {
+            writer.write(mapper.writeValueAsString(job));
+            writer.newLine();
+            writer.flush();
+            lines++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入作业日志失败: " + job.getJobId(), e);
+        }
+        if (fsync) {
+            try {
+                stream.getChannel().force(false);
+            } catch (IOException e) {
+                log.warn("作业日志刷盘失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 日志行数远超存活作业数时重写日志
+     */
+    public synchronized void compactIfNeeded(Collection<Job> liveJobs) {
+        if (lines < COMPACT_MIN_LINES || lines < (long) liveJobs.size() * COMPACT_RATIO) {
+            return;
+        }
+        try {
+            rewrite(liveJobs);
+        } catch (IOException e) {
+            log.error("压缩作业日志失败: {}", file, e);
+        }
+    }
+
+    private void rewrite(Collection<Job> jobs) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        close();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Job job : jobs) {
+                out.write(mapper.writeValueAsString(job));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        stream = new FileOutputStream(file.toFile(), true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        lines = jobs.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.agenta.llm;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+/**
+ * 文本向量化接口，语义缓存通过它把提示映射为定长向量
+ */
+public interface Embedder {
+
+    /**
+     * 向量维度
+     */
+    int dimensions();
+
+    /**
+     * 向量化文本，返回长度为 {@link #dimensions()} 的向量（不要求已归一化）
+     */
+    float[] embed(String text);
+
+    /**
+     * 适配LangChain4j的向量模型（如 OpenAiEmbeddingModel），每次调用发起一次请求
+     */
+    static Embedder of(EmbeddingModel model) {
+        int dimensions = model.dimension();
+        return new Embedder() {
+            @Override
+            public int dimensions() {
+                return dimensions;
+            }
+
+            @Override
+            public float[] embed(String text) {
+                return model.embed(text).content().vector();
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.agenta.llm;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 特征哈希向量化：字符二元组与三元组经哈希落到固定维度，带符号累加
+ * 不依赖外部模型，耗时为微秒级；只能识别字面上接近的提示（如空白、标点、少量字词不同），
+ * 不理解同义改写。需要真正的语义相似时用 {@link Embedder#of} 接入向量模型。
+ */
+public class HashingEmbedder implements Embedder {
+
+    private final int dimensions;
+
+    public HashingEmbedder(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        String normalized = normalize(text);
+        float[] vector = new float[dimensions];
+        for (int n = 2; n <= 3; n++) {
+            for (int i = 0; i + n <= normalized.length(); i++) {
+                int hash = mix(hash(normalized, i, n));
+                vector[Math.floorMod(hash, dimensions)] += (hash & 0x40000000) == 0 ? 1 : -1;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * 小写、NFKC（全角转半角），并去掉空白与标点
+     */
+    private static String normalize(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(folded.length());
+        folded.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(builder::appendCodePoint);
+        return builder.toString();
+    }
+
+    private static int hash(String text, int start, int length) {
+        int hash = length;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * murmur3 的 fmix32，打散相邻的n元组哈希
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
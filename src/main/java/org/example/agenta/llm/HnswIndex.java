@@ -0,0 +1,247 @@
+package org.example.agenta.llm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * HNSW近似最近邻索引（余弦相似度，向量须已归一化）
+ * 向量按槽位存放在堆外的直接缓冲区中，邻接表在堆上。容量固定，槽位由调用方分配；
+ * 删除只打墓碑：被删节点仍参与图遍历但不出现在结果中，槽位在调用方重建索引时回收。
+ * 非线程安全，由调用方加锁（查询可并发，插入与删除须独占）。
+ */
+final class HnswIndex {
+
+    /**
+     * 查询结果
+     */
+    record Match(int slot, float similarity) {
+    }
+
+    private final int dimensions;
+    private final int capacity;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final FloatBuffer vectors;
+
+    /** links[slot][level]：下标0为邻居数，其后为邻居槽位 */
+    private final int[][][] links;
+    private final BitSet deleted;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int size;
+
+    HnswIndex(int dimensions, int capacity, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, dimensions) * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        this.links = new int[capacity][][];
+        this.deleted = new BitSet(capacity);
+    }
+
+    /**
+     * 每个节点在堆上的平均开销估算（邻接表），用于按内存预算换算容量
+     */
+    static long heapBytesPerNode(int m) {
+        // 第0层 2M 个邻居，期望层数约 1/(M-1)，再加数组头
+        return (2L * m + 1) * Integer.BYTES + 64;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean isDeleted(int slot) {
+        return deleted.get(slot);
+    }
+
+    void markDeleted(int slot) {
+        deleted.set(slot);
+    }
+
+    /**
+     * 读出槽位中的向量（重建索引时使用）
+     */
+    float[] vector(int slot) {
+        float[] vector = new float[dimensions];
+        vectors.get(slot * dimensions, vector);
+        return vector;
+    }
+
+    /**
+     * 在指定槽位插入向量，槽位必须未被使用过
+     */
+    void insert(int slot, float[] vector) {
+        vectors.put(slot * dimensions, vector);
+        int level = (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+        links[slot] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[slot][l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        size++;
+        if (entryPoint < 0) {
+            entryPoint = slot;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Match> candidates = searchLayer(vector, current, efConstruction, l);
+            List<Match> nearest = closest(candidates, m);
+            for (Match neighbor : nearest) {
+                connect(slot, neighbor.slot(), l);
+                connect(neighbor.slot(), slot, l);
+            }
+            current = nearest.get(0).slot();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = slot;
+        }
+    }
+
+    /**
+     * 查询最相似的 k 个未删除的向量，按相似度降序
+     */
+    List<Match> search(float[] query, int k, int ef) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(query, current, l);
+        }
+        PriorityQueue<Match> found = searchLayer(query, current, Math.max(ef, k), 0);
+        List<Match> results = new ArrayList<>();
+        for (Match match : closest(found, found.size())) {
+            if (!deleted.get(match.slot())) {
+                results.add(match);
+                if (results.size() == k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    float similarity(float[] query, int slot) {
+        int base = slot * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * vectors.get(base + i);
+        }
+        return dot;
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float similarity = similarity(query, neighbors[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层束搜索，返回最相似的 ef 个节点（队首为最不相似的）
+     */
+    private PriorityQueue<Match> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(capacity);
+        visited.set(start);
+        Match first = new Match(start, similarity(query, start));
+        PriorityQueue<Match> candidates = new PriorityQueue<>(Comparator.comparing(Match::similarity).reversed());
+        PriorityQueue<Match> results = new PriorityQueue<>(Comparator.comparing(Match::similarity));
+        candidates.add(first);
+        results.add(first);
+        while (!candidates.isEmpty()) {
+            Match candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[][] levels = links[candidate.slot()];
+            if (level >= levels.length) {
+                continue;
+            }
+            int[] neighbors = levels[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = similarity(query, neighbor);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Match match = new Match(neighbor, similarity);
+                    candidates.add(match);
+                    results.add(match);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static List<Match> closest(PriorityQueue<Match> matches, int limit) {
+        List<Match> sorted = new ArrayList<>(matches);
+        sorted.sort(Comparator.comparing(Match::similarity).reversed());
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    /**
+     * 添加一条有向边，邻居已满时只保留与该节点最相似的若干个
+     */
+    private void connect(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int limit = neighbors.length - 1;
+        if (neighbors[0] < limit) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+        float[] origin = vector(from);
+        int weakest = -1;
+        float weakestSimilarity = similarity(origin, to);
+        for (int i = 1; i <= limit; i++) {
+            float similarity = similarity(origin, neighbors[i]);
+            if (similarity < weakestSimilarity) {
+                weakestSimilarity = similarity;
+                weakest = i;
+            }
+        }
+        if (weakest > 0) {
+            neighbors[weakest] = to;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.agenta.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM请求微批处理
+ * 并发提交的提示在 maxLinger 内或凑满 maxBatchSize 条时合并为一次请求：OpenAI兼容的对话接口不支持一次多条提示，
+ * 因此合并为一条编号的多任务提示，要求模型以JSON字符串数组作答，再按序分发给各提交方。
+ * 回答无法解析或条数不符时，该批退回逐条请求，结果不受影响。只有一条提示时直接原样请求。
+ * 合并后结果整体返回，不再逐个token转发，适合非交互的批量处理步骤。
+ * 合并的提示共享同一个模型上下文，只有批次键相同（同一工作流执行或调用方显式指定）的提示才会合并，
+ * 避免不相关调用方的提示与回答互相可见或互相影响。
+ */
+@Slf4j
+public class LlmBatcher {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TASK_MARKER = "### 任务";
+
+    /**
+     * 实际发起请求的后端，deadline 为批内最早的截止时间，可为null
+     */
+    @FunctionalInterface
+    public interface Backend {
+        CompletableFuture<Response<AiMessage>> generate(String prompt, Long deadline);
+    }
+
+    /**
+     * 一条提示的结果，merged 表示回答来自合并请求（与同批其他提示共享模型上下文）
+     */
+    public record Answer(PromptCache.Completion completion, boolean merged) {
+    }
+
+    private record Entry(String prompt, Long deadline, CompletableFuture<Answer> future) {
+    }
+
+    private final int maxBatchSize;
+    private final Duration maxLinger;
+    private final Backend backend;
+    private final Map<String, List<Entry>> pending = new HashMap<>();  // 批次键 -> 未发出的批次，由 this 保护
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private DistributionSummary batchSize;
+    private Counter fallbackCounter;
+
+    public LlmBatcher(int maxBatchSize, Duration maxLinger, Backend backend) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxLinger = maxLinger;
+        this.backend = backend;
+    }
+
+    /**
+     * 绑定指标：agenta.llm.batch.size 与 agenta.llm.batch.fallbacks
+     */
+    public LlmBatcher bindTo(MeterRegistry registry) {
+        batchSize = DistributionSummary.builder("agenta.llm.batch.size").description("每次LLM请求合并的提示数")
+                .register(registry);
+        fallbackCounter = Counter.builder("agenta.llm.batch.fallbacks").description("合并回答无法解析而逐条重发的批次")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * 提交一条提示，所在批次的请求完成后得到结果
+     * @param batchKey 批次键，只与相同键的提示合并
+     */
+    public CompletableFuture<Answer> submit(String batchKey, String prompt, Long deadline) {
+        CompletableFuture<Answer> future = new CompletableFuture<>();
+        List<Entry> full = null;
+        synchronized (this) {
+            List<Entry> batch = pending.get(batchKey);
+            if (batch == null) {
+                List<Entry> created = new ArrayList<>(maxBatchSize);
+                pending.put(batchKey, created);
+                CompletableFuture.delayedExecutor(maxLinger.toNanos(), TimeUnit.NANOSECONDS)
+                        .execute(() -> flushIfPending(batchKey, created));
+                batch = created;
+            }
+            batch.add(new Entry(prompt, deadline, future));
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                pending.remove(batchKey);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    private void flushIfPending(String batchKey, List<Entry> batch) {
+        synchronized (this) {
+            if (!pending.remove(batchKey, batch)) {
+                return;  // 已凑满发出
+            }
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(List<Entry> batch) {
+        batches.incrementAndGet();
+        if (batchSize != null) {
+            batchSize.record(batch.size());
+        }
+        if (batch.size() == 1) {
+            send(batch.get(0));
+            return;
+        }
+        Long deadline = batch.stream().map(Entry::deadline).filter(Objects::nonNull).min(Long::compare).orElse(null);
+        List<String> prompts = batch.stream().map(Entry::prompt).toList();
+        backend.generate(multiplex(prompts), deadline).whenComplete((response, error) -> {
+            if (error != null) {
+                batch.forEach(entry -> entry.future().completeExceptionally(error));
+                return;
+            }
+            List<String> answers = parse(response.content().text(), batch.size());
+            if (answers == null) {
+                fallbacks.incrementAndGet();
+                if (fallbackCounter != null) {
+                    fallbackCounter.increment();
+                }
+                log.warn("LLM合并回答无法解析，{} 条提示逐条重发", batch.size());
+                batch.forEach(this::send);
+                return;
+            }
+            // 用量按批整体计，无法分摊到单条
+            FinishReason finishReason = response.finishReason();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(new Answer(new PromptCache.Completion(answers.get(i), null, null,
+                        finishReason != null ? finishReason.name() : null), true));
+            }
+        });
+    }
+
+    private void send(Entry entry) {
+        backend.generate(entry.prompt(), entry.deadline()).whenComplete((response, error) -> {
+            if (error != null) {
+                entry.future().completeExceptionally(error);
+                return;
+            }
+            TokenUsage usage = response.tokenUsage();
+            FinishReason finishReason = response.finishReason();
+            entry.future().complete(new Answer(new PromptCache.Completion(response.content().text(),
+                    usage != null ? usage.inputTokenCount() : null,
+                    usage != null ? usage.outputTokenCount() : null,
+                    finishReason != null ? finishReason.name() : null), false));
+        });
+    }
+
+    /**
+     * 把多条提示合并为一条编号的多任务提示
+     */
+    static String multiplex(List<String> prompts) {
+        StringBuilder text = new StringBuilder()
+                .append("下面有 ").append(prompts.size()).append(" 个相互独立的任务，请分别完成。\n")
+                .append("只输出一个JSON字符串数组，第i个元素是第i个任务的完整回答，元素个数与任务数相同，不要输出其他内容。\n");
+        for (int i = 0; i < prompts.size(); i++) {
+            text.append('\n').append(TASK_MARKER).append(i + 1).append('\n').append(prompts.get(i)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * 解析合并回答中的JSON字符串数组（容忍代码块包裹），无法解析或条数不符时返回null
+     */
+    static List<String> parse(String text, int expected) {
+        int start = text.indexOf('[');
+        int end = text.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            List<String> answers = MAPPER.readValue(text.substring(start, end + 1), new TypeReference<List<String>>() {
+            });
+            return answers.size() == expected && !answers.contains(null) ? answers : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
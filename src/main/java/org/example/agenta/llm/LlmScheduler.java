@@ -0,0 +1,308 @@
+package org.example.agenta.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM请求调度器，按服务商的每分钟token数（TPM）与请求数（RPM）配额放行请求
+ * 两个令牌桶按配额匀速补充，容量为 burstSeconds 秒的配额。请求按截止时间排序（无截止时间的排在最后，
+ * 同截止时间先到先得），队首的请求配额不足时整个队列等待，到补足的时刻由定时器唤醒，不占用线程也不忙等；
+ * 已过截止时间的请求直接失败，不再消耗配额。
+ * 请求结束后按实际用量修正token桶；服务商仍返回429时清空令牌并暂停放行一段时间，避免重试风暴。
+ */
+@Slf4j
+public class LlmScheduler implements AutoCloseable {
+
+    /**
+     * 已获准的请求，调用结束后必须调用一次 {@link #release}
+     */
+    public final class Permit {
+
+        private final int estimatedTokens;
+        private boolean released;
+
+        private Permit(int estimatedTokens) {
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        /**
+         * @param actualTokens 实际消耗的token数，未知时传负数（按估算计）
+         * @param throttled    服务商是否返回了429
+         */
+        public void release(int actualTokens, boolean throttled) {
+            synchronized (LlmScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                long now = System.nanoTime();
+                tokens.refill(now);
+                if (actualTokens >= 0) {
+                    // 多退少补，允许暂时为负，之后的请求相应等待
+                    tokens.available += estimatedTokens - actualTokens;
+                    tokens.available = Math.min(tokens.available, tokens.capacity);
+                }
+                if (throttled) {
+                    throttledCount.incrementAndGet();
+                    if (throttledCounter != null) {
+                        throttledCounter.increment();
+                    }
+                    tokens.available = Math.min(tokens.available, 0);
+                    requests.available = Math.min(requests.available, 0);
+                    pausedUntilNanos = Math.max(pausedUntilNanos, now + throttleBackoffNanos);
+                    log.warn("LLM服务商限流，暂停放行 {}ms", TimeUnit.NANOSECONDS.toMillis(throttleBackoffNanos));
+                }
+            }
+            drain();
+        }
+    }
+
+    /**
+     * 令牌桶，按纳秒连续补充
+     */
+    private static final class Bucket {
+
+        private final double capacity;
+        private final double perNano;
+        private double available;
+        private long lastNanos;
+
+        private Bucket(double perMinute, double burstSeconds, long now) {
+            this.capacity = Math.max(1, perMinute / 60 * burstSeconds);
+            this.perNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.available = capacity;
+            this.lastNanos = now;
+        }
+
+        private void refill(long now) {
+            available = Math.min(capacity, available + (now - lastNanos) * perNano);
+            lastNanos = now;
+        }
+
+        private long nanosUntil(double amount) {
+            return available >= amount ? 0 : (long) Math.ceil((amount - available) / perNano);
+        }
+    }
+
+    private record Waiter(CompletableFuture<Permit> future, int tokens, long deadlineMillis, long sequence,
+                          long enqueuedNanos) {
+    }
+
+    private final Bucket tokens;
+    private final Bucket requests;
+    private final int maxQueued;
+    private final long throttleBackoffNanos;
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(Comparator
+            .comparingLong(Waiter::deadlineMillis).thenComparingLong(Waiter::sequence));
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "llm-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpNanos;
+    private long pausedUntilNanos;
+    private long sequence;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private Timer waitTimer;
+    private Counter deadlineCounter;
+    private Counter queueFullCounter;
+    private Counter throttledCounter;
+
+    /**
+     * @param tokensPerMinute      TPM配额
+     * @param requestsPerMinute    RPM配额
+     * @param burstSeconds         令牌桶容量相当于多少秒的配额
+     * @param maxQueued            排队请求上限，超过时直接拒绝
+     * @param throttleBackoffMillis 收到429后暂停放行的时长
+     */
+    public LlmScheduler(long tokensPerMinute, long requestsPerMinute, double burstSeconds, int maxQueued,
+                        long throttleBackoffMillis) {
+        long now = System.nanoTime();
+        this.tokens = new Bucket(tokensPerMinute, burstSeconds, now);
+        this.requests = new Bucket(requestsPerMinute, burstSeconds, now);
+        this.maxQueued = maxQueued;
+        this.throttleBackoffNanos = TimeUnit.MILLISECONDS.toNanos(throttleBackoffMillis);
+        this.pausedUntilNanos = now;
+    }
+
+    /**
+     * 绑定指标：排队数、排队等待耗时、拒绝次数{reason}与限流次数
+     */
+    public LlmScheduler bindTo(MeterRegistry registry) {
+        Gauge.builder("agenta.llm.scheduler.queued", this, LlmScheduler::queued)
+                .description("等待LLM配额的请求数").register(registry);
+        waitTimer = Timer.builder("agenta.llm.scheduler.wait").description("LLM请求等待配额的时间")
+                .publishPercentileHistogram().register(registry);
+        deadlineCounter = Counter.builder("agenta.llm.scheduler.rejected").description("未获放行的LLM请求")
+                .tag("reason", "deadline").register(registry);
+        queueFullCounter = Counter.builder("agenta.llm.scheduler.rejected").description("未获放行的LLM请求")
+                .tag("reason", "queue_full").register(registry);
+        throttledCounter = Counter.builder("agenta.llm.scheduler.throttled").description("服务商返回429的次数")
+                .register(registry);
+        return this;
+    }
+
+    /**
+     * 估算一次请求消耗的token数：提示中CJK字符约每字1个token，其余约每4个字符1个，再加上预期输出
+     */
+    public static int estimateTokens(String prompt, int expectedOutputTokens) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < prompt.length(); ) {
+            int codePoint = prompt.codePointAt(i);
+            if (Character.isIdeographic(codePoint)) {
+                cjk++;
+            } else {
+                other++;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return cjk + (other + 3) / 4 + expectedOutputTokens;
+    }
+
+    /**
+     * 申请配额，配额充足时立即完成，否则排队
+     * @param deadlineMillis 截止时间（epoch毫秒），无截止时间传 Long.MAX_VALUE
+     * @return 放行后完成；截止时间已过或队列已满时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<Permit> acquire(int estimatedTokens, long deadlineMillis) {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        int clamped = (int) Math.min(estimatedTokens, (long) tokens.capacity);
+        synchronized (this) {
+            if (queue.size() >= maxQueued) {
+                reject(future, queueFullCounter, "LLM请求排队已满: " + maxQueued);
+                return future;
+            }
+            queue.add(new Waiter(future, clamped, deadlineMillis, sequence++, System.nanoTime()));
+        }
+        drain();
+        return future;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens.refill(now);
+            requests.refill(now);
+            status.put("queued", queue.size());
+            status.put("availableTokens", (long) tokens.available);
+            status.put("availableRequests", (long) requests.available);
+        }
+        status.put("admitted", admitted.get());
+        status.put("rejected", rejected.get());
+        status.put("throttled", throttledCount.get());
+        return status;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        List<Waiter> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(queue);
+            queue.clear();
+        }
+        pending.forEach(waiter -> waiter.future().completeExceptionally(new RejectedExecutionException("LLM调度器已关闭")));
+    }
+
+    /**
+     * 按顺序放行配额足够的队首请求；队首配额不足时安排在补足的时刻再次检查
+     * 完成 future 在锁外进行，回调不会在持锁时执行
+     */
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        List<Waiter> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long nowMillis = System.currentTimeMillis();
+            tokens.refill(now);
+            requests.refill(now);
+            while (!queue.isEmpty()) {
+                Waiter head = queue.peek();
+                if (head.future().isDone()) {
+                    queue.poll();
+                    continue;
+                }
+                if (head.deadlineMillis() <= nowMillis) {
+                    expired.add(queue.poll());
+                    continue;
+                }
+                long waitNanos = Math.max(pausedUntilNanos - now,
+                        Math.max(tokens.nanosUntil(head.tokens()), requests.nanosUntil(1)));
+                if (waitNanos > 0) {
+                    // 截止时间先到时提前醒来，让请求及时失败
+                    long untilDeadline = TimeUnit.MILLISECONDS.toNanos(head.deadlineMillis() - nowMillis);
+                    scheduleWakeUp(now, Math.min(waitNanos, untilDeadline));
+                    break;
+                }
+                tokens.available -= head.tokens();
+                requests.available -= 1;
+                ready.add(queue.poll());
+            }
+        }
+        for (Waiter waiter : expired) {
+            reject(waiter.future(), deadlineCounter, "截止时间前未获得LLM配额");
+        }
+        for (Waiter waiter : ready) {
+            admitted.incrementAndGet();
+            if (waitTimer != null) {
+                waitTimer.record(System.nanoTime() - waiter.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (!waiter.future().complete(new Permit(waiter.tokens()))) {
+                // 调用方已放弃，归还配额
+                new Permit(waiter.tokens()).release(0, false);
+            }
+        }
+    }
+
+    private void scheduleWakeUp(long now, long delayNanos) {
+        long at = now + delayNanos;
+        // 已到期的唤醒可能正是当前这次执行，不能据此跳过
+        if (wakeUp != null && !wakeUp.isDone() && wakeUpNanos > now && wakeUpNanos <= at) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        wakeUpNanos = at;
+        try {
+            wakeUp = timer.schedule(this::drain, Math.max(delayNanos, 1), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    private void reject(CompletableFuture<Permit> future, Counter counter, String message) {
+        rejected.incrementAndGet();
+        if (counter != null) {
+            counter.increment();
+        }
+        future.completeExceptionally(new RejectedExecutionException(message));
+    }
+}
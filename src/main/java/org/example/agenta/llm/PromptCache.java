@@ -0,0 +1,587 @@
+package org.example.agenta.llm;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.NodeCost;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM提示/响应精确匹配缓存
+ * 键为模型、生成参数与规范化提示的SHA-256。两级存储：
+ * - 内存层：按访问顺序淘汰的LRU，受条目数与文本字节数限制
+ * - 磁盘层：只追加的日志（每行一条JSON）加上键到偏移的索引，关闭时保存索引快照，
+ *   启动时读取快照后只扫描快照之后追加的部分；日志超过上限时重写存活条目
+ * 条目过期后视为未命中。启动时把最近写入的条目预热到内存层。
+ * 日志追加与重写由单个后台写线程完成，磁盘读取与解析在锁外进行，调用方（LLM客户端回调线程）只在锁内更新内存结构。
+ */
+@Slf4j
+public class PromptCache implements Closeable {
+
+    static final String LOG_FILE = "cache.log";
+    static final String INDEX_FILE = "cache.idx";
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_PENDING_WRITES = 10_000;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * 缓存的生成结果
+     */
+    public record Completion(String text, Integer inputTokens, Integer outputTokens, String finishReason) {
+    }
+
+    /**
+     * 日志行
+     */
+    record Entry(String key, long createdAt, long expiresAt, Completion completion) {
+    }
+
+    /**
+     * 磁盘索引项
+     */
+    private record Location(long offset, int length, long expiresAt) {
+    }
+
+    private final Path directory;
+    private final Duration ttl;
+    private final int maxMemoryEntries;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final int warmEntries;
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    // 以下状态由 this 保护；channel 与 logBytes 只由写线程修改，读取方在锁内取得快照后在锁外读盘
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final Map<String, Location> index = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long logBytes;
+    /** 磁盘层只是缓存，写入积压超过上限或已关闭时直接丢弃（被丢弃的 flush 任务取消，不会一直等待） */
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_WRITES), runnable -> {
+                Thread thread = new Thread(runnable, "llm-cache-writer");
+                thread.setDaemon(true);
+                return thread;
+            }, (task, executor) -> {
+                if (task instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+            });
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Counter memoryHitCounter;
+    private Counter diskHitCounter;
+    private Counter missCounter;
+
+    /**
+     * @param directory        磁盘层目录
+     * @param ttl              条目有效期
+     * @param maxMemoryEntries 内存层条目数上限
+     * @param maxMemoryBytes   内存层响应文本（UTF-8）字节数上限
+     * @param maxDiskBytes     磁盘日志大小上限，超过时重写并丢弃较早的条目
+     * @param warmEntries      启动时预热到内存层的最近条目数
+     */
+    public PromptCache(Path directory, Duration ttl, int maxMemoryEntries, long maxMemoryBytes,
+                       long maxDiskBytes, int warmEntries) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.warmEntries = warmEntries;
+    }
+
+    /**
+     * 绑定命中率指标：agenta.llm.cache.lookups{result=memory_hit|disk_hit|miss} 与各层条目数
+     */
+    public PromptCache bindTo(MeterRegistry registry) {
+        memoryHitCounter = lookupCounter(registry, "memory_hit");
+        diskHitCounter = lookupCounter(registry, "disk_hit");
+        missCounter = lookupCounter(registry, "miss");
+        Gauge.builder("agenta.llm.cache.entries", this, cache -> cache.size(true))
+                .description("LLM缓存条目数").tag("tier", "memory").register(registry);
+        Gauge.builder("agenta.llm.cache.entries", this, cache -> cache.size(false))
+                .description("LLM缓存条目数").tag("tier", "disk").register(registry);
+        return this;
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String result) {
+        return Counter.builder("agenta.llm.cache.lookups").description("LLM缓存查询次数")
+                .tag("result", result).register(registry);
+    }
+
+    /**
+     * 计算缓存键；参数按名称排序，提示先规范化
+     */
+    public static String key(String model, Map<String, ?> parameters, String prompt) {
+        StringBuilder material = new StringBuilder(model).append('\u0000');
+        new TreeMap<>(parameters).forEach((name, value) -> material.append(name).append('=').append(value).append('\u0000'));
+        material.append(normalize(prompt));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.toString().getBytes(StandardCharsets.UTF_8));
+            return HEX.formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 提示规范化：Unicode NFC、统一换行、去掉行尾空白与首尾空行
+     * 只消除不影响语义的差异，行内空白与大小写保持原样
+     */
+    static String normalize(String prompt) {
+        String text = Normalizer.normalize(prompt, Normalizer.Form.NFC).replace("\r\n", "\n").replace('\r', '\n');
+        return text.replaceAll("[ \\t]+\n", "\n").strip();
+    }
+
+    /**
+     * 打开磁盘层：读取索引快照并补扫之后追加的日志，然后预热内存层
+     */
+    public synchronized void start() throws IOException {
+        Files.createDirectories(directory);
+        Path logFile = directory.resolve(LOG_FILE);
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logBytes = channel.size();
+
+        long indexed = readIndex();
+        if (indexed > logBytes) {
+            // 日志被截断或替换，快照不可信
+            index.clear();
+            indexed = 0;
+        }
+        long scanned = scan(indexed);
+        // 丢弃末尾写了一半的行
+        if (scanned < logBytes) {
+            channel.truncate(scanned);
+            logBytes = scanned;
+        }
+        Files.deleteIfExists(directory.resolve(INDEX_FILE));
+
+        long now = System.currentTimeMillis();
+        index.values().removeIf(location -> location.expiresAt() <= now);
+        warm();
+        log.info("LLM缓存已加载: {}, 磁盘条目: {}, 预热: {}", directory, index.size(), memory.size());
+    }
+
+    /**
+     * 查找缓存，先查内存层，再查磁盘层（命中后提升到内存层）
+     */
+    public Completion get(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (this) {
+            entry = memory.get(key);
+            if (entry != null && entry.expiresAt() <= now) {
+                removeFromMemory(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            record(memoryHits, memoryHitCounter);
+            return entry.completion();
+        }
+
+        entry = readFromDisk(key, now);
+        if (entry != null) {
+            synchronized (this) {
+                putInMemory(entry);
+            }
+            record(diskHits, diskHitCounter);
+            return entry.completion();
+        }
+        record(misses, missCounter);
+        return null;
+    }
+
+    /**
+     * 写入两级缓存：内存层立即可见，磁盘日志由写线程异步追加
+     */
+    public void put(String key, Completion completion) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, now, now + ttl.toMillis(), completion);
+        synchronized (this) {
+            putInMemory(entry);
+            if (channel == null) {
+                return;
+            }
+        }
+        writer.execute(() -> persist(entry));
+    }
+
+    /**
+     * 等待已提交的磁盘写入完成
+     */
+    void flush() throws InterruptedException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (ExecutionException | CancellationException e) {
+            // 写线程已关闭或积压已满，没有可等待的写入
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        long memoryHitCount = memoryHits.get();
+        long diskHitCount = diskHits.get();
+        long lookups = memoryHitCount + diskHitCount + misses.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        synchronized (this) {
+            status.put("memoryEntries", memory.size());
+            status.put("memoryBytes", memoryBytes);
+            status.put("diskEntries", index.size());
+            status.put("diskBytes", logBytes);
+        }
+        status.put("memoryHits", memoryHitCount);
+        status.put("diskHits", diskHitCount);
+        status.put("misses", misses.get());
+        status.put("hitRate", lookups == 0 ? 0.0 : (double) (memoryHitCount + diskHitCount) / lookups);
+        return status;
+    }
+
+    /**
+     * 保存索引快照，下次启动时不必重新扫描整个日志
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("LLM缓存写入未在30秒内完成，丢弃剩余写入");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            channel.force(false);
+            writeIndex();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // ==================== 内存层 ====================
+
+    private synchronized int size(boolean inMemory) {
+        return inMemory ? memory.size() : index.size();
+    }
+
+    private void putInMemory(Entry entry) {
+        removeFromMemory(entry.key());
+        long bytes = NodeCost.utf8Length(entry.completion().text());
+        if (bytes > maxMemoryBytes) {
+            return;
+        }
+        memory.put(entry.key(), entry);
+        memoryBytes += bytes;
+        var eldest = memory.entrySet().iterator();
+        while (memory.size() > maxMemoryEntries || memoryBytes > maxMemoryBytes) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            memoryBytes -= NodeCost.utf8Length(evicted.completion().text());
+        }
+    }
+
+    private void removeFromMemory(String key) {
+        Entry removed = memory.remove(key);
+        if (removed != null) {
+            memoryBytes -= NodeCost.utf8Length(removed.completion().text());
+        }
+    }
+
+    /**
+     * 按写入先后倒序把未过期的磁盘条目载入内存层
+     */
+    private void warm() {
+        List<Map.Entry<String, Location>> recent = new ArrayList<>(index.entrySet());
+        recent.sort(Comparator.comparingLong((Map.Entry<String, Location> item) -> item.getValue().offset()).reversed());
+        List<Entry> loaded = new ArrayList<>();
+        for (Map.Entry<String, Location> item : recent) {
+            if (loaded.size() >= Math.min(warmEntries, maxMemoryEntries)) {
+                break;
+            }
+            try {
+                loaded.add(read(channel, item.getValue()));
+            } catch (IOException e) {
+                log.warn("预热LLM缓存条目失败: {}", e.getMessage());
+            }
+        }
+        // 较早的先放入，最近写入的位于LRU末尾
+        for (int i = loaded.size() - 1; i >= 0; i--) {
+            putInMemory(loaded.get(i));
+        }
+    }
+
+    // ==================== 磁盘层 ====================
+
+    private Entry readFromDisk(String key, long now) {
+        Location location;
+        FileChannel file;
+        synchronized (this) {
+            file = channel;
+            location = file != null ? index.get(key) : null;
+            if (location == null) {
+                return null;
+            }
+            if (location.expiresAt() <= now) {
+                index.remove(key);
+                return null;
+            }
+        }
+        try {
+            return read(file, location);
+        } catch (ClosedChannelException e) {
+            // 读取期间日志被压缩替换，按未命中处理
+            return null;
+        } catch (IOException e) {
+            log.warn("读取LLM缓存日志失败: {}", e.getMessage());
+            synchronized (this) {
+                index.remove(key, location);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 按位置读取，不改变通道的当前位置，可与追加并发
+     */
+    private Entry read(FileChannel channel, Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length());
+        long position = location.offset();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("日志在偏移 " + location.offset() + " 处截断");
+            }
+            position += read;
+        }
+        return mapper.readValue(buffer.array(), 0, location.length() - 1, Entry.class);
+    }
+
+    /**
+     * 写线程：追加日志，超过上限时压缩
+     */
+    private void persist(Entry entry) {
+        try {
+            append(entry);
+            if (logBytes > maxDiskBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.warn("写入LLM缓存日志失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在锁外序列化并写入，写完后才在锁内登记索引，读取方不会看到未写完的行
+     */
+    private void append(Entry entry) throws IOException {
+        FileChannel file;
+        long offset;
+        synchronized (this) {
+            file = channel;
+            offset = logBytes;
+        }
+        if (file == null) {
+            return;
+        }
+        byte[] line = lineOf(entry);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            file.write(buffer, offset + buffer.position());
+        }
+        synchronized (this) {
+            logBytes = offset + line.length;
+            index.remove(entry.key());  // 重新插入，保持写入顺序
+            index.put(entry.key(), new Location(offset, line.length, entry.expiresAt()));
+        }
+    }
+
+    private byte[] lineOf(Entry entry) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(entry);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    /**
+     * 从指定偏移扫描日志并更新索引，返回最后一个完整行之后的偏移
+     */
+    private long scan(long from) throws IOException {
+        return scan(from, index);
+    }
+
+    private long scan(long from, Map<String, Location> into) throws IOException {
+        long position = from;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(LOG_FILE)), 1 << 16))) {
+            in.skipNBytes(from);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) >= 0) {
+                line.write(b);
+                if (b != '\n') {
+                    continue;
+                }
+                byte[] bytes = line.toByteArray();
+                line.reset();
+                try {
+                    Entry entry = mapper.readValue(bytes, 0, bytes.length - 1, Entry.class);
+                    into.remove(entry.key());
+                    into.put(entry.key(), new Location(position, bytes.length, entry.expiresAt()));
+                } catch (IOException e) {
+                    log.warn("跳过无法解析的LLM缓存日志行: 偏移 {}", position);
+                }
+                position += bytes.length;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 重写日志：丢弃过期与被覆盖的条目，仍超过上限一半时从最早写入的开始丢弃
+     * 只在写线程中执行，读取与重写新文件都在锁外，锁内只替换通道与索引
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Entry> live = new ArrayList<>();
+        long liveBytes = 0;
+        FileChannel previous;
+        List<Map.Entry<String, Location>> newestFirst;
+        synchronized (this) {
+            previous = channel;
+            newestFirst = new ArrayList<>(index.entrySet());
+        }
+        newestFirst.sort(Comparator.comparingLong((Map.Entry<String, Location> item) -> item.getValue().offset()).reversed());
+        for (Map.Entry<String, Location> item : newestFirst) {
+            Location location = item.getValue();
+            if (location.expiresAt() <= now) {
+                continue;
+            }
+            if (liveBytes + location.length() > maxDiskBytes / 2) {
+                break;
+            }
+            live.add(read(previous, location));
+            liveBytes += location.length();
+        }
+
+        Path temp = directory.resolve(LOG_FILE + ".tmp");
+        try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            for (int i = live.size() - 1; i >= 0; i--) {
+                out.write(lineOf(live.get(i)));
+            }
+        }
+        Files.move(temp, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel compacted = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Map<String, Location> rebuilt = new LinkedHashMap<>();
+        long compactedBytes = scan(0, rebuilt);
+        long before;
+        synchronized (this) {
+            before = logBytes;
+            channel = compacted;
+            logBytes = compactedBytes;
+            index.clear();
+            index.putAll(rebuilt);
+        }
+        previous.close();
+        log.info("LLM缓存日志已压缩: {} -> {} 字节, 条目: {}", before, compactedBytes, rebuilt.size());
+    }
+
+    /**
+     * 索引快照：版本、对应的日志长度、条目数，以及每个条目的键（32字节）、偏移、长度与过期时间
+     */
+    private void writeIndex() throws IOException {
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(logBytes);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Location> item : index.entrySet()) {
+                out.write(HEX.parseHex(item.getKey()));
+                out.writeLong(item.getValue().offset());
+                out.writeInt(item.getValue().length());
+                out.writeLong(item.getValue().expiresAt());
+            }
+        }
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取索引快照，返回快照覆盖到的日志长度；没有可用快照时返回0
+     */
+    private long readIndex() {
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != INDEX_VERSION) {
+                return 0;
+            }
+            long covered = in.readLong();
+            int count = in.readInt();
+            byte[] key = new byte[32];
+            for (int i = 0; i < count; i++) {
+                in.readFully(key);
+                index.put(HEX.formatHex(key), new Location(in.readLong(), in.readInt(), in.readLong()));
+            }
+            return covered;
+        } catch (IOException e) {
+            log.warn("LLM缓存索引损坏，重新扫描日志: {}", e.getMessage());
+            index.clear();
+            return 0;
+        }
+    }
+
+    private static void record(AtomicLong count, Counter counter) {
+        count.incrementAndGet();
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.agenta.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LLM语义缓存
+ * 提示经 {@link Embedder} 向量化后在进程内的HNSW索引中查找最相似的已缓存提示，
+ * 相似度不低于阈值且模型/参数相同（命名空间一致）时直接返回其结果。
+ *
+ * 容量由内存预算换算（向量在堆外，邻接表与结果在堆上）。写满时淘汰已过期或最久未命中的条目，
+ * 淘汰只打墓碑；没有空槽位时用存活条目重建索引回收槽位。查询持读锁可并发，写入持写锁。
+ */
+@Slf4j
+public class SemanticCache {
+
+    private static final int EVICTION_FRACTION = 8;
+
+    /**
+     * 查询结果
+     */
+    public record Hit(PromptCache.Completion completion, float similarity) {
+    }
+
+    private final Embedder embedder;
+    private final double threshold;
+    private final Duration ttl;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int capacity;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private HnswIndex index;
+    private final PromptCache.Completion[] completions;
+    private final String[] namespaces;
+    private final long[] expiresAt;
+    private final long[] lastAccess;  // 查询时在读锁下更新，并发写入同一位置无害
+    private int nextSlot;
+    private int live;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Timer lookupTimer;
+
+    /**
+     * @param threshold         命中所需的最低余弦相似度
+     * @param memoryBudgetBytes 向量与索引的内存预算，决定可缓存的条目数
+     */
+    public SemanticCache(Embedder embedder, double threshold, Duration ttl, long memoryBudgetBytes,
+                         int m, int efConstruction, int efSearch) {
+        this.embedder = embedder;
+        this.threshold = threshold;
+        this.ttl = ttl;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        long perEntry = (long) embedder.dimensions() * Float.BYTES + HnswIndex.heapBytesPerNode(m);
+        this.capacity = (int) Math.max(1, Math.min(memoryBudgetBytes / perEntry, Integer.MAX_VALUE / embedder.dimensions() / Float.BYTES));
+        this.index = new HnswIndex(embedder.dimensions(), capacity, m, efConstruction);
+        this.completions = new PromptCache.Completion[capacity];
+        this.namespaces = new String[capacity];
+        this.expiresAt = new long[capacity];
+        this.lastAccess = new long[capacity];
+        log.info("LLM语义缓存: 维度={}, 容量={}, 阈值={}", embedder.dimensions(), capacity, threshold);
+    }
+
+    /**
+     * 绑定指标：agenta.llm.semantic-cache.lookups{result=hit|miss}、查询耗时与条目数
+     */
+    public SemanticCache bindTo(MeterRegistry registry) {
+        hitCounter = Counter.builder("agenta.llm.semantic-cache.lookups").description("LLM语义缓存查询次数")
+                .tag("result", "hit").register(registry);
+        missCounter = Counter.builder("agenta.llm.semantic-cache.lookups").description("LLM语义缓存查询次数")
+                .tag("result", "miss").register(registry);
+        lookupTimer = Timer.builder("agenta.llm.semantic-cache.lookup.duration").description("LLM语义缓存查询耗时（含向量化）")
+                .publishPercentileHistogram().register(registry);
+        Gauge.builder("agenta.llm.semantic-cache.entries", this, SemanticCache::size)
+                .description("LLM语义缓存条目数").register(registry);
+        return this;
+    }
+
+    /**
+     * 查找足够相似的已缓存提示，未命中返回null
+     * @param namespace 模型与生成参数的标识，只在同一命名空间内匹配
+     */
+    public Hit get(String namespace, String prompt) {
+        long startNanos = System.nanoTime();
+        float[] query = normalize(embedder.embed(prompt));
+        Hit hit = null;
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            // 其他命名空间的相同提示可能排在前面，按相似度依次检查全部候选，直到命中或低于阈值
+            for (HnswIndex.Match match : index.search(query, efSearch, efSearch)) {
+                if (match.similarity() < threshold) {
+                    break;
+                }
+                int slot = match.slot();
+                if (namespace.equals(namespaces[slot]) && expiresAt[slot] > now) {
+                    lastAccess[slot] = now;
+                    hit = new Hit(completions[slot], match.similarity());
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (lookupTimer != null) {
+            lookupTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+        (hit != null ? hits : misses).incrementAndGet();
+        Counter counter = hit != null ? hitCounter : missCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+        return hit;
+    }
+
+    /**
+     * 缓存提示的结果；向量化在锁外完成
+     */
+    public void put(String namespace, String prompt, PromptCache.Completion completion) {
+        float[] vector = normalize(embedder.embed(prompt));
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            if (live >= capacity) {
+                evict(now);
+            }
+            if (nextSlot >= capacity) {
+                rebuild();
+            }
+            int slot = nextSlot++;
+            index.insert(slot, vector);
+            completions[slot] = completion;
+            namespaces[slot] = namespace;
+            expiresAt[slot] = now + ttl.toMillis();
+            lastAccess[slot] = now;
+            live++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("entries", size());
+        status.put("capacity", capacity);
+        status.put("hits", hitCount);
+        status.put("misses", misses.get());
+        status.put("evictions", evictions.get());
+        status.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return status;
+    }
+
+    /**
+     * 一次淘汰约 1/8 的条目：先淘汰已过期的，再按最久未命中的顺序，使随后的重建摊薄到多次写入
+     */
+    private void evict(long now) {
+        List<Integer> slots = new ArrayList<>(live);
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (!index.isDeleted(slot)) {
+                slots.add(slot);
+            }
+        }
+        slots.sort(Comparator.comparing((Integer slot) -> expiresAt[slot] > now)
+                .thenComparingLong(slot -> lastAccess[slot]));
+        int count = Math.max(1, capacity / EVICTION_FRACTION);
+        for (int i = 0; i < count && i < slots.size(); i++) {
+            int victim = slots.get(i);
+            index.markDeleted(victim);
+            completions[victim] = null;
+            namespaces[victim] = null;
+            live--;
+        }
+        evictions.addAndGet(Math.min(count, slots.size()));
+    }
+
+    /**
+     * 用存活条目重建索引，回收墓碑占用的槽位
+     */
+    private void rebuild() {
+        HnswIndex rebuilt = new HnswIndex(embedder.dimensions(), capacity, m, efConstruction);
+        int target = 0;
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (index.isDeleted(slot)) {
+                continue;
+            }
+            rebuilt.insert(target, index.vector(slot));
+            completions[target] = completions[slot];
+            namespaces[target] = namespaces[slot];
+            expiresAt[target] = expiresAt[slot];
+            lastAccess[target] = lastAccess[slot];
+            target++;
+        }
+        for (int slot = target; slot < nextSlot; slot++) {
+            completions[slot] = null;
+            namespaces[slot] = null;
+        }
+        log.debug("LLM语义缓存索引重建: {} -> {} 个槽位", nextSlot, target);
+        index = rebuilt;
+        nextSlot = target;
+    }
+
+    /**
+     * 模型与生成参数的命名空间标识
+     */
+    public static String namespace(String modelName, Map<String, ?> parameters) {
+        return modelName + new TreeMap<>(parameters);
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
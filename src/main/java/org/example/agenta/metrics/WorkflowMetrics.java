@@ -0,0 +1,285 @@
+package org.example.agenta.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.ApiCallListener;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 工作流、节点、执行器与外部API调用的Micrometer指标，以及按Agent累计的节点资源消耗
+ * 通过 /actuator/prometheus 暴露。
+ *
+ * 热路径上不分配对象：Timer按工作流类型/Agent/主机预先解析并缓存，
+ * 缓存命中时只做一次Map查找和数组下标访问，记录使用 Timer.record(long, TimeUnit)。
+ */
+@Component
+@Slf4j
+public class WorkflowMetrics implements WorkflowExecutionListener, ApiCallListener {
+
+    static final String WORKFLOW_DURATION = "agenta.workflow.duration";
+    static final String NODE_DURATION = "agenta.node.duration";
+    static final String HTTP_CLIENT_DURATION = "agenta.http.client.duration";
+    static final String NODE_CPU = "agenta.node.cpu";
+    static final String NODE_ALLOCATED = "agenta.node.allocated";
+    static final String NODE_NETWORK = "agenta.node.network";
+
+    private static final int COST_CPU = 0;
+    private static final int COST_ALLOCATED = 1;
+    private static final int COST_SENT = 2;
+    private static final int COST_RECEIVED = 3;
+
+    private static final int OUTCOME_SUCCESS = 0;
+    private static final int OUTCOME_FAILURE = 1;
+    private static final int OUTCOME_TIMEOUT = 2;
+    private static final String[] OUTCOMES = {"success", "failure", "timeout"};
+
+    /** HTTP状态码槽位：0 为连接/执行异常，1 为超时，其余为真实状态码 */
+    private static final int STATUS_SLOTS = 600;
+    private static final int STATUS_ERROR = 0;
+    private static final int STATUS_TIMEOUT = 1;
+    private static final int MAX_CACHED_URLS = 1024;
+    /** 主机来自请求中的URL，超过该数量的新主机归入 "other"，避免指标基数无界增长 */
+    private static final int MAX_HOSTS = 256;
+    static final String OTHER_HOST = "other";
+
+    private final MeterRegistry registry;
+
+    private final ConcurrentHashMap<String, Timer[]> workflowTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer[]> nodeTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter[]> nodeCostCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, HostMeters> hostMetersByUrl = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, HostMeters> hostMeters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlightWorkflows = new AtomicInteger();
+    private final AtomicInteger readyQueueDepth = new AtomicInteger();
+    private final AtomicInteger activeNodes = new AtomicInteger();
+
+    public WorkflowMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        Gauge.builder("agenta.workflow.inflight", inFlightWorkflows, AtomicInteger::get)
+                .description("正在执行的工作流数量")
+                .register(registry);
+        Gauge.builder("agenta.workflow.ready.queue", readyQueueDepth, AtomicInteger::get)
+                .description("已满足依赖、等待执行线程的节点数量")
+                .register(registry);
+        Gauge.builder("agenta.workflow.nodes.active", activeNodes, AtomicInteger::get)
+                .description("正在执行线程上运行的节点数量（工作流执行器占用）")
+                .register(registry);
+
+        // API服务的异步调用运行在公共ForkJoinPool上；节点执行线程池由 WorkflowRegistry / WorkflowService 各自注册
+        new ExecutorServiceMetrics(ForkJoinPool.commonPool(), "commonPool", Collections.emptyList())
+                .bindTo(registry);
+    }
+
+    // ==================== 工作流与节点 ====================
+
+    @Override
+    public void onWorkflowStarted(WorkflowDAG workflow, WorkflowContext context) {
+        inFlightWorkflows.incrementAndGet();
+    }
+
+    @Override
+    public void onNodeQueued(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context) {
+        readyQueueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void onNodeStarted(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+        readyQueueDepth.decrementAndGet();
+        activeNodes.incrementAndGet();
+    }
+
+    @Override
+    public void onNodeFinished(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context,
+                               AgentResult result, long durationNanos) {
+        activeNodes.decrementAndGet();
+        int outcome = result != null && result.isSuccess() ? OUTCOME_SUCCESS : OUTCOME_FAILURE;
+        nodeTimers(node.getAgent().getAgentId())[outcome].record(durationNanos, TimeUnit.NANOSECONDS);
+        NodeCost cost = result != null ? result.getCost() : null;
+        if (cost != null) {
+            Counter[] counters = nodeCostCounters(node.getAgent().getAgentId());
+            if (cost.getCpuNanos() > 0) {
+                counters[COST_CPU].increment(cost.getCpuNanos() / 1e9);
+            }
+            if (cost.getAllocatedBytes() > 0) {
+                counters[COST_ALLOCATED].increment(cost.getAllocatedBytes());
+            }
+            counters[COST_SENT].increment(cost.getBytesSent());
+            counters[COST_RECEIVED].increment(cost.getBytesReceived());
+        }
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context,
+                                   long durationNanos, Throwable error) {
+        inFlightWorkflows.decrementAndGet();
+        workflowTimers(workflow.getWorkflowType())[workflowOutcome(context, error)]
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private int workflowOutcome(WorkflowContext context, Throwable error) {
+        if (error != null) {
+            return isTimeout(error) ? OUTCOME_TIMEOUT : OUTCOME_FAILURE;
+        }
+        for (AgentResult result : context.getAgentResults().values()) {
+            if (!result.isSuccess()) {
+                return OUTCOME_FAILURE;
+            }
+        }
+        return OUTCOME_SUCCESS;
+    }
+
+    private Timer[] workflowTimers(String workflowType) {
+        Timer[] timers = workflowTimers.get(workflowType);
+        if (timers == null) {
+            timers = workflowTimers.computeIfAbsent(workflowType,
+                    type -> outcomeTimers(WORKFLOW_DURATION, "工作流执行耗时", "type", type));
+        }
+        return timers;
+    }
+
+    private Timer[] nodeTimers(String agentId) {
+        Timer[] timers = nodeTimers.get(agentId);
+        if (timers == null) {
+            timers = nodeTimers.computeIfAbsent(agentId,
+                    agent -> outcomeTimers(NODE_DURATION, "节点（Agent）执行耗时", "agent", agent));
+        }
+        return timers;
+    }
+
+    /**
+     * 按Agent累计的资源消耗计数器：CPU秒数、分配字节、发送/接收字节
+     */
+    private Counter[] nodeCostCounters(String agentId) {
+        Counter[] counters = nodeCostCounters.get(agentId);
+        if (counters == null) {
+            counters = nodeCostCounters.computeIfAbsent(agentId, agent -> new Counter[]{
+                    Counter.builder(NODE_CPU).description("节点执行线程上的CPU时间").baseUnit("seconds")
+                            .tag("agent", agent).register(registry),
+                    Counter.builder(NODE_ALLOCATED).description("节点执行线程上分配的堆内存").baseUnit("bytes")
+                            .tag("agent", agent).register(registry),
+                    Counter.builder(NODE_NETWORK).description("节点HTTP调用传输的请求体/响应体").baseUnit("bytes")
+                            .tag("agent", agent).tag("direction", "sent").register(registry),
+                    Counter.builder(NODE_NETWORK).description("节点HTTP调用传输的请求体/响应体").baseUnit("bytes")
+                            .tag("agent", agent).tag("direction", "received").register(registry)
+            });
+        }
+        return counters;
+    }
+
+    private Timer[] outcomeTimers(String name, String description, String tagKey, String tagValue) {
+        Timer[] timers = new Timer[OUTCOMES.length];
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            timers[i] = Timer.builder(name)
+                    .description(description)
+                    .tag(tagKey, tagValue)
+                    .tag("outcome", OUTCOMES[i])
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        return timers;
+    }
+
+    // ==================== 外部API调用 ====================
+
+    @Override
+    public void onApiCallAttempt(ApiRequest request, int attempt, long startNanos, long durationNanos,
+                                 ApiResponse response, Throwable error) {
+        int slot;
+        if (response == null) {
+            slot = isTimeout(error) ? STATUS_TIMEOUT : STATUS_ERROR;
+        } else if (response.isTimedOut()) {
+            slot = STATUS_TIMEOUT;
+        } else {
+            int status = response.getStatusCode();
+            slot = status > STATUS_TIMEOUT && status < STATUS_SLOTS ? status : STATUS_ERROR;
+        }
+        hostMeters(request.getUrl()).timer(slot).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private HostMeters hostMeters(String url) {
+        HostMeters meters = hostMetersByUrl.get(url);
+        if (meters == null) {
+            String host = hostOf(url);
+            meters = hostMeters.get(host);
+            if (meters == null) {
+                meters = hostMeters.size() < MAX_HOSTS ? hostMeters.computeIfAbsent(host, HostMeters::new)
+                        : hostMeters.computeIfAbsent(OTHER_HOST, HostMeters::new);
+            }
+            // URL数量可能无界，只缓存有限数量的URL到主机的映射
+            if (hostMetersByUrl.size() < MAX_CACHED_URLS) {
+                hostMetersByUrl.putIfAbsent(url, meters);
+            }
+        }
+        return meters;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "unknown";
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TimeoutException || t instanceof HttpTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 单个主机的HTTP耗时Timer，按状态码槽位懒加载
+     */
+    private final class HostMeters {
+
+        private final String host;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(STATUS_SLOTS);
+
+        private HostMeters(String host) {
+            this.host = host;
+        }
+
+        Timer timer(int slot) {
+            Timer timer = timers.get(slot);
+            if (timer == null) {
+                String status = slot == STATUS_ERROR ? "IO_ERROR" : slot == STATUS_TIMEOUT ? "TIMEOUT" : String.valueOf(slot);
+                timer = Timer.builder(HTTP_CLIENT_DURATION)
+                        .description("外部API调用耗时（每次尝试）")
+                        .tag("host", host)
+                        .tag("status", status)
+                        .publishPercentileHistogram()
+                        .register(registry);
+                timers.compareAndSet(slot, null, timer);
+            }
+            return timer;
+        }
+    }
+}
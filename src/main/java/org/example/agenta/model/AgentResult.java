@@ -1,7 +1,9 @@
 package org.example.agenta.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.experimental.Accessors;
+import org.example.agenta.blob.BlobHandle;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -19,11 +21,27 @@ public class AgentResult {
     private String errorMessage;
     private LocalDateTime executionTime;
     private Map<String, Object> metadata;
+    private NodeCost cost;  // 节点资源消耗，由工作流引擎在节点完成时填入
     
     public AgentResult() {
         this.executionTime = LocalDateTime.now();
     }
     
+    /**
+     * 获取结果，溢出到磁盘的结果在此读回
+     */
+    public Object getResult() {
+        return BlobHandle.resolve(result);
+    }
+    
+    /**
+     * 获取未读回的结果（可能是溢出句柄）
+     */
+    @JsonIgnore
+    public Object getRawResult() {
+        return result;
+    }
+    
     public static AgentResult success(String agentId, Object result) {
         return new AgentResult()
                 .setAgentId(agentId)
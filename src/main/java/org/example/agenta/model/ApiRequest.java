@@ -19,6 +19,9 @@ public class ApiRequest {
     private Object body;
     private int timeoutSeconds = 30;
     private int retryCount = 0;
+    private String workflowId;          // 发起调用的工作流ID，用于追踪关联
+    private long bytesSent;             // 各次尝试累计发送的请求体字节数
+    private long bytesReceived;         // 各次尝试累计接收的响应体字节数
     
     public ApiRequest() {
         this.headers = new HashMap<>();
@@ -29,6 +32,15 @@ public class ApiRequest {
         this.url = url;
     }
     
+    /**
+     * 累加一次尝试的传输字节数，重试是顺序进行的，不会并发调用
+     */
+    public ApiRequest addTransferredBytes(long sent, long received) {
+        this.bytesSent += sent;
+        this.bytesReceived += received;
+        return this;
+    }
+    
     /**
      * 添加请求头
      */
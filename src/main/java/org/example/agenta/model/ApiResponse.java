@@ -18,6 +18,7 @@ public class ApiResponse {
     private Object body;
     private Map<String, String> headers;
     private String errorMessage;
+    private boolean timedOut;           // 是否因超时失败
     private long executionTimeMs;
     private LocalDateTime responseTime;
     
@@ -54,4 +55,11 @@ public class ApiResponse {
                 .setSuccess(false)
                 .setErrorMessage(errorMessage);
     }
+    
+    /**
+     * 创建超时响应
+     */
+    public static ApiResponse timeout(String errorMessage) {
+        return error(errorMessage).setTimedOut(true);
+    }
 }
@@ -0,0 +1,226 @@
+package org.example.agenta.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 上下文数据存储
+ * 创建时已登记的 {@link ContextKey} 各占一个数组槽位，其余名称（含之后才登记的键）存放在并发Map中。
+ * 按键读写直接访问槽位；按字符串读写先查登记表再落到同一位置，两种方式看到的数据一致。
+ * 与 ConcurrentHashMap 一样不允许null值，可被多个线程并发读写；按字符串写入已登记的键时校验值的类型。
+ * 每个名称记录最近一次写入或删除的版本号（全局递增，删除后保留为墓碑），用于只传输变化的数据。
+ */
+final class ContextData extends AbstractMap<String, Object> {
+
+    private static final AtomicLong CLOCK = new AtomicLong();
+
+    private final ContextKey<?>[] keys = ContextKey.registered();
+    private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(keys.length);
+    private final AtomicLongArray slotVersions = new AtomicLongArray(keys.length);
+    private final Map<String, Object> others = new ConcurrentHashMap<>();
+    private final Map<String, Long> otherVersions = new ConcurrentHashMap<>();
+
+    Object get(ContextKey<?> key) {
+        int slot = key.slot();
+        return slot < keys.length ? slots.get(slot) : others.get(key.name());
+    }
+
+    Object put(ContextKey<?> key, Object value) {
+        Objects.requireNonNull(value);
+        int slot = key.slot();
+        if (slot < keys.length) {
+            Object previous = slots.getAndSet(slot, value);
+            slotVersions.set(slot, CLOCK.incrementAndGet());
+            return previous;
+        }
+        return putOther(key.name(), value);
+    }
+
+    Object remove(ContextKey<?> key) {
+        int slot = key.slot();
+        if (slot < keys.length) {
+            Object previous = slots.getAndSet(slot, null);
+            slotVersions.set(slot, CLOCK.incrementAndGet());
+            return previous;
+        }
+        return removeOther(key.name());
+    }
+
+    /**
+     * 按名称写入前校验值的类型，名称未登记时原样返回
+     * @throws IllegalArgumentException 值的类型与已登记的键不符
+     */
+    static Object checked(String name, Object value) {
+        ContextKey<?> key = ContextKey.lookup(name);
+        return key != null ? key.accept(value) : value;
+    }
+
+    private Object putOther(String name, Object value) {
+        Object previous = others.put(name, value);
+        otherVersions.put(name, CLOCK.incrementAndGet());
+        return previous;
+    }
+
+    private Object removeOther(Object name) {
+        Object previous = others.remove(name);
+        if (name instanceof String text) {
+            otherVersions.put(text, CLOCK.incrementAndGet());
+        }
+        return previous;
+    }
+
+    /**
+     * 名称最近一次写入或删除的版本号，从未写入时为0
+     */
+    long version(String name) {
+        ContextKey<?> key = ContextKey.lookup(name);
+        if (key != null && key.slot() < keys.length) {
+            return slotVersions.get(key.slot());
+        }
+        return otherVersions.getOrDefault(name, 0L);
+    }
+
+    /**
+     * 所有写入过的名称（含已删除的墓碑）及其版本号
+     */
+    Map<String, Long> versions() {
+        Map<String, Long> versions = new HashMap<>(otherVersions);
+        for (int i = 0; i < keys.length; i++) {
+            long version = slotVersions.get(i);
+            if (version != 0) {
+                versions.put(keys[i].name(), version);
+            }
+        }
+        return versions;
+    }
+
+    @Override
+    public Object get(Object name) {
+        ContextKey<?> key = ContextKey.lookup(name);
+        return key != null ? get(key) : others.get(name);
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return get(name) != null;
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+        ContextKey<?> key = ContextKey.lookup(name);
+        Objects.requireNonNull(value);
+        return key != null ? put(key, key.accept(value)) : putOther(name, value);
+    }
+
+    @Override
+    public Object remove(Object name) {
+        ContextKey<?> key = ContextKey.lookup(name);
+        return key != null ? remove(key) : removeOther(name);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            if (slots.getAndSet(i, null) != null) {
+                slotVersions.set(i, CLOCK.incrementAndGet());
+            }
+        }
+        others.keySet().forEach(this::removeOther);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                int size = others.size();
+                for (int i = 0; i < keys.length; i++) {
+                    if (slots.get(i) != null) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 先遍历非空槽位，再遍历其余名称；条目的 setValue 写回存储
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private final Iterator<Entry<String, Object>> rest = others.entrySet().iterator();
+        private int slot = -1;
+        private Entry<String, Object> next;
+        private String lastName;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (++slot < keys.length) {
+                Object value = slots.get(slot);
+                if (value != null) {
+                    next = new SlotEntry(keys[slot].name(), value);
+                    return true;
+                }
+            }
+            slot = keys.length;
+            if (rest.hasNext()) {
+                Entry<String, Object> entry = rest.next();
+                next = new SlotEntry(entry.getKey(), entry.getValue());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = next;
+            next = null;
+            lastName = entry.getKey();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastName == null) {
+                throw new IllegalStateException();
+            }
+            ContextData.this.remove(lastName);
+            lastName = null;
+        }
+    }
+
+    private final class SlotEntry extends SimpleEntry<String, Object> {
+
+        SlotEntry(String name, Object value) {
+            super(name, value);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.agenta.model;
+
+import org.example.agenta.blob.BlobHandle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 带类型的上下文键
+ * 键在创建时登记并分配固定槽位，之后创建的上下文为每个槽位预留数组位置，
+ * 通过键读写只是一次数组下标访问，不需要字符串哈希，也不需要调用方强制转换。
+ * 同名的键全局唯一，按字符串读写同名数据时落在同一槽位。
+ */
+public final class ContextKey<T> {
+
+    private static final Map<String, ContextKey<?>> KEYS = new ConcurrentHashMap<>();
+    private static final List<ContextKey<?>> SLOTS = new ArrayList<>();  // 由 SLOTS 自身同步
+    private static volatile ContextKey<?>[] registered = new ContextKey<?>[0];
+
+    private final String name;
+    private final Class<T> type;
+    private final int slot;
+
+    private ContextKey(String name, Class<T> type, int slot) {
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+    }
+
+    /**
+     * 获取或登记键，同名键的类型必须一致
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        ContextKey<?> key = KEYS.get(name);
+        if (key == null) {
+            synchronized (SLOTS) {
+                key = KEYS.get(name);
+                if (key == null) {
+                    key = new ContextKey<>(name, type, SLOTS.size());
+                    SLOTS.add(key);
+                    registered = SLOTS.toArray(new ContextKey<?>[0]);
+                    KEYS.put(name, key);
+                }
+            }
+        }
+        if (key.type != type) {
+            throw new IllegalArgumentException("上下文键 " + name + " 已登记为 " + key.type.getSimpleName()
+                    + "，不能再登记为 " + type.getSimpleName());
+        }
+        return (ContextKey<T>) key;
+    }
+
+    /**
+     * 按名称查找已登记的键，未登记时返回null
+     */
+    static ContextKey<?> lookup(Object name) {
+        return name instanceof String ? KEYS.get(name) : null;
+    }
+
+    /**
+     * 当前已登记的键，下标即槽位；数组不会被修改，可直接共享
+     */
+    static ContextKey<?>[] registered() {
+        return registered;
+    }
+
+    /**
+     * 校验按名称写入的值：类型须与键一致，整数放宽为 Long（如经JSON传递的截止时间），溢出句柄原样保留
+     * @throws IllegalArgumentException 值的类型与键不符
+     */
+    Object accept(Object value) {
+        if (type.isInstance(value) || value instanceof BlobHandle) {
+            return value;
+        }
+        if (type == Long.class && (value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+            return ((Number) value).longValue();
+        }
+        throw new IllegalArgumentException("上下文数据 " + name + " 的类型应为 " + type.getSimpleName()
+                + "，实际为 " + value.getClass().getSimpleName());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey{" + name + ": " + type.getSimpleName() + "}";
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.agenta.model;
+
+/**
+ * 响应字段选择参数无法识别
+ */
+public class InvalidFieldsException extends IllegalArgumentException {
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
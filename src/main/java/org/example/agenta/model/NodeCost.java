@@ -0,0 +1,59 @@
+package org.example.agenta.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 节点资源消耗
+ * 墙钟时间由工作流引擎统计；CPU时间和分配字节为执行线程上的增量（ThreadMXBean），
+ * 不支持时为 -1；网络字节由发起HTTP调用的Agent上报，为请求体/响应体大小。
+ */
+@Data
+@Accessors(chain = true)
+public class NodeCost {
+    
+    private long wallNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long bytesSent;
+    private long bytesReceived;
+    
+    /**
+     * 累加另一份消耗，CPU或分配字节任一方不可用（-1）时结果不可用
+     */
+    public NodeCost add(NodeCost other) {
+        if (other == null) {
+            return this;
+        }
+        this.wallNanos += other.wallNanos;
+        this.cpuNanos = this.cpuNanos < 0 || other.cpuNanos < 0 ? -1 : this.cpuNanos + other.cpuNanos;
+        this.allocatedBytes = this.allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : this.allocatedBytes + other.allocatedBytes;
+        this.bytesSent += other.bytesSent;
+        this.bytesReceived += other.bytesReceived;
+        return this;
+    }
+    
+    /**
+     * 计算字符串的UTF-8编码长度，不分配字节数组
+     */
+    public static long utf8Length(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
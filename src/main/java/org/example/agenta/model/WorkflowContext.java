@@ -1,59 +1,190 @@
 package org.example.agenta.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.experimental.Accessors;
+import org.example.agenta.blob.BlobHandle;
+import org.example.agenta.blob.BlobScope;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Workflow执行上下文，用于在Agent之间传递数据
+ * 并行节点会在不同线程上同时读写上下文，因此使用并发存储
+ * 已登记的 {@link ContextKey} 按槽位存放，通过键读写不需要字符串查找和强制转换
+ * 挂上 BlobScope 后，超过阈值的数据和结果溢出到磁盘，读取时透明读回
  */
 @Data
 @Accessors(chain = true)
 public class WorkflowContext {
     
+    /** 工作流输入 */
+    public static final ContextKey<Object> INPUT = ContextKey.of("input", Object.class);
+    /** API调用配置 */
+    public static final ContextKey<Object> API_CONFIG = ContextKey.of("apiConfig", Object.class);
+    /** 截止时间（epoch毫秒），LLM调度按此排定请求的先后 */
+    public static final ContextKey<Long> DEADLINE = ContextKey.of("deadline", Long.class);
+    
+    private static final ObjectMapper RESULT_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    
     private String workflowId;
-    private Map<String, Object> data;
+    private Map<String, Object> data;  // 始终为 ContextData
     private Map<String, AgentResult> agentResults;
     private String currentStep;
     
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BlobScope blobScope;  // 大值溢出作用域，未启用时为null
+    
     public WorkflowContext() {
         this.workflowId = UUID.randomUUID().toString();
-        this.data = new HashMap<>();
-        this.agentResults = new HashMap<>();
+        this.data = new ContextData();
+        this.agentResults = new ConcurrentHashMap<>();
     }
     
     public WorkflowContext(String workflowId) {
         this.workflowId = workflowId;
-        this.data = new HashMap<>();
-        this.agentResults = new HashMap<>();
+        this.data = new ContextData();
+        this.agentResults = new ConcurrentHashMap<>();
     }
     
     /**
      * 添加数据到上下文
+     * @throws IllegalArgumentException 名称为已登记的键（如 deadline）而值的类型不符
      */
     public WorkflowContext addData(String key, Object value) {
-        this.data.put(key, value);
+        if (value == null) {
+            this.data.remove(key);  // 并发Map不允许null值，null等同于未设置
+            return this;
+        }
+        // 先按登记的类型校验再溢出，溢出后的句柄无法再校验
+        Object checked = ContextData.checked(key, value);
+        BlobScope scope = this.blobScope;
+        Object previous = this.data.put(key, scope != null ? scope.spill(checked) : checked);
+        if (scope != null && previous != null) {
+            scope.discard(previous);
+        }
+        return this;
+    }
+    
+    /**
+     * 替换全部数据，内容复制到槽位存储中
+     */
+    public WorkflowContext setData(Map<String, Object> data) {
+        ContextData copy = new ContextData();
+        data.forEach((key, value) -> {
+            if (value != null) {
+                copy.put(key, value);
+            }
+        });
+        this.data = copy;
         return this;
     }
     
     /**
-     * 获取数据
+     * 按键写入数据，null等同于删除
+     */
+    public <T> WorkflowContext put(ContextKey<T> key, T value) {
+        ContextData slots = (ContextData) this.data;
+        if (value == null) {
+            slots.remove(key);
+            return this;
+        }
+        BlobScope scope = this.blobScope;
+        Object previous = slots.put(key, scope != null ? scope.spill(value) : value);
+        if (scope != null && previous != null) {
+            scope.discard(previous);
+        }
+        return this;
+    }
+    
+    /**
+     * 按键读取数据，直接访问槽位
+     */
+    public <T> T get(ContextKey<T> key) {
+        return key.type().cast(BlobHandle.resolve(((ContextData) this.data).get(key)));
+    }
+    
+    /**
+     * 获取数据，溢出到磁盘的值在此读回
      */
     public Object getData(String key) {
-        return this.data.get(key);
+        return BlobHandle.resolve(this.data.get(key));
+    }
+    
+    /**
+     * 数据最近一次写入或删除的版本号，从未写入时为0
+     * 每次 addData / put 都会得到新版本，原地修改了值的Agent需重新写入才能被工作进程池感知
+     */
+    public long dataVersion(String key) {
+        return ((ContextData) this.data).version(key);
+    }
+    
+    /**
+     * 所有写入过的数据名称（含已删除的）及其版本号，工作进程池据此只发送变化的数据与删除
+     */
+    public Map<String, Long> dataVersions() {
+        return ((ContextData) this.data).versions();
+    }
+    
+    /**
+     * 以只读ByteBuffer获取数据，溢出的值直接返回映射区视图而不复制到堆上
+     * 只支持String（UTF-8编码）和byte[]，不存在时返回null
+     */
+    public ByteBuffer getDataBuffer(String key) {
+        Object value = this.data.get(key);
+        if (value instanceof BlobHandle handle) {
+            return handle.asByteBuffer();
+        }
+        if (value instanceof String text) {
+            return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        }
+        if (value instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+        if (value == null) {
+            return null;
+        }
+        throw new IllegalArgumentException("数据不是文本或字节: " + key);
     }
     
     /**
      * 添加Agent执行结果
      */
     public WorkflowContext addAgentResult(String agentId, AgentResult result) {
-        this.agentResults.put(agentId, result);
+        BlobScope scope = this.blobScope;
+        if (scope != null) {
+            result.setResult(scope.spill(result.getRawResult()));
+        }
+        AgentResult previous = this.agentResults.put(agentId, result);
+        if (scope != null && previous != null && previous != result) {
+            scope.discard(previous.getRawResult());
+        }
         return this;
     }
     
+    /**
+     * 释放溢出到磁盘的值，上下文的使用方读取完毕后调用；之后不能再读取这些值
+     */
+    public void releaseBlobs() {
+        if (this.blobScope != null) {
+            this.blobScope.close();
+        }
+    }
+    
     /**
      * 获取Agent执行结果
      */
@@ -61,6 +192,30 @@ public class WorkflowContext {
         return this.agentResults.get(agentId);
     }
     
+    /**
+     * 按类型获取成功执行的Agent结果，Agent未完成或失败时返回null
+     * 经过JSON传递的结果（如工作进程回传）是Map，在此转换为目标类型；
+     * 未启用大值溢出时替换原结果，只转换一次
+     */
+    public <T> T getResult(String agentId, Class<T> type) {
+        AgentResult result = this.agentResults.get(agentId);
+        if (result == null || !result.isSuccess()) {
+            return null;
+        }
+        Object value = result.getResult();
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        if (!(value instanceof Map<?, ?>)) {
+            throw new ClassCastException(agentId + " 的结果不是 " + type.getSimpleName() + ": " + value.getClass().getName());
+        }
+        T converted = RESULT_MAPPER.convertValue(value, type);
+        if (this.blobScope == null) {
+            result.setResult(converted);
+        }
+        return converted;
+    }
+    
     /**
      * 检查Agent是否已完成
      */
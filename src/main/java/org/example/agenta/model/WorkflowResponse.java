@@ -0,0 +1,138 @@
+package org.example.agenta.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 工作流执行结果的响应视图
+ * 按请求选择输出的字段，序列化时直接从上下文流式写出，未选择的字段（中间节点结果、上下文数据等）不会被访问。
+ *
+ * 字段：
+ * - summary  执行摘要与各节点成功/失败状态
+ * - report   终端节点（没有其他节点依赖）的结果，通常即最终报告
+ * - results  全部节点的 AgentResult
+ * - context  完整上下文（含输入与中间数据）
+ * 缺省为 summary,report；verbose=true 时输出全部字段。
+ * 写出后释放上下文中溢出到磁盘的值。
+ */
+@JsonSerialize(using = WorkflowResponse.Serializer.class)
+public class WorkflowResponse {
+
+    public enum Field {
+        SUMMARY, REPORT, RESULTS, CONTEXT
+    }
+
+    public static final Set<Field> DEFAULT_FIELDS = EnumSet.of(Field.SUMMARY, Field.REPORT);
+
+    private final Map<String, Object> summary;
+    private final WorkflowContext context;
+    private final Set<String> terminalAgentIds;
+    private final Set<Field> fields;
+
+    /**
+     * @param summary          WorkflowService 返回的执行摘要，其中的 context 项作为上下文
+     * @param terminalAgentIds 终端节点的AgentId
+     * @param fields           要输出的字段
+     */
+    public WorkflowResponse(Map<String, Object> summary, Set<String> terminalAgentIds, Set<Field> fields) {
+        this.summary = summary;
+        this.context = (WorkflowContext) summary.get("context");
+        this.terminalAgentIds = terminalAgentIds;
+        this.fields = fields;
+    }
+
+    /**
+     * 解析请求参数
+     * @param fields  逗号分隔的字段名，为空时取默认字段
+     * @param verbose 为true时输出全部字段
+     * @throws InvalidFieldsException 字段名无法识别
+     */
+    public static Set<Field> parseFields(String fields, boolean verbose) {
+        if (verbose) {
+            return EnumSet.allOf(Field.class);
+        }
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT_FIELDS;
+        }
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                selected.add(Field.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFieldsException("未知的字段: " + name.trim() + "，可选: "
+                        + Arrays.toString(Field.values()).toLowerCase(Locale.ROOT));
+            }
+        }
+        return selected;
+    }
+
+    static class Serializer extends StdSerializer<WorkflowResponse> {
+
+        Serializer() {
+            super(WorkflowResponse.class);
+        }
+
+        @Override
+        public void serialize(WorkflowResponse response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            WorkflowContext context = response.context;
+            try {
+                write(response, context, gen, provider);
+            } finally {
+                context.releaseBlobs();  // 响应是上下文的最后使用方，写出后释放溢出文件
+            }
+        }
+
+        private void write(WorkflowResponse response, WorkflowContext context, JsonGenerator gen,
+                           SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            if (response.fields.contains(Field.SUMMARY)) {
+                for (Map.Entry<String, Object> entry : response.summary.entrySet()) {
+                    if (!"context".equals(entry.getKey())) {
+                        provider.defaultSerializeField(entry.getKey(), entry.getValue(), gen);
+                    }
+                }
+                gen.writeObjectFieldStart("nodes");
+                for (Map.Entry<String, AgentResult> entry : context.getAgentResults().entrySet()) {
+                    gen.writeObjectFieldStart(entry.getKey());
+                    gen.writeBooleanField("success", entry.getValue().isSuccess());
+                    if (entry.getValue().getErrorMessage() != null) {
+                        gen.writeStringField("errorMessage", entry.getValue().getErrorMessage());
+                    }
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+            } else {
+                gen.writeStringField("workflowId", context.getWorkflowId());
+            }
+            if (response.fields.contains(Field.REPORT)) {
+                gen.writeObjectFieldStart("report");
+                for (String agentId : response.terminalAgentIds) {
+                    AgentResult result = context.getAgentResult(agentId);
+                    if (result != null && result.isSuccess()) {
+                        provider.defaultSerializeField(agentId, result.getResult(), gen);
+                    }
+                }
+                gen.writeEndObject();
+            }
+            if (response.fields.contains(Field.RESULTS)) {
+                provider.defaultSerializeField("results", context.getAgentResults(), gen);
+            }
+            if (response.fields.contains(Field.CONTEXT)) {
+                provider.defaultSerializeField("context", context, gen);
+            }
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.example.agenta.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 出站API调用的自适应并发限制，按目标主机分别限流
+ * 采用Vegas式的梯度算法：以观测到的最小RTT为无排队基线，估算排队数 limit * (1 - minRtt / rtt)，
+ * 排队少于 alpha 且并发确实用满时上调限制，多于 beta 时下调；超时、连接失败、429与5xx视为过载，限制按比例收缩。
+ * 同一批在途调用的过载只收缩一次。超过限制的调用异步排队，不占用线程；
+ * 每 probeSamples 个样本重置一次基线，跟随后端性能的长期变化。
+ * 目标主机来自请求中的URL，最多跟踪 maxHosts 个：超出时淘汰最久未使用的空闲主机（连同其指标），
+ * 全部主机都在使用时新主机共用 "other" 的限制。
+ */
+@Component
+@ConditionalOnProperty(name = "agenta.api.concurrency.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    static final String OTHER_HOST = "other";
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final double backoffRatio;
+    private final int probeSamples;
+    private final int maxHosts;
+    private final Map<String, HostLimit> hosts = new ConcurrentHashMap<>();
+    private MeterRegistry registry;
+
+    public AdaptiveConcurrencyLimiter(@Value("${agenta.api.concurrency.initial-limit:20}") int initialLimit,
+                                      @Value("${agenta.api.concurrency.min-limit:1}") int minLimit,
+                                      @Value("${agenta.api.concurrency.max-limit:200}") int maxLimit,
+                                      @Value("${agenta.api.concurrency.max-queued:1000}") int maxQueued,
+                                      @Value("${agenta.api.concurrency.backoff-ratio:0.9}") double backoffRatio,
+                                      @Value("${agenta.api.concurrency.probe-samples:500}") int probeSamples,
+                                      @Value("${agenta.api.concurrency.max-hosts:256}") int maxHosts) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.backoffRatio = backoffRatio;
+        this.probeSamples = probeSamples;
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * 绑定指标：agenta.api.concurrency.limit{host} 与 agenta.api.concurrency.inflight{host}
+     */
+    @Autowired(required = false)
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        hosts.values().forEach(this::register);
+    }
+
+    /**
+     * 在目标主机的并发限制内执行一次调用，达到限制时排队
+     * @return 排队超过上限时以 RejectedExecutionException 失败
+     */
+    public CompletableFuture<ApiResponse> run(String url, Supplier<CompletableFuture<ApiResponse>> call) {
+        HostLimit host = host(hostOf(url));
+        return host.acquire().thenCompose(ignored -> {
+            long startNanos = System.nanoTime();
+            CompletableFuture<ApiResponse> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            return future.whenComplete((response, error) ->
+                    host.release(startNanos, System.nanoTime() - startNanos, isOverload(response, error)));
+        });
+    }
+
+    /**
+     * 当前并发限制，主机尚未出现时返回初始值
+     */
+    public int getLimit(String host) {
+        HostLimit limit = hosts.get(host);
+        return limit != null ? limit.effectiveLimit() : initialLimit;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        hosts.forEach((name, host) -> status.put(name, host.snapshot()));
+        return status;
+    }
+
+    /**
+     * 查找或创建主机的限制；新建时若已达上限，先淘汰最久未使用的空闲主机，没有空闲主机则归入 "other"
+     */
+    private HostLimit host(String name) {
+        HostLimit host = hosts.get(name);
+        if (host == null) {
+            synchronized (hosts) {
+                host = hosts.get(name);
+                if (host == null) {
+                    if (hosts.size() >= maxHosts && !evictIdle()) {
+                        name = OTHER_HOST;
+                        host = hosts.get(name);
+                    }
+                    if (host == null) {
+                        host = new HostLimit(name);
+                        register(host);
+                        hosts.put(name, host);
+                    }
+                }
+            }
+        }
+        host.lastUsedNanos = System.nanoTime();
+        return host;
+    }
+
+    /**
+     * 淘汰最久未使用的空闲主机并注销其指标；淘汰前刚取到该主机的调用仍按旧状态正常执行
+     * 调用方持有 hosts 的锁
+     */
+    private boolean evictIdle() {
+        HostLimit oldest = null;
+        for (HostLimit host : hosts.values()) {
+            if (!host.name.equals(OTHER_HOST) && host.isIdle()
+                    && (oldest == null || host.lastUsedNanos - oldest.lastUsedNanos < 0)) {
+                oldest = host;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        hosts.remove(oldest.name);
+        MeterRegistry meters = this.registry;
+        if (meters != null) {
+            oldest.meters.forEach(meters::remove);
+        }
+        return true;
+    }
+
+    private void register(HostLimit host) {
+        MeterRegistry meters = this.registry;
+        if (meters == null) {
+            return;
+        }
+        host.meters.add(Gauge.builder("agenta.api.concurrency.limit", host, HostLimit::effectiveLimit)
+                .description("目标主机当前的自适应并发限制").tag("host", host.name).register(meters));
+        host.meters.add(Gauge.builder("agenta.api.concurrency.inflight", host, HostLimit::inFlight)
+                .description("目标主机在途的API调用数").tag("host", host.name).register(meters));
+    }
+
+    private static boolean isOverload(ApiResponse response, Throwable error) {
+        if (error != null || response == null || response.isTimedOut()) {
+            return true;
+        }
+        int status = response.getStatusCode();
+        return status == 0 || status == 429 || status >= 500;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getHost() != null ? uri.getHost() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "") : "unknown";
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 单个目标主机的限制与排队，状态在自身锁内修改，放行在锁外进行
+     */
+    private final class HostLimit {
+
+        private final String name;
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private final List<Meter> meters = new CopyOnWriteArrayList<>();
+        private volatile long lastUsedNanos = System.nanoTime();
+        private double limit = initialLimit;
+        private int inFlight;
+        private long minRttNanos = Long.MAX_VALUE;
+        private int samples;
+        private long lastBackoffNanos = System.nanoTime();
+
+        private HostLimit(String name) {
+            this.name = name;
+        }
+
+        private synchronized int effectiveLimit() {
+            return (int) limit;
+        }
+
+        private synchronized int inFlight() {
+            return inFlight;
+        }
+
+        private synchronized boolean isIdle() {
+            return inFlight == 0 && waiters.isEmpty();
+        }
+
+        private CompletableFuture<Void> acquire() {
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (waiters.size() < maxQueued) {
+                    CompletableFuture<Void> waiter = new CompletableFuture<>();
+                    waiters.add(waiter);
+                    return waiter;
+                }
+            }
+            return CompletableFuture.failedFuture(new RejectedExecutionException("目标主机并发排队已满: " + name));
+        }
+
+        private void release(long startNanos, long rttNanos, boolean overload) {
+            List<CompletableFuture<Void>> admitted = new ArrayList<>();
+            synchronized (this) {
+                int used = inFlight;
+                inFlight--;
+                update(startNanos, rttNanos, overload, used);
+                while (inFlight < (int) limit && !waiters.isEmpty()) {
+                    inFlight++;
+                    admitted.add(waiters.poll());
+                }
+            }
+            admitted.forEach(waiter -> waiter.complete(null));
+        }
+
+        private void update(long startNanos, long rttNanos, boolean overload, int used) {
+            double previous = limit;
+            if (overload) {
+                // 同一批在途调用的连续失败只收缩一次，避免限制瞬间降到底；
+                // 按调用的开始时间判断，不受线程在结束与加锁之间被挂起的影响
+                if (startNanos > lastBackoffNanos) {
+                    lastBackoffNanos = System.nanoTime();
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                }
+            } else {
+                if (++samples >= probeSamples) {
+                    samples = 0;
+                    minRttNanos = rttNanos;
+                }
+                minRttNanos = Math.min(minRttNanos, Math.max(rttNanos, 1));
+                double queue = limit * (1 - (double) minRttNanos / Math.max(rttNanos, 1));
+                double step = Math.max(1, Math.log10(limit));
+                if (queue <= 3 * step) {
+                    // 并发没有用满时RTT不反映容量，不上调
+                    if (used * 2 >= (int) limit) {
+                        limit = Math.min(maxLimit, limit + step);
+                    }
+                } else if (queue > 6 * step) {
+                    limit = Math.max(minLimit, limit - step);
+                }
+            }
+            if ((int) previous != (int) limit && log.isDebugEnabled()) {
+                log.debug("主机 {} 并发限制 {} -> {}，RTT: {}ms，基线: {}ms", name, (int) previous, (int) limit,
+                        TimeUnit.NANOSECONDS.toMillis(rttNanos), TimeUnit.NANOSECONDS.toMillis(minRttNanos));
+            }
+        }
+
+        private synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("limit", (int) limit);
+            snapshot.put("inFlight", inFlight);
+            snapshot.put("queued", waiters.size());
+            snapshot.put("minRttMs", minRttNanos == Long.MAX_VALUE ? null
+                    : TimeUnit.NANOSECONDS.toMillis(minRttNanos));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.example.agenta.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * API调用合并
+ * 相同的GET请求（URL与请求头一致）在途时只发出一次，后到的调用共享同一响应；
+ * 声明为支持批量的端点，窗口期内的单条GET合并为一次批量请求，再按ID拆分响应分发给各调用方。
+ * 批量端点格式为 {@code 单条URL模式|批量URL|ID字段}，如
+ * {@code https://api.example.com/users/{id}|https://api.example.com/users?ids={ids}|id}，
+ * 批量响应可以是带ID字段的对象数组，也可以是以ID为键的对象；无法解析时逐条重发。
+ */
+@Component
+@ConditionalOnProperty(name = "agenta.api.coalescing.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ApiCallCoalescer {
+
+    /**
+     * 支持批量的端点
+     * @param urlPattern 单条请求的URL，{id} 处为资源ID
+     * @param bulkUrl    批量请求的URL，{ids} 替换为逗号分隔的ID
+     * @param idField    批量响应数组中每个元素的ID字段
+     */
+    public record BatchEndpoint(String urlPattern, String bulkUrl, String idField) {
+
+        /**
+         * 解析 {@code 单条URL模式|批量URL|ID字段}，ID字段省略时为 id
+         */
+        public static BatchEndpoint parse(String spec) {
+            String[] parts = spec.trim().split("\\|");
+            if (parts.length < 2 || !parts[0].contains("{id}") || !parts[1].contains("{ids}")) {
+                throw new IllegalArgumentException("批量端点格式应为 单条URL模式|批量URL|ID字段: " + spec);
+            }
+            return new BatchEndpoint(parts[0].trim(), parts[1].trim(), parts.length > 2 ? parts[2].trim() : "id");
+        }
+    }
+
+    private record Endpoint(BatchEndpoint declared, Pattern pattern) {
+    }
+
+    private record Waiter(ApiRequest request, CompletableFuture<ApiResponse> future) {
+    }
+
+    private static final class Batch {
+
+        private final Endpoint endpoint;
+        private final Map<String, String> headers;
+        private final Function<ApiRequest, CompletableFuture<ApiResponse>> transport;
+        private final Map<String, List<Waiter>> waiters = new LinkedHashMap<>();
+
+        private Batch(Endpoint endpoint, Map<String, String> headers,
+                      Function<ApiRequest, CompletableFuture<ApiResponse>> transport) {
+            this.endpoint = endpoint;
+            this.headers = headers;
+            this.transport = transport;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+    private final Map<String, CompletableFuture<ApiResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong batchedCalls = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public ApiCallCoalescer(ObjectMapper objectMapper,
+                            @Value("${agenta.api.batch.window-ms:10}") long windowMillis,
+                            @Value("${agenta.api.batch.max-size:50}") int maxBatchSize,
+                            @Value("${agenta.api.batch.endpoints:}") List<String> batchEndpoints) {
+        this.objectMapper = objectMapper;
+        this.window = Duration.ofMillis(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        batchEndpoints.stream()
+                .filter(spec -> !spec.isBlank())
+                .map(BatchEndpoint::parse)
+                .forEach(this::registerBatchEndpoint);
+    }
+
+    /**
+     * 绑定指标：agenta.api.coalesced{type=dedup|batched} 与 agenta.api.bulk.requests
+     */
+    @Autowired(required = false)
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("agenta.api.coalesced", deduplicated, AtomicLong::get)
+                .description("共享在途请求而未发出的API调用").tag("type", "dedup").register(registry);
+        FunctionCounter.builder("agenta.api.coalesced", batchedCalls, AtomicLong::get)
+                .description("合并进批量请求的API调用").tag("type", "batched").register(registry);
+        FunctionCounter.builder("agenta.api.bulk.requests", bulkRequests, AtomicLong::get)
+                .description("发出的批量请求").register(registry);
+    }
+
+    /**
+     * 声明支持批量的端点
+     */
+    public void registerBatchEndpoint(BatchEndpoint endpoint) {
+        String[] parts = endpoint.urlPattern().split("\\{id}", -1);
+        Pattern pattern = Pattern.compile(Pattern.quote(parts[0]) + "([^/?#]+)"
+                + (parts.length > 1 ? Pattern.quote(parts[1]) : ""));
+        endpoints.add(new Endpoint(endpoint, pattern));
+        log.info("批量API端点: {} -> {}", endpoint.urlPattern(), endpoint.bulkUrl());
+    }
+
+    /**
+     * 经合并后调用API，非GET请求直接交给 transport
+     * @param transport 实际发起请求的调用服务
+     */
+    public CompletableFuture<ApiResponse> callAsync(ApiRequest request,
+                                                    Function<ApiRequest, CompletableFuture<ApiResponse>> transport) {
+        if (!"GET".equalsIgnoreCase(request.getMethod()) || request.getUrl() == null) {
+            return transport.apply(request);
+        }
+        for (Endpoint endpoint : endpoints) {
+            Matcher matcher = endpoint.pattern().matcher(request.getUrl());
+            if (matcher.matches()) {
+                return enqueue(endpoint, matcher.group(1), request, transport);
+            }
+        }
+        return deduplicate(request, transport);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("inFlight", inFlight.size());
+        status.put("deduplicated", deduplicated.get());
+        status.put("batchedCalls", batchedCalls.get());
+        status.put("bulkRequests", bulkRequests.get());
+        status.put("fallbacks", fallbacks.get());
+        return status;
+    }
+
+    /**
+     * 相同请求在途时共享其响应，各调用方拿到独立的响应对象
+     */
+    private CompletableFuture<ApiResponse> deduplicate(ApiRequest request,
+                                                       Function<ApiRequest, CompletableFuture<ApiResponse>> transport) {
+        String key = request.getUrl() + ' ' + new TreeMap<>(request.getHeaders());
+        CompletableFuture<ApiResponse> mine = new CompletableFuture<>();
+        CompletableFuture<ApiResponse> shared = inFlight.putIfAbsent(key, mine);
+        if (shared != null) {
+            deduplicated.incrementAndGet();
+            return shared.thenApply(ApiCallCoalescer::copy);
+        }
+        transport.apply(request).whenComplete((response, error) -> {
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(response);
+            }
+        });
+        return mine;
+    }
+
+    private CompletableFuture<ApiResponse> enqueue(Endpoint endpoint, String id, ApiRequest request,
+                                                   Function<ApiRequest, CompletableFuture<ApiResponse>> transport) {
+        CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+        String groupKey = endpoint.declared().urlPattern() + ' ' + new TreeMap<>(request.getHeaders());
+        Batch full = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(groupKey);
+            if (batch == null) {
+                Batch created = new Batch(endpoint, new HashMap<>(request.getHeaders()), transport);
+                openBatches.put(groupKey, created);
+                CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS)
+                        .execute(() -> flushIfOpen(groupKey, created));
+                batch = created;
+            }
+            batch.waiters.computeIfAbsent(id, key -> new ArrayList<>()).add(new Waiter(request, future));
+            if (batch.waiters.size() >= maxBatchSize) {
+                openBatches.remove(groupKey);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    private void flushIfOpen(String groupKey, Batch batch) {
+        synchronized (openBatches) {
+            if (!openBatches.remove(groupKey, batch)) {
+                return;  // 已凑满发出
+            }
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        if (batch.waiters.size() == 1) {
+            // 只有一个ID时原样请求
+            batch.waiters.values().forEach(waiters -> sendIndividually(batch.transport, waiters));
+            return;
+        }
+        bulkRequests.incrementAndGet();
+        batchedCalls.addAndGet(batch.waiters.values().stream().mapToInt(List::size).sum());
+        String ids = batch.waiters.keySet().stream()
+                .map(id -> URLEncoder.encode(id, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(","));
+        ApiRequest bulk = ApiRequest.get(batch.endpoint.declared().bulkUrl().replace("{ids}", ids));
+        batch.headers.forEach(bulk::addHeader);
+        for (List<Waiter> waiters : batch.waiters.values()) {
+            for (Waiter waiter : waiters) {
+                bulk.setTimeoutSeconds(Math.max(bulk.getTimeoutSeconds(), waiter.request().getTimeoutSeconds()));
+                bulk.setRetryCount(Math.max(bulk.getRetryCount(), waiter.request().getRetryCount()));
+            }
+        }
+        log.debug("合并 {} 个ID为批量请求: {}", batch.waiters.size(), bulk.getUrl());
+
+        batch.transport.apply(bulk).whenComplete((response, error) -> {
+            if (error != null) {
+                batch.waiters.values().forEach(waiters -> waiters.forEach(w -> w.future().completeExceptionally(error)));
+                return;
+            }
+            if (!response.isSuccess()) {
+                batch.waiters.values().forEach(waiters -> waiters.forEach(w -> w.future().complete(copy(response))));
+                return;
+            }
+            Map<String, JsonNode> items = split(response.getBody(), batch.endpoint.declared().idField(),
+                    batch.waiters.keySet());
+            if (items == null) {
+                fallbacks.incrementAndGet();
+                log.warn("批量响应无法按ID拆分，逐条重发: {}", bulk.getUrl());
+                batch.waiters.values().forEach(waiters -> sendIndividually(batch.transport, waiters));
+                return;
+            }
+            batch.waiters.forEach((id, waiters) -> {
+                JsonNode item = items.get(id);
+                ApiResponse itemResponse;
+                if (item == null) {
+                    itemResponse = ApiResponse.failure(404, "批量响应中没有ID: " + id);
+                } else {
+                    String body = item.toString();
+                    itemResponse = ApiResponse.success(response.getStatusCode(), body);
+                    // 接收的字节按条目计给第一个调用方，其余调用方共享同一条目
+                    waiters.get(0).request().addTransferredBytes(0, NodeCost.utf8Length(body));
+                }
+                itemResponse.setExecutionTimeMs(response.getExecutionTimeMs());
+                for (Waiter waiter : waiters) {
+                    waiter.future().complete(copy(itemResponse));
+                }
+            });
+        });
+    }
+
+    /**
+     * 同一ID的调用方只发出一次请求
+     */
+    private void sendIndividually(Function<ApiRequest, CompletableFuture<ApiResponse>> transport, List<Waiter> waiters) {
+        deduplicated.addAndGet(waiters.size() - 1);
+        transport.apply(waiters.get(0).request()).whenComplete((response, error) -> {
+            for (int i = 0; i < waiters.size(); i++) {
+                CompletableFuture<ApiResponse> future = waiters.get(i).future();
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(i == 0 ? response : copy(response));
+                }
+            }
+        });
+    }
+
+    /**
+     * 把批量响应拆分为 ID -> 条目，无法解析时返回null
+     * 对象形式的响应只有键覆盖全部请求ID时才视为以ID为键的映射，{"data": [...]} 之类的包装对象返回null
+     */
+    private Map<String, JsonNode> split(Object body, String idField, Set<String> ids) {
+        if (!(body instanceof String text)) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+        Map<String, JsonNode> items = new HashMap<>();
+        if (root.isArray()) {
+            for (JsonNode item : root) {
+                JsonNode id = item.get(idField);
+                if (id == null || id.isNull()) {
+                    return null;
+                }
+                items.put(id.asText(), item);
+            }
+            return items;
+        }
+        if (root.isObject()) {
+            for (Map.Entry<String, JsonNode> entry : root.properties()) {
+                items.put(entry.getKey(), entry.getValue());
+            }
+            return items.keySet().containsAll(ids) ? items : null;
+        }
+        return null;
+    }
+
+    private static ApiResponse copy(ApiResponse response) {
+        return new ApiResponse()
+                .setStatusCode(response.getStatusCode())
+                .setSuccess(response.isSuccess())
+                .setBody(response.getBody())
+                .setHeaders(response.getHeaders())
+                .setErrorMessage(response.getErrorMessage())
+                .setTimedOut(response.isTimedOut())
+                .setExecutionTimeMs(response.getExecutionTimeMs())
+                .setResponseTime(response.getResponseTime());
+    }
+}
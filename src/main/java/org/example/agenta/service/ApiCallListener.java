@@ -0,0 +1,21 @@
+package org.example.agenta.service;
+
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+
+/**
+ * API调用监听器，每次HTTP尝试（包括重试）结束后回调
+ * 回调在调用线程上同步执行，实现必须快速返回且不应抛出异常
+ */
+public interface ApiCallListener {
+
+    /**
+     * @param attempt       第几次尝试，从1开始
+     * @param startNanos    尝试开始时间 System.nanoTime()
+     * @param durationNanos 尝试耗时
+     * @param response      响应，抛出异常时为null
+     * @param error         异常，正常返回响应时为null
+     */
+    void onApiCallAttempt(ApiRequest request, int attempt, long startNanos, long durationNanos,
+                          ApiResponse response, Throwable error);
+}
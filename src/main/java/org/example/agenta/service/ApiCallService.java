@@ -5,16 +5,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.example.agenta.model.ApiRequest;
 import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * API调用服务
@@ -29,68 +35,79 @@ public class ApiCallService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired(required = false)
+    private List<ApiCallListener> apiCallListeners = List.of();
+    
+    @Autowired(required = false)
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
     /**
      * 异步调用API
+     * 响应式请求直接转换为future，等待响应和重试间隔期间都不占用线程
      */
     public CompletableFuture<ApiResponse> callApiAsync(ApiRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            long startTime = System.currentTimeMillis();
-            
-            try {
-                log.info("开始调用API: {} {}", request.getMethod(), request.getUrl());
-                
-                ApiResponse response = callApiWithRetry(request);
-                response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
-                
-                log.info("API调用完成: {} - 状态码: {}, 耗时: {}ms", 
-                        request.getUrl(), response.getStatusCode(), response.getExecutionTimeMs());
-                
-                return response;
-                
-            } catch (Exception e) {
-                log.error("API调用异常: {}", request.getUrl(), e);
-                return ApiResponse.error("API调用异常: " + e.getMessage())
-                        .setExecutionTimeMs(System.currentTimeMillis() - startTime);
-            }
-        });
+        long startTime = System.currentTimeMillis();
+        log.info("开始调用API: {} {}", request.getMethod(), request.getUrl());
+        
+        return callApiWithRetry(request, 1)
+                .thenApply(response -> {
+                    response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                    log.info("API调用完成: {} - 状态码: {}, 耗时: {}ms", 
+                            request.getUrl(), response.getStatusCode(), response.getExecutionTimeMs());
+                    return response;
+                })
+                .exceptionally(e -> {
+                    log.error("API调用异常: {}", request.getUrl(), e);
+                    return ApiResponse.error("API调用异常: " + e.getMessage())
+                            .setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                });
     }
     
     /**
-     * 带重试的API调用
+     * 带重试的API调用，第 attempt 次重试前延迟 1000 * attempt 毫秒
      */
-    private ApiResponse callApiWithRetry(ApiRequest request) {
+    private CompletableFuture<ApiResponse> callApiWithRetry(ApiRequest request, int attempt) {
         int maxAttempts = request.getRetryCount() + 1;
-        Exception lastException = null;
+        long attemptStart = System.nanoTime();
         
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                if (attempt > 1) {
-                    log.info("API调用重试 {}/{}: {}", attempt, maxAttempts, request.getUrl());
-                    Thread.sleep(1000 * attempt); // 递增延迟
-                }
-                
-                return executeApiCall(request);
-                
-            } catch (Exception e) {
-                lastException = e;
-                log.warn("API调用失败 {}/{}: {}", attempt, maxAttempts, e.getMessage());
-                
-                if (attempt == maxAttempts) {
-                    break;
-                }
+        return executeLimited(request).handle((response, error) -> {
+            if (error == null) {
+                fireAttempt(request, attempt, attemptStart, response, null);
+                return CompletableFuture.completedFuture(response);
             }
+            
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            fireAttempt(request, attempt, attemptStart, null, cause);
+            log.warn("API调用失败 {}/{}: {}", attempt, maxAttempts, cause.getMessage());
+            if (attempt >= maxAttempts) {
+                // 所有重试都失败
+                return CompletableFuture.completedFuture(ApiResponse.error(
+                        "API调用失败，已重试" + request.getRetryCount() + "次: " + cause.getMessage()));
+            }
+            
+            int nextAttempt = attempt + 1;
+            log.info("API调用重试 {}/{}: {}", nextAttempt, maxAttempts, request.getUrl());
+            Executor delay = CompletableFuture.delayedExecutor(1000L * nextAttempt, TimeUnit.MILLISECONDS); // 递增延迟
+            return CompletableFuture.supplyAsync(() -> nextAttempt, delay)
+                    .thenCompose(next -> callApiWithRetry(request, next));
+        }).thenCompose(Function.identity());
+    }
+    
+    /**
+     * 在目标主机的自适应并发限制内执行调用，未启用限制时直接执行
+     */
+    private CompletableFuture<ApiResponse> executeLimited(ApiRequest request) {
+        if (concurrencyLimiter == null) {
+            return executeApiCall(request);
         }
-        
-        // 所有重试都失败
-        String errorMessage = "API调用失败，已重试" + request.getRetryCount() + "次: " + 
-                             (lastException != null ? lastException.getMessage() : "未知错误");
-        return ApiResponse.error(errorMessage);
+        return concurrencyLimiter.run(request.getUrl(), () -> executeApiCall(request));
     }
     
     /**
      * 执行具体的API调用
      */
-    private ApiResponse executeApiCall(ApiRequest request) {
+    private CompletableFuture<ApiResponse> executeApiCall(ApiRequest request) {
         try {
             WebClient.RequestBodySpec requestSpec = webClient
                     .method(HttpMethod.valueOf(request.getMethod().toUpperCase()))
@@ -100,34 +117,74 @@ public class ApiCallService {
                     });
             
             // 添加请求体（如果有）
+            long sentBytes = 0;
             WebClient.ResponseSpec responseSpec;
             if (request.getBody() != null && 
                 ("POST".equals(request.getMethod().toUpperCase()) || 
                  "PUT".equals(request.getMethod().toUpperCase()))) {
                 
                 String jsonBody = convertToJson(request.getBody());
+                sentBytes = NodeCost.utf8Length(jsonBody);
                 responseSpec = requestSpec.bodyValue(jsonBody).retrieve();
             } else {
                 responseSpec = requestSpec.retrieve();
             }
+            long requestBytes = sentBytes;
             
             // 执行请求并处理响应
-            Mono<String> responseMono = responseSpec
+            return responseSpec
                     .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(request.getTimeoutSeconds()));
-            
-            String responseBody = responseMono.block();
-            
-            return ApiResponse.success(200, responseBody);
-            
-        } catch (WebClientResponseException e) {
-            log.error("API响应异常: 状态码={}, 响应体={}", e.getStatusCode(), e.getResponseBodyAsString());
-            return ApiResponse.failure(e.getStatusCode().value(), 
-                    "HTTP " + e.getStatusCode() + ": " + e.getResponseBodyAsString());
+                    .timeout(Duration.ofSeconds(request.getTimeoutSeconds()))
+                    .map(responseBody -> {
+                        request.addTransferredBytes(requestBytes, NodeCost.utf8Length(responseBody));
+                        return ApiResponse.success(200, responseBody);
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        request.addTransferredBytes(requestBytes, 0);
+                        return ApiResponse.success(200, null);
+                    }))
+                    .onErrorResume(e -> {
+                        long received = e instanceof WebClientResponseException responseException
+                                ? responseException.getResponseBodyAsByteArray().length : 0;
+                        request.addTransferredBytes(requestBytes, received);
+                        return Mono.just(toErrorResponse(e));
+                    })
+                    .toFuture();
             
         } catch (Exception e) {
-            log.error("API调用执行异常", e);
-            return ApiResponse.error("执行异常: " + e.getMessage());
+            return CompletableFuture.completedFuture(toErrorResponse(e));
+        }
+    }
+    
+    /**
+     * 将请求异常转换为失败响应
+     */
+    private ApiResponse toErrorResponse(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            log.error("API响应异常: 状态码={}, 响应体={}", 
+                    responseException.getStatusCode(), responseException.getResponseBodyAsString());
+            return ApiResponse.failure(responseException.getStatusCode().value(), 
+                    "HTTP " + responseException.getStatusCode() + ": " + responseException.getResponseBodyAsString());
+        }
+        
+        log.error("API调用执行异常", e);
+        if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+            return ApiResponse.timeout("请求超时: " + e.getMessage());
+        }
+        return ApiResponse.error("执行异常: " + e.getMessage());
+    }
+    
+    /**
+     * 通知API调用监听器
+     */
+    private void fireAttempt(ApiRequest request, int attempt, long startNanos, ApiResponse response, Throwable error) {
+        long durationNanos = System.nanoTime() - startNanos;
+        for (int i = 0; i < apiCallListeners.size(); i++) {
+            try {
+                apiCallListeners.get(i).onApiCallAttempt(request, attempt, startNanos, durationNanos, response, error);
+            } catch (Exception e) {
+                log.warn("API调用监听器回调失败: {}", e.getMessage());
+            }
         }
     }
     
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.example.agenta.model.ApiRequest;
 import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -13,8 +14,14 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 简化版API调用服务 - 使用Java 11+ 标准HTTP客户端
@@ -29,6 +36,12 @@ public class SimpleApiCallService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired(required = false)
+    private List<ApiCallListener> apiCallListeners = List.of();
+    
+    @Autowired(required = false)
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    
     public SimpleApiCallService() {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
@@ -37,113 +50,153 @@ public class SimpleApiCallService {
     
     /**
      * 异步调用API
+     * 基于 HttpClient.sendAsync，等待响应和重试间隔期间都不占用线程
      */
     public CompletableFuture<ApiResponse> callApiAsync(ApiRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-            long startTime = System.currentTimeMillis();
-            
-            try {
-                log.info("开始调用API: {} {}", request.getMethod(), request.getUrl());
-                
-                ApiResponse response = callApiWithRetry(request);
-                response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
-                
-                log.info("API调用完成: {} - 状态码: {}, 耗时: {}ms", 
-                        request.getUrl(), response.getStatusCode(), response.getExecutionTimeMs());
-                
-                return response;
-                
-            } catch (Exception e) {
-                log.error("API调用异常: {}", request.getUrl(), e);
-                return ApiResponse.error("API调用异常: " + e.getMessage())
-                        .setExecutionTimeMs(System.currentTimeMillis() - startTime);
-            }
-        });
+        long startTime = System.currentTimeMillis();
+        log.info("开始调用API: {} {}", request.getMethod(), request.getUrl());
+        
+        return callApiWithRetry(request, 1)
+                .thenApply(response -> {
+                    response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                    log.info("API调用完成: {} - 状态码: {}, 耗时: {}ms", 
+                            request.getUrl(), response.getStatusCode(), response.getExecutionTimeMs());
+                    return response;
+                })
+                .exceptionally(e -> {
+                    log.error("API调用异常: {}", request.getUrl(), e);
+                    return ApiResponse.error("API调用异常: " + e.getMessage())
+                            .setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                });
     }
     
     /**
-     * 带重试的API调用
+     * 带重试的API调用，第 attempt 次重试前延迟 1000 * attempt 毫秒
      */
-    private ApiResponse callApiWithRetry(ApiRequest request) {
+    private CompletableFuture<ApiResponse> callApiWithRetry(ApiRequest request, int attempt) {
         int maxAttempts = request.getRetryCount() + 1;
-        Exception lastException = null;
+        long attemptStart = System.nanoTime();
         
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                if (attempt > 1) {
-                    log.info("API调用重试 {}/{}: {}", attempt, maxAttempts, request.getUrl());
-                    Thread.sleep(1000 * attempt); // 递增延迟
-                }
-                
-                return executeApiCall(request);
-                
-            } catch (Exception e) {
-                lastException = e;
-                log.warn("API调用失败 {}/{}: {}", attempt, maxAttempts, e.getMessage());
-                
-                if (attempt == maxAttempts) {
-                    break;
-                }
-            }
+        CompletableFuture<ApiResponse> attemptFuture;
+        try {
+            attemptFuture = executeLimited(request);
+        } catch (Exception e) {
+            attemptFuture = CompletableFuture.failedFuture(e);
         }
         
-        // 所有重试都失败
-        String errorMessage = "API调用失败，已重试" + request.getRetryCount() + "次: " + 
-                             (lastException != null ? lastException.getMessage() : "未知错误");
-        return ApiResponse.error(errorMessage);
+        return attemptFuture.handle((response, error) -> {
+            if (error == null) {
+                fireAttempt(request, attempt, attemptStart, response, null);
+                return CompletableFuture.completedFuture(response);
+            }
+            
+            Throwable cause = unwrap(error);
+            fireAttempt(request, attempt, attemptStart, null, cause);
+            log.warn("API调用失败 {}/{}: {}", attempt, maxAttempts, cause.getMessage());
+            if (attempt >= maxAttempts) {
+                // 所有重试都失败
+                return CompletableFuture.completedFuture(ApiResponse.error(
+                        "API调用失败，已重试" + request.getRetryCount() + "次: " + cause.getMessage()));
+            }
+            
+            int nextAttempt = attempt + 1;
+            log.info("API调用重试 {}/{}: {}", nextAttempt, maxAttempts, request.getUrl());
+            Executor delay = CompletableFuture.delayedExecutor(1000L * nextAttempt, TimeUnit.MILLISECONDS); // 递增延迟
+            return CompletableFuture.supplyAsync(() -> nextAttempt, delay)
+                    .thenCompose(next -> callApiWithRetry(request, next));
+        }).thenCompose(Function.identity());
+    }
+    
+    /**
+     * 在目标主机的自适应并发限制内执行调用，未启用限制时直接执行
+     */
+    private CompletableFuture<ApiResponse> executeLimited(ApiRequest request) {
+        if (concurrencyLimiter == null) {
+            return executeApiCall(request);
+        }
+        return concurrencyLimiter.run(request.getUrl(), () -> executeApiCall(request));
     }
     
     /**
      * 执行具体的API调用
      */
-    private ApiResponse executeApiCall(ApiRequest request) throws IOException, InterruptedException {
-        try {
-            // 构建HTTP请求
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                    .uri(URI.create(request.getUrl()))
-                    .timeout(Duration.ofSeconds(request.getTimeoutSeconds()));
-            
-            // 添加请求头
-            request.getHeaders().forEach(requestBuilder::header);
-            
-            // 设置HTTP方法和请求体
-            switch (request.getMethod().toUpperCase()) {
-                case "GET":
-                    requestBuilder.GET();
-                    break;
-                case "POST":
-                    String postBody = convertToJson(request.getBody());
-                    requestBuilder.POST(HttpRequest.BodyPublishers.ofString(postBody));
-                    break;
-                case "PUT":
-                    String putBody = convertToJson(request.getBody());
-                    requestBuilder.PUT(HttpRequest.BodyPublishers.ofString(putBody));
-                    break;
-                case "DELETE":
-                    requestBuilder.DELETE();
-                    break;
-                default:
-                    throw new IllegalArgumentException("不支持的HTTP方法: " + request.getMethod());
-            }
-            
-            HttpRequest httpRequest = requestBuilder.build();
-            
-            // 执行请求
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            
-            // 构建响应
-            boolean isSuccess = response.statusCode() >= 200 && response.statusCode() < 300;
-            
-            if (isSuccess) {
-                return ApiResponse.success(response.statusCode(), response.body());
-            } else {
-                return ApiResponse.failure(response.statusCode(), 
-                        "HTTP " + response.statusCode() + ": " + response.body());
+    private CompletableFuture<ApiResponse> executeApiCall(ApiRequest request) {
+        // 构建HTTP请求
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(request.getUrl()))
+                .timeout(Duration.ofSeconds(request.getTimeoutSeconds()));
+        
+        // 添加请求头
+        request.getHeaders().forEach(requestBuilder::header);
+        
+        // 设置HTTP方法和请求体
+        long sentBytes = 0;
+        switch (request.getMethod().toUpperCase()) {
+            case "GET":
+                requestBuilder.GET();
+                break;
+            case "POST":
+                String postBody = convertToJson(request.getBody());
+                sentBytes = NodeCost.utf8Length(postBody);
+                requestBuilder.POST(HttpRequest.BodyPublishers.ofString(postBody));
+                break;
+            case "PUT":
+                String putBody = convertToJson(request.getBody());
+                sentBytes = NodeCost.utf8Length(putBody);
+                requestBuilder.PUT(HttpRequest.BodyPublishers.ofString(putBody));
+                break;
+            case "DELETE":
+                requestBuilder.DELETE();
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的HTTP方法: " + request.getMethod());
+        }
+        
+        HttpRequest httpRequest = requestBuilder.build();
+        long requestBytes = sentBytes;
+        
+        // 执行请求并构建响应
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error == null) {
+                        request.addTransferredBytes(requestBytes, NodeCost.utf8Length(response.body()));
+                        boolean isSuccess = response.statusCode() >= 200 && response.statusCode() < 300;
+                        if (isSuccess) {
+                            return ApiResponse.success(response.statusCode(), response.body());
+                        }
+                        return ApiResponse.failure(response.statusCode(), 
+                                "HTTP " + response.statusCode() + ": " + response.body());
+                    }
+                    
+                    request.addTransferredBytes(requestBytes, 0);
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof HttpTimeoutException) {
+                        log.error("API调用超时", cause);
+                        return ApiResponse.timeout("请求超时: " + cause.getMessage());
+                    }
+                    if (cause instanceof IOException) {
+                        log.error("API调用执行异常", cause);
+                        return ApiResponse.error("执行异常: " + cause.getMessage());
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    /**
+     * 通知API调用监听器
+     */
+    private void fireAttempt(ApiRequest request, int attempt, long startNanos, ApiResponse response, Throwable error) {
+        long durationNanos = System.nanoTime() - startNanos;
+        for (int i = 0; i < apiCallListeners.size(); i++) {
+            try {
+                apiCallListeners.get(i).onApiCallAttempt(request, attempt, startNanos, durationNanos, response, error);
+            } catch (Exception e) {
+                log.warn("API调用监听器回调失败: {}", e.getMessage());
             }
-            
-        } catch (IOException | InterruptedException e) {
-            log.error("API调用执行异常", e);
-            return ApiResponse.error("执行异常: " + e.getMessage());
         }
     }
     
@@ -1,19 +1,29 @@
 package org.example.agenta.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.example.agenta.agent.ApiCallAgent;
 import org.example.agenta.agent.DataProcessorAgent;
 import org.example.agenta.agent.ReportGeneratorAgent;
 import org.example.agenta.agent.ValidationAgent;
 import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.NodeExecutionBackend;
 import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
 import org.example.agenta.core.WorkflowNode;
 import org.example.agenta.model.WorkflowContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Workflow服务，负责创建和执行工作流
@@ -34,13 +44,58 @@ public class WorkflowService {
     @Autowired
     private ApiCallAgent apiCallAgent;
     
+    @Autowired(required = false)
+    private List<WorkflowExecutionListener> executionListeners = List.of();
+    
+    @Autowired(required = false)
+    private NodeExecutionBackend executionBackend;  // 启用工作进程池时存在
+    
+    /**
+     * 内置工作流共享的节点执行线程池，不随单个工作流关闭
+     */
+    private ExecutorService executorService = newExecutor();
+    
+    private static ExecutorService newExecutor() {
+        AtomicLong threadCount = new AtomicLong();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "workflow-service-exec-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 为节点执行线程池注册执行器指标
+     */
+    @Autowired(required = false)
+    public void bindTo(MeterRegistry registry) {
+        executorService = ExecutorServiceMetrics.monitor(registry, executorService, "workflowService");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+    
+    /**
+     * 创建工作流并挂载执行监听器（指标等）
+     */
+    private WorkflowDAG newWorkflow(String workflowType) {
+        WorkflowDAG workflow = new WorkflowDAG(workflowType + "-workflow-" + System.currentTimeMillis(), workflowType,
+                executorService);
+        executionListeners.forEach(workflow::addListener);
+        if (executionBackend != null) {
+            workflow.setBackend(executionBackend);
+        }
+        return workflow;
+    }
+    
     /**
      * 创建示例工作流
      * Agent1(DataProcessor) AND Agent2(Validation) -> Agent3(ReportGenerator)
      */
     public WorkflowDAG createSampleWorkflow() {
-        String workflowId = "sample-workflow-" + System.currentTimeMillis();
-        WorkflowDAG workflow = new WorkflowDAG(workflowId);
+        WorkflowDAG workflow = newWorkflow("sample");
         
         // 创建节点
         WorkflowNode node1 = new WorkflowNode("node-1", dataProcessorAgent);
@@ -55,7 +110,7 @@ public class WorkflowService {
                 .addNode(node2)
                 .addNode(node3);
         
-        log.info("创建工作流成功: {}", workflowId);
+        log.info("创建工作流成功: {}", workflow.getWorkflowId());
         return workflow;
     }
     
@@ -63,8 +118,7 @@ public class WorkflowService {
      * 创建复杂的工作流示例（展示OR逻辑）
      */
     public WorkflowDAG createComplexWorkflow() {
-        String workflowId = "complex-workflow-" + System.currentTimeMillis();
-        WorkflowDAG workflow = new WorkflowDAG(workflowId);
+        WorkflowDAG workflow = newWorkflow("complex");
         
         // 创建节点
         WorkflowNode node1 = new WorkflowNode("node-1", dataProcessorAgent);
@@ -81,7 +135,7 @@ public class WorkflowService {
                 .addNode(node2)
                 .addNode(node3);
         
-        log.info("创建复杂工作流成功: {}", workflowId);
+        log.info("创建复杂工作流成功: {}", workflow.getWorkflowId());
         return workflow;
     }
     
@@ -90,8 +144,7 @@ public class WorkflowService {
      * Agent1(DataProcessor) -> Agent2(ApiCall) -> Agent3(ReportGenerator)
      */
     public WorkflowDAG createApiWorkflow() {
-        String workflowId = "api-workflow-" + System.currentTimeMillis();
-        WorkflowDAG workflow = new WorkflowDAG(workflowId);
+        WorkflowDAG workflow = newWorkflow("api");
         
         // 创建节点
         WorkflowNode node1 = new WorkflowNode("node-1", dataProcessorAgent);
@@ -107,7 +160,7 @@ public class WorkflowService {
                 .addNode(node2)
                 .addNode(node3);
         
-        log.info("创建API工作流成功: {}", workflowId);
+        log.info("创建API工作流成功: {}", workflow.getWorkflowId());
         return workflow;
     }
     
@@ -116,8 +169,7 @@ public class WorkflowService {
      * Agent1(DataProcessor) -> [Agent2(ApiCall) AND Agent3(Validation)] -> Agent4(ReportGenerator)
      */
     public WorkflowDAG createParallelApiWorkflow() {
-        String workflowId = "parallel-api-workflow-" + System.currentTimeMillis();
-        WorkflowDAG workflow = new WorkflowDAG(workflowId);
+        WorkflowDAG workflow = newWorkflow("parallel-api");
         
         // 创建节点
         WorkflowNode node1 = new WorkflowNode("node-1", dataProcessorAgent);
@@ -138,44 +190,33 @@ public class WorkflowService {
                 .addNode(node3)
                 .addNode(node4);
         
-        log.info("创建并行API工作流成功: {}", workflowId);
+        log.info("创建并行API工作流成功: {}", workflow.getWorkflowId());
         return workflow;
     }
     
+    /**
+     * 为硬编码工作流的一次执行生成唯一的执行ID，用作上下文ID以关联追踪、历史与工作进程状态
+     * 工作流ID按毫秒生成，同类型的并发请求可能重复，只作为追踪区间的属性保留
+     */
+    public String nextExecutionId(WorkflowDAG workflow) {
+        return workflow.getWorkflowType() + "-" + UUID.randomUUID();
+    }
+    
     /**
      * 执行工作流
      */
     public CompletableFuture<Map<String, Object>> executeWorkflow(WorkflowDAG workflow, Object inputData) {
-        // 创建工作流上下文
-        WorkflowContext context = new WorkflowContext()
-                .addData("input", inputData)
-                .addData("startTime", System.currentTimeMillis());
-        
-        log.info("开始执行工作流: {}", workflow.getWorkflowId());
-        
-        return workflow.execute(context)
-                .thenApply(completedContext -> {
-                    // 生成执行摘要
-                    Map<String, Object> summary = workflow.getExecutionSummary(completedContext);
-                    summary.put("context", completedContext);
-                    summary.put("executionTime", System.currentTimeMillis() - (Long) context.getData("startTime"));
-                    
-                    log.info("工作流执行完成: {}, 摘要: {}", workflow.getWorkflowId(), summary);
-                    return summary;
-                })
-                .exceptionally(throwable -> {
-                    log.error("工作流执行失败: {}", workflow.getWorkflowId(), throwable);
-                    throw new RuntimeException("工作流执行失败", throwable);
-                });
+        WorkflowContext context = new WorkflowContext(nextExecutionId(workflow))
+                .addData("input", inputData);
+        return executeWorkflow(workflow, context);
     }
     
     /**
      * 执行工作流（带上下文）
      */
     public CompletableFuture<Map<String, Object>> executeWorkflow(WorkflowDAG workflow, WorkflowContext context) {
-        if (context.getData("startTime") == null) {
-            context.addData("startTime", System.currentTimeMillis());
-        }
+        // 开始时间保存在本地，不放入上下文，避免被客户端传入的同名数据覆盖
+        long startTime = System.currentTimeMillis();
         
         log.info("开始执行工作流: {}", workflow.getWorkflowId());
         
@@ -184,9 +225,12 @@ public class WorkflowService {
                     // 生成执行摘要
                     Map<String, Object> summary = workflow.getExecutionSummary(completedContext);
                     summary.put("context", completedContext);
-                    summary.put("executionTime", System.currentTimeMillis() - (Long) context.getData("startTime"));
+                    summary.put("executionTime", System.currentTimeMillis() - startTime);
                     
-                    log.info("工作流执行完成: {}, 摘要: {}", workflow.getWorkflowId(), summary);
+                    // 摘要中含完整上下文，只记录计数
+                    log.info("工作流执行完成: {}, 成功节点: {}/{}, 失败节点: {}, 耗时: {}ms", completedContext.getWorkflowId(),
+                            summary.get("successfulNodes"), summary.get("totalNodes"), summary.get("failedNodes"),
+                            summary.get("executionTime"));
                     return summary;
                 })
                 .exceptionally(throwable -> {
@@ -0,0 +1,68 @@
+package org.example.agenta.trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将追踪区间转换为 Chrome Trace Event 格式，可直接在 Perfetto / chrome://tracing 中打开
+ * 工作流、节点、排队和HTTP区间可能跨线程开始和结束，统一导出为异步事件对（ph=b/e）
+ */
+public final class ChromeTraceExporter {
+
+    private static final int PID = 1;
+
+    private ChromeTraceExporter() {
+    }
+
+    public static Map<String, Object> export(List<TraceSpan> spans) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        long origin = spans.stream().mapToLong(TraceSpan::startNanos).min().orElse(0L);
+
+        Map<Long, String> threadNames = new HashMap<>();
+        long asyncId = 0;
+        for (TraceSpan span : spans) {
+            threadNames.putIfAbsent(span.threadId(), span.threadName());
+            double ts = (span.startNanos() - origin) / 1000.0;
+            double dur = span.durationNanos() / 1000.0;
+
+            asyncId++;
+            Map<String, Object> begin = event(span, "b", ts);
+            begin.put("id", asyncId);
+            begin.put("args", span.args());
+            events.add(begin);
+
+            Map<String, Object> end = event(span, "e", ts + dur);
+            end.put("id", asyncId);
+            events.add(end);
+        }
+
+        threadNames.forEach((tid, name) -> {
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("name", "thread_name");
+            metadata.put("ph", "M");
+            metadata.put("pid", PID);
+            metadata.put("tid", tid);
+            metadata.put("args", Map.of("name", name));
+            events.add(metadata);
+        });
+
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+        return trace;
+    }
+
+    private static Map<String, Object> event(TraceSpan span, String phase, double ts) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", span.name());
+        event.put("cat", span.category());
+        event.put("ph", phase);
+        event.put("ts", ts);
+        event.put("pid", PID);
+        event.put("tid", span.threadId());
+        return event;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.agenta.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowExecutionListener;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.ApiCallListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 工作流执行追踪器
+ * 记录工作流、节点排队、节点运行和HTTP尝试的时间区间，保存在固定容量的环形缓冲区中，
+ * 写满后覆盖最旧的区间，内存占用有上界。
+ */
+@Component
+@Slf4j
+public class ExecutionTracer implements WorkflowExecutionListener, ApiCallListener {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final AtomicReferenceArray<TraceSpan> buffer;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ExecutionTracer(@Value("${agenta.trace.enabled:true}") boolean enabled,
+                           @Value("${agenta.trace.buffer-size:65536}") int capacity) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void onNodeStarted(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        record(context.getWorkflowId(), node.getNodeId() + " queued", "queue", queuedNanos, now - queuedNanos,
+                Map.of("nodeId", node.getNodeId(), "agentId", node.getAgent().getAgentId()));
+    }
+
+    @Override
+    public void onNodeFinished(WorkflowDAG workflow, WorkflowNode node, WorkflowContext context,
+                               AgentResult result, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        // 异步Agent与重试会在其他线程上完成，节点区间不属于任何单一线程
+        record(context.getWorkflowId(), node.getNodeId(), "node", System.nanoTime() - durationNanos, durationNanos,
+                Map.of("nodeId", node.getNodeId(),
+                        "agentId", node.getAgent().getAgentId(),
+                        "success", result != null && result.isSuccess()));
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowDAG workflow, WorkflowContext context, long durationNanos, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        record(context.getWorkflowId(), workflow.getWorkflowType(), "workflow", System.nanoTime() - durationNanos,
+                durationNanos, Map.of("workflowId", workflow.getWorkflowId(), "failed", error != null));
+    }
+
+    @Override
+    public void onApiCallAttempt(ApiRequest request, int attempt, long startNanos, long durationNanos,
+                                 ApiResponse response, Throwable error) {
+        if (!enabled || request.getWorkflowId() == null) {
+            return;
+        }
+        record(request.getWorkflowId(), request.getMethod() + " " + request.getUrl(), "http", startNanos, durationNanos,
+                Map.of("attempt", attempt,
+                        "statusCode", response != null ? response.getStatusCode() : 0,
+                        "timedOut", response != null && response.isTimedOut()));
+    }
+
+    private void record(String workflowId, String name, String category, long startNanos, long durationNanos,
+                        Map<String, Object> args) {
+        Thread thread = Thread.currentThread();
+        TraceSpan span = new TraceSpan(workflowId, name, category, startNanos, durationNanos,
+                thread.getId(), thread.getName(), args);
+        buffer.set((int) (sequence.getAndIncrement() % capacity), span);
+    }
+
+    /**
+     * 获取缓冲区中某个工作流的全部区间，按开始时间排序
+     */
+    public List<TraceSpan> getSpans(String workflowId) {
+        List<TraceSpan> spans = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            TraceSpan span = buffer.get(i);
+            if (span != null && workflowId.equals(span.workflowId())) {
+                spans.add(span);
+            }
+        }
+        spans.sort((a, b) -> Long.compare(a.startNanos(), b.startNanos()));
+        return spans;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.agenta.trace;
+
+import java.util.Map;
+
+/**
+ * 一段执行时间区间
+ * 时间为 System.nanoTime() 单调时间；区间可能在不同线程上开始和结束（排队、节点、工作流、HTTP），
+ * 导出时均作为异步事件单独成轨。
+ *
+ * @param workflowId    所属工作流ID
+ * @param name          区间名称，如节点ID、HTTP方法+URL
+ * @param category      类别：workflow / node / queue / http
+ * @param startNanos    开始时间
+ * @param durationNanos 持续时间
+ * @param threadId      记录区间的线程ID（结束时所在线程）
+ * @param threadName    记录区间的线程名
+ * @param args          附加信息，如agentId、状态码
+ */
+public record TraceSpan(String workflowId,
+                        String name,
+                        String category,
+                        long startNanos,
+                        long durationNanos,
+                        long threadId,
+                        String threadName,
+                        Map<String, Object> args) {
+}
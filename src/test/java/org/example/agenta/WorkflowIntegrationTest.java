@@ -10,8 +10,6 @@ import org.example.agenta.model.WorkflowContext;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-import java.util.Map;
-
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -57,9 +55,8 @@ public class WorkflowIntegrationTest {
         assertNotNull(reportResult);
         assertTrue(reportResult.isSuccess());
         
-        @SuppressWarnings("unchecked")
-        Map<String, Object> reportData = (Map<String, Object>) reportResult.getResult();
-        assertNotNull(reportData.get("finalReport"));
+        ReportGeneratorAgent.Report reportData = (ReportGeneratorAgent.Report) reportResult.getResult();
+        assertNotNull(reportData.finalReport());
         
         workflow.shutdown();
         
@@ -0,0 +1,84 @@
+package org.example.agenta.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作流准入控制测试
+ */
+public class WorkflowAdmissionTest {
+
+    private WorkflowAdmission newAdmission(int maxInFlight, int maxQueue, long queueTimeoutMs) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("agenta.admission.default.max-in-flight", String.valueOf(maxInFlight))
+                .withProperty("agenta.admission.default.max-queue", String.valueOf(maxQueue))
+                .withProperty("agenta.admission.default.queue-timeout-ms", String.valueOf(queueTimeoutMs));
+        return new WorkflowAdmission(environment, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testQueueFullIsRejectedWith429() {
+        WorkflowAdmission admission = newAdmission(1, 1, 10_000);
+        CompletableFuture<String> running = new CompletableFuture<>();
+
+        CompletableFuture<String> first = admission.submit("test", () -> running);
+        CompletableFuture<String> queued = admission.submit("test", () -> CompletableFuture.completedFuture("queued"));
+        CompletableFuture<String> rejected = admission.submit("test", () -> CompletableFuture.completedFuture("rejected"));
+
+        AdmissionRejectedException e = rejectionOf(rejected);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+
+        // 名额释放后排队的请求开始执行
+        assertFalse(queued.isDone());
+        running.complete("first");
+        assertEquals("first", first.join());
+        assertEquals("queued", queued.join());
+        admission.shutdown();
+    }
+
+    @Test
+    public void testQueueTimeoutIsShedWith503() throws Exception {
+        WorkflowAdmission admission = newAdmission(1, 4, 50);
+        CompletableFuture<String> running = new CompletableFuture<>();
+
+        admission.submit("test", () -> running);
+        CompletableFuture<String> queued = admission.submit("test", () -> CompletableFuture.completedFuture("late"));
+
+        AdmissionRejectedException e = rejectionOf(queued);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+
+        // 被丢弃的请求不占用名额
+        running.complete("done");
+        assertEquals("next", admission.submit("test", () -> CompletableFuture.completedFuture("next"))
+                .get(1, TimeUnit.SECONDS));
+        admission.shutdown();
+    }
+
+    @Test
+    public void testWorkflowTypesHaveIndependentLimits() {
+        WorkflowAdmission admission = newAdmission(1, 0, 1000);
+        CompletableFuture<String> running = new CompletableFuture<>();
+
+        admission.submit("api", () -> running);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejectionOf(
+                admission.submit("api", () -> CompletableFuture.completedFuture("x"))).getStatus());
+        assertEquals("sample", admission.submit("sample", () -> CompletableFuture.completedFuture("sample")).join());
+
+        running.complete("api");
+        admission.shutdown();
+    }
+
+    private static AdmissionRejectedException rejectionOf(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        return assertInstanceOf(AdmissionRejectedException.class, e.getCause());
+    }
+}
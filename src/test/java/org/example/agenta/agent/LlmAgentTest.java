@@ -0,0 +1,132 @@
+package org.example.agenta.agent;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.core.StreamingPipeline;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM Agent测试，使用返回SSE分块的本地桩服务
+ */
+public class LlmAgentTest {
+
+    private static final List<String> TOKENS = List.of("已", "清洗", "：", "数据");
+    private static final long CHUNK_DELAY_MS = 100;
+
+    private HttpServer server;
+    private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            prompts.add(request);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String token : TOKENS) {
+                    write(out, "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"stub\","
+                            + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + token + "\"},\"finish_reason\":null}]}");
+                    Thread.sleep(CHUNK_DELAY_MS);
+                }
+                write(out, "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"stub\","
+                        + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}");
+                write(out, "[DONE]");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testTokensForwardedBeforeCompletion() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmAgent agent = new LlmAgent(model(), "清洗数据：{input}", Duration.ofSeconds(10), registry);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Long> firstToken = new CompletableFuture<>();
+        long startNanos = System.nanoTime();
+        WorkflowContext context = new WorkflowContext("llm-1")
+                .put(WorkflowContext.INPUT, "原始记录")
+                .put(LlmAgent.TOKEN_LISTENER, (agentId, token) -> {
+                    firstToken.complete(System.nanoTime());
+                    received.add(token);
+                });
+
+        CompletableFuture<AgentResult> future = agent.executeAsync(context, Runnable::run).toCompletableFuture();
+        // 首个token在生成完成前就已转发
+        long firstTokenNanos = firstToken.get(10, TimeUnit.SECONDS);
+        assertFalse(future.isDone());
+        AgentResult result = future.get(10, TimeUnit.SECONDS);
+        long totalNanos = System.nanoTime() - startNanos;
+        assertTrue(firstTokenNanos - startNanos < totalNanos - TimeUnit.MILLISECONDS.toNanos(2 * CHUNK_DELAY_MS));
+
+        assertTrue(result.isSuccess());
+        LlmAgent.LlmResult output = (LlmAgent.LlmResult) result.getResult();
+        assertEquals("已清洗：数据", output.text());
+        assertEquals(TOKENS, received);
+        assertEquals(TOKENS.size(), output.tokenCount());
+        assertEquals("STOP", output.finishReason());
+        assertTrue(output.firstTokenMs() < output.totalMs());
+        assertTrue(prompts.get(0).contains("清洗数据：原始记录"));
+
+        assertEquals(1, registry.get("agenta.llm.first-token").tag("agent", LlmAgent.AGENT_ID).timer().count());
+        assertEquals(1, registry.get("agenta.llm.duration").timer().count());
+    }
+
+    @Test
+    public void testPipelineStageEmitsTokensAsRecords() {
+        LlmAgent agent = new LlmAgent(model(), "{input}", Duration.ofSeconds(2), null);
+        StreamingPipeline pipeline = new StreamingPipeline("llm-pipeline").addStage(agent, 4);
+        List<Object> records = pipeline.run(Flux.just("第一条", "第二条"), new WorkflowContext())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(2 * TOKENS.size(), records.size());
+        assertEquals(TOKENS, records.subList(0, TOKENS.size()));
+        assertEquals(2, prompts.size());
+
+        // 服务不可用时节点在超时内失败，而不是一直挂起
+        server.stop(0);
+        AgentResult failed = agent.execute(new WorkflowContext().put(WorkflowContext.INPUT, "x"));
+        assertFalse(failed.isSuccess());
+    }
+
+    private OpenAiStreamingChatModel model() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .apiKey("test")
+                .modelName("stub")
+                .timeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    private static void write(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
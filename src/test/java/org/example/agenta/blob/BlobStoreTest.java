@@ -0,0 +1,135 @@
+package org.example.agenta.blob;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 大值溢出存储测试
+ */
+public class BlobStoreTest {
+
+    private static final String LARGE = "数据".repeat(2048);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testLargeValuesSpillAndReadBack() throws Exception {
+        Files.writeString(directory.resolve("42.blob"), "上次遗留");
+        BlobStore store = newStore();
+        assertEquals(0, countFiles());
+
+        WorkflowDAG workflow = new WorkflowDAG("blob-test")
+                .addNode(new WorkflowNode("fetch", new FetchAgent()))
+                .addListener(store);
+        WorkflowContext context = new WorkflowContext("blob-1").addData("input", LARGE).addData("small", "小值");
+        workflow.execute(context).get(5, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        // 开始前放入的输入和Agent结果中嵌套的响应体都已溢出，小值仍在堆上
+        assertInstanceOf(BlobHandle.class, context.getData().get("input"));
+        assertEquals("小值", context.getData().get("small"));
+        assertEquals(LARGE, context.getData("input"));
+        ByteBuffer buffer = context.getDataBuffer("input");
+        assertTrue(buffer.isDirect());
+        assertEquals(LARGE.getBytes(StandardCharsets.UTF_8).length, buffer.remaining());
+
+        AgentResult result = context.getAgentResult("fetch-agent");
+        assertInstanceOf(BlobScope.SpilledMap.class, result.getRawResult());
+        Map<?, ?> output = (Map<?, ?>) result.getResult();
+        assertEquals(LARGE, output.get("body"));
+        assertEquals(200, output.get("status"));
+        assertEquals(2, countFiles());
+        assertEquals(2L, store.getStatus().get("liveBlobs"));
+
+        // 序列化时读回原值
+        JsonNode json = new ObjectMapper().findAndRegisterModules().valueToTree(context);
+        assertEquals(LARGE, json.get("data").get("input").asText());
+        assertEquals(LARGE, json.get("agentResults").get("fetch-agent").get("result").get("body").asText());
+        assertFalse(json.has("blobScope"));
+
+        // 覆盖时释放旧值，使用完毕后全部释放
+        context.addData("input", "替换");
+        assertEquals(1, countFiles());
+        context.releaseBlobs();
+        assertEquals(0, countFiles());
+        assertEquals(0L, store.getStatus().get("liveBytes"));
+        assertThrows(IllegalStateException.class, () -> result.getResult().toString());
+    }
+
+    @Test
+    public void testBelowThresholdAndUnattachedContextStayOnHeap() throws Exception {
+        BlobStore store = newStore();
+        WorkflowContext plain = new WorkflowContext().addData("input", LARGE);
+        assertSame(LARGE, plain.getData().get("input"));
+
+        WorkflowContext context = new WorkflowContext();
+        context.setBlobScope(store.openScope(context));
+        byte[] bytes = new byte[8192];
+        bytes[100] = 7;
+        context.addData("bytes", bytes).addData("small", "x".repeat(100));
+        // 2000个中文字符不足阈值的字符数，但UTF-8编码后约6000字节
+        String wide = "数".repeat(2000);
+        context.addData("wide", wide);
+        assertInstanceOf(BlobHandle.class, context.getData().get("wide"));
+        assertEquals(wide, context.getData("wide"));
+        assertInstanceOf(BlobHandle.class, context.getData().get("bytes"));
+        assertArrayEquals(bytes, (byte[]) context.getData("bytes"));
+        assertEquals(7, context.getDataBuffer("bytes").get(100));
+        assertEquals("x".repeat(100), context.getData().get("small"));
+        context.releaseBlobs();
+        assertEquals(0, countFiles());
+    }
+
+    private BlobStore newStore() throws Exception {
+        BlobStore store = new BlobStore(true, directory.toString(), 4096);
+        store.start();
+        return store;
+    }
+
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static class FetchAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "fetch-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "返回大响应体";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(getAgentId(), Map.of("status", 200, "body", context.getData("input")));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.example.agenta.cluster;
+
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作进程池测试：在本机启动两个工作进程
+ */
+public class WorkerPoolBackendTest {
+
+    private WorkerPoolBackend backend;
+    private WorkerLauncher launcher;
+
+    @BeforeEach
+    public void startPool() throws Exception {
+        String secret = WorkerLauncher.newSecret();
+        backend = new WorkerPoolBackend(0, agent -> agent instanceof PidAgent, 2000, secret);
+        Set<String> agentClasses = Stream.of(PidAgentA.class, PidAgentB.class, PidAgentC.class, PidAgentD.class,
+                PidAgentSink.class, SlowPidAgent.class).map(Class::getName).collect(Collectors.toSet());
+        launcher = new WorkerLauncher("127.0.0.1", backend.getPort(), secret, agentClasses, 2, 1, 300, List.of("-Xmx128m"));
+        launcher.start();
+        backend.awaitWorkers(2, 30_000);
+    }
+
+    @AfterEach
+    public void stopPool() {
+        launcher.close();
+        backend.close();
+    }
+
+    @Test
+    public void testNodesRunInWorkerProcesses() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("worker-pool-test");
+        workflow.setBackend(backend);
+        workflow.addListener(backend);
+        workflow.addNode(new WorkflowNode("a", new PidAgentA()))
+                .addNode(new WorkflowNode("b", new PidAgentB()))
+                .addNode(new WorkflowNode("c", new PidAgentC()))
+                .addNode(new WorkflowNode("d", new PidAgentD()))
+                .addNode(new WorkflowNode("sink", new PidAgentSink())
+                        .addDependency("pid-agent-a").addDependency("pid-agent-b")
+                        .addDependency("pid-agent-c").addDependency("pid-agent-d")
+                        .setOperator(LogicalOperator.AND));
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("worker-pool-test").addData("input", "hello"))
+                .get(30, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        long coordinatorPid = ProcessHandle.current().pid();
+        Set<Long> pids = new HashSet<>();
+        for (String agentId : List.of("pid-agent-a", "pid-agent-b", "pid-agent-c", "pid-agent-d")) {
+            Map<?, ?> output = (Map<?, ?>) result.getAgentResult(agentId).getResult();
+            assertEquals("hello", output.get("input"));
+            pids.add(((Number) output.get("pid")).longValue());
+        }
+        assertFalse(pids.contains(coordinatorPid), "节点应在工作进程中执行");
+        assertEquals(2, pids.size(), "两个工作进程都应分到任务");
+
+        // 下游节点在工作进程中能看到上游结果，且写入的数据合并回协调进程
+        Map<?, ?> sink = (Map<?, ?>) result.getAgentResult("pid-agent-sink").getResult();
+        assertEquals(4, ((Number) sink.get("upstreamResults")).intValue());
+        assertEquals("pid-agent-sink", result.getData("lastWriter"));
+    }
+
+    @Test
+    public void testDeletedDataIsShippedToWorkers() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("worker-delta-test");
+        workflow.setBackend(backend);
+        workflow.addListener(backend);
+        workflow.addNode(new WorkflowNode("a", new PidAgentA()))
+                .addNode(new WorkflowNode("b", new PidAgentB()))
+                .addNode(new WorkflowNode("remove", new RemoveInputAgent())
+                        .addDependency("pid-agent-a").addDependency("pid-agent-b")
+                        .setOperator(LogicalOperator.AND))
+                .addNode(new WorkflowNode("sink", new PidAgentSink()).addDependency("remove-input-agent"));
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("worker-delta-test").addData("input", "hello"))
+                .get(30, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        // 两个工作进程都已收到过 input，协调进程中的删除需同步过去
+        Map<?, ?> sink = (Map<?, ?>) result.getAgentResult("pid-agent-sink").getResult();
+        assertEquals("null", sink.get("input"));
+        assertNull(result.getData("input"));
+    }
+
+    @Test
+    public void testTaskRedispatchedWhenWorkerDies() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("worker-death-test");
+        workflow.setBackend(backend);
+        workflow.addNode(new WorkflowNode("slow", new SlowPidAgent()));
+
+        CompletableFuture<WorkflowContext> future = workflow.execute(new WorkflowContext("worker-death-test"));
+        long victim = awaitBusyWorker();
+        ProcessHandle.of(victim).ifPresent(ProcessHandle::destroyForcibly);
+
+        WorkflowContext result = future.get(30, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        AgentResult agentResult = result.getAgentResult("slow-pid-agent");
+        assertTrue(agentResult.isSuccess(), agentResult.getErrorMessage());
+        long pid = ((Number) ((Map<?, ?>) agentResult.getResult()).get("pid")).longValue();
+        assertNotEquals(victim, pid, "任务应在另一个工作进程上重新执行");
+    }
+
+    @Test
+    public void testUntrustedWorkersAndClassesAreRejected() throws Exception {
+        // 不带正确密钥的本机进程不能加入工作池
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), backend.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            WorkerProtocol.writeFrame(out, WorkerProtocol.HELLO, WorkerProtocol.encodeHello(
+                    new WorkerProtocol.Hello("intruder", 8, 1, "wrong-secret")));
+            socket.setSoTimeout(5000);
+            assertEquals(-1, socket.getInputStream().read(), "握手失败后连接应被关闭");
+        }
+        assertEquals(2, backend.getLiveWorkerCount());
+
+        // 工作进程只实例化允许列表中的Agent类
+        Set<String> allowed = Set.of(PidAgentA.class.getName(), String.class.getName());
+        assertInstanceOf(PidAgentA.class, WorkerMain.instantiate(PidAgentA.class.getName(), allowed));
+        assertThrows(IllegalStateException.class, () -> WorkerMain.instantiate(PidAgentB.class.getName(), allowed));
+        assertThrows(IllegalStateException.class, () -> WorkerMain.instantiate(String.class.getName(), allowed));
+    }
+
+    private long awaitBusyWorker() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            for (Map.Entry<Long, Integer> entry : backend.getInFlightByWorker().entrySet()) {
+                if (entry.getValue() > 0) {
+                    return entry.getKey();
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("没有工作进程接到任务");
+    }
+
+    /**
+     * 返回执行进程的pid，工作进程按类名以无参构造实例化
+     */
+    public abstract static class PidAgent implements Agent {
+
+        private final String agentId;
+        private final long sleepMs;
+
+        protected PidAgent(String agentId, long sleepMs) {
+            this.agentId = agentId;
+            this.sleepMs = sleepMs;
+        }
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "返回执行进程pid";
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            context.addData("lastWriter", agentId);
+            return AgentResult.success(agentId, Map.of(
+                    "pid", ProcessHandle.current().pid(),
+                    "input", String.valueOf(context.getData("input")),
+                    "upstreamResults", context.getAgentResults().size()));
+        }
+    }
+
+    /**
+     * 在协调进程中执行，删除上游已发送到工作进程的数据
+     */
+    private static class RemoveInputAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "remove-input-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "删除输入数据";
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            context.addData("input", null);
+            return AgentResult.success(getAgentId(), "removed");
+        }
+    }
+
+    public static class PidAgentA extends PidAgent {
+        public PidAgentA() {
+            super("pid-agent-a", 300);
+        }
+    }
+
+    public static class PidAgentB extends PidAgent {
+        public PidAgentB() {
+            super("pid-agent-b", 300);
+        }
+    }
+
+    public static class PidAgentC extends PidAgent {
+        public PidAgentC() {
+            super("pid-agent-c", 300);
+        }
+    }
+
+    public static class PidAgentD extends PidAgent {
+        public PidAgentD() {
+            super("pid-agent-d", 300);
+        }
+    }
+
+    public static class PidAgentSink extends PidAgent {
+        public PidAgentSink() {
+            super("pid-agent-sink", 0);
+        }
+    }
+
+    public static class SlowPidAgent extends PidAgent {
+        public SlowPidAgent() {
+            super("slow-pid-agent", 1500);
+        }
+    }
+}
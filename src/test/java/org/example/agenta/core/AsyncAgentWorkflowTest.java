@@ -0,0 +1,159 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步Agent调度测试
+ */
+public class AsyncAgentWorkflowTest {
+
+    @Test
+    public void testAsyncAgentsDoNotHoldThreads() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("async-test-workflow");
+        // 单线程执行器：若异步Agent等待期间占用线程，8个节点将串行执行
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        workflow.setExecutorService(executor);
+
+        WorkflowNode summary = new WorkflowNode("summary", new SyncAgent("summary-agent"))
+                .setOperator(LogicalOperator.AND);
+        for (int i = 0; i < 8; i++) {
+            String agentId = "async-agent-" + i;
+            workflow.addNode(new WorkflowNode("node-" + i, new DelayedAgent(agentId, 300, true)));
+            summary.addDependency(agentId);
+        }
+        workflow.addNode(summary);
+
+        long start = System.nanoTime();
+        WorkflowContext result = workflow.execute(new WorkflowContext("async-test-workflow")).get(10, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        workflow.shutdown();
+        // 外部传入的执行器由调用方关闭
+        assertFalse(executor.isShutdown());
+        executor.shutdown();
+
+        assertTrue(result.isAgentCompleted("summary-agent"));
+        assertEquals(9, result.getAgentResults().size());
+        assertTrue(elapsedMs < 1500, "异步节点应并发等待，实际耗时: " + elapsedMs + "ms");
+    }
+
+    @Test
+    public void testFailedStageIsRecordedAsFailure() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("async-failure-workflow")
+                .addNode(new WorkflowNode("node-1", new DelayedAgent("failing-agent", 50, false)))
+                .addNode(new WorkflowNode("node-2", new SyncAgent("after-agent"))
+                        .addDependency("failing-agent")
+                        .setOperator(LogicalOperator.NOT));
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("async-failure-workflow")).get(10, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        AgentResult failure = result.getAgentResult("failing-agent");
+        assertNotNull(failure);
+        assertFalse(failure.isSuccess());
+        assertEquals("模拟失败", failure.getErrorMessage());
+        assertTrue(workflow.getNode("node-1").isExecuted());
+    }
+
+    @Test
+    public void testWideDagChecksOnlyDependentsOfCompletedNodes() throws Exception {
+        int width = 5000;
+        WorkflowDAG workflow = new WorkflowDAG("wide-workflow");
+        WorkflowNode sink = new WorkflowNode("sink", new SyncAgent("sink-agent"));
+        for (int i = 0; i < width; i++) {
+            workflow.addNode(new WorkflowNode("node-" + i, new SyncAgent("agent-" + i)));
+            sink.addDependency("agent-" + i);
+        }
+        workflow.addNode(sink);
+        AtomicLong checks = new AtomicLong();
+        WorkflowContext context = new WorkflowContext("wide-workflow") {
+            @Override
+            public boolean isAgentCompleted(String agentId) {
+                checks.incrementAndGet();
+                return super.isAgentCompleted(agentId);
+            }
+        };
+
+        WorkflowContext result = workflow.execute(context).get(30, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        assertTrue(result.isAgentCompleted("sink-agent"));
+        // 逐次全量扫描需要约 width^2 次依赖检查，按下游索引只需与边数成正比
+        assertTrue(checks.get() < 4L * width, "依赖检查次数: " + checks.get());
+    }
+
+    /**
+     * 在延迟执行器上完成的异步Agent，不占用工作流线程
+     */
+    private record DelayedAgent(String agentId, long delayMs, boolean succeed) implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "延迟完成的异步Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return executeAsync(context, Runnable::run).toCompletableFuture().join();
+        }
+
+        @Override
+        public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+            Executor delayed = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> {
+                if (!succeed) {
+                    throw new IllegalStateException("模拟失败");
+                }
+                return AgentResult.success(agentId, Map.of("delayMs", delayMs));
+            }, delayed);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+
+    /**
+     * 同步Agent，通过默认适配器执行
+     */
+    private record SyncAgent(String agentId) implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "同步Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(agentId, Map.of("completed", context.getAgentResults().size()));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 扇出节点测试
+ */
+public class MapAgentTest {
+
+    @Test
+    public void testOrderedFanOutRespectsConcurrency() throws Exception {
+        List<Integer> records = IntStream.range(0, 100).boxed().toList();
+        DoublingAgent doubling = new DoublingAgent();
+
+        WorkflowDAG workflow = new WorkflowDAG("map-test-workflow")
+                .addNode(new WorkflowNode("fan-out", new MapAgent("double-records")
+                        .setElementAgent(doubling)
+                        .setConcurrency(4)
+                        .setBatchSize(5)));
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("map-test-workflow").addData("input", records))
+                .get(30, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        AgentResult mapResult = result.getAgentResult("double-records");
+        assertTrue(mapResult.isSuccess());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> summary = (Map<String, Object>) mapResult.getResult();
+        assertEquals(100, summary.get("succeeded"));
+        assertEquals(IntStream.range(0, 100).map(i -> i * 2).boxed().toList(), summary.get("results"));
+        assertTrue(doubling.maxActive.get() <= 4, "最大并发: " + doubling.maxActive.get());
+        assertTrue(doubling.maxActive.get() > 1, "元素应并行执行");
+    }
+
+    @Test
+    public void testUnorderedSubWorkflowWithFailures() throws Exception {
+        // 子工作流：奇数元素失败
+        WorkflowDAG subWorkflow = new WorkflowDAG("sub-workflow")
+                .addNode(new WorkflowNode("check", new EvenOnlyAgent()));
+
+        MapAgent mapAgent = new MapAgent("check-records")
+                .setSubWorkflow(() -> subWorkflow)
+                .setConcurrency(3)
+                .setReducer(MapAgent.Reducer.UNORDERED);
+        WorkflowContext context = new WorkflowContext("map-sub-workflow").addData("input", List.of(0, 1, 2, 3, 4, 5));
+
+        AgentResult mapResult = mapAgent.execute(context);
+        subWorkflow.shutdown();
+
+        assertTrue(mapResult.isSuccess());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> summary = (Map<String, Object>) mapResult.getResult();
+        assertEquals(3, summary.get("succeeded"));
+        assertEquals(3, summary.get("failed"));
+        assertEquals(3, ((List<?>) summary.get("results")).size());
+        assertEquals(3, ((List<?>) summary.get("errors")).size());
+    }
+
+    @Test
+    public void testRejectedBatchFailsFanOut() throws Exception {
+        // 执行器只接受第一批，之后的批次在上一批的完成回调中补位时被拒绝
+        AtomicInteger accepted = new AtomicInteger();
+        Executor executor = command -> {
+            if (accepted.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("执行器已关闭");
+            }
+            command.run();
+        };
+        MapAgent mapAgent = new MapAgent("rejected-records")
+                .setElementAgent(new DoublingAgent())
+                .setConcurrency(1)
+                .setBatchSize(1);
+        WorkflowContext context = new WorkflowContext("map-rejected").addData("input", List.of(1, 2, 3));
+
+        CompletableFuture<AgentResult> future = mapAgent.executeAsync(context, executor).toCompletableFuture();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    /**
+     * 异步返回元素两倍的Agent，记录同时执行的元素数
+     */
+    private static final class DoublingAgent implements Agent {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+
+        @Override
+        public String getAgentId() {
+            return "doubling-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "元素翻倍";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return executeAsync(context, Runnable::run).toCompletableFuture().join();
+        }
+
+        @Override
+        public CompletionStage<AgentResult> executeAsync(WorkflowContext context, Executor executor) {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            int item = (Integer) context.getData("item");
+            return CompletableFuture.supplyAsync(() -> {
+                active.decrementAndGet();
+                return AgentResult.success(getAgentId(), item * 2);
+            }, CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+
+    private static final class EvenOnlyAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "even-only-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "只接受偶数";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            int item = (Integer) context.getData("input");
+            return item % 2 == 0
+                    ? AgentResult.success(getAgentId(), item)
+                    : AgentResult.failure(getAgentId(), "奇数: " + item);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.agenta.core;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.metrics.WorkflowMetrics;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.SimpleApiCallService;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 节点资源消耗统计测试
+ */
+public class NodeCostTest {
+
+    @Test
+    public void testCostBreakdownInSummaryAndMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WorkflowDAG workflow = new WorkflowDAG("cost-test")
+                .addNode(new WorkflowNode("burn", new BurnAgent()))
+                .addNode(new WorkflowNode("fetch", new FetchAgent()).addDependency("burn-agent"))
+                .addListener(new WorkflowMetrics(registry));
+        WorkflowContext context = workflow.execute(new WorkflowContext()).get(10, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        NodeCost burn = context.getAgentResult("burn-agent").getCost();
+        assertTrue(burn.getWallNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        if (ThreadResources.cpuNanos() >= 0) {
+            assertTrue(burn.getCpuNanos() > 0);
+            // 睡眠不消耗CPU
+            assertTrue(burn.getCpuNanos() < burn.getWallNanos());
+        }
+        if (ThreadResources.allocatedBytes() >= 0) {
+            assertTrue(burn.getAllocatedBytes() >= 4 * 1024 * 1024);
+        }
+
+        // Agent上报的网络字节与引擎统计合并
+        NodeCost fetch = context.getAgentResult("fetch-agent").getCost();
+        assertEquals(100, fetch.getBytesSent());
+        assertEquals(2000, fetch.getBytesReceived());
+        assertTrue(fetch.getWallNanos() > 0);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> cost = (Map<String, Object>) workflow.getExecutionSummary(context).get("cost");
+        NodeCost total = (NodeCost) cost.get("total");
+        assertEquals(burn.getWallNanos() + fetch.getWallNanos(), total.getWallNanos());
+        assertEquals(2000, total.getBytesReceived());
+        assertEquals(2, ((Map<?, ?>) cost.get("nodes")).size());
+
+        assertEquals(2000, registry.get("agenta.node.network").tag("agent", "fetch-agent")
+                .tag("direction", "received").counter().count());
+        if (ThreadResources.cpuNanos() >= 0) {
+            assertTrue(registry.get("agenta.node.cpu").tag("agent", "burn-agent").counter().count() > 0);
+        }
+    }
+
+    @Test
+    public void testHttpBytesCountedAcrossAttempts() throws Exception {
+        byte[] body = "{\"message\":\"已收到\"}".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ApiRequest request = ApiRequest.post("http://127.0.0.1:" + server.getAddress().getPort() + "/echo")
+                    .setBody("请求体");
+            ApiResponse response = new SimpleApiCallService().callApiAsync(request).get(10, TimeUnit.SECONDS);
+            assertTrue(response.isSuccess());
+            assertEquals("请求体".getBytes(StandardCharsets.UTF_8).length, request.getBytesSent());
+            assertEquals(body.length, request.getBytesReceived());
+        } finally {
+            server.stop(0);
+        }
+        assertEquals("a€😀".getBytes(StandardCharsets.UTF_8).length, NodeCost.utf8Length("a€😀"));
+    }
+
+    private static class BurnAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "burn-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "消耗CPU并分配内存";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            long checksum = 0;
+            for (int i = 0; i < 4; i++) {
+                byte[] block = new byte[1024 * 1024];
+                block[i] = 1;
+                checksum += block[i];
+            }
+            for (int i = 0; i < 2_000_000; i++) {
+                checksum += Integer.bitCount(i);
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return AgentResult.success(getAgentId(), checksum);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+
+    private static class FetchAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "fetch-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "上报网络字节";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(getAgentId(), "ok").setCost(new NodeCost().setBytesSent(100).setBytesReceived(2000));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.agenta.core;
+
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 节点重试策略测试
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testRetryWaitsOnTimerWithoutHoldingThreads() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("retry-workflow");
+        // 单线程执行器：若退避期间占用线程，另一条依赖链将被推迟到重试结束之后
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        workflow.setExecutorService(executor);
+        FlakyAgent flaky = new FlakyAgent("flaky-agent", 2, "连接超时");
+        workflow.addNode(new WorkflowNode("flaky", flaky)
+                .setRetryPolicy(new RetryPolicy().setMaxAttempts(3).setInitialBackoffMillis(200).setJitter(0)));
+        Map<String, Long> finishedAt = new ConcurrentHashMap<>();
+        String previous = null;
+        for (int i = 0; i < 3; i++) {
+            WorkflowNode node = new WorkflowNode("step-" + i, new SleepingAgent("step-agent-" + i, 100));
+            if (previous != null) {
+                node.addDependency(previous);
+            }
+            workflow.addNode(node);
+            previous = "step-agent-" + i;
+        }
+        AtomicInteger started = new AtomicInteger();
+        workflow.addListener(new WorkflowExecutionListener() {
+            @Override
+            public void onNodeStarted(WorkflowDAG dag, WorkflowNode node, WorkflowContext context, long queuedNanos) {
+                started.incrementAndGet();
+            }
+
+            @Override
+            public void onNodeFinished(WorkflowDAG dag, WorkflowNode node, WorkflowContext context,
+                                       AgentResult result, long durationNanos) {
+                finishedAt.put(node.getNodeId(), System.nanoTime());
+            }
+        });
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("retry-workflow")).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        AgentResult flakyResult = result.getAgentResult("flaky-agent");
+        assertTrue(flakyResult.isSuccess());
+        assertEquals(3, flaky.calls.get());
+        assertEquals(3, flakyResult.getMetadata().get("attempts"));
+        // 退避 200ms + 400ms，节点耗时包含退避
+        assertTrue(flakyResult.getCost().getWallNanos() >= TimeUnit.MILLISECONDS.toNanos(600));
+        long leadMs = TimeUnit.NANOSECONDS.toMillis(finishedAt.get("flaky") - finishedAt.get("step-2"));
+        assertTrue(leadMs > 200, "依赖链应在退避期间执行，领先重试节点: " + leadMs + "ms");
+        // 监听器看到的仍是每个节点一次执行
+        assertEquals(4, started.get());
+    }
+
+    @Test
+    public void testNonRetryableAndExhaustedFailures() throws Exception {
+        RetryPolicy policy = new RetryPolicy().setMaxAttempts(3).setInitialBackoffMillis(10)
+                .setRetryOn(List.of("超时", "HTTP 5\\d\\d"));
+        FlakyAgent invalid = new FlakyAgent("invalid-agent", Integer.MAX_VALUE, "参数错误");
+        FlakyAgent unavailable = new FlakyAgent("unavailable-agent", Integer.MAX_VALUE, "HTTP 503");
+        WorkflowDAG workflow = new WorkflowDAG("retry-failure-workflow")
+                .addNode(new WorkflowNode("invalid", invalid).setRetryPolicy(policy))
+                .addNode(new WorkflowNode("unavailable", unavailable).setRetryPolicy(policy));
+
+        WorkflowContext result = workflow.execute(new WorkflowContext("retry-failure-workflow")).get(10, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        // 错误信息不匹配 retryOn 时不重试
+        assertFalse(result.getAgentResult("invalid-agent").isSuccess());
+        assertEquals(1, invalid.calls.get());
+        // 次数用尽后以最后一次失败结束
+        AgentResult exhausted = result.getAgentResult("unavailable-agent");
+        assertFalse(exhausted.isSuccess());
+        assertEquals("HTTP 503", exhausted.getErrorMessage());
+        assertEquals(3, unavailable.calls.get());
+        assertEquals(3, exhausted.getMetadata().get("attempts"));
+
+        // 指数退避受上限约束，抖动只缩短退避时长
+        RetryPolicy backoff = new RetryPolicy().setInitialBackoffMillis(100).setMultiplier(2)
+                .setMaxBackoffMillis(1000).setJitter(0.5);
+        for (int i = 0; i < 100; i++) {
+            long third = backoff.backoffMillis(3);
+            assertTrue(third >= 200 && third <= 400, "第3次退避: " + third);
+            assertTrue(backoff.backoffMillis(10) <= 1000);
+        }
+        assertFalse(policy.isRetryable(AgentResult.success("agent", "ok")));
+        // retryOn 在设置时编译，不合法的正则立即报错
+        assertThrows(PatternSyntaxException.class, () -> new RetryPolicy().setRetryOn(List.of("HTTP (5")));
+        assertTrue(new RetryPolicy().setRetryOn(null).isRetryable(AgentResult.failure("agent", "任意错误")));
+        assertTrue(new RetryPolicy().setRetryable(r -> r.getErrorMessage().startsWith("临时"))
+                .isRetryable(AgentResult.failure("agent", "临时不可用")));
+    }
+
+    /**
+     * 前 failures 次调用失败、之后成功的Agent
+     */
+    private static final class FlakyAgent implements Agent {
+
+        private final String agentId;
+        private final int failures;
+        private final String errorMessage;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private FlakyAgent(String agentId, int failures, String errorMessage) {
+            this.agentId = agentId;
+            this.failures = failures;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "间歇失败的Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return calls.incrementAndGet() <= failures ? AgentResult.failure(agentId, errorMessage)
+                    : AgentResult.success(agentId, "ok");
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+
+    private record SleepingAgent(String agentId, long sleepMs) implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "同步执行的Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return AgentResult.success(agentId, "done");
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.agenta.core;
+
+import org.example.agenta.agent.StreamingDataProcessorAgent;
+import org.example.agenta.agent.StreamingReportGeneratorAgent;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式流水线测试
+ */
+public class StreamingPipelineTest {
+
+    @Test
+    public void testStagesOverlapWithBoundedBuffers() {
+        AtomicLong maxRequest = new AtomicLong();
+        Flux<Integer> source = Flux.range(0, 20).doOnRequest(n -> maxRequest.accumulateAndGet(n, Math::max));
+
+        DelayStage first = new DelayStage("stage-1", 20);
+        DelayStage second = new DelayStage("stage-2", 20);
+        StreamingPipeline pipeline = new StreamingPipeline("overlap-test")
+                .addStage(first, 4)
+                .addStage(second, 4);
+
+        List<Object> output = pipeline.run(source, new WorkflowContext("overlap-test")).collectList().block();
+
+        assertEquals(IntStream.range(0, 20).boxed().toList(), output);
+        // 按各阶段记录的处理时间判断重叠，不依赖总耗时：下游开始处理第一条记录时上游仍有记录未处理完
+        assertTrue(second.starts().get(0) < first.ends().get(first.ends().size() - 1), "相邻阶段应重叠执行");
+        assertTrue(maxRequest.get() <= 4, "上游单次请求不应超过缓冲区容量: " + maxRequest.get());
+    }
+
+    @Test
+    public void testPipelineAgentInWorkflow() throws Exception {
+        StreamingPipeline pipeline = new StreamingPipeline("report-pipeline")
+                .addStage(new StreamingDataProcessorAgent(5, 4), 16)
+                .addStage(new StreamingReportGeneratorAgent(), 16);
+        WorkflowDAG workflow = new WorkflowDAG("stream-test-workflow")
+                .addNode(new WorkflowNode("stream", new StreamingPipelineAgent("stream-report", pipeline, "input")));
+
+        List<String> records = IntStream.range(0, 50).mapToObj(i -> "记录" + i).toList();
+        WorkflowContext result = workflow.execute(new WorkflowContext("stream-test-workflow").addData("input", records))
+                .get(10, TimeUnit.SECONDS);
+        workflow.shutdown();
+
+        AgentResult agentResult = result.getAgentResult("stream-report");
+        assertTrue(agentResult.isSuccess());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> output = (Map<String, Object>) agentResult.getResult();
+        assertEquals(1, output.get("count"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> report = (Map<String, Object>) ((List<?>) output.get("records")).get(0);
+        assertEquals(50L, report.get("recordCount"));
+    }
+
+    /**
+     * 每条记录延迟固定时间后原样输出，记录每条记录的开始与结束时间
+     */
+    private record DelayStage(String agentId, long delayMs, List<Long> starts, List<Long> ends)
+            implements StreamingAgent {
+
+        private DelayStage(String agentId, long delayMs) {
+            this(agentId, delayMs, new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+        }
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public Flux<Object> process(Flux<Object> records, WorkflowContext context) {
+            return records.concatMap(record -> Mono.delay(Duration.ofMillis(delayMs))
+                    .doOnSubscribe(subscription -> starts.add(System.nanoTime()))
+                    .doOnNext(tick -> ends.add(System.nanoTime()))
+                    .thenReturn(record), 1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.agenta.definition;
+
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 声明式工作流注册表测试
+ */
+public class WorkflowRegistryTest {
+
+    private static final Map<String, Agent> AGENTS = Map.of(
+            "firstAgent", new StubAgent("first-agent"),
+            "secondAgent", new StubAgent("second-agent"),
+            "thirdAgent", new StubAgent("third-agent"));
+
+    private static final String YAML = """
+            name: stub-flow
+            nodes:
+              - id: a
+                agent: firstAgent
+              - id: b
+                agent: secondAgent
+              - id: c
+                agent: thirdAgent
+                dependsOn: [a, b]
+            """;
+
+    @Test
+    public void testCompiledWorkflowIsSharedAcrossExecutions() throws Exception {
+        WorkflowRegistry registry = new WorkflowRegistry(AGENTS, List.of(), "", false);
+        WorkflowDefinition definition = registry.parse("stub-flow.yaml", stream(YAML));
+        WorkflowDAG workflow = registry.register(definition, "test");
+
+        assertSame(workflow, registry.getWorkflow("stub-flow"));
+        assertEquals(List.of("first-agent", "second-agent"), workflow.getNode("c").getDependencies());
+
+        CompletableFuture<WorkflowContext> first = workflow.execute(new WorkflowContext(registry.nextExecutionId("stub-flow")));
+        CompletableFuture<WorkflowContext> second = workflow.execute(new WorkflowContext(registry.nextExecutionId("stub-flow")));
+        for (WorkflowContext context : List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS))) {
+            assertTrue(context.isAgentCompleted("third-agent"));
+            assertEquals(3L, workflow.getExecutionSummary(context).get("completedNodes"));
+        }
+        assertNotEquals(first.get().getWorkflowId(), second.get().getWorkflowId());
+        registry.shutdown();
+    }
+
+    @Test
+    public void testInvalidDefinitionsAreRejected() throws Exception {
+        WorkflowRegistry registry = new WorkflowRegistry(AGENTS, List.of(), "", false);
+
+        String unknownAgent = YAML.replace("agent: thirdAgent", "agent: missingAgent");
+        String unknownDependency = YAML.replace("dependsOn: [a, b]", "dependsOn: [a, x]");
+        String cycle = """
+                {"name": "cycle", "nodes": [
+                  {"id": "a", "agent": "firstAgent", "dependsOn": ["b"]},
+                  {"id": "b", "agent": "secondAgent", "dependsOn": ["a"]}
+                ]}
+                """;
+
+        assertThrows(WorkflowDefinitionException.class,
+                () -> registry.register(registry.parse("a.yaml", stream(unknownAgent)), "test"));
+        assertThrows(WorkflowDefinitionException.class,
+                () -> registry.register(registry.parse("b.yaml", stream(unknownDependency)), "test"));
+        WorkflowDefinitionException e = assertThrows(WorkflowDefinitionException.class,
+                () -> registry.register(registry.parse("cycle.json", stream(cycle)), "test"));
+        assertTrue(e.getMessage().contains("循环依赖"));
+        assertTrue(registry.getWorkflowNames().isEmpty());
+
+        // 扇出节点经子工作流间接引用自身
+        String mapsToB = """
+                {"name": "flow-a", "nodes": [{"id": "fan-a", "type": "map", "workflow": "flow-b"}]}
+                """;
+        String mapsToA = """
+                {"name": "flow-b", "nodes": [{"id": "fan-b", "type": "map", "workflow": "flow-a"}]}
+                """;
+        registry.register(registry.parse("flow-a.json", stream(mapsToB)), "flow-a");
+        e = assertThrows(WorkflowDefinitionException.class,
+                () -> registry.register(registry.parse("flow-b.json", stream(mapsToA)), "flow-b"));
+        assertTrue(e.getMessage().contains("flow-b -> flow-a -> flow-b"), e.getMessage());
+        assertNull(registry.getWorkflow("flow-b"));
+        registry.shutdown();
+    }
+
+    @Test
+    public void testDirectoryHotReload(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("stub-flow.yaml");
+        Files.writeString(file, YAML);
+
+        WorkflowRegistry registry = new WorkflowRegistry(AGENTS, List.of(), dir.toString(), true);
+        registry.init();
+        assertEquals(3, registry.getWorkflow("stub-flow").getNodes().size());
+
+        // 修改为两个节点
+        Files.writeString(file, YAML.substring(0, YAML.indexOf("  - id: c")));
+        awaitTrue(() -> registry.getWorkflow("stub-flow") != null && registry.getWorkflow("stub-flow").getNodes().size() == 2);
+
+        // 无效修改保留旧版本
+        Files.writeString(file, YAML.replace("agent: firstAgent", "agent: missingAgent"));
+        Thread.sleep(500);
+        assertEquals(2, registry.getWorkflow("stub-flow").getNodes().size());
+
+        Files.delete(file);
+        awaitTrue(() -> registry.getWorkflow("stub-flow") == null);
+        registry.shutdown();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待热加载超时");
+            Thread.sleep(50);
+        }
+    }
+
+    private record StubAgent(String agentId) implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "测试Agent";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(agentId, agentId);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
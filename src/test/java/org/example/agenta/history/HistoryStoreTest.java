@@ -0,0 +1,191 @@
+package org.example.agenta.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.blob.BlobStore;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 执行历史存储测试
+ */
+public class HistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecordsIndexedAndReloaded() throws Exception {
+        // 分段上限很小，20次执行会分布在多个分段中
+        HistoryStore store = newStore(2048);
+        for (String type : List.of("alpha", "beta")) {
+            WorkflowDAG workflow = new WorkflowDAG(type, type)
+                    .addNode(new WorkflowNode("echo", new EchoAgent()))
+                    .addListener(store);
+            for (int i = 0; i < 10; i++) {
+                workflow.execute(new WorkflowContext(type + "-" + i).addData("input", "记录" + i)).get(5, TimeUnit.SECONDS);
+            }
+            workflow.shutdown();
+        }
+        store.flush(5000);
+
+        ExecutionRecord record = store.get("alpha-3");
+        assertEquals("alpha", record.getWorkflowType());
+        assertTrue(record.isSuccess());
+        assertEquals(1, record.getCompletedNodes());
+        NodeRecord node = record.getNodes().get(0);
+        assertEquals("echo-agent", node.getAgentId());
+        assertEquals("\"记录3\"".getBytes(StandardCharsets.UTF_8).length, node.getResultBytes());
+        assertEquals(Map.of("source", "test"), node.getMetadata());
+
+        long now = System.currentTimeMillis();
+        assertEquals(10, store.query("beta", now - 60_000, now, 100).size());
+        assertEquals(5, store.query(null, now - 60_000, now, 5).size());
+        assertEquals(20, store.stats(null, now - 60_000, now).get("count"));
+        assertTrue((int) store.getStatus().get("segments") > 1);
+        store.shutdown();
+
+        // 重启后从分段重建索引
+        HistoryStore reloaded = newStore(2048);
+        assertEquals("beta", reloaded.get("beta-9").getWorkflowType());
+        assertEquals(10, reloaded.query("alpha", now - 60_000, now, 100).size());
+        reloaded.shutdown();
+    }
+
+    @Test
+    public void testSpilledResultSizesSurviveRelease(@TempDir Path blobs) throws Exception {
+        BlobStore blobStore = new BlobStore(true, blobs.toString(), 4096);
+        blobStore.start();
+        HistoryStore store = newStore(1024 * 1024);
+        WorkflowDAG workflow = new WorkflowDAG("blob-history", "delta")
+                .addNode(new WorkflowNode("echo", new EchoAgent()))
+                .addListener(blobStore)
+                .addListener(store);
+        String large = "数据".repeat(2048);
+        int largeBytes = large.getBytes(StandardCharsets.UTF_8).length;
+
+        // 响应写出后立即释放溢出的值，历史记录在之后才由写线程生成
+        Map<String, Object> inputs = Map.of("blob-text", large, "blob-map", Map.of("body", large, "status", 200));
+        for (Map.Entry<String, Object> input : inputs.entrySet()) {
+            WorkflowContext context = new WorkflowContext(input.getKey()).addData("input", input.getValue());
+            workflow.execute(context).get(5, TimeUnit.SECONDS);
+            context.releaseBlobs();
+        }
+        workflow.shutdown();
+        store.flush(5000);
+
+        assertEquals(largeBytes, store.get("blob-text").getNodes().get(0).getResultBytes());
+        long nested = store.get("blob-map").getNodes().get(0).getResultBytes();
+        assertTrue(nested > largeBytes && nested < largeBytes + 100, "结果大小: " + nested);
+        store.shutdown();
+    }
+
+    @Test
+    public void testRewrittenIdReplacesOlderRecord() throws Exception {
+        long now = System.currentTimeMillis();
+        long expired = now - TimeUnit.DAYS.toMillis(30);
+        ObjectMapper mapper = new ObjectMapper();
+        Files.write(directory.resolve("segment-000000000000.jsonl"), lines(mapper,
+                record("old-1", expired), record("same-id", now - 1000)));
+        Files.write(directory.resolve("segment-000000000001.jsonl"), lines(mapper, record("same-id", now)));
+        Files.write(directory.resolve("segment-000000000002.jsonl"), lines(mapper, record("fresh-1", now)));
+
+        // 同一ID的新记录替换旧记录，旧记录不再出现在按时间或类型的查询中
+        HistoryStore store = newStore(1024 * 1024);
+        assertEquals(now, store.get("same-id").getStartedAt());
+        assertEquals(2, store.stats("old", now - 60_000, now).get("count"));
+
+        // 旧记录所在分段删除后，查询不会读到已关闭的分段
+        store.maintain();
+        List<ExecutionRecord> records = store.query("old", now - 60_000, now, 10);
+        assertEquals(2, records.size());
+        assertFalse(records.contains(null));
+        assertEquals(2, store.stats(null, now - 60_000, now).get("count"));
+        assertEquals(2, store.getStatus().get("records"));
+        store.shutdown();
+    }
+
+    @Test
+    public void testMaintenanceDeletesExpiredAndCompacts() throws Exception {
+        long now = System.currentTimeMillis();
+        long expired = now - TimeUnit.DAYS.toMillis(30);
+        ObjectMapper mapper = new ObjectMapper();
+        Files.write(directory.resolve("segment-000000000000.jsonl"), lines(mapper,
+                record("old-1", expired), record("old-2", expired)));
+        Files.write(directory.resolve("segment-000000000001.jsonl"), lines(mapper,
+                record("old-3", expired), record("fresh-1", now)));
+        Files.write(directory.resolve("segment-000000000002.jsonl"), lines(mapper, record("fresh-2", now)));
+
+        HistoryStore store = newStore(1024 * 1024);
+        assertNotNull(store.get("old-1"));
+        store.maintain();
+
+        assertNull(store.get("old-1"));
+        assertNull(store.get("old-3"));
+        assertEquals("fresh-1", store.get("fresh-1").getWorkflowId());
+        assertEquals("fresh-2", store.get("fresh-2").getWorkflowId());
+        assertEquals(2, store.getStatus().get("records"));
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(path -> path.getFileName().toString()).sorted().toList();
+            // 整段过期的分段0被删除，含过期记录的分段1被重写，当前分段2保留
+            assertEquals(List.of("segment-000000000002.jsonl", "segment-000000000003.jsonl"), names);
+        }
+        store.shutdown();
+    }
+
+    private HistoryStore newStore(long segmentBytes) throws Exception {
+        HistoryStore store = new HistoryStore(true, directory.toString(), segmentBytes, 168, 1000, 8, 20, 3_600_000);
+        store.start();
+        return store;
+    }
+
+    private static ExecutionRecord record(String workflowId, long startedAt) {
+        return new ExecutionRecord().setWorkflowId(workflowId).setWorkflowType("old").setStartedAt(startedAt)
+                .setDurationMs(10).setSuccess(true);
+    }
+
+    private static byte[] lines(ObjectMapper mapper, ExecutionRecord... records) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (ExecutionRecord record : records) {
+            builder.append(mapper.writeValueAsString(record)).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class EchoAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "echo-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "原样返回输入";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(getAgentId(), context.getData("input")).setMetadata(Map.of("source", "test"));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.agenta.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.NodeCost;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JFR事件与在线采样测试
+ */
+public class JfrEventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testEventsCarryWorkflowAndNodeFields() throws Exception {
+        JfrEventListener listener = new JfrEventListener();
+        Path file = directory.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(AgentaEvents.WorkflowStarted.class);
+            recording.enable(AgentaEvents.WorkflowFinished.class);
+            recording.enable(AgentaEvents.NodeQueued.class);
+            recording.enable(AgentaEvents.NodeStarted.class);
+            recording.enable(AgentaEvents.NodeFinished.class);
+            recording.enable(AgentaEvents.HttpAttempt.class);
+            recording.start();
+
+            runWorkflow(listener, "jfr-1");
+            ApiRequest request = ApiRequest.post("http://localhost/echo").setWorkflowId("jfr-1")
+                    .addTransferredBytes(12, 345);
+            listener.onApiCallAttempt(request, 2, System.nanoTime(), 5_000_000,
+                    ApiResponse.failure(503, "HTTP 503"), null);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent started = only(events, "WorkflowStarted");
+        assertEquals("jfr-1", started.getString("workflowId"));
+        assertEquals("jfr-test", started.getString("workflowType"));
+        assertEquals(1, started.getInt("nodeCount"));
+        assertEquals("work-agent", only(events, "NodeQueued").getString("agentId"));
+        assertTrue(only(events, "NodeStarted").getDuration("queueTime").toNanos() >= 0);
+
+        RecordedEvent node = only(events, "NodeFinished");
+        assertEquals("jfr-1", node.getString("workflowId"));
+        assertEquals("work", node.getString("nodeId"));
+        assertTrue(node.getBoolean("success"));
+        assertEquals(64, node.getLong("bytesSent"));
+        assertEquals(1024, node.getLong("bytesReceived"));
+        assertTrue(node.getDuration("executionTime").toNanos() > 0);
+
+        assertTrue(only(events, "WorkflowFinished").getBoolean("success"));
+
+        RecordedEvent http = only(events, "HttpAttempt");
+        assertEquals("jfr-1", http.getString("workflowId"));
+        assertEquals(2, http.getInt("attempt"));
+        assertEquals(503, http.getInt("statusCode"));
+        assertEquals(345, http.getLong("bytesReceived"));
+        assertEquals("HTTP 503", http.getString("error"));
+    }
+
+    @Test
+    public void testTimeBoxedRecordingReturnsFile() throws Exception {
+        ProfilingService service = new ProfilingService(true, 5, 64L * 1024 * 1024);
+        assertThrows(IllegalArgumentException.class, () -> service.record(10, "default"));
+        assertThrows(IllegalArgumentException.class, () -> service.record(1, "no-such-profile"));
+
+        CompletableFuture<Path> future = service.record(1, "default");
+        assertTrue(service.isRecording());
+        // 同一时间只允许一个录制
+        assertThrows(IllegalStateException.class, () -> service.record(1, "default"));
+        runWorkflow(new JfrEventListener(), "jfr-2");
+
+        Path file = future.get(30, TimeUnit.SECONDS);
+        try {
+            assertFalse(service.isRecording());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("jdk.CPULoad")));
+            assertEquals("jfr-2", only(events, "NodeFinished").getString("workflowId"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertThrows(IllegalStateException.class,
+                () -> new ProfilingService(false, 5, 1024).record(1, "default"));
+    }
+
+    private static void runWorkflow(JfrEventListener listener, String workflowId) throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("jfr-test")
+                .addNode(new WorkflowNode("work", new WorkAgent()))
+                .addListener(listener);
+        workflow.execute(new WorkflowContext(workflowId)).get(10, TimeUnit.SECONDS);
+        workflow.shutdown();
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matched = events.stream()
+                .filter(event -> event.getEventType().getName().equals(AgentaEvents.PREFIX + name))
+                .toList();
+        assertEquals(1, matched.size(), name);
+        return matched.get(0);
+    }
+
+    private static class WorkAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "work-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "上报网络字节";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(getAgentId(), "ok").setCost(new NodeCost().setBytesSent(64).setBytesReceived(1024));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
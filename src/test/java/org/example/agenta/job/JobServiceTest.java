@@ -0,0 +1,115 @@
+package org.example.agenta.job;
+
+import org.example.agenta.core.Agent;
+import org.example.agenta.definition.NodeDefinition;
+import org.example.agenta.definition.WorkflowDefinition;
+import org.example.agenta.definition.WorkflowRegistry;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.example.agenta.service.WorkflowService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步作业服务测试
+ */
+public class JobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testJobsSurviveRestart() throws Exception {
+        JobService service = newService(100);
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Job job = service.submit("echo", Map.of("input", "作业" + i));
+            assertNotNull(job.getJobId());
+            jobIds.add(job.getJobId());
+        }
+        for (String jobId : jobIds) {
+            Job job = service.awaitJob(jobId, 5000).get(10, TimeUnit.SECONDS);
+            assertEquals(JobStatus.SUCCEEDED, job.getStatus(), job.getError());
+        }
+        service.shutdown();
+
+        // 重启后从作业日志恢复，结果与重启前一致
+        JobService restarted = newService(100);
+        for (int i = 0; i < 3; i++) {
+            Job job = restarted.getJob(jobIds.get(i));
+            assertEquals(JobStatus.SUCCEEDED, job.getStatus());
+            Map<?, ?> result = (Map<?, ?>) job.getResult();
+            assertEquals(1, result.get("completedNodes"));
+            assertEquals("作业" + i, ((Map<?, ?>) result.get("report")).get("echo-agent"));
+            // 只保存摘要与报告，不保存完整上下文
+            assertFalse(result.containsKey("context"));
+        }
+        restarted.shutdown();
+    }
+
+    @Test
+    public void testInterruptedJobIsRequeuedAndRateLimited() throws Exception {
+        // 模拟重启前：一个作业执行到一半，日志末行写了一半
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("jobs.jsonl"), """
+                {"jobId":"j1","workflow":"echo","request":{"input":"a"},"status":"QUEUED","submittedAt":1}
+                {"jobId":"j2","workflow":"echo","request":{"input":"b"},"status":"QUEUED","submittedAt":2}
+                {"jobId":"j1","workflow":"echo","request":{"input":"a"},"status":"RUNNING","submittedAt":1,"startedAt":5}
+                {"jobId":"j2","workflow":"ec""", StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        JobService service = newService(5);
+        assertEquals(JobStatus.SUCCEEDED, service.awaitJob("j1", 5000).get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(JobStatus.SUCCEEDED, service.awaitJob("j2", 5000).get(10, TimeUnit.SECONDS).getStatus());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        service.shutdown();
+
+        // 每秒5个：第二个作业至少在第一个之后200ms出队
+        assertTrue(elapsedMs >= 200, "出队应受速率限制，实际耗时: " + elapsedMs + "ms");
+        assertEquals(2, Files.readAllLines(directory.resolve("jobs.jsonl")).stream()
+                .filter(line -> line.contains("SUCCEEDED")).count());
+    }
+
+    private JobService newService(double ratePerSecond) throws Exception {
+        WorkflowRegistry registry = new WorkflowRegistry(Map.of("echoAgent", new EchoAgent()), List.of(), "", false);
+        registry.register(new WorkflowDefinition().setName("echo")
+                .setNodes(List.of(new NodeDefinition().setId("echo").setAgent("echoAgent"))), "test");
+        JobService service = new JobService(registry, new WorkflowService(), directory.toString(),
+                24, false, 2, ratePerSecond, 100);
+        service.start();
+        return service;
+    }
+
+    private static class EchoAgent implements Agent {
+
+        @Override
+        public String getAgentId() {
+            return "echo-agent";
+        }
+
+        @Override
+        public String getDescription() {
+            return "原样返回输入";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(getAgentId(), context.getData("input"));
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.agenta.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.agent.LlmAgent;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM微批处理测试
+ */
+public class LlmBatcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testConcurrentPromptsShareRequests() throws Exception {
+        assertEquals(List.of("a", "b"), LlmBatcher.parse("```json\n[\"a\", \"b\"]\n```", 2));
+        assertNull(LlmBatcher.parse("[\"a\"]", 2));
+        assertNull(LlmBatcher.parse("无法回答", 1));
+
+        AtomicInteger calls = new AtomicInteger();
+        LlmBatcher batcher = new LlmBatcher(8, Duration.ofMillis(200), (prompt, deadline) -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(Response.from(AiMessage.from(answer(prompt, false)),
+                    null, FinishReason.STOP));
+        });
+
+        // 20条并发提示按8条一批合并，凑不满的最后一批在等待时间到后发出
+        List<CompletableFuture<LlmBatcher.Answer>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(batcher.submit("wf", "提示" + i, null));
+        }
+        for (int i = 0; i < 20; i++) {
+            LlmBatcher.Answer answer = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals("答:提示" + i, answer.completion().text());
+            assertEquals("STOP", answer.completion().finishReason());
+            assertTrue(answer.merged());
+        }
+        assertEquals(3, calls.get());
+        assertEquals(3, batcher.getBatches());
+
+        // 单条提示原样请求
+        LlmBatcher.Answer single = batcher.submit("wf", "单独", null).get(5, TimeUnit.SECONDS);
+        assertEquals("答:单独", single.completion().text());
+        assertFalse(single.merged());
+        assertEquals(4, calls.get());
+
+        // 不同批次键的提示不合并
+        CompletableFuture<LlmBatcher.Answer> first = batcher.submit("wf-a", "甲", null);
+        CompletableFuture<LlmBatcher.Answer> second = batcher.submit("wf-b", "乙", null);
+        assertEquals("答:甲", first.get(5, TimeUnit.SECONDS).completion().text());
+        assertEquals("答:乙", second.get(5, TimeUnit.SECONDS).completion().text());
+        assertFalse(first.get().merged() || second.get().merged());
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void testAgentBatchesWorkflowsAndFallsBack(@TempDir Path directory) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean malformed = new AtomicBoolean();
+        StreamingChatLanguageModel model = new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                calls.incrementAndGet();
+                String text = answer(((UserMessage) messages.get(0)).singleText(), malformed.get());
+                handler.onNext(text);
+                handler.onComplete(Response.from(AiMessage.from(text)));
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PromptCache cache = new PromptCache(directory, Duration.ofHours(1), 100, 1 << 20, 1 << 20, 10);
+        cache.start();
+        LlmAgent agent = new LlmAgent(model, "清洗：{input}", Duration.ofSeconds(5), null)
+                .withCache(cache, "test-model", Map.of())
+                .withBatching(4, Duration.ofMillis(500), registry);
+
+        // 同一工作流扇出的子工作流合并为一次请求，合并的回答不写入缓存
+        List<String> expected = List.of("答:清洗：记录0", "答:清洗：记录1", "答:清洗：记录2", "答:清洗：记录3");
+        assertEquals(expected, runConcurrently(agent, 4, i -> new WorkflowContext("wf-1#map[" + i + "]")));
+        assertEquals(1, calls.get());
+        assertNull(cache.get(PromptCache.key("test-model", Map.of(), "清洗：记录0")));
+
+        // 模型没有按格式作答时逐条重发，结果不受影响，逐条请求的回答照常缓存
+        malformed.set(true);
+        assertEquals(expected, runConcurrently(agent, 4, i -> new WorkflowContext().put(LlmAgent.BATCH_KEY, "批次")));
+        assertEquals(6, calls.get());
+        assertEquals(1, registry.get("agenta.llm.batch.fallbacks").counter().count());
+        assertEquals(2, registry.get("agenta.llm.batch.size").summary().count());
+        assertEquals("答:清洗：记录0", cache.get(PromptCache.key("test-model", Map.of(), "清洗：记录0")).text());
+
+        // 不同工作流的提示不合并
+        malformed.set(false);
+        assertEquals(List.of("答:清洗：记录4", "答:清洗：记录5"),
+                runConcurrently(agent, 6, i -> new WorkflowContext("wf-" + i)).subList(4, 6));
+        assertEquals(8, calls.get());
+        assertEquals(4, registry.get("agenta.llm.batch.size").summary().count());
+        assertEquals(4, registry.get("agenta.llm.batch.size").summary().max());
+        cache.close();
+    }
+
+    private static List<String> runConcurrently(LlmAgent agent, int count, IntFunction<WorkflowContext> contexts) {
+        List<CompletableFuture<AgentResult>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(agent.executeAsync(contexts.apply(i).put(WorkflowContext.INPUT, "记录" + i),
+                    ForkJoinPool.commonPool()).toCompletableFuture());
+        }
+        return futures.stream()
+                .map(future -> ((LlmAgent.LlmResult) future.join().getResult()).text())
+                .toList();
+    }
+
+    /**
+     * 测试用的模型：合并提示按任务逐条作答，malformed 时合并提示回答不符合格式
+     */
+    private static String answer(String prompt, boolean malformed) {
+        String[] parts = prompt.split("\n### 任务\\d+\n");
+        if (parts.length == 1) {
+            return "答:" + prompt;
+        }
+        if (malformed) {
+            return "好的，以下是各任务的回答";
+        }
+        try {
+            return MAPPER.writeValueAsString(Arrays.stream(parts).skip(1).map(task -> "答:" + task.strip()).toList());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.agenta.llm;
+
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.agent.LlmAgent;
+import org.example.agenta.model.AgentResult;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM配额调度测试
+ */
+public class LlmSchedulerTest {
+
+    @Test
+    public void testAdmitsAtQuotaRateInDeadlineOrder() throws Exception {
+        assertEquals(4, LlmScheduler.estimateTokens("你好世界", 0));
+        assertEquals(12, LlmScheduler.estimateTokens("abcdefgh", 10));
+
+        // 每秒1000个token，桶容量100
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LlmScheduler scheduler = new LlmScheduler(60_000, 600_000, 0.1, 100, 200).bindTo(registry);
+        LlmScheduler.Permit burst = scheduler.acquire(100, Long.MAX_VALUE).get(1, TimeUnit.SECONDS);
+
+        // 配额用尽后排队，按截止时间而非提交顺序放行
+        long startNanos = System.nanoTime();
+        long now = System.currentTimeMillis();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int index = i;
+            futures.add(scheduler.acquire(50, now + 10_000 - i * 100L).thenAccept(permit -> {
+                order.add(index);
+                permit.release(50, false);
+            }));
+        }
+        assertTrue(scheduler.queued() > 0);
+        assertEquals(scheduler.queued(), registry.get("agenta.llm.scheduler.queued").gauge().value());
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertEquals(List.of(7, 6, 5, 4, 3, 2, 1, 0), order);
+        assertTrue(elapsedMillis >= 300 && elapsedMillis < 3000, "耗时: " + elapsedMillis + "ms");
+        burst.release(100, false);
+
+        // 已过截止时间的请求直接失败
+        ExecutionException expired = assertThrows(ExecutionException.class,
+                () -> scheduler.acquire(10, now - 1).get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, expired.getCause());
+        assertEquals(1, registry.get("agenta.llm.scheduler.rejected").tag("reason", "deadline").counter().count());
+        assertEquals(9L, scheduler.getStatus().get("admitted"));
+        scheduler.close();
+    }
+
+    @Test
+    public void testThrottledResponsePausesAdmissions() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StreamingChatLanguageModel model = new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                if (calls.incrementAndGet() == 1) {
+                    handler.onError(new OpenAiHttpException(429, "rate limited"));
+                    return;
+                }
+                handler.onNext("好");
+                handler.onComplete(Response.from(AiMessage.from("好"), new TokenUsage(3, 1), FinishReason.STOP));
+            }
+        };
+        LlmScheduler scheduler = new LlmScheduler(600_000, 600_000, 1, 100, 300);
+        LlmAgent agent = new LlmAgent(model, "{input}", Duration.ofSeconds(5), null).withScheduler(scheduler, 16);
+
+        AgentResult throttled = agent.execute(new WorkflowContext().put(WorkflowContext.INPUT, "第一次"));
+        assertFalse(throttled.isSuccess());
+        assertEquals(1L, scheduler.getStatus().get("throttled"));
+
+        // 收到429后暂停放行一段时间，之后的请求等待而不是继续撞限流
+        long startNanos = System.nanoTime();
+        AgentResult retried = agent.execute(new WorkflowContext().put(WorkflowContext.INPUT, "第二次"));
+        assertTrue(retried.isSuccess());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) >= 200);
+        assertEquals(2, calls.get());
+
+        // 上下文中的截止时间已过时不发起请求
+        AgentResult late = agent.execute(new WorkflowContext().put(WorkflowContext.INPUT, "第三次")
+                .put(WorkflowContext.DEADLINE, System.currentTimeMillis() - 1));
+        assertFalse(late.isSuccess());
+        assertTrue(late.getErrorMessage().contains("截止时间"), late.getErrorMessage());
+        assertEquals(2, calls.get());
+        scheduler.close();
+    }
+}
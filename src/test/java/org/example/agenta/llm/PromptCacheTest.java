@@ -0,0 +1,142 @@
+package org.example.agenta.llm;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.agent.LlmAgent;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM提示缓存测试
+ */
+public class PromptCacheTest {
+
+    private static final Map<String, Object> PARAMETERS = Map.of("temperature", 0.2);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testTiersSurviveRestartAndRespectLimits() throws Exception {
+        // 不影响语义的差异得到相同的键，模型或参数不同则不同
+        String key = PromptCache.key("model", PARAMETERS, "总结：\r\n数据  \r\n");
+        assertEquals(key, PromptCache.key("model", PARAMETERS, "总结：\n数据"));
+        assertNotEquals(key, PromptCache.key("model", Map.of("temperature", 0.7), "总结：\n数据"));
+        assertNotEquals(key, PromptCache.key("other", PARAMETERS, "总结：\n数据"));
+
+        PromptCache cache = newCache(Duration.ofHours(1), 2, 1 << 20);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(PromptCache.key("model", PARAMETERS, "提示" + i));
+            cache.put(keys.get(i), completion("回答" + i));
+        }
+        cache.flush();
+        // 内存层只保留最近两条，最早的一条从磁盘读回
+        assertEquals(2, cache.getStatus().get("memoryEntries"));
+        assertEquals("回答0", cache.get(keys.get(0)).text());
+        assertEquals(1L, cache.getStatus().get("diskHits"));
+        assertNull(cache.get(PromptCache.key("model", PARAMETERS, "未缓存")));
+        cache.close();
+
+        // 崩溃时写了一半的末行在启动时丢弃；重启后预热最近写入的条目
+        Files.writeString(directory.resolve(PromptCache.LOG_FILE), "{\"key\":\"半行",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        PromptCache reopened = newCache(Duration.ofHours(1), 2, 4096);
+        assertEquals(3, reopened.getStatus().get("diskEntries"));
+        assertEquals(2, reopened.getStatus().get("memoryEntries"));
+        assertEquals("回答2", reopened.get(keys.get(2)).text());
+        assertEquals(1L, reopened.getStatus().get("memoryHits"));
+        assertEquals("回答0", reopened.get(keys.get(0)).text());
+        assertFalse(Files.readString(directory.resolve(PromptCache.LOG_FILE), StandardCharsets.UTF_8).contains("半行"));
+
+        // 超过磁盘上限时压缩，只保留较新的条目
+        for (int i = 3; i < 40; i++) {
+            reopened.put(PromptCache.key("model", PARAMETERS, "提示" + i), completion("回答" + i));
+        }
+        reopened.flush();
+        assertTrue((long) reopened.getStatus().get("diskBytes") <= 4096);
+        assertTrue((int) reopened.getStatus().get("diskEntries") < 40);
+        reopened.close();
+        PromptCache compacted = newCache(Duration.ofHours(1), 100, 4096);
+        assertEquals("回答39", compacted.get(PromptCache.key("model", PARAMETERS, "提示39")).text());
+        assertNull(compacted.get(keys.get(0)));
+        compacted.close();
+
+        // 过期条目视为未命中
+        PromptCache expiring = newCache(Duration.ofMillis(1), 10, 1 << 20);
+        String expiringKey = PromptCache.key("model", PARAMETERS, "短期");
+        expiring.put(expiringKey, completion("很快过期"));
+        Thread.sleep(5);
+        assertNull(expiring.get(expiringKey));
+        expiring.close();
+    }
+
+    @Test
+    public void testAgentServesRepeatedPromptFromCache() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StreamingChatLanguageModel model = new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                calls.incrementAndGet();
+                handler.onNext("结构化");
+                handler.onNext("数据");
+                handler.onComplete(Response.from(AiMessage.from("结构化数据"), new TokenUsage(5, 2), FinishReason.STOP));
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PromptCache cache = newCache(Duration.ofHours(1), 100, 1 << 20).bindTo(registry);
+        LlmAgent agent = new LlmAgent(model, "清洗：{input}", Duration.ofSeconds(5), null)
+                .withCache(cache, "model", PARAMETERS);
+
+        LlmAgent.LlmResult first = (LlmAgent.LlmResult) agent.execute(
+                new WorkflowContext().put(WorkflowContext.INPUT, "记录")).getResult();
+        assertFalse(first.cached());
+        assertEquals(2, first.tokenCount());
+
+        List<String> tokens = new ArrayList<>();
+        LlmAgent.LlmResult second = (LlmAgent.LlmResult) agent.execute(new WorkflowContext()
+                .put(WorkflowContext.INPUT, "记录")
+                .put(LlmAgent.TOKEN_LISTENER, (agentId, token) -> tokens.add(token))).getResult();
+        assertTrue(second.cached());
+        assertEquals("结构化数据", second.text());
+        assertEquals(List.of("结构化数据"), tokens);
+        assertEquals(5, second.inputTokens());
+        assertEquals(1, calls.get());
+
+        assertEquals(List.of("结构化数据"), agent.stream("清洗：记录").collectList().block());
+        assertEquals(1, calls.get());
+        assertEquals(2, registry.get("agenta.llm.cache.lookups").tag("result", "memory_hit").counter().count());
+        assertEquals(1, registry.get("agenta.llm.cache.lookups").tag("result", "miss").counter().count());
+        assertEquals(2.0 / 3, (double) cache.getStatus().get("hitRate"), 1e-9);
+        cache.close();
+    }
+
+    private PromptCache newCache(Duration ttl, int maxMemoryEntries, long maxDiskBytes) throws Exception {
+        PromptCache cache = new PromptCache(directory, ttl, maxMemoryEntries, 1 << 20, maxDiskBytes, 10);
+        cache.start();
+        return cache;
+    }
+
+    private static PromptCache.Completion completion(String text) {
+        return new PromptCache.Completion(text, 10, 20, "STOP");
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.agenta.llm;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.example.agenta.agent.LlmAgent;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LLM语义缓存测试
+ */
+public class SemanticCacheTest {
+
+    private static final String NAMESPACE = SemanticCache.namespace("model", Map.of("temperature", 0.2));
+
+    @Test
+    public void testIndexRecallAndBoundedCapacity() {
+        int dimensions = 32;
+        Random random = new Random(42);
+        HnswIndex index = new HnswIndex(dimensions, 2000, 16, 100);
+        float[][] vectors = new float[2000][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomUnit(random, dimensions);
+            index.insert(i, vectors[i]);
+        }
+        // 轻微扰动后的查询应找回原向量
+        int found = 0;
+        for (int i = 0; i < 100; i++) {
+            float[] query = vectors[i * 20].clone();
+            for (int d = 0; d < dimensions; d++) {
+                query[d] += (float) (random.nextGaussian() * 0.02);
+            }
+            if (index.search(SemanticCache.normalize(query), 1, 64).get(0).slot() == i * 20) {
+                found++;
+            }
+        }
+        assertTrue(found >= 95, "召回: " + found);
+        index.markDeleted(0);
+        assertNotEquals(0, index.search(vectors[0], 1, 64).get(0).slot());
+
+        // 容量由内存预算决定，写满后淘汰并重建，最近写入的仍可命中
+        SemanticCache cache = new SemanticCache(new HashingEmbedder(64), 0.99, Duration.ofHours(1), 64 * 1024, 8, 50, 32);
+        int capacity = (int) cache.getStatus().get("capacity");
+        assertTrue(capacity > 10 && capacity < 1000);
+        for (int i = 0; i < capacity * 5; i++) {
+            cache.put(NAMESPACE, "第" + i + "号订单的处理结果摘要", completion("摘要" + i));
+        }
+        assertTrue(cache.size() <= capacity);
+        assertTrue((long) cache.getStatus().get("evictions") >= capacity * 4L);
+        int last = capacity * 5 - 1;
+        assertEquals("摘要" + last, cache.get(NAMESPACE, "第" + last + "号订单的处理结果摘要").completion().text());
+    }
+
+    @Test
+    public void testNearDuplicatePromptsServedFromCache() {
+        SemanticCache cache = new SemanticCache(new HashingEmbedder(256), 0.85, Duration.ofHours(1),
+                16L * 1024 * 1024, 16, 100, 64);
+        String prompt = "请总结以下订单数据：订单1234已发货，收件人张三，配送地址上海市浦东新区";
+        cache.put(NAMESPACE, prompt, completion("订单1234已发往上海"));
+
+        // 空白、标点与少量字词不同仍命中；无关提示和其他模型不命中
+        SemanticCache.Hit hit = cache.get(NAMESPACE, "请总结以下订单数据： 订单 1234 已经发货，收件人张三，配送地址上海市浦东新区。");
+        assertNotNull(hit);
+        assertEquals("订单1234已发往上海", hit.completion().text());
+        assertTrue(hit.similarity() >= 0.85 && hit.similarity() < 1.0001);
+        assertNull(cache.get(NAMESPACE, "把下面这段话翻译成英文：今天天气很好"));
+        assertNull(cache.get(SemanticCache.namespace("other", Map.of("temperature", 0.2)), prompt));
+
+        // 同一提示在其他命名空间中的条目排在前面时仍能找到本命名空间的条目
+        String shared = "列出本周所有未发货订单的编号";
+        for (int i = 0; i < 12; i++) {
+            cache.put(SemanticCache.namespace("model-" + i, Map.of("temperature", 0.2)), shared, completion("其他" + i));
+        }
+        cache.put(NAMESPACE, shared, completion("本模型"));
+        assertEquals("本模型", cache.get(NAMESPACE, shared).completion().text());
+
+        // 查询耗时远低于一次LLM调用
+        for (int i = 0; i < 1000; i++) {
+            cache.put(NAMESPACE, "第" + i + "条不同的记录：" + i * 7919, completion("r" + i));
+        }
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            cache.get(NAMESPACE, "第" + i + "条不同的记录：" + i * 7919);
+        }
+        long averageMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos) / 1000;
+        assertTrue(averageMicros < 5000, "平均查询耗时: " + averageMicros + "us");
+
+        // Agent在精确匹配之外通过语义缓存命中
+        AtomicInteger calls = new AtomicInteger();
+        StreamingChatLanguageModel model = new StreamingChatLanguageModel() {
+            @Override
+            public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+                calls.incrementAndGet();
+                handler.onNext("已清洗");
+                handler.onComplete(Response.from(AiMessage.from("已清洗")));
+            }
+        };
+        LlmAgent agent = new LlmAgent(model, "清洗以下数据：{input}", Duration.ofSeconds(5), null)
+                .withSemanticCache(cache, "model", Map.of("temperature", 0.2));
+        agent.execute(new WorkflowContext().put(WorkflowContext.INPUT, "用户A在2024年3月购买了三件商品"));
+        LlmAgent.LlmResult result = (LlmAgent.LlmResult) agent.execute(
+                new WorkflowContext().put(WorkflowContext.INPUT, "用户A在2024年3月购买了三件商品。")).getResult();
+        assertTrue(result.cached());
+        assertEquals("已清洗", result.text());
+        assertEquals(1, calls.get());
+    }
+
+    private static float[] randomUnit(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return SemanticCache.normalize(vector);
+    }
+
+    private static PromptCache.Completion completion(String text) {
+        return new PromptCache.Completion(text, null, null, "STOP");
+    }
+}
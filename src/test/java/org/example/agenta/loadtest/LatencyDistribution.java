@@ -0,0 +1,57 @@
+package org.example.agenta.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 桩服务的响应延迟分布
+ * 规格格式：
+ * <ul>
+ *   <li>fixed:20 - 固定20ms</li>
+ *   <li>uniform:10-50 - 10~50ms均匀分布</li>
+ *   <li>exp:30 - 均值30ms的指数分布</li>
+ *   <li>lognormal:20,0.8 - 中位数20ms、sigma=0.8的对数正态分布（长尾）</li>
+ * </ul>
+ */
+public interface LatencyDistribution {
+
+    /**
+     * 采样一次延迟（微秒）
+     */
+    long sampleMicros();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":", 2);
+        String type = parts[0].toLowerCase();
+        String args = parts.length > 1 ? parts[1] : "0";
+
+        switch (type) {
+            case "fixed": {
+                long micros = toMicros(Double.parseDouble(args));
+                return () -> micros;
+            }
+            case "uniform": {
+                String[] range = args.split("-");
+                long min = toMicros(Double.parseDouble(range[0]));
+                long max = toMicros(Double.parseDouble(range[1]));
+                return () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+            }
+            case "exp": {
+                double mean = Double.parseDouble(args);
+                return () -> toMicros(-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            }
+            case "lognormal": {
+                String[] params = args.split(",");
+                double median = Double.parseDouble(params[0]);
+                double sigma = Double.parseDouble(params[1]);
+                double mu = Math.log(median);
+                return () -> toMicros(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+            default:
+                throw new IllegalArgumentException("不支持的延迟分布: " + spec);
+        }
+    }
+
+    private static long toMicros(double millis) {
+        return Math.max(0, Math.round(millis * 1000));
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.agenta.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 压测工具自检：直接对桩后端施加恒定到达率负载
+ */
+public class LoadHarnessTest {
+
+    @Test
+    public void testConstantArrivalRateAgainstStub() throws Exception {
+        try (StubBackendServer stub = new StubBackendServer(0, LatencyDistribution.parse("fixed:5"), 0.0).start()) {
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(
+                    URI.create(stub.baseUrl() + "/posts"), "{}", Duration.ofSeconds(5), 1000);
+
+            OpenModelLoadGenerator.Result result = generator.run(100, Duration.ZERO, Duration.ofSeconds(1));
+
+            assertEquals(100, result.success() + result.failures() + result.dropped());
+            assertEquals(0, result.failures());
+            assertEquals(100, stub.getRequestCount());
+            // 延迟至少包含桩后端注入的5ms
+            assertTrue(result.corrected().getValueAtPercentile(50) >= Duration.ofMillis(5).toNanos());
+        }
+    }
+
+    @Test
+    public void testStubErrorRate() throws Exception {
+        try (StubBackendServer stub = new StubBackendServer(0, LatencyDistribution.parse("fixed:0"), 1.0).start()) {
+            OpenModelLoadGenerator generator = new OpenModelLoadGenerator(
+                    URI.create(stub.baseUrl() + "/posts"), "{}", Duration.ofSeconds(5), 1000);
+
+            OpenModelLoadGenerator.Result result = generator.run(50, Duration.ZERO, Duration.ofMillis(200));
+
+            assertEquals(0, result.success());
+            assertEquals(stub.getRequestCount(), stub.getErrorCount());
+        }
+    }
+
+    @Test
+    public void testLatencyDistributionParsing() {
+        assertEquals(20_000, LatencyDistribution.parse("fixed:20").sampleMicros());
+        long uniform = LatencyDistribution.parse("uniform:10-50").sampleMicros();
+        assertTrue(uniform >= 10_000 && uniform <= 50_000);
+        assertTrue(LatencyDistribution.parse("exp:30").sampleMicros() >= 0);
+        assertTrue(LatencyDistribution.parse("lognormal:20,0.5").sampleMicros() > 0);
+        assertThrows(IllegalArgumentException.class, () -> LatencyDistribution.parse("pareto:1"));
+    }
+}
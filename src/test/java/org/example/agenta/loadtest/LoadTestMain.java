@@ -0,0 +1,81 @@
+package org.example.agenta.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.AgentAApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 端到端压测入口：启动本地桩后端和AgentA应用，以恒定到达率压测工作流接口
+ * 全部在本机离线运行，不访问外部网络。
+ *
+ * 参数（均可选）：
+ * --endpoint=api|parallel-api   压测的接口，默认 api
+ * --rate=20                     每秒到达的请求数
+ * --duration=30 --warmup=5      测量时长与预热时长（秒）
+ * --latency=lognormal:20,0.5    桩后端延迟分布，见 {@link LatencyDistribution}
+ * --error-rate=0.0              桩后端返回500的比例
+ * --timeout=60                  单个请求超时（秒）
+ * --max-in-flight=10000         客户端在途请求上限
+ * 其余以 --spring. / --server. / --agenta. 开头的参数原样传给应用
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        StringBuilder appArgs = new StringBuilder();
+        for (String arg : args) {
+            if (arg.startsWith("--spring.") || arg.startsWith("--server.") || arg.startsWith("--agenta.")) {
+                appArgs.append(arg).append('\n');
+            } else if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        String endpoint = options.getOrDefault("endpoint", "api");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        LatencyDistribution latency = LatencyDistribution.parse(options.getOrDefault("latency", "lognormal:20,0.5"));
+        double errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0.0"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "60")));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "10000"));
+
+        try (StubBackendServer stub = new StubBackendServer(0, latency, errorRate).start()) {
+            String[] springArgs = ("--server.port=0\n--agenta.demo.enabled=false\n"
+                    + "--logging.level.org.example.agenta=WARN\n" + appArgs).split("\n");
+            ConfigurableApplicationContext app = SpringApplication.run(AgentAApplication.class, springArgs);
+            try {
+                String port = app.getEnvironment().getProperty("local.server.port");
+                URI target = URI.create("http://127.0.0.1:" + port + "/api/workflow/execute/" + endpoint);
+
+                Map<String, Object> apiConfig = new HashMap<>();
+                apiConfig.put("url", stub.baseUrl() + "/posts");
+                apiConfig.put("method", "POST");
+                apiConfig.put("body", Map.of("title", "AgentA压测", "body", "压测请求体", "userId", 1));
+                String requestBody = new ObjectMapper().writeValueAsString(Map.of(
+                        "input", "压测输入数据",
+                        "apiConfig", apiConfig));
+
+                System.out.printf("压测目标: %s, 到达率: %.1f req/s, 预热: %ds, 测量: %ds, 桩后端: %s%n",
+                        target, rate, warmup.toSeconds(), duration.toSeconds(), stub.baseUrl());
+
+                OpenModelLoadGenerator generator = new OpenModelLoadGenerator(target, requestBody, timeout, maxInFlight);
+                OpenModelLoadGenerator.Result result = generator.run(rate, warmup, duration);
+
+                System.out.println("========== 压测结果 ==========");
+                System.out.print(result.format());
+                System.out.printf("桩后端收到请求: %d, 注入错误: %d%n", stub.getRequestCount(), stub.getErrorCount());
+            } finally {
+                app.close();
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.agenta.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型、恒定到达率的负载生成器
+ * 第i个请求的计划发送时间固定为 start + i/rate，与之前的请求是否完成无关；
+ * 延迟从计划发送时间开始计算，因此生成器或被测系统停顿时排队的等待时间也计入延迟（协调遗漏校正）。
+ * 同时记录从实际发送时间开始的未校正延迟，便于对比。
+ */
+public class OpenModelLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final HttpClient httpClient;
+    private final URI target;
+    private final String requestBody;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+
+    public OpenModelLoadGenerator(URI target, String requestBody, Duration requestTimeout, int maxInFlight) {
+        this.target = target;
+        this.requestBody = requestBody;
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = maxInFlight;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "load-client");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    /**
+     * 以给定到达率发送请求，warmup阶段的结果不计入统计
+     */
+    public Result run(double ratePerSecond, Duration warmup, Duration duration) throws InterruptedException {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long warmupCount = (long) (warmup.toNanos() / (double) periodNanos);
+        long totalCount = warmupCount + (long) (duration.toNanos() / (double) periodNanos);
+
+        Recorder corrected = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        AtomicLong success = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong outstanding = new AtomicLong(totalCount);
+        if (totalCount == 0) {
+            done.countDown();
+        }
+
+        long start = System.nanoTime();
+        long measureStart = start + warmupCount * periodNanos;
+
+        for (long i = 0; i < totalCount; i++) {
+            long intendedStart = start + i * periodNanos;
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = i >= warmupCount;
+
+            // 在途请求过多时丢弃，避免压测客户端自身耗尽内存；丢弃计为失败
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                if (measured) {
+                    dropped.incrementAndGet();
+                }
+                complete(outstanding, done);
+                continue;
+            }
+
+            long actualStart = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(target)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                    .build();
+
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, throwable) -> {
+                        long end = System.nanoTime();
+                        inFlight.decrementAndGet();
+                        if (measured) {
+                            corrected.recordValue(Math.min(end - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                            uncorrected.recordValue(Math.min(end - actualStart, HIGHEST_TRACKABLE_NANOS));
+                            if (throwable == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                                success.incrementAndGet();
+                            } else {
+                                failures.incrementAndGet();
+                            }
+                        }
+                        complete(outstanding, done);
+                    });
+        }
+
+        done.await(requestTimeout.toMillis() + 5000, TimeUnit.MILLISECONDS);
+        long elapsedNanos = System.nanoTime() - measureStart;
+
+        return new Result(ratePerSecond, elapsedNanos, success.get(), failures.get(), dropped.get(),
+                corrected.getIntervalHistogram(), uncorrected.getIntervalHistogram());
+    }
+
+    private static void complete(AtomicLong outstanding, CountDownLatch done) {
+        if (outstanding.decrementAndGet() == 0) {
+            done.countDown();
+        }
+    }
+
+    /**
+     * 一次压测的结果
+     */
+    public record Result(double targetRate, long elapsedNanos, long success, long failures, long dropped,
+                         Histogram corrected, Histogram uncorrected) {
+
+        public double throughput() {
+            return success / (elapsedNanos / 1e9);
+        }
+
+        public String format() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("目标到达率: %.1f req/s, 实际成功吞吐: %.1f req/s%n", targetRate, throughput()));
+            report.append(String.format("成功: %d, 失败: %d, 丢弃: %d%n", success, failures, dropped));
+            report.append(formatHistogram("延迟（协调遗漏校正）", corrected));
+            report.append(formatHistogram("延迟（未校正）", uncorrected));
+            return report.toString();
+        }
+
+        private static String formatHistogram(String title, Histogram histogram) {
+            return String.format("%s ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n", title,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.agenta.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于JDK HttpServer的本地桩后端，替代 jsonplaceholder.typicode.com
+ * 响应延迟按配置的分布采样，并按错误率返回HTTP 500
+ * 延迟通过定时器完成，不占用处理线程，因此桩服务本身不会成为瓶颈
+ */
+public class StubBackendServer implements AutoCloseable {
+
+    private static final byte[] POST_BODY = ("{\"id\":101,\"title\":\"stub\",\"body\":\"stub response\",\"userId\":1}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GET_BODY = ("{\"userId\":1,\"id\":1,\"title\":\"stub title\",\"body\":\"stub body\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR_BODY = "{\"error\":\"stub failure\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ScheduledExecutorService timer;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public StubBackendServer(int port, LatencyDistribution latency, double errorRate) throws IOException {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.timer = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "stub-backend-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    public StubBackendServer start() {
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        // 读完请求体，保证连接可以复用
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+
+        boolean fail = errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+        byte[] responseBody = fail ? ERROR_BODY
+                : "POST".equalsIgnoreCase(exchange.getRequestMethod()) ? POST_BODY : GET_BODY;
+        int status = fail ? 500 : ("POST".equalsIgnoreCase(exchange.getRequestMethod()) ? 201 : 200);
+
+        timer.schedule(() -> respond(exchange, status, responseBody, fail),
+                latency.sampleMicros(), TimeUnit.MICROSECONDS);
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body, boolean fail) {
+        try {
+            if (fail) {
+                errors.incrementAndGet();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException ignored) {
+            // 客户端已断开
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timer.shutdownNow();
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.agenta.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.agent.DataProcessorAgent;
+import org.example.agenta.agent.ValidationAgent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作流指标测试
+ */
+public class WorkflowMetricsTest {
+
+    @Test
+    public void testWorkflowAndNodeMetrics() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WorkflowMetrics metrics = new WorkflowMetrics(registry);
+
+        WorkflowDAG workflow = new WorkflowDAG("metrics-test-workflow", "metrics-test")
+                .addNode(new WorkflowNode("node-1", new DataProcessorAgent()))
+                .addNode(new WorkflowNode("node-2", new ValidationAgent()))
+                .addListener(metrics);
+
+        workflow.execute(new WorkflowContext().addData("input", "指标测试数据")).get();
+        workflow.shutdown();
+
+        assertEquals(1, registry.get(WorkflowMetrics.WORKFLOW_DURATION)
+                .tag("type", "metrics-test").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get(WorkflowMetrics.NODE_DURATION)
+                .tag("agent", "data-processor-agent").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get(WorkflowMetrics.NODE_DURATION)
+                .tag("agent", "validation-agent").tag("outcome", "success").timer().count());
+
+        // 执行结束后在途与排队计数归零
+        assertEquals(0, registry.get("agenta.workflow.inflight").gauge().value());
+        assertEquals(0, registry.get("agenta.workflow.ready.queue").gauge().value());
+        assertEquals(0, registry.get("agenta.workflow.nodes.active").gauge().value());
+
+        // 执行器拒绝任务时节点以失败结束，排队与活跃计数同样归零
+        WorkflowDAG rejected = new WorkflowDAG("metrics-rejected-workflow", "metrics-test")
+                .addNode(new WorkflowNode("node-1", new DataProcessorAgent()))
+                .addListener(metrics);
+        rejected.shutdown();
+        WorkflowContext context = rejected.execute(new WorkflowContext().addData("input", "指标测试数据")).get();
+        assertFalse(context.getAgentResult("data-processor-agent").isSuccess());
+        assertEquals(0, registry.get("agenta.workflow.ready.queue").gauge().value());
+        assertEquals(0, registry.get("agenta.workflow.nodes.active").gauge().value());
+    }
+
+    @Test
+    public void testApiCallMetricsByHostAndStatus() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WorkflowMetrics metrics = new WorkflowMetrics(registry);
+        ApiRequest request = ApiRequest.get("http://stub.local:8080/posts/1");
+
+        metrics.onApiCallAttempt(request, 1, 0L, 1_000_000L, ApiResponse.success(200, "{}"), null);
+        metrics.onApiCallAttempt(request, 1, 0L, 1_000_000L, ApiResponse.failure(503, "unavailable"), null);
+        metrics.onApiCallAttempt(request, 2, 0L, 1_000_000L, ApiResponse.timeout("timeout"), null);
+
+        assertEquals(1, registry.get(WorkflowMetrics.HTTP_CLIENT_DURATION)
+                .tag("host", "stub.local").tag("status", "200").timer().count());
+        assertEquals(1, registry.get(WorkflowMetrics.HTTP_CLIENT_DURATION)
+                .tag("host", "stub.local").tag("status", "503").timer().count());
+        assertEquals(1, registry.get(WorkflowMetrics.HTTP_CLIENT_DURATION)
+                .tag("host", "stub.local").tag("status", "TIMEOUT").timer().count());
+
+        // 主机来自请求URL，超过上限的新主机归入 other
+        for (int i = 0; i < 300; i++) {
+            metrics.onApiCallAttempt(ApiRequest.get("http://host-" + i + ".test/"), 1, 0L, 1_000_000L,
+                    ApiResponse.success(200, "{}"), null);
+        }
+        assertEquals(257, registry.find(WorkflowMetrics.HTTP_CLIENT_DURATION).timers().stream()
+                .map(timer -> timer.getId().getTag("host")).distinct().count());
+        assertTrue(registry.get(WorkflowMetrics.HTTP_CLIENT_DURATION)
+                .tag("host", WorkflowMetrics.OTHER_HOST).tag("status", "200").timer().count() > 0);
+    }
+}
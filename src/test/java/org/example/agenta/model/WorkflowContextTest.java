@@ -0,0 +1,92 @@
+package org.example.agenta.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.agent.DataProcessorAgent;
+import org.example.agenta.agent.ValidationAgent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 类型化上下文测试
+ */
+public class WorkflowContextTest {
+
+    private static final ContextKey<Integer> RETRIES = ContextKey.of("test.retries", Integer.class);
+
+    @Test
+    public void testTypedKeysShareStorageWithNames() {
+        WorkflowContext context = new WorkflowContext()
+                .put(RETRIES, 3)
+                .addData("input", "输入")
+                .addData("free", "未登记");
+        assertEquals(3, context.get(RETRIES));
+        assertEquals(3, context.getData("test.retries"));
+        assertEquals("输入", context.get(WorkflowContext.INPUT));
+
+        // 上下文创建后才登记的键落在普通存储中，读写结果一致
+        ContextKey<String> late = ContextKey.of("test.late-" + System.nanoTime(), String.class);
+        context.put(late, "后登记");
+        assertEquals("后登记", context.getData(late.name()));
+
+        context.getData().replaceAll((key, value) -> value instanceof String text ? text + "!" : value);
+        assertEquals("输入!", context.get(WorkflowContext.INPUT));
+        assertEquals(Map.of("input", "输入!", "free", "未登记!", "test.retries", 3, late.name(), "后登记!"),
+                new LinkedHashMap<>(context.getData()));
+
+        context.put(RETRIES, null).addData("free", null);
+        assertNull(context.get(RETRIES));
+        assertFalse(context.getData().containsKey("free"));
+        assertEquals(2, context.getData().size());
+
+        // 删除保留墓碑版本，重新写入同一对象也会得到新版本
+        long removed = context.dataVersion("free");
+        assertTrue(removed > 0);
+        assertEquals(removed, context.dataVersions().get("free"));
+        long before = context.dataVersion("input");
+        context.addData("input", context.getData("input"));
+        assertTrue(context.dataVersion("input") > before);
+        assertTrue(context.dataVersion("test.retries") > 0);
+        assertEquals(0, context.dataVersion("never-written"));
+
+        // 按名称写入已登记的键时校验类型，整数放宽为 Long
+        context.addData("deadline", 5);
+        assertEquals(5L, context.get(WorkflowContext.DEADLINE));
+        assertThrows(IllegalArgumentException.class, () -> context.addData("deadline", "明天"));
+        assertThrows(IllegalArgumentException.class, () -> context.getData().put("test.retries", "三"));
+        assertEquals(5L, context.get(WorkflowContext.DEADLINE));
+
+        assertSame(RETRIES, ContextKey.of("test.retries", Integer.class));
+        assertThrows(IllegalArgumentException.class, () -> ContextKey.of("test.retries", String.class));
+    }
+
+    @Test
+    public void testTypedResultsSurviveJsonRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        WorkflowContext context = new WorkflowContext("typed")
+                .addAgentResult("validation-agent", AgentResult.success("validation-agent",
+                        new ValidationAgent.ValidationResult("输入", true, 0.9, "通过")))
+                .addAgentResult("failed-agent", AgentResult.failure("failed-agent", "错误"));
+
+        JsonNode json = mapper.valueToTree(context.getAgentResult("validation-agent"));
+        assertTrue(json.get("result").get("isValid").asBoolean());
+        List<String> fields = new ArrayList<>();
+        json.get("result").fieldNames().forEachRemaining(fields::add);
+        assertEquals(List.of("inputData", "isValid", "validationScore", "validationReport"), fields);
+        assertNull(context.getResult("failed-agent", ValidationAgent.ValidationResult.class));
+
+        // 经过JSON传递的结果（如工作进程回传）按需转换为类型化结果
+        Map<?, ?> transported = Map.of("originalData", "原始", "processedData", "已处理", "dataSize", 3);
+        context.addAgentResult("data-processor-agent", AgentResult.success("data-processor-agent", transported));
+        DataProcessorAgent.ProcessedData data = context.getResult("data-processor-agent", DataProcessorAgent.ProcessedData.class);
+        assertEquals(new DataProcessorAgent.ProcessedData("原始", "已处理", 3), data);
+        assertSame(data, context.getAgentResult("data-processor-agent").getResult());
+        assertThrows(ClassCastException.class, () -> context.getResult("data-processor-agent", String.class));
+    }
+}
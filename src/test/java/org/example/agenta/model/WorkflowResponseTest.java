@@ -0,0 +1,94 @@
+package org.example.agenta.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.agenta.core.Agent;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.service.WorkflowService;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 响应裁剪测试
+ */
+public class WorkflowResponseTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void testDefaultViewSkipsHeavyFields() throws Exception {
+        WorkflowDAG workflow = new WorkflowDAG("shape-test")
+                .addNode(new WorkflowNode("load", new FixedAgent("load-agent", "x".repeat(10_000))))
+                .addNode(new WorkflowNode("report", new FixedAgent("report-agent", "最终报告"))
+                        .addDependency("load-agent"));
+        Map<String, Object> summary = new WorkflowService().executeWorkflow(workflow, "输入").get();
+        workflow.shutdown();
+
+        String compact = mapper.writeValueAsString(new WorkflowResponse(summary, workflow.getTerminalAgentIds(),
+                WorkflowResponse.parseFields(null, false)));
+        JsonNode json = mapper.readTree(compact);
+        assertEquals(2, json.get("completedNodes").asInt());
+        assertTrue(json.get("nodes").get("load-agent").get("success").asBoolean());
+        assertEquals("最终报告", json.get("report").get("report-agent").asText());
+        assertFalse(json.has("context"));
+        assertFalse(json.has("results"));
+        assertFalse(compact.contains("xxxx"));
+
+        String verbose = mapper.writeValueAsString(new WorkflowResponse(summary, workflow.getTerminalAgentIds(),
+                WorkflowResponse.parseFields("summary", true)));
+        assertTrue(mapper.readTree(verbose).has("context"));
+        assertTrue(verbose.length() > compact.length() + 10_000);
+
+        JsonNode results = mapper.readTree(mapper.writeValueAsString(new WorkflowResponse(summary,
+                workflow.getTerminalAgentIds(), WorkflowResponse.parseFields("results", false))));
+        // 每次执行的ID唯一，工作流ID只作为前缀
+        assertEquals(summary.get("workflowId"), results.get("workflowId").asText());
+        assertTrue(results.get("workflowId").asText().startsWith("shape-test-"));
+        assertTrue(results.get("results").has("load-agent"));
+        assertFalse(results.has("report"));
+    }
+
+    @Test
+    public void testParseFields() {
+        assertEquals(WorkflowResponse.DEFAULT_FIELDS, WorkflowResponse.parseFields(" ", false));
+        assertEquals(EnumSet.of(WorkflowResponse.Field.SUMMARY, WorkflowResponse.Field.CONTEXT),
+                WorkflowResponse.parseFields("summary, Context", false));
+        assertThrows(InvalidFieldsException.class, () -> WorkflowResponse.parseFields("summary,unknown", false));
+    }
+
+    private static class FixedAgent implements Agent {
+
+        private final String agentId;
+        private final String output;
+
+        FixedAgent(String agentId, String output) {
+            this.agentId = agentId;
+            this.output = output;
+        }
+
+        @Override
+        public String getAgentId() {
+            return agentId;
+        }
+
+        @Override
+        public String getDescription() {
+            return "返回固定结果";
+        }
+
+        @Override
+        public AgentResult execute(WorkflowContext context) {
+            return AgentResult.success(agentId, output);
+        }
+
+        @Override
+        public boolean canExecute(WorkflowContext context) {
+            return true;
+        }
+    }
+}
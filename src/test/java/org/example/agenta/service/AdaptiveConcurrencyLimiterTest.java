@@ -0,0 +1,135 @@
+package org.example.agenta.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.agenta.model.ApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 自适应并发限制测试
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final String URL = "http://backend.test:8080/api";
+    private static final String HOST = "backend.test:8080";
+
+    @Test
+    public void testLimitConvergesToBackendCapacity() throws Exception {
+        // 后端同时处理8个请求，超出部分排队，延迟随并发线性增长
+        AdaptiveConcurrencyLimiter saturated = new AdaptiveConcurrencyLimiter(40, 1, 200, 1000, 0.9, 500, 256);
+        drive(saturated, 64, 1500, concurrency -> Math.max(10, 10L * concurrency / 8));
+        int limit = saturated.getLimit(HOST);
+        assertTrue(limit >= 8 && limit <= 24, "限制: " + limit);
+
+        // 后端不排队时限制从较低的初始值上调
+        AdaptiveConcurrencyLimiter growing = new AdaptiveConcurrencyLimiter(2, 1, 50, 1000, 0.9, 500, 256);
+        drive(growing, 64, 1000, concurrency -> 10L);
+        assertTrue(growing.getLimit(HOST) > 10, "限制: " + growing.getLimit(HOST));
+    }
+
+    @Test
+    public void testOverloadShrinksLimitAndQueueIsBounded() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 200, 10, 0.5, 500, 256);
+        limiter.bindTo(registry);
+
+        // 同一批在途调用的503只收缩一次，之后的批次继续收缩，不低于下限
+        for (int round = 0; round < 4; round++) {
+            // 整批发出后再一起完成，确保这一批调用确实同时在途
+            CompletableFuture<Void> gate = new CompletableFuture<>();
+            List<CompletableFuture<ApiResponse>> batch = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                batch.add(limiter.run(URL, () -> gate.thenApply(ignored -> ApiResponse.failure(503, "过载"))));
+            }
+            gate.complete(null);
+            CompletableFuture.allOf(batch.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            if (round == 0) {
+                assertEquals(10, limiter.getLimit(HOST));
+            }
+        }
+        assertEquals(2, limiter.getLimit(HOST));
+        assertEquals(2.0, registry.get("agenta.api.concurrency.limit").tag("host", HOST).gauge().value());
+
+        // 限制已满时排队，超过排队上限直接拒绝
+        CompletableFuture<ApiResponse> release = new CompletableFuture<>();
+        List<CompletableFuture<ApiResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            calls.add(limiter.run(URL, () -> release));
+        }
+        assertEquals(2.0, registry.get("agenta.api.concurrency.inflight").tag("host", HOST).gauge().value());
+        CompletableFuture<ApiResponse> rejected = limiter.run(URL, () -> release);
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        release.complete(ApiResponse.success(200, "ok"));
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(0, ((Map<?, ?>) limiter.getStatus().get(HOST)).get("inFlight"));
+    }
+
+    @Test
+    public void testTrackedHostsAreBounded() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 10, 0.9, 500, 2);
+        limiter.bindTo(registry);
+
+        // 已完成调用的主机是空闲的，新主机淘汰最久未使用的主机及其指标
+        for (String host : List.of("a.test", "b.test", "c.test")) {
+            limiter.run("http://" + host + "/api", () -> CompletableFuture.completedFuture(ApiResponse.success(200, "ok")))
+                    .get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("b.test", "c.test"), limiter.getStatus().keySet().stream().sorted().toList());
+        assertNull(registry.find("agenta.api.concurrency.limit").tag("host", "a.test").gauge());
+
+        // 没有空闲主机可淘汰时，新主机共用 other 的限制
+        CompletableFuture<ApiResponse> release = new CompletableFuture<>();
+        List<CompletableFuture<ApiResponse>> calls = new ArrayList<>();
+        for (String host : List.of("b.test", "c.test", "d.test", "e.test")) {
+            calls.add(limiter.run("http://" + host + "/api", () -> release));
+        }
+        Map<String, Object> status = limiter.getStatus();
+        assertEquals(3, status.size());
+        assertEquals(2, ((Map<?, ?>) status.get(AdaptiveConcurrencyLimiter.OTHER_HOST)).get("inFlight"));
+        release.complete(ApiResponse.success(200, "ok"));
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * clients 个并发客户端持续调用 durationMillis 毫秒，延迟由当前并发数决定
+     */
+    private static void drive(AdaptiveConcurrencyLimiter limiter, int clients, long durationMillis,
+                              IntFunction<Long> latencyMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicInteger active = new AtomicInteger();
+        for (int i = 0; i < clients; i++) {
+            loop(limiter, deadline, done, active, latencyMillis);
+        }
+        assertTrue(done.await(durationMillis + 5000, TimeUnit.MILLISECONDS));
+    }
+
+    private static void loop(AdaptiveConcurrencyLimiter limiter, long deadline, CountDownLatch done,
+                             AtomicInteger active, IntFunction<Long> latencyMillis) {
+        if (System.nanoTime() > deadline) {
+            done.countDown();
+            return;
+        }
+        limiter.run(URL, () -> {
+            int concurrency = active.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                active.decrementAndGet();
+                return ApiResponse.success(200, "ok");
+            }, CompletableFuture.delayedExecutor(latencyMillis.apply(concurrency), TimeUnit.MILLISECONDS));
+        }).whenComplete((response, error) -> loop(limiter, deadline, done, active, latencyMillis));
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.agenta.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.example.agenta.model.ApiRequest;
+import org.example.agenta.model.ApiResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * API调用合并测试
+ */
+public class ApiCallCoalescerTest {
+
+    private final SimpleApiCallService transport = new SimpleApiCallService();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean malformedBulk = new AtomicBoolean();
+    private final AtomicBoolean wrappedBulk = new AtomicBoolean();
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String uri = exchange.getRequestURI().toString();
+            received.add(uri);
+            String body;
+            if (uri.startsWith("/users?ids=")) {
+                // 批量接口只认识1到3号用户
+                StringBuilder items = new StringBuilder("[");
+                for (String id : uri.substring("/users?ids=".length()).split(",")) {
+                    if (Integer.parseInt(id) <= 3) {
+                        items.append(items.length() > 1 ? "," : "").append("{\"id\":").append(id)
+                                .append(",\"name\":\"用户").append(id).append("\"}");
+                    }
+                }
+                body = malformedBulk.get() ? "<html>维护中</html>" : items.append(']').toString();
+                if (wrappedBulk.get()) {
+                    body = "{\"data\":" + body + "}";
+                }
+            } else if (uri.startsWith("/users/")) {
+                String id = uri.substring("/users/".length());
+                body = "{\"id\":" + id + ",\"name\":\"用户" + id + "\"}";
+            } else {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                body = "{\"value\":42}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testIdenticalInFlightGetsShareOneCall() throws Exception {
+        ApiCallCoalescer coalescer = new ApiCallCoalescer(new ObjectMapper(), 10, 50, List.of());
+        List<CompletableFuture<ApiResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(coalescer.callAsync(ApiRequest.get(baseUrl + "/slow"), transport::callApiAsync));
+        }
+        // 请求头不同、非GET请求不合并
+        futures.add(coalescer.callAsync(ApiRequest.get(baseUrl + "/slow").addHeader("Authorization", "other"),
+                transport::callApiAsync));
+        futures.add(coalescer.callAsync(ApiRequest.post(baseUrl + "/slow").setBody("{}"), transport::callApiAsync));
+        for (CompletableFuture<ApiResponse> future : futures) {
+            ApiResponse response = future.get(5, TimeUnit.SECONDS);
+            assertTrue(response.isSuccess());
+            assertEquals("{\"value\":42}", response.getBody());
+        }
+        assertEquals(3, received.size());
+        assertEquals(9L, coalescer.getStatus().get("deduplicated"));
+        assertNotSame(futures.get(0).get(), futures.get(1).get());
+
+        // 完成后不再共享，之后的调用重新请求
+        coalescer.callAsync(ApiRequest.get(baseUrl + "/slow"), transport::callApiAsync).get(5, TimeUnit.SECONDS);
+        assertEquals(4, received.size());
+    }
+
+    @Test
+    public void testBatchCapableEndpointMergesCalls() throws Exception {
+        ApiCallCoalescer coalescer = new ApiCallCoalescer(new ObjectMapper(), 100, 50,
+                List.of(baseUrl + "/users/{id}|" + baseUrl + "/users?ids={ids}|id"));
+        List<ApiRequest> requests = new ArrayList<>();
+        List<CompletableFuture<ApiResponse>> futures = new ArrayList<>();
+        for (String id : List.of("1", "2", "3", "3", "4")) {
+            ApiRequest request = ApiRequest.get(baseUrl + "/users/" + id);
+            requests.add(request);
+            futures.add(coalescer.callAsync(request, transport::callApiAsync));
+        }
+        for (int i = 0; i < 4; i++) {
+            ApiResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+            String id = requests.get(i).getUrl().substring(requests.get(i).getUrl().lastIndexOf('/') + 1);
+            assertEquals("{\"id\":" + id + ",\"name\":\"用户" + id + "\"}", response.getBody());
+        }
+        // 批量响应中没有的ID按404失败
+        ApiResponse missing = futures.get(4).get(5, TimeUnit.SECONDS);
+        assertFalse(missing.isSuccess());
+        assertEquals(404, missing.getStatusCode());
+        assertEquals(List.of("/users?ids=1,2,3,4"), received);
+        assertTrue(requests.get(0).getBytesReceived() > 0);
+        assertEquals(5L, coalescer.getStatus().get("batchedCalls"));
+
+        // 批量响应无法拆分时逐条重发，同一ID只发一次
+        received.clear();
+        malformedBulk.set(true);
+        futures.clear();
+        for (String id : List.of("5", "6", "6")) {
+            futures.add(coalescer.callAsync(ApiRequest.get(baseUrl + "/users/" + id), transport::callApiAsync));
+        }
+        assertEquals("{\"id\":5,\"name\":\"用户5\"}", futures.get(0).get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("{\"id\":6,\"name\":\"用户6\"}", futures.get(2).get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(3, received.size());
+        assertEquals(1L, coalescer.getStatus().get("fallbacks"));
+
+        // 包装在对象中的数组不是以ID为键的映射，同样逐条重发而不是全部按404失败
+        malformedBulk.set(false);
+        wrappedBulk.set(true);
+        futures.clear();
+        for (String id : List.of("1", "2")) {
+            futures.add(coalescer.callAsync(ApiRequest.get(baseUrl + "/users/" + id), transport::callApiAsync));
+        }
+        assertEquals("{\"id\":1,\"name\":\"用户1\"}", futures.get(0).get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("{\"id\":2,\"name\":\"用户2\"}", futures.get(1).get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(2L, coalescer.getStatus().get("fallbacks"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.agenta.trace;
+
+import org.example.agenta.agent.DataProcessorAgent;
+import org.example.agenta.agent.ReportGeneratorAgent;
+import org.example.agenta.agent.ValidationAgent;
+import org.example.agenta.core.LogicalOperator;
+import org.example.agenta.core.WorkflowDAG;
+import org.example.agenta.core.WorkflowNode;
+import org.example.agenta.model.WorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 执行追踪测试
+ */
+public class ExecutionTracerTest {
+
+    @Test
+    public void testWorkflowSpansAndChromeExport() throws Exception {
+        ExecutionTracer tracer = new ExecutionTracer(true, 1024);
+
+        WorkflowDAG workflow = new WorkflowDAG("trace-test-workflow", "trace-test")
+                .addNode(new WorkflowNode("node-1", new DataProcessorAgent()))
+                .addNode(new WorkflowNode("node-2", new ValidationAgent()))
+                .addNode(new WorkflowNode("node-3", new ReportGeneratorAgent())
+                        .addDependency("data-processor-agent")
+                        .addDependency("validation-agent")
+                        .setOperator(LogicalOperator.AND))
+                .addListener(tracer);
+
+        workflow.execute(new WorkflowContext("trace-test-workflow").addData("input", "追踪测试数据")).get();
+        workflow.shutdown();
+
+        List<TraceSpan> spans = tracer.getSpans("trace-test-workflow");
+        // 1个工作流区间 + 3个节点排队区间 + 3个节点运行区间
+        assertEquals(1, spans.stream().filter(span -> "workflow".equals(span.category())).count());
+        assertEquals(3, spans.stream().filter(span -> "queue".equals(span.category())).count());
+        assertEquals(3, spans.stream().filter(span -> "node".equals(span.category())).count());
+
+        Map<String, Object> trace = ChromeTraceExporter.export(spans);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> events = (List<Map<String, Object>>) trace.get("traceEvents");
+        // 节点可能在发起线程之外完成，全部区间导出为按ID配对的异步事件，不在线程轨道上交叠
+        assertEquals(0, events.stream().filter(event -> "X".equals(event.get("ph"))).count());
+        assertEquals(7, events.stream().filter(event -> "b".equals(event.get("ph"))).count());
+        assertEquals(7, events.stream().filter(event -> "e".equals(event.get("ph"))).count());
+        assertTrue(events.stream().anyMatch(event -> "M".equals(event.get("ph"))));
+    }
+
+    @Test
+    public void testRingBufferIsBounded() throws Exception {
+        ExecutionTracer tracer = new ExecutionTracer(true, 4);
+
+        for (int i = 0; i < 3; i++) {
+            WorkflowDAG workflow = new WorkflowDAG("ring-" + i)
+                    .addNode(new WorkflowNode("node-1", new DataProcessorAgent()))
+                    .addListener(tracer);
+            workflow.execute(new WorkflowContext("ring-" + i)).get();
+            workflow.shutdown();
+        }
+
+        // 每个工作流产生3个区间，容量为4时最早的工作流已被覆盖
+        assertTrue(tracer.getSpans("ring-0").isEmpty());
+        assertEquals(3, tracer.getSpans("ring-2").size());
+    }
+}